@@ -0,0 +1,107 @@
+package com.phorest.benchmark;
+
+import static com.phorest.factory.CsvBeanFactory.APPOINTMENT_FORMATTER;
+
+import com.phorest.factory.CsvFieldDecoders;
+import com.phorest.model.entity.Client.Gender;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the char range decoders of the csv fields with parsing the same fields as Strings, the
+ * way CsvBeanFactory did before. The String parsers include building the String, as the fields
+ * of a line batch are only available as char ranges.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@State(Scope.Thread)
+public class CsvFieldDecodersBenchmark {
+  private final Field uuid = new Field("7416ebc3-12ce-4000-87fb-82973722ebf4");
+  private final Field dateTime = new Field("2016-02-07 17:15:00 +0000");
+  private final Field price = new Field("19.5");
+  private final Field loyaltyPoints = new Field("20");
+  private final Field gender = new Field("Female");
+
+  // a field in the middle of the chars of a line, like in a line batch
+  private static class Field {
+    private static final String PADDING = "x,";
+
+    private final char[] chars;
+    private final int start;
+    private final int end;
+
+    private Field(String value) {
+      this.chars = (PADDING + value + PADDING).toCharArray();
+      this.start = PADDING.length();
+      this.end = start + value.length();
+    }
+
+    private String getString() {
+      return new String(chars, start, end - start);
+    }
+  }
+
+  @Benchmark
+  public UUID uuidFromString() {
+    return UUID.fromString(uuid.getString());
+  }
+
+  @Benchmark
+  public UUID uuidDecoder() {
+    return CsvFieldDecoders.decodeUuid(uuid.chars, uuid.start, uuid.end);
+  }
+
+  @Benchmark
+  public Instant dateTimeFormatter() {
+    return Instant.from(APPOINTMENT_FORMATTER.parse(dateTime.getString()));
+  }
+
+  @Benchmark
+  public Instant dateTimeDecoder() {
+    return CsvFieldDecoders.decodeAppointmentDateTime(dateTime.chars, dateTime.start, dateTime.end);
+  }
+
+  @Benchmark
+  public BigDecimal priceBigDecimal() {
+    return new BigDecimal(price.getString());
+  }
+
+  @Benchmark
+  public BigDecimal priceDecoder() {
+    return CsvFieldDecoders.decodePrice(price.chars, price.start, price.end);
+  }
+
+  @Benchmark
+  public int loyaltyPointsParseInt() {
+    return Integer.parseInt(loyaltyPoints.getString());
+  }
+
+  @Benchmark
+  public int loyaltyPointsDecoder() {
+    return CsvFieldDecoders.decodeInt(loyaltyPoints.chars, loyaltyPoints.start, loyaltyPoints.end);
+  }
+
+  @Benchmark
+  public Gender genderValueOf() {
+    return Gender.valueOf(gender.getString().toUpperCase());
+  }
+
+  @Benchmark
+  public Gender genderDecoder() {
+    return CsvFieldDecoders.decodeGender(gender.chars, gender.start, gender.end);
+  }
+}
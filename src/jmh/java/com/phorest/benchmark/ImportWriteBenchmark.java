@@ -0,0 +1,162 @@
+package com.phorest.benchmark;
+
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+
+import com.phorest.MainApplication;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.service.AppointmentService;
+import com.phorest.service.ClientService;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Measures the rows per second written by standard mode imports of clients, and of appointments
+ * of existing clients, with and without the bulk write profile, along with insert mode imports of
+ * clients for comparison. The application runs against a PostgreSQL test container, so Docker is
+ * needed, as for the tests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@State(Scope.Benchmark)
+public class ImportWriteBenchmark {
+  private static final int ROWS = 10_000;
+  private static final int PARENT_CLIENTS = 1_000;
+  private static final int BATCH_SIZE = 200;
+
+  private static final ImportOptions STANDARD =
+      ImportOptions.builder().mode(ImportOptions.Mode.STANDARD).build();
+  private static final ImportOptions COPY =
+      ImportOptions.builder().mode(ImportOptions.Mode.COPY).build();
+  private static final ImportOptions INSERT =
+      ImportOptions.builder().mode(ImportOptions.Mode.INSERT).build();
+
+  @Param({"none", "bulk-write"})
+  public String writeProfile;
+
+  private ConfigurableApplicationContext context;
+  private ClientService clientService;
+  private AppointmentService appointmentService;
+  private JdbcTemplate jdbcTemplate;
+
+  private final List<UUID> parentClientIds = new ArrayList<>();
+
+  private MockMultipartFile clientsFile;
+  private MockMultipartFile appointmentsFile;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    String profiles = "none".equals(writeProfile) ? "test" : "test," + writeProfile;
+
+    context =
+        new SpringApplicationBuilder(MainApplication.class)
+            .run(
+                "--spring.profiles.active=" + profiles,
+                "--server.port=0",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--csv-import.batch-size=" + BATCH_SIZE,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + BATCH_SIZE);
+
+    clientService = context.getBean(ClientService.class);
+    appointmentService = context.getBean(AppointmentService.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  // starts every iteration from the same parent clients, copied in without the write path
+  @Setup(Level.Iteration)
+  public void resetTables() {
+    jdbcTemplate.execute("TRUNCATE TABLE public.client CASCADE");
+
+    parentClientIds.clear();
+
+    for (int i = 0; i < PARENT_CLIENTS; i++) {
+      parentClientIds.add(UUID.randomUUID());
+    }
+
+    clientService.createClientsFromFile(buildClientsFile(parentClientIds), COPY);
+  }
+
+  // every invocation imports new ids
+  @Setup(Level.Invocation)
+  public void buildFiles() {
+    List<UUID> clientIds = new ArrayList<>(ROWS);
+    StringBuilder appointments = new StringBuilder("id,client_id,start_time,end_time\n");
+
+    for (int i = 0; i < ROWS; i++) {
+      clientIds.add(UUID.randomUUID());
+
+      appointments
+          .append(UUID.randomUUID())
+          .append(',')
+          .append(parentClientIds.get(i % PARENT_CLIENTS))
+          .append(",2016-02-07 17:15:00 +0000,2016-02-07 20:15:00 +0000\n");
+    }
+
+    clientsFile = buildClientsFile(clientIds);
+    appointmentsFile = buildFile("appointments.csv", appointments);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void importClients() {
+    clientService.createClientsFromFile(clientsFile, STANDARD);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void importClientsInInsertMode() {
+    clientService.createClientsFromFile(clientsFile, INSERT);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void importAppointments() {
+    appointmentService.createAppointmentsFromFile(appointmentsFile, STANDARD);
+  }
+
+  private static MockMultipartFile buildClientsFile(List<UUID> clientIds) {
+    StringBuilder clients =
+        new StringBuilder("id,first_name,last_name,email,phone,gender,banned\n");
+
+    for (UUID clientId : clientIds) {
+      clients
+          .append(clientId)
+          .append(",Dori,Dietrich,patrica@keeling.net,(272) 301-6356,Male,false\n");
+    }
+
+    return buildFile("clients.csv", clients);
+  }
+
+  private static MockMultipartFile buildFile(String name, CharSequence content) {
+    return new MockMultipartFile(
+        "file", name, CSV_CONTENT_TYPE, content.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,102 @@
+package com.phorest.benchmark;
+
+import com.phorest.mapper.ClientMapper;
+import com.phorest.mapper.PurchaseMapper;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.entity.Client;
+import com.phorest.model.entity.Client.Gender;
+import com.phorest.model.entity.Purchase;
+import com.phorest.model.response.ClientResponse;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.convention.MatchingStrategies;
+import org.modelmapper.module.jdk8.Jdk8Module;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the hand-written mappers with ModelMapper, configured the way the services used it, on
+ * the mappings of every imported row and of every response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@State(Scope.Thread)
+public class MappersBenchmark {
+  private final ModelMapper modelMapper = buildModelMapper();
+
+  private final ClientMapper clientMapper = new ClientMapper();
+  private final PurchaseMapper purchaseMapper = new PurchaseMapper();
+
+  private final ClientCsvBean clientCsvBean =
+      ClientCsvBean.builder()
+          .id(UUID.fromString("e0b8ebfc-6e57-4661-9546-328c644a3764"))
+          .firstName("Dori")
+          .lastName("Dietrich")
+          .email("patrica@keeling.net")
+          .phone("(272) 301-6356")
+          .gender(Gender.MALE)
+          .banned(false)
+          .build();
+
+  private final PurchaseCsvBean purchaseCsvBean =
+      PurchaseCsvBean.builder()
+          .id(UUID.fromString("d2d3b92d-f9b5-48c5-bf31-88c28e3b73ac"))
+          .appointmentId(UUID.fromString("7416ebc3-12ce-4000-87fb-82973722ebf4"))
+          .name("Shampoo")
+          .price(new BigDecimal("19.5"))
+          .loyaltyPoints(20)
+          .build();
+
+  private final Client client = clientMapper.toClient(clientCsvBean);
+
+  private static ModelMapper buildModelMapper() {
+    ModelMapper mapper = new ModelMapper().registerModule(new Jdk8Module());
+
+    mapper.getConfiguration().setMatchingStrategy(MatchingStrategies.STRICT);
+
+    return mapper;
+  }
+
+  @Benchmark
+  public Client clientCsvBeanModelMapper() {
+    return modelMapper.map(clientCsvBean, Client.class);
+  }
+
+  @Benchmark
+  public Client clientCsvBeanMapper() {
+    return clientMapper.toClient(clientCsvBean);
+  }
+
+  @Benchmark
+  public Purchase purchaseCsvBeanModelMapper() {
+    return modelMapper.map(purchaseCsvBean, Purchase.class);
+  }
+
+  @Benchmark
+  public Purchase purchaseCsvBeanMapper() {
+    return purchaseMapper.toPurchase(purchaseCsvBean);
+  }
+
+  @Benchmark
+  public ClientResponse clientResponseModelMapper() {
+    return modelMapper.map(client, ClientResponse.class);
+  }
+
+  @Benchmark
+  public ClientResponse clientResponseMapper() {
+    return clientMapper.toClientResponse(client);
+  }
+}
@@ -2,7 +2,6 @@ package com.phorest.config;
 
 import java.time.Clock;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Optional;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -34,6 +33,7 @@ public class ClockConfiguration {
 
   @Bean
   public DateTimeProvider timeProvider(Clock clock) {
-    return () -> Optional.of(LocalDateTime.now(clock));
+    // an instant, so that the audit columns do not depend on the zone of the clock
+    return () -> Optional.of(clock.instant());
   }
 }
@@ -0,0 +1,128 @@
+package com.phorest.config;
+
+import com.phorest.model.request.ImportOptions;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+/** Configures csv file imports, and the executors running them in the background. */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "csv-import")
+public class ImportConfiguration {
+  // number of csv rows persisted together in the standard import mode
+  private int batchSize = 200;
+
+  // number of csv rows streamed together into one COPY statement in the copy and staged import
+  // modes
+  private int copyBatchSize = 10_000;
+
+  // number of csv rows written together by one INSERT ... ON CONFLICT statement in the upsert
+  // and delta import modes
+  private int upsertBatchSize = 5_000;
+
+  // number of csv rows written together by one batched INSERT statement in the insert import mode
+  private int insertBatchSize = 1_000;
+
+  // number of csv rows sorted in memory at a time when an import is sorted by parent, beyond
+  // which sorted runs are spilled to temporary files and merged
+  private int sortRunLines = 100_000;
+
+  // number of threads parsing, validating and mapping csv batches in parallel, shared by all
+  // imports, with 0 running every import stage on the importing thread
+  private int pipelineWorkers = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+
+  // number of batches of a single import read ahead of the one being persisted
+  private int pipelineQueueCapacity = 4;
+
+  // files imported in the background from at least this size are memory-mapped, and tokenized in
+  // chunks on several threads
+  private DataSize mappedParsingThreshold = DataSize.ofMegabytes(64);
+
+  // size of the chunks of a memory-mapped file, several of which are held in memory per import
+  private DataSize mappedParsingChunkSize = DataSize.ofMegabytes(4);
+
+  // number of threads tokenizing the chunks of memory-mapped files, shared by all imports
+  private int mappedParsingThreads = Runtime.getRuntime().availableProcessors();
+
+  // number of import jobs running at the same time, outside the request threads
+  private int jobThreads = 2;
+
+  // number of import jobs waiting for a thread before new ones are rejected
+  private int jobQueueCapacity = 100;
+
+  // number of files of import bundles imported at the same time, shared by all bundles, whose jobs
+  // only wait for their files on the job threads
+  private int bundleThreads = 2;
+
+  // how long a finished import job can still be looked up
+  private Duration jobRetention = Duration.ofHours(1);
+
+  // directory the chunks of resumable uploads are written to, which should outlive restarts for
+  // their imports to be resumed after one
+  private Path uploadDirectory =
+      Path.of(System.getProperty("java.io.tmpdir"), "csv-import-uploads");
+
+  // how long after its last chunk an upload that is not imported yet is kept
+  private Duration uploadRetention = Duration.ofDays(1);
+
+  // number of invalid rows a dry run lists along with the reasons they are invalid for, the ones
+  // found after them only being counted
+  private int dryRunReportedErrors = 100;
+
+  // how often the progress of an import job is sent to its event stream
+  private Duration jobProgressInterval = Duration.ofSeconds(1);
+
+  // how long an import job event stream stays open
+  private Duration jobProgressTimeout = Duration.ofHours(1);
+
+  public int getBatchSize(ImportOptions.Mode mode) {
+    return switch (mode) {
+      case STANDARD -> batchSize;
+      case COPY, STAGED -> copyBatchSize;
+      case UPSERT, DELTA -> upsertBatchSize;
+      case INSERT -> insertBatchSize;
+    };
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor importJobExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(jobThreads);
+    executor.setMaxPoolSize(jobThreads);
+    executor.setQueueCapacity(jobQueueCapacity);
+    executor.setThreadNamePrefix("import-job-");
+
+    return executor;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor importBundleExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(bundleThreads);
+    executor.setMaxPoolSize(bundleThreads);
+    executor.setThreadNamePrefix("import-bundle-");
+
+    return executor;
+  }
+
+  @Bean
+  public ForkJoinPool importParsingPool() {
+    return new ForkJoinPool(mappedParsingThreads);
+  }
+
+  @Bean
+  public ThreadPoolTaskScheduler importJobProgressScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setThreadNamePrefix("import-job-progress-");
+
+    return scheduler;
+  }
+}
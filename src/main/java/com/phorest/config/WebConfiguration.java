@@ -0,0 +1,32 @@
+package com.phorest.config;
+
+import com.phorest.model.request.ImportOptions;
+import com.phorest.validator.CompiledBeanValidator;
+import com.phorest.validator.CompiledSpringValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.validation.Validator;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Configures the conversion and the validation of request parameters and bodies. */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+  private final CompiledBeanValidator compiledBeanValidator;
+  private final jakarta.validation.Validator validator;
+
+  @Override
+  public void addFormatters(FormatterRegistry registry) {
+    // allows both ?mode=copy and ?mode=COPY
+    registry.addConverter(
+        String.class,
+        ImportOptions.Mode.class,
+        mode -> mode.isBlank() ? null : ImportOptions.Mode.valueOf(mode.trim().toUpperCase()));
+  }
+
+  @Override
+  public Validator getValidator() {
+    return new CompiledSpringValidator(compiledBeanValidator, validator);
+  }
+}
@@ -1,10 +1,20 @@
 package com.phorest.controller;
 
+import static com.phorest.service.ImportUploadServiceImpl.UPLOAD_OFFSET_HEADER;
+
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportUpload;
 import com.phorest.model.request.ClientRequest;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.response.ClientResponse;
 import com.phorest.service.ClientService;
+import com.phorest.service.ImportJobService;
+import com.phorest.service.ImportUploadService;
+import com.phorest.util.MultipartUtils;
 import com.phorest.util.PrincipalUtils;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.security.Principal;
@@ -13,18 +23,23 @@ import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 @Slf4j
 @RestController
@@ -32,19 +47,65 @@ import org.springframework.web.multipart.MultipartFile;
 @Tag(name = "Client Operations")
 public class ClientController {
   private final ClientService clientService;
+  private final ImportJobService importJobService;
+  private final ImportUploadService importUploadService;
 
-  @ResponseStatus(HttpStatus.CREATED)
   @PostMapping(
       path = "/clients/files",
       consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
       produces = MediaType.APPLICATION_JSON_VALUE)
   @Operation(summary = "Create new Clients by uploading a csv file")
-  public void createClientsFromFile(@RequestParam("file") MultipartFile file, Principal principal) {
+  public ResponseEntity<?> createClientsFromFile(
+      @RequestParam("file") MultipartFile file,
+      @Valid @ParameterObject ImportOptions importOptions,
+      @RequestHeader(name = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+      @Parameter(hidden = true) MultipartHttpServletRequest request,
+      Principal principal) {
     log.info(
-        "[CLIENTS] Request from {} to create new clients from csv file",
-        PrincipalUtils.getPrincipalName(principal));
+        "[CLIENTS] Request from {} to create new clients from csv file with options: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importOptions);
+
+    importOptions =
+        importOptions.withCompression(
+            MultipartUtils.getCsvCompression(request, file)
+                .orElseThrow(InvalidCsvFileException::new));
+
+    // nothing is written, so a chunk of an upload is checked on its own rather than received
+    if (importOptions.isDryRun()) {
+      return ResponseEntity.ok(clientService.dryRunClientsFromFile(file, importOptions));
+    }
+
+    if (importOptions.getUploadId() != null) {
+      ImportUpload importUpload =
+          importUploadService.receiveChunk(
+              ImportJob.Type.CLIENTS,
+              file,
+              contentRange,
+              importOptions,
+              clientService::createClientsFromSpooledFile);
+
+      return importUpload.isComplete()
+          ? ResponseEntity.accepted().body(importUpload.getImportJob())
+          : ResponseEntity.noContent()
+              .header(UPLOAD_OFFSET_HEADER, String.valueOf(importUpload.getReceivedBytes()))
+              .build();
+    }
+
+    // the rows an import continuing on error skips are listed by the reject file of its job
+    if (importOptions.isAsync() || importOptions.getMaxErrors() != null) {
+      return ResponseEntity.accepted()
+          .body(
+              importJobService.submitImportJob(
+                  ImportJob.Type.CLIENTS,
+                  file,
+                  importOptions,
+                  clientService::createClientsFromSpooledFile));
+    }
+
+    clientService.createClientsFromFile(file, importOptions);
 
-    clientService.createClientsFromFile(file);
+    return ResponseEntity.status(HttpStatus.CREATED).build();
   }
 
   @ResponseStatus(HttpStatus.OK)
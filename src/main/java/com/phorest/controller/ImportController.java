@@ -0,0 +1,136 @@
+package com.phorest.controller;
+
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportJobResponse;
+import com.phorest.service.AppointmentService;
+import com.phorest.service.ClientService;
+import com.phorest.service.ImportJobService;
+import com.phorest.service.PurchaseService;
+import com.phorest.service.ServiceService;
+import com.phorest.util.PrincipalUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.security.Principal;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Import Operations")
+public class ImportController {
+  private static final String REJECT_FILE_NAME = "rejects-%s.csv";
+
+  private final ImportJobService importJobService;
+  private final ClientService clientService;
+  private final AppointmentService appointmentService;
+  private final PurchaseService purchaseService;
+  private final ServiceService serviceService;
+
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  @PostMapping(
+      path = "/imports/bundle",
+      consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(
+      summary =
+          "Create new Clients, Appointments, Purchases and Services by uploading a zip file of"
+              + " their csv files, imported in the background as a single Import job")
+  public ImportJobResponse createImportBundle(
+      @RequestParam("file") MultipartFile file,
+      @Valid @ParameterObject ImportOptions importOptions,
+      Principal principal) {
+    log.info(
+        "[IMPORTS] Request from {} to import a bundle of csv files with options: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importOptions);
+
+    return importJobService.submitImportBundleJob(
+        file,
+        importOptions,
+        Map.of(
+            ImportJob.Type.CLIENTS, clientService::createClientsFromStream,
+            ImportJob.Type.APPOINTMENTS, appointmentService::createAppointmentsFromStream,
+            ImportJob.Type.PURCHASES, purchaseService::createPurchasesFromStream,
+            ImportJob.Type.SERVICES, serviceService::createServicesFromStream));
+  }
+
+  @ResponseStatus(HttpStatus.OK)
+  @GetMapping(path = "/imports/{importJobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(summary = "Get Import job")
+  public ImportJobResponse getImportJob(@PathVariable UUID importJobId, Principal principal) {
+    log.info(
+        "[IMPORTS] Request from {} to get import job with id: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importJobId);
+
+    return importJobService.getImportJobResponse(importJobId);
+  }
+
+  @GetMapping(path = "/imports/{importJobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(summary = "Stream the progress of an Import job as server-sent events")
+  public SseEmitter streamImportJobProgress(@PathVariable UUID importJobId, Principal principal) {
+    log.info(
+        "[IMPORTS] Request from {} to stream the progress of import job with id: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importJobId);
+
+    return importJobService.getImportJobProgressEmitter(importJobId);
+  }
+
+  @GetMapping(path = "/imports/{importJobId}/rejects", produces = CSV_CONTENT_TYPE)
+  @Operation(
+      summary =
+          "Download the rows an Import job continuing on error skipped, with their line numbers"
+              + " and the reasons they were rejected for, as a csv file")
+  public ResponseEntity<Resource> getImportJobRejects(
+      @PathVariable UUID importJobId, Principal principal) {
+    log.info(
+        "[IMPORTS] Request from {} to get the rejected rows of import job with id: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importJobId);
+
+    return ResponseEntity.ok()
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename(REJECT_FILE_NAME.formatted(importJobId))
+                .build()
+                .toString())
+        .body(importJobService.getImportJobRejectFile(importJobId));
+  }
+
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  @DeleteMapping(path = "/imports/{importJobId}")
+  @Operation(summary = "Cancel Import job")
+  public void cancelImportJob(@PathVariable UUID importJobId, Principal principal) {
+    log.info(
+        "[IMPORTS] Request from {} to cancel import job with id: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importJobId);
+
+    importJobService.cancelImportJob(importJobId);
+  }
+}
@@ -1,28 +1,43 @@
 package com.phorest.controller;
 
+import static com.phorest.service.ImportUploadServiceImpl.UPLOAD_OFFSET_HEADER;
+
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportUpload;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.request.ServiceRequest;
 import com.phorest.model.response.ServiceResponse;
+import com.phorest.service.ImportJobService;
+import com.phorest.service.ImportUploadService;
 import com.phorest.service.ServiceService;
+import com.phorest.util.MultipartUtils;
 import com.phorest.util.PrincipalUtils;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.security.Principal;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 @Slf4j
 @RestController
@@ -30,20 +45,65 @@ import org.springframework.web.multipart.MultipartFile;
 @Tag(name = "Service Operations")
 public class ServiceController {
   private final ServiceService serviceService;
+  private final ImportJobService importJobService;
+  private final ImportUploadService importUploadService;
 
-  @ResponseStatus(HttpStatus.CREATED)
   @PostMapping(
       path = "/services/files",
       consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
       produces = MediaType.APPLICATION_JSON_VALUE)
   @Operation(summary = "Create new Services by uploading a csv file")
-  public void createServicesFromFile(
-      @RequestParam("file") MultipartFile file, Principal principal) {
+  public ResponseEntity<?> createServicesFromFile(
+      @RequestParam("file") MultipartFile file,
+      @Valid @ParameterObject ImportOptions importOptions,
+      @RequestHeader(name = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+      @Parameter(hidden = true) MultipartHttpServletRequest request,
+      Principal principal) {
     log.info(
-        "[SERVICES] Request from {} to create new services from csv file",
-        PrincipalUtils.getPrincipalName(principal));
+        "[SERVICES] Request from {} to create new services from csv file with options: {}",
+        PrincipalUtils.getPrincipalName(principal),
+        importOptions);
+
+    importOptions =
+        importOptions.withCompression(
+            MultipartUtils.getCsvCompression(request, file)
+                .orElseThrow(InvalidCsvFileException::new));
+
+    // nothing is written, so a chunk of an upload is checked on its own rather than received
+    if (importOptions.isDryRun()) {
+      return ResponseEntity.ok(serviceService.dryRunServicesFromFile(file, importOptions));
+    }
+
+    if (importOptions.getUploadId() != null) {
+      ImportUpload importUpload =
+          importUploadService.receiveChunk(
+              ImportJob.Type.SERVICES,
+              file,
+              contentRange,
+              importOptions,
+              serviceService::createServicesFromSpooledFile);
+
+      return importUpload.isComplete()
+          ? ResponseEntity.accepted().body(importUpload.getImportJob())
+          : ResponseEntity.noContent()
+              .header(UPLOAD_OFFSET_HEADER, String.valueOf(importUpload.getReceivedBytes()))
+              .build();
+    }
+
+    // the rows an import continuing on error skips are listed by the reject file of its job
+    if (importOptions.isAsync() || importOptions.getMaxErrors() != null) {
+      return ResponseEntity.accepted()
+          .body(
+              importJobService.submitImportJob(
+                  ImportJob.Type.SERVICES,
+                  file,
+                  importOptions,
+                  serviceService::createServicesFromSpooledFile));
+    }
+
+    serviceService.createServicesFromFile(file, importOptions);
 
-    serviceService.createServicesFromFile(file);
+    return ResponseEntity.status(HttpStatus.CREATED).build();
   }
 
   @ResponseStatus(HttpStatus.OK)
@@ -0,0 +1,24 @@
+package com.phorest.exception;
+
+import com.phorest.exception.common.exception.BackendTechnicalTestException;
+import com.phorest.exception.error.ApiError;
+
+public class ImportCancelledException extends BackendTechnicalTestException {
+  public static final String MESSAGE = "The import was cancelled.";
+
+  public ImportCancelledException() {
+    super(ApiError.IMPORT_CANCELLED, MESSAGE);
+  }
+
+  public ImportCancelledException(Throwable cause) {
+    super(ApiError.IMPORT_CANCELLED, MESSAGE, cause);
+  }
+
+  public ImportCancelledException(String errorMessage) {
+    super(ApiError.IMPORT_CANCELLED, errorMessage);
+  }
+
+  public ImportCancelledException(String errorMessage, Throwable cause) {
+    super(ApiError.IMPORT_CANCELLED, errorMessage, cause);
+  }
+}
@@ -0,0 +1,25 @@
+package com.phorest.exception;
+
+import com.phorest.exception.common.exception.BackendTechnicalTestException;
+import com.phorest.exception.error.ApiError;
+import java.util.UUID;
+
+public class ImportJobNotFoundException extends BackendTechnicalTestException {
+  public static final String MESSAGE = "The Import job with id (%s) does not exist.";
+
+  public ImportJobNotFoundException(UUID importJobId) {
+    super(ApiError.IMPORT_JOB_NOT_FOUND, MESSAGE.formatted(importJobId));
+  }
+
+  public ImportJobNotFoundException(UUID importJobId, Throwable cause) {
+    super(ApiError.IMPORT_JOB_NOT_FOUND, MESSAGE.formatted(importJobId), cause);
+  }
+
+  public ImportJobNotFoundException(String errorMessage) {
+    super(ApiError.IMPORT_JOB_NOT_FOUND, errorMessage);
+  }
+
+  public ImportJobNotFoundException(String errorMessage, Throwable cause) {
+    super(ApiError.IMPORT_JOB_NOT_FOUND, errorMessage, cause);
+  }
+}
@@ -0,0 +1,24 @@
+package com.phorest.exception;
+
+import com.phorest.exception.common.exception.BackendTechnicalTestException;
+import com.phorest.exception.error.ApiError;
+
+public class ImportJobRejectedException extends BackendTechnicalTestException {
+  public static final String MESSAGE = "Too many imports are queued, please try again later.";
+
+  public ImportJobRejectedException() {
+    super(ApiError.IMPORT_JOB_REJECTED, MESSAGE);
+  }
+
+  public ImportJobRejectedException(Throwable cause) {
+    super(ApiError.IMPORT_JOB_REJECTED, MESSAGE, cause);
+  }
+
+  public ImportJobRejectedException(String errorMessage) {
+    super(ApiError.IMPORT_JOB_REJECTED, errorMessage);
+  }
+
+  public ImportJobRejectedException(String errorMessage, Throwable cause) {
+    super(ApiError.IMPORT_JOB_REJECTED, errorMessage, cause);
+  }
+}
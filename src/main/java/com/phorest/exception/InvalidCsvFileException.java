@@ -5,6 +5,20 @@ import com.phorest.exception.error.ApiError;
 
 public class InvalidCsvFileException extends BackendTechnicalTestException {
   public static final String MESSAGE = "The csv file you're trying to upload is invalid.";
+  public static final String DUPLICATE_ID_MESSAGE =
+      "The csv file you're trying to upload contains the id (%s) more than once.";
+  public static final String INVALID_BUNDLE_MESSAGE =
+      "The zip file you're trying to upload is not a bundle of csv files.";
+  public static final String INVALID_BUNDLE_ENTRY_MESSAGE =
+      "The zip file you're trying to upload contains an unexpected entry (%s).";
+  public static final String INVALID_BUNDLE_DRY_RUN_MESSAGE =
+      "The zip file you're trying to upload cannot be checked without being imported.";
+  public static final String INVALID_BUNDLE_MAX_ERRORS_MESSAGE =
+      "The zip file you're trying to upload cannot be imported skipping its invalid rows.";
+  public static final String CHECKPOINT_MISMATCH_MESSAGE =
+      "The csv file you're trying to upload does not match the checkpoint of its last import.";
+  public static final String TOO_MANY_INVALID_ROWS_MESSAGE =
+      "The csv file you're trying to upload has more than %d invalid rows.";
 
   public InvalidCsvFileException() {
     super(ApiError.INVALID_CSV_FILE, MESSAGE);
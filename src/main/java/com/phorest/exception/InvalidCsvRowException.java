@@ -0,0 +1,29 @@
+package com.phorest.exception;
+
+import com.phorest.exception.common.exception.BackendTechnicalTestException;
+import com.phorest.exception.error.ApiError;
+
+/**
+ * Thrown for a single invalid row of a csv file, which an import continuing on error rejects and
+ * skips. It is thrown once per rejected row, so it does not fill in its stack trace.
+ */
+public class InvalidCsvRowException extends BackendTechnicalTestException {
+  public static final String MESSAGE = "The csv row is invalid.";
+  public static final String FIELD_COUNT_MESSAGE = "The csv row has %d fields instead of %d.";
+
+  public InvalidCsvRowException() {
+    super(ApiError.INVALID_CSV_FILE, MESSAGE, null, false);
+  }
+
+  public InvalidCsvRowException(Throwable cause) {
+    super(ApiError.INVALID_CSV_FILE, MESSAGE, cause, false);
+  }
+
+  public InvalidCsvRowException(String errorMessage) {
+    super(ApiError.INVALID_CSV_FILE, errorMessage, null, false);
+  }
+
+  public InvalidCsvRowException(String errorMessage, Throwable cause) {
+    super(ApiError.INVALID_CSV_FILE, errorMessage, cause, false);
+  }
+}
@@ -0,0 +1,32 @@
+package com.phorest.exception;
+
+import com.phorest.exception.common.exception.BackendTechnicalTestException;
+import com.phorest.exception.error.ApiError;
+
+public class InvalidUploadChunkException extends BackendTechnicalTestException {
+  public static final String MESSAGE = "The chunk you're trying to upload is invalid.";
+  public static final String OFFSET_MESSAGE =
+      "The chunk you're trying to upload starts at byte %d, but the upload continues at byte %d.";
+  public static final String BUSY_MESSAGE =
+      "Another chunk of the upload you're trying to continue is being received.";
+  public static final String SORTED_MESSAGE =
+      "The upload you're trying to continue cannot be imported sorted by parent.";
+  public static final String DELETE_MISSING_MESSAGE =
+      "The upload you're trying to continue cannot delete the rows missing from it.";
+
+  public InvalidUploadChunkException() {
+    super(ApiError.INVALID_UPLOAD_CHUNK, MESSAGE);
+  }
+
+  public InvalidUploadChunkException(Throwable cause) {
+    super(ApiError.INVALID_UPLOAD_CHUNK, MESSAGE, cause);
+  }
+
+  public InvalidUploadChunkException(String errorMessage) {
+    super(ApiError.INVALID_UPLOAD_CHUNK, errorMessage);
+  }
+
+  public InvalidUploadChunkException(String errorMessage, Throwable cause) {
+    super(ApiError.INVALID_UPLOAD_CHUNK, errorMessage, cause);
+  }
+}
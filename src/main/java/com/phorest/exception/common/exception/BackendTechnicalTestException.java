@@ -20,4 +20,13 @@ public class BackendTechnicalTestException extends RuntimeException {
 
     this.error = error;
   }
+
+  // for exceptions thrown often enough that filling in their stack trace would cost more than
+  // handling them
+  protected BackendTechnicalTestException(
+      ExceptionError error, String errorMessage, Throwable cause, boolean writableStackTrace) {
+    super(errorMessage, cause, true, writableStackTrace);
+
+    this.error = error;
+  }
 }
@@ -12,6 +12,10 @@ public enum ApiError implements ExceptionError {
   PURCHASE_NOT_FOUND(HttpStatus.NOT_FOUND, "003"),
   SERVICE_NOT_FOUND(HttpStatus.NOT_FOUND, "004"),
   INVALID_CSV_FILE(HttpStatus.CONFLICT, "005"),
+  IMPORT_JOB_NOT_FOUND(HttpStatus.NOT_FOUND, "006"),
+  IMPORT_CANCELLED(HttpStatus.CONFLICT, "007"),
+  IMPORT_JOB_REJECTED(HttpStatus.SERVICE_UNAVAILABLE, "008"),
+  INVALID_UPLOAD_CHUNK(HttpStatus.CONFLICT, "009"),
 
   // General API errors
   PROPERTY_REFERENCE(HttpStatus.BAD_REQUEST, "100"),
@@ -6,6 +6,7 @@ import com.phorest.model.csv.PurchaseCsvBean;
 import com.phorest.model.csv.ServiceCsvBean;
 import com.phorest.model.csv.common.CsvBean;
 import com.phorest.model.entity.Client.Gender;
+import com.phorest.util.CsvLineBatch;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneOffset;
@@ -20,58 +21,90 @@ public class CsvBeanFactory {
   public static final DateTimeFormatter APPOINTMENT_FORMATTER =
       DateTimeFormatter.ofPattern(APPOINTMENT_DATE_TIME_PATTERN).withZone(ZoneOffset.UTC);
 
-  public <T extends CsvBean> T buildCsvBean(String[] line, Class<T> returnElementType) {
+  public <T extends CsvBean> T buildCsvBean(
+      CsvLineBatch lines, int line, Class<T> returnElementType) {
+
     if (ClientCsvBean.class.equals(returnElementType)) {
-      return (T) buildClientCsvBean(line);
+      return (T) buildClientCsvBean(lines, line);
     } else if (AppointmentCsvBean.class.equals(returnElementType)) {
-      return (T) buildAppointmentCsvBean(line);
+      return (T) buildAppointmentCsvBean(lines, line);
     } else if (PurchaseCsvBean.class.equals(returnElementType)) {
-      return (T) buildPurchaseCsvBean(line);
+      return (T) buildPurchaseCsvBean(lines, line);
     } else if (ServiceCsvBean.class.equals(returnElementType)) {
-      return (T) buildServiceCsvBean(line);
+      return (T) buildServiceCsvBean(lines, line);
     }
 
     throw new IllegalArgumentException(); // unreachable
   }
 
-  private ClientCsvBean buildClientCsvBean(String[] line) {
+  private ClientCsvBean buildClientCsvBean(CsvLineBatch lines, int line) {
     return ClientCsvBean.builder()
-        .id(UUID.fromString(line[0]))
-        .firstName(line[1])
-        .lastName(line[2])
-        .email(line[3])
-        .phone(line[4])
-        .gender(Gender.valueOf(line[5].toUpperCase()))
-        .banned(Boolean.parseBoolean(line[6]))
+        .id(decodeUuid(lines, line, 0))
+        .firstName(lines.getField(line, 1))
+        .lastName(lines.getField(line, 2))
+        .email(lines.getField(line, 3))
+        .phone(lines.getField(line, 4))
+        .gender(decodeGender(lines, line, 5))
+        .banned(decodeBoolean(lines, line, 6))
         .build();
   }
 
-  private AppointmentCsvBean buildAppointmentCsvBean(String[] line) {
+  private AppointmentCsvBean buildAppointmentCsvBean(CsvLineBatch lines, int line) {
     return AppointmentCsvBean.builder()
-        .id(UUID.fromString(line[0]))
-        .clientId(UUID.fromString(line[1]))
-        .startTime(Instant.from(APPOINTMENT_FORMATTER.parse(line[2])))
-        .endTime(Instant.from(APPOINTMENT_FORMATTER.parse(line[3])))
+        .id(decodeUuid(lines, line, 0))
+        .clientId(decodeUuid(lines, line, 1))
+        .startTime(decodeAppointmentDateTime(lines, line, 2))
+        .endTime(decodeAppointmentDateTime(lines, line, 3))
         .build();
   }
 
-  private PurchaseCsvBean buildPurchaseCsvBean(String[] line) {
+  private PurchaseCsvBean buildPurchaseCsvBean(CsvLineBatch lines, int line) {
     return PurchaseCsvBean.builder()
-        .id(UUID.fromString(line[0]))
-        .appointmentId(UUID.fromString(line[1]))
-        .name(line[2])
-        .price(new BigDecimal(line[3]))
-        .loyaltyPoints(Integer.parseInt(line[4]))
+        .id(decodeUuid(lines, line, 0))
+        .appointmentId(decodeUuid(lines, line, 1))
+        .name(lines.getField(line, 2))
+        .price(decodePrice(lines, line, 3))
+        .loyaltyPoints(decodeInt(lines, line, 4))
         .build();
   }
 
-  private ServiceCsvBean buildServiceCsvBean(String[] line) {
+  private ServiceCsvBean buildServiceCsvBean(CsvLineBatch lines, int line) {
     return ServiceCsvBean.builder()
-        .id(UUID.fromString(line[0]))
-        .appointmentId(UUID.fromString(line[1]))
-        .name(line[2])
-        .price(new BigDecimal(line[3]))
-        .loyaltyPoints(Integer.parseInt(line[4]))
+        .id(decodeUuid(lines, line, 0))
+        .appointmentId(decodeUuid(lines, line, 1))
+        .name(lines.getField(line, 2))
+        .price(decodePrice(lines, line, 3))
+        .loyaltyPoints(decodeInt(lines, line, 4))
         .build();
   }
+
+  private static UUID decodeUuid(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodeUuid(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
+
+  private static Instant decodeAppointmentDateTime(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodeAppointmentDateTime(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
+
+  private static BigDecimal decodePrice(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodePrice(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
+
+  private static int decodeInt(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodeInt(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
+
+  private static Gender decodeGender(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodeGender(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
+
+  private static boolean decodeBoolean(CsvLineBatch lines, int line, int field) {
+    return CsvFieldDecoders.decodeBoolean(
+        lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+  }
 }
@@ -0,0 +1,284 @@
+package com.phorest.factory;
+
+import static com.phorest.factory.CsvBeanFactory.APPOINTMENT_FORMATTER;
+
+import com.phorest.model.entity.Client.Gender;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Decodes csv fields straight from the char ranges they occupy in a line batch, without building an
+ * intermediate String or going through a general purpose parser.
+ *
+ * <p>Each decoder only handles the shape the import files actually use, and hands anything else to
+ * the parser used before, so that results and failures are exactly the same as parsing the field as
+ * a String.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CsvFieldDecoders {
+  private static final int UUID_LENGTH = 36;
+
+  // yyyy-MM-dd HH:mm:ss +HHMM
+  private static final int APPOINTMENT_DATE_TIME_LENGTH = 25;
+
+  private static final int MAX_OFFSET_MINUTES = 18 * 60;
+  private static final long DAYS_0000_TO_1970 = 719_528;
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+  private static final int MAX_PRICE_DIGITS = 18;
+  private static final int MAX_PRICE_FRACTION_DIGITS = 2;
+  private static final int MAX_INT_DIGITS = 9;
+
+  private static final Gender[] GENDERS = Gender.values();
+
+  // the value of every hex digit, indexed by the digit, -1 for the other latin-1 characters
+  private static final byte[] HEX_DIGITS = new byte[256];
+
+  static {
+    Arrays.fill(HEX_DIGITS, (byte) -1);
+
+    for (char c = '0'; c <= '9'; c++) {
+      HEX_DIGITS[c] = (byte) (c - '0');
+    }
+
+    for (char c = 'a'; c <= 'f'; c++) {
+      HEX_DIGITS[c] = (byte) (c - 'a' + 10);
+      HEX_DIGITS[Character.toUpperCase(c)] = (byte) (c - 'a' + 10);
+    }
+  }
+
+  /** Decodes a UUID like {@link UUID#fromString}, directly if it is in the canonical form. */
+  public static UUID decodeUuid(char[] chars, int start, int end) {
+    if (end - start == UUID_LENGTH
+        && chars[start + 8] == '-'
+        && chars[start + 13] == '-'
+        && chars[start + 18] == '-'
+        && chars[start + 23] == '-') {
+
+      long msb1 = parse4HexDigits(chars, start);
+      long msb2 = parse4HexDigits(chars, start + 4);
+      long msb3 = parse4HexDigits(chars, start + 9);
+      long msb4 = parse4HexDigits(chars, start + 14);
+      long lsb1 = parse4HexDigits(chars, start + 19);
+      long lsb2 = parse4HexDigits(chars, start + 24);
+      long lsb3 = parse4HexDigits(chars, start + 28);
+      long lsb4 = parse4HexDigits(chars, start + 32);
+
+      if ((msb1 | msb2 | msb3 | msb4 | lsb1 | lsb2 | lsb3 | lsb4) >= 0) {
+        return new UUID(
+            msb1 << 48 | msb2 << 32 | msb3 << 16 | msb4,
+            lsb1 << 48 | lsb2 << 32 | lsb3 << 16 | lsb4);
+      }
+    }
+
+    return UUID.fromString(toString(chars, start, end));
+  }
+
+  /**
+   * Decodes a date time like {@link CsvBeanFactory#APPOINTMENT_FORMATTER}, directly if every field
+   * has its fixed width and is in range.
+   */
+  public static Instant decodeAppointmentDateTime(char[] chars, int start, int end) {
+    if (end - start == APPOINTMENT_DATE_TIME_LENGTH
+        && chars[start + 4] == '-'
+        && chars[start + 7] == '-'
+        && chars[start + 10] == ' '
+        && chars[start + 13] == ':'
+        && chars[start + 16] == ':'
+        && chars[start + 19] == ' '
+        && (chars[start + 20] == '+' || chars[start + 20] == '-')) {
+
+      int year = parseDigits(chars, start, start + 4);
+      int month = parseDigits(chars, start + 5, start + 7);
+      int day = parseDigits(chars, start + 8, start + 10);
+      int hour = parseDigits(chars, start + 11, start + 13);
+      int minute = parseDigits(chars, start + 14, start + 16);
+      int second = parseDigits(chars, start + 17, start + 19);
+      int offsetHours = parseDigits(chars, start + 21, start + 23);
+      int offsetMinutes = parseDigits(chars, start + 23, start + 25);
+
+      int offset = offsetHours * 60 + offsetMinutes;
+
+      if (year >= 1
+          && month >= 1
+          && month <= 12
+          && day >= 1
+          && day <= lengthOfMonth(year, month)
+          && hour >= 0
+          && hour <= 23
+          && minute >= 0
+          && minute <= 59
+          && second >= 0
+          && second <= 59
+          && offsetHours >= 0
+          && offsetMinutes >= 0
+          && offsetMinutes <= 59
+          && offset <= MAX_OFFSET_MINUTES) {
+
+        long offsetSeconds = (chars[start + 20] == '-' ? -offset : offset) * 60L;
+
+        return Instant.ofEpochSecond(
+            toEpochDay(year, month, day) * SECONDS_PER_DAY
+                + hour * 3600L
+                + minute * 60L
+                + second
+                - offsetSeconds);
+      }
+    }
+
+    return Instant.from(APPOINTMENT_FORMATTER.parse(toString(chars, start, end)));
+  }
+
+  /**
+   * Decodes a decimal like {@link BigDecimal#BigDecimal(String)}, directly if it is a plain
+   * unsigned number with at most two decimals, which keeps the scale it is written with.
+   */
+  public static BigDecimal decodePrice(char[] chars, int start, int end) {
+    long unscaled = 0;
+    int digits = 0;
+    int scale = -1;
+
+    for (int i = start; i < end; i++) {
+      char c = chars[i];
+
+      if (c == '.' && scale < 0 && digits > 0) {
+        scale = 0;
+      } else if (c >= '0' && c <= '9' && digits < MAX_PRICE_DIGITS) {
+        unscaled = unscaled * 10 + (c - '0');
+        digits++;
+
+        if (scale >= 0) {
+          scale++;
+        }
+      } else {
+        return new BigDecimal(toString(chars, start, end));
+      }
+    }
+
+    if (digits == 0 || scale == 0 || scale > MAX_PRICE_FRACTION_DIGITS) {
+      return new BigDecimal(toString(chars, start, end));
+    }
+
+    return BigDecimal.valueOf(unscaled, Math.max(scale, 0));
+  }
+
+  /** Decodes an int like {@link Integer#parseInt(String)}, directly if it has ascii digits only. */
+  public static int decodeInt(char[] chars, int start, int end) {
+    int i = start;
+    boolean negative = i < end && chars[i] == '-';
+
+    if (negative || i < end && chars[i] == '+') {
+      i++;
+    }
+
+    if (i < end && end - i <= MAX_INT_DIGITS) {
+      int value = parseDigits(chars, i, end);
+
+      if (value >= 0) {
+        return negative ? -value : value;
+      }
+    }
+
+    return Integer.parseInt(toString(chars, start, end));
+  }
+
+  /** Decodes a gender like {@code Gender.valueOf(field.toUpperCase())}, ignoring ascii case. */
+  public static Gender decodeGender(char[] chars, int start, int end) {
+    for (Gender gender : GENDERS) {
+      if (equalsIgnoreAsciiCase(chars, start, end, gender.name())) {
+        return gender;
+      }
+    }
+
+    return Gender.valueOf(toString(chars, start, end).toUpperCase());
+  }
+
+  /** Decodes a boolean like {@link Boolean#parseBoolean(String)}. */
+  public static boolean decodeBoolean(char[] chars, int start, int end) {
+    return equalsIgnoreAsciiCase(chars, start, end, "TRUE");
+  }
+
+  private static String toString(char[] chars, int start, int end) {
+    return new String(chars, start, end - start);
+  }
+
+  // the value of four hex digits, negative if any of them is not a hex digit
+  private static long parse4HexDigits(char[] chars, int start) {
+    char c1 = chars[start];
+    char c2 = chars[start + 1];
+    char c3 = chars[start + 2];
+    char c4 = chars[start + 3];
+
+    if ((c1 | c2 | c3 | c4) >= HEX_DIGITS.length) {
+      return -1;
+    }
+
+    return HEX_DIGITS[c1] << 12 | HEX_DIGITS[c2] << 8 | HEX_DIGITS[c3] << 4 | HEX_DIGITS[c4];
+  }
+
+  // the value of at most nine decimal digits, negative if any of them is not an ascii digit
+  private static int parseDigits(char[] chars, int start, int end) {
+    int value = 0;
+
+    for (int i = start; i < end; i++) {
+      char c = chars[i];
+
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+
+      value = value * 10 + (c - '0');
+    }
+
+    return value;
+  }
+
+  // upperCaseName must be made of ascii upper case letters
+  private static boolean equalsIgnoreAsciiCase(
+      char[] chars, int start, int end, String upperCaseName) {
+
+    if (end - start != upperCaseName.length()) {
+      return false;
+    }
+
+    for (int i = start; i < end; i++) {
+      char c = chars[i];
+      char upperCase = c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+
+      if (upperCase != upperCaseName.charAt(i - start)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    return switch (month) {
+      case 2 -> isLeapYear(year) ? 29 : 28;
+      case 4, 6, 9, 11 -> 30;
+      default -> 31;
+    };
+  }
+
+  // same as LocalDate.of(year, month, day).toEpochDay() for a valid date of a positive year
+  private static long toEpochDay(int year, int month, int day) {
+    long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+
+    total += (367 * month - 362) / 12 + day - 1;
+
+    if (month > 2) {
+      total -= isLeapYear(year) ? 1 : 2;
+    }
+
+    return total - DAYS_0000_TO_1970;
+  }
+}
@@ -0,0 +1,39 @@
+package com.phorest.mapper;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.entity.Appointment;
+import com.phorest.model.request.AppointmentRequest;
+import com.phorest.model.response.AppointmentResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps appointments between their csv, entity, request and response representations. The client of
+ * an appointment is not mapped, it is bound when the appointment is persisted.
+ */
+@Component
+public class AppointmentMapper {
+  public Appointment toAppointment(AppointmentCsvBean appointmentCsvBean) {
+    Appointment appointment = new Appointment();
+
+    appointment.setId(appointmentCsvBean.getId());
+    appointment.setStartTime(appointmentCsvBean.getStartTime());
+    appointment.setEndTime(appointmentCsvBean.getEndTime());
+
+    return appointment;
+  }
+
+  public void updateAppointment(AppointmentRequest appointmentRequest, Appointment appointment) {
+    appointment.setStartTime(appointmentRequest.getStartTime());
+    appointment.setEndTime(appointmentRequest.getEndTime());
+  }
+
+  public AppointmentResponse toAppointmentResponse(Appointment appointment) {
+    AppointmentResponse appointmentResponse = new AppointmentResponse();
+
+    appointmentResponse.setId(appointment.getId());
+    appointmentResponse.setStartTime(appointment.getStartTime());
+    appointmentResponse.setEndTime(appointment.getEndTime());
+
+    return appointmentResponse;
+  }
+}
@@ -0,0 +1,48 @@
+package com.phorest.mapper;
+
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.entity.Client;
+import com.phorest.model.request.ClientRequest;
+import com.phorest.model.response.ClientResponse;
+import org.springframework.stereotype.Component;
+
+/** Maps clients between their csv, entity, request and response representations. */
+@Component
+public class ClientMapper {
+  public Client toClient(ClientCsvBean clientCsvBean) {
+    Client client = new Client();
+
+    client.setId(clientCsvBean.getId());
+    client.setFirstName(clientCsvBean.getFirstName());
+    client.setLastName(clientCsvBean.getLastName());
+    client.setEmail(clientCsvBean.getEmail());
+    client.setPhone(clientCsvBean.getPhone());
+    client.setGender(clientCsvBean.getGender());
+    client.setBanned(clientCsvBean.isBanned());
+
+    return client;
+  }
+
+  public void updateClient(ClientRequest clientRequest, Client client) {
+    client.setFirstName(clientRequest.getFirstName());
+    client.setLastName(clientRequest.getLastName());
+    client.setEmail(clientRequest.getEmail());
+    client.setPhone(clientRequest.getPhone());
+    client.setGender(clientRequest.getGender());
+    client.setBanned(clientRequest.getBanned());
+  }
+
+  public ClientResponse toClientResponse(Client client) {
+    ClientResponse clientResponse = new ClientResponse();
+
+    clientResponse.setId(client.getId());
+    clientResponse.setFirstName(client.getFirstName());
+    clientResponse.setLastName(client.getLastName());
+    clientResponse.setEmail(client.getEmail());
+    clientResponse.setPhone(client.getPhone());
+    clientResponse.setGender(client.getGender());
+    clientResponse.setBanned(client.isBanned());
+
+    return clientResponse;
+  }
+}
@@ -0,0 +1,26 @@
+package com.phorest.mapper;
+
+import com.phorest.model.entity.Client.Gender;
+import com.phorest.model.response.ClientResponse;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import org.springframework.jdbc.core.RowMapper;
+
+/** Maps the client columns of a result set row straight to a client response. */
+public class ClientResponseRowMapper implements RowMapper<ClientResponse> {
+  @Override
+  public ClientResponse mapRow(ResultSet resultSet, int rowNumber) throws SQLException {
+    ClientResponse clientResponse = new ClientResponse();
+
+    clientResponse.setId(resultSet.getObject("id", UUID.class));
+    clientResponse.setFirstName(resultSet.getString("first_name"));
+    clientResponse.setLastName(resultSet.getString("last_name"));
+    clientResponse.setEmail(resultSet.getString("email"));
+    clientResponse.setPhone(resultSet.getString("phone"));
+    clientResponse.setGender(Gender.valueOf(resultSet.getString("gender")));
+    clientResponse.setBanned(resultSet.getBoolean("banned"));
+
+    return clientResponse;
+  }
+}
@@ -0,0 +1,42 @@
+package com.phorest.mapper;
+
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.entity.Purchase;
+import com.phorest.model.request.PurchaseRequest;
+import com.phorest.model.response.PurchaseResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps purchases between their csv, entity, request and response representations. The appointment
+ * of a purchase is not mapped, it is bound when the purchase is persisted.
+ */
+@Component
+public class PurchaseMapper {
+  public Purchase toPurchase(PurchaseCsvBean purchaseCsvBean) {
+    Purchase purchase = new Purchase();
+
+    purchase.setId(purchaseCsvBean.getId());
+    purchase.setName(purchaseCsvBean.getName());
+    purchase.setPrice(purchaseCsvBean.getPrice());
+    purchase.setLoyaltyPoints(purchaseCsvBean.getLoyaltyPoints());
+
+    return purchase;
+  }
+
+  public void updatePurchase(PurchaseRequest purchaseRequest, Purchase purchase) {
+    purchase.setName(purchaseRequest.getName());
+    purchase.setPrice(purchaseRequest.getPrice());
+    purchase.setLoyaltyPoints(purchaseRequest.getLoyaltyPoints());
+  }
+
+  public PurchaseResponse toPurchaseResponse(Purchase purchase) {
+    PurchaseResponse purchaseResponse = new PurchaseResponse();
+
+    purchaseResponse.setId(purchase.getId());
+    purchaseResponse.setName(purchase.getName());
+    purchaseResponse.setPrice(purchase.getPrice());
+    purchaseResponse.setLoyaltyPoints(purchase.getLoyaltyPoints());
+
+    return purchaseResponse;
+  }
+}
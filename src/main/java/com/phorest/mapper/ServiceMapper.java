@@ -0,0 +1,42 @@
+package com.phorest.mapper;
+
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.entity.Service;
+import com.phorest.model.request.ServiceRequest;
+import com.phorest.model.response.ServiceResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps services between their csv, entity, request and response representations. The appointment of
+ * a service is not mapped, it is bound when the service is persisted.
+ */
+@Component
+public class ServiceMapper {
+  public Service toService(ServiceCsvBean serviceCsvBean) {
+    Service service = new Service();
+
+    service.setId(serviceCsvBean.getId());
+    service.setName(serviceCsvBean.getName());
+    service.setPrice(serviceCsvBean.getPrice());
+    service.setLoyaltyPoints(serviceCsvBean.getLoyaltyPoints());
+
+    return service;
+  }
+
+  public void updateService(ServiceRequest serviceRequest, Service service) {
+    service.setName(serviceRequest.getName());
+    service.setPrice(serviceRequest.getPrice());
+    service.setLoyaltyPoints(serviceRequest.getLoyaltyPoints());
+  }
+
+  public ServiceResponse toServiceResponse(Service service) {
+    ServiceResponse serviceResponse = new ServiceResponse();
+
+    serviceResponse.setId(service.getId());
+    serviceResponse.setName(service.getName());
+    serviceResponse.setPrice(service.getPrice());
+    serviceResponse.setLoyaltyPoints(service.getLoyaltyPoints());
+
+    return serviceResponse;
+  }
+}
@@ -1,10 +1,13 @@
 package com.phorest.model.csv;
 
+import static com.phorest.model.entity.Purchase.PURCHASE_NAME_LENGTH_LIMIT;
+
 import com.phorest.model.csv.common.CsvBean;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import java.math.BigDecimal;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
@@ -19,7 +22,9 @@ import lombok.NoArgsConstructor;
 public class PurchaseCsvBean extends CsvBean {
   @NotNull private UUID id;
 
-  @NotBlank private String name;
+  @NotBlank
+  @Size(max = PURCHASE_NAME_LENGTH_LIMIT)
+  private String name;
 
   @NotNull @Positive private BigDecimal price;
 
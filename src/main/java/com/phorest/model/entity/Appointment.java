@@ -1,6 +1,6 @@
 package com.phorest.model.entity;
 
-import com.phorest.model.entity.common.AuditAt;
+import com.phorest.model.entity.common.PersistableEntity;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -22,7 +22,7 @@ import lombok.ToString;
 @Data
 @Entity
 @Table(name = "appointment")
-public class Appointment extends AuditAt {
+public class Appointment extends PersistableEntity {
   @Id
   @Column(name = "id")
   private UUID id = UUID.randomUUID();
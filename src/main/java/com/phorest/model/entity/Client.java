@@ -1,6 +1,6 @@
 package com.phorest.model.entity;
 
-import com.phorest.model.entity.common.AuditAt;
+import com.phorest.model.entity.common.PersistableEntity;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -24,7 +24,7 @@ import lombok.ToString;
 @Data
 @Entity
 @Table(name = "client")
-public class Client extends AuditAt {
+public class Client extends PersistableEntity {
   public static final int CLIENT_NAME_LENGTH_LIMIT = 50;
   public static final int EMAIL_LENGTH_LIMIT = 254;
   public static final int PHONE_LENGTH_LIMIT = 15;
@@ -1,6 +1,6 @@
 package com.phorest.model.entity;
 
-import com.phorest.model.entity.common.AuditAt;
+import com.phorest.model.entity.common.PersistableEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -22,7 +22,7 @@ import lombok.ToString;
 @Data
 @Entity
 @Table(name = "purchase")
-public class Purchase extends AuditAt {
+public class Purchase extends PersistableEntity {
   public static final int PURCHASE_NAME_LENGTH_LIMIT = 50;
 
   @Id
@@ -1,6 +1,6 @@
 package com.phorest.model.entity;
 
-import com.phorest.model.entity.common.AuditAt;
+import com.phorest.model.entity.common.PersistableEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -22,7 +22,7 @@ import lombok.ToString;
 @Data
 @Entity
 @Table(name = "service")
-public class Service extends AuditAt {
+public class Service extends PersistableEntity {
   public static final int SERVICE_NAME_LENGTH_LIMIT = 50;
 
   @Id
@@ -0,0 +1,33 @@
+package com.phorest.model.entity.common;
+
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import java.util.UUID;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Parent class for entities with assigned ids, which tells Spring Data whether an entity is new
+ * itself, since it cannot tell it from an id that is set on construction.
+ *
+ * <p>An entity is new until it is persisted or loaded, so saving a new entity inserts it straight
+ * away, instead of selecting it first to find out whether it should be merged.
+ */
+@MappedSuperclass
+public abstract class PersistableEntity extends AuditAt implements Persistable<UUID> {
+  private static final long serialVersionUID = 1L;
+
+  @Transient private boolean newEntity = true;
+
+  @Override
+  public boolean isNew() {
+    return newEntity;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    newEntity = false;
+  }
+}
@@ -0,0 +1,60 @@
+package com.phorest.model.importing;
+
+import com.phorest.model.csv.common.CsvBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+/**
+ * A batch of csv beans built and validated by the import pipeline workers and handed to its writer,
+ * along with the entities mapped from them, in the same order, when the import mode persists
+ * entities, and the numbers of the lines they were built from, which rejected rows are reported by.
+ */
+@Value
+public class ImportBatch<T extends CsvBean, E> {
+  @NonNull List<T> csvBeans;
+  @With @NonNull List<E> entities;
+  @NonNull long[] lineNumbers;
+
+  public int size() {
+    return csvBeans.size();
+  }
+
+  public long getLineNumber(int index) {
+    return lineNumbers[index];
+  }
+
+  /**
+   * Returns the batch of the csv beans whose index the predicate accepts, along with their entities
+   * and line numbers, or this batch if it accepts all of them.
+   */
+  public ImportBatch<T, E> filter(IntPredicate predicate) {
+    List<T> acceptedCsvBeans = new ArrayList<>(size());
+    List<E> acceptedEntities = new ArrayList<>(entities.size());
+    long[] acceptedLineNumbers = new long[size()];
+
+    for (int index = 0; index < size(); index++) {
+      if (predicate.test(index)) {
+        acceptedLineNumbers[acceptedCsvBeans.size()] = lineNumbers[index];
+        acceptedCsvBeans.add(csvBeans.get(index));
+
+        if (!entities.isEmpty()) {
+          acceptedEntities.add(entities.get(index));
+        }
+      }
+    }
+
+    if (acceptedCsvBeans.size() == size()) {
+      return this;
+    }
+
+    return new ImportBatch<>(
+        acceptedCsvBeans,
+        acceptedEntities,
+        Arrays.copyOf(acceptedLineNumbers, acceptedCsvBeans.size()));
+  }
+}
@@ -0,0 +1,14 @@
+package com.phorest.model.importing;
+
+import lombok.Value;
+
+/**
+ * The position in a csv file up to which its rows are committed, as a byte offset and a number of
+ * physical lines, header included, along with the number of rows committed up to it.
+ */
+@Value
+public class ImportCheckpoint {
+  long byteOffset;
+  long lineCount;
+  long rowCount;
+}
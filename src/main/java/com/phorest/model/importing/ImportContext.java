@@ -0,0 +1,223 @@
+package com.phorest.model.importing;
+
+import com.phorest.exception.ImportCancelledException;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.model.request.ImportOptions;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Holds the options and progress of a single csv import, which may be cancelled. The progress of
+ * the import of a file of a bundle is added to the progress of the bundle too. Thread-safe.
+ */
+public class ImportContext {
+  // tags the rows the import stages, in the staged import mode
+  @Getter private final UUID id = UUID.randomUUID();
+
+  @Getter private final ImportOptions options;
+
+  // the resumable upload whose file is imported, if any, which checkpoints the import as it
+  // commits, and where a resumed import starts reading the file from, null for a new import
+  @Getter private final UUID uploadId;
+  @Getter private final ImportCheckpoint checkpoint;
+
+  // the rows skipped by an import continuing on error, null for an import failing on its first
+  // invalid row, and for the files of a bundle, which cannot continue on error
+  @Getter private final ImportRejectFile rejectFile;
+
+  // the rows a dry run found invalid, which it rejects instead of failing, null for an import
+  private final ImportDryRunReport dryRunReport;
+
+  // the context of the bundle the imported file belongs to, if any
+  private final ImportContext bundleContext;
+
+  private final AtomicLong parsedRows = new AtomicLong();
+  private final AtomicLong validatedRows = new AtomicLong();
+  private final AtomicLong persistedRows = new AtomicLong();
+  private final AtomicLong committedRows = new AtomicLong();
+  private final AtomicLong unchangedRows = new AtomicLong();
+  private final AtomicLong deletedRows = new AtomicLong();
+  private final AtomicLong readBytes = new AtomicLong();
+
+  // batches read from the file but not yet picked up by an import pipeline worker
+  private final AtomicLong batchesAwaitingProcessing = new AtomicLong();
+
+  // batches processed by an import pipeline worker but not yet picked up by the writer
+  private final AtomicLong batchesAwaitingPersisting = new AtomicLong();
+
+  private volatile boolean cancelled;
+
+  public ImportContext(@NonNull ImportOptions options) {
+    this(options, null, null);
+  }
+
+  public ImportContext(@NonNull ImportOptions options, UUID uploadId, ImportCheckpoint checkpoint) {
+    this.options = options;
+    this.uploadId = uploadId;
+    this.checkpoint = checkpoint;
+    this.rejectFile =
+        options.getMaxErrors() == null ? null : new ImportRejectFile(options.getMaxErrors());
+    this.dryRunReport = null;
+    this.bundleContext = null;
+  }
+
+  public ImportContext(@NonNull ImportOptions options, @NonNull ImportDryRunReport dryRunReport) {
+    this.options = options;
+    this.uploadId = null;
+    this.checkpoint = null;
+    this.rejectFile = null;
+    this.dryRunReport = dryRunReport;
+    this.bundleContext = null;
+  }
+
+  public ImportContext(@NonNull ImportContext bundleContext) {
+    this.options = bundleContext.getOptions();
+    this.uploadId = null;
+    this.checkpoint = null;
+    this.rejectFile = null;
+    this.dryRunReport = null;
+    this.bundleContext = bundleContext;
+  }
+
+  public void recordParsedRows(long rows) {
+    add(context -> context.parsedRows, rows);
+  }
+
+  public void recordValidatedRows(long rows) {
+    add(context -> context.validatedRows, rows);
+  }
+
+  public void recordPersistedRows(long rows) {
+    add(context -> context.persistedRows, rows);
+  }
+
+  // the checkpoint of the import, rows up to it stay in the database even if the import fails
+  public void recordCommittedRows(long rows) {
+    add(context -> context.committedRows, rows);
+  }
+
+  // the persisted rows a delta import did not write, as they were unchanged
+  public void recordUnchangedRows(long rows) {
+    add(context -> context.unchangedRows, rows);
+  }
+
+  public void recordDeletedRows(long rows) {
+    add(context -> context.deletedRows, rows);
+  }
+
+  /** Skips an invalid row, failing the import if it is one row more than its max errors. */
+  public void rejectRow(long lineNumber, String reason) {
+    if (dryRunReport != null) {
+      dryRunReport.reject(lineNumber, reason);
+    } else {
+      rejectFile.reject(lineNumber, reason);
+    }
+  }
+
+  /** Skips a row whose id an earlier row had, which fails the import unless it is a dry run. */
+  public void rejectDuplicateId(long lineNumber, UUID id) {
+    String reason = InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(id);
+
+    if (dryRunReport == null) {
+      throw new InvalidCsvFileException(reason);
+    }
+
+    dryRunReport.reject(lineNumber, reason);
+  }
+
+  public void recordReadBytes(long bytes) {
+    add(context -> context.readBytes, bytes);
+  }
+
+  public void recordBatchQueuedForProcessing() {
+    add(context -> context.batchesAwaitingProcessing, 1);
+  }
+
+  public void recordBatchProcessingStarted() {
+    add(context -> context.batchesAwaitingProcessing, -1);
+  }
+
+  public void recordBatchQueuedForPersisting() {
+    add(context -> context.batchesAwaitingPersisting, 1);
+  }
+
+  public void recordBatchPersistingStarted() {
+    add(context -> context.batchesAwaitingPersisting, -1);
+  }
+
+  // adds to the counter of this context, and to the same counter of its bundle context if any
+  private void add(Function<ImportContext, AtomicLong> counter, long delta) {
+    counter.apply(this).addAndGet(delta);
+
+    if (bundleContext != null) {
+      counter.apply(bundleContext).addAndGet(delta);
+    }
+  }
+
+  public long getParsedRows() {
+    return parsedRows.get();
+  }
+
+  public long getValidatedRows() {
+    return validatedRows.get();
+  }
+
+  public long getPersistedRows() {
+    return persistedRows.get();
+  }
+
+  public long getCommittedRows() {
+    return committedRows.get();
+  }
+
+  public long getUnchangedRows() {
+    return unchangedRows.get();
+  }
+
+  public long getDeletedRows() {
+    return deletedRows.get();
+  }
+
+  public long getRejectedRows() {
+    if (dryRunReport != null) {
+      return dryRunReport.getRejectedRows();
+    }
+
+    return rejectFile == null ? 0 : rejectFile.getRejectedRows();
+  }
+
+  public long getReadBytes() {
+    return readBytes.get();
+  }
+
+  public int getBatchesAwaitingProcessing() {
+    return Math.toIntExact(batchesAwaitingProcessing.get());
+  }
+
+  public int getBatchesAwaitingPersisting() {
+    return Math.toIntExact(batchesAwaitingPersisting.get());
+  }
+
+  public boolean isContinueOnError() {
+    return rejectFile != null || dryRunReport != null;
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  // called between batches, so that a cancelled import rolls back its uncommitted rows at the next
+  // batch boundary
+  public void throwIfCancelled() {
+    if (cancelled) {
+      throw new ImportCancelledException();
+    }
+  }
+}
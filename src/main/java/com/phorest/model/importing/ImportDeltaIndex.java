@@ -0,0 +1,54 @@
+package com.phorest.model.importing;
+
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.util.ContentHashUtils;
+import com.phorest.util.UuidLongMap;
+import com.phorest.util.UuidSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.NonNull;
+
+/**
+ * Holds the content hashes of the rows of a table, loaded before a delta import starts, and the ids
+ * of the rows of the import, so that the rows that are new or changed are told apart from the
+ * unchanged ones in memory, and the rows missing from the file found once it is imported. Only used
+ * by the import pipeline writer, so not thread-safe.
+ */
+public class ImportDeltaIndex {
+  private final UuidLongMap storedContentHashes;
+  private final UuidSet importedIds = new UuidSet();
+
+  public ImportDeltaIndex(@NonNull UuidLongMap storedContentHashes) {
+    this.storedContentHashes = storedContentHashes;
+  }
+
+  /**
+   * Adds the id of a row, returning whether the row is new, or its content hash differs from the
+   * stored one. Fails the import if an earlier row of the import had the id already.
+   */
+  public boolean addChangedRow(UUID id, long contentHash) {
+    if (!importedIds.add(id)) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(id));
+    }
+
+    long storedContentHash = storedContentHashes.get(id, ContentHashUtils.NO_CONTENT_HASH);
+
+    return storedContentHash == ContentHashUtils.NO_CONTENT_HASH
+        || storedContentHash != contentHash;
+  }
+
+  /** Returns the ids of the rows stored before the import that none of its rows had. */
+  public List<UUID> getMissingIds() {
+    List<UUID> missingIds = new ArrayList<>();
+
+    storedContentHashes.forEachKey(
+        id -> {
+          if (!importedIds.contains(id)) {
+            missingIds.add(id);
+          }
+        });
+
+    return missingIds;
+  }
+}
@@ -0,0 +1,38 @@
+package com.phorest.model.importing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rows a dry run found invalid, all of which are counted, the first of them being kept along
+ * with the reasons they are invalid for, in the order they are found. Thread-safe.
+ */
+public class ImportDryRunReport {
+  private final int reportedErrors;
+  private final List<RowError> errors = new ArrayList<>();
+
+  private long rejectedRows;
+
+  public ImportDryRunReport(int reportedErrors) {
+    this.reportedErrors = reportedErrors;
+  }
+
+  /** Counts the row, and keeps it if fewer rows than the reported errors were kept so far. */
+  public synchronized void reject(long lineNumber, String reason) {
+    if (errors.size() < reportedErrors) {
+      errors.add(new RowError(lineNumber, reason));
+    }
+
+    rejectedRows++;
+  }
+
+  public synchronized long getRejectedRows() {
+    return rejectedRows;
+  }
+
+  public synchronized List<RowError> getErrors() {
+    return List.copyOf(errors);
+  }
+
+  public record RowError(long lineNumber, String reason) {}
+}
@@ -0,0 +1,39 @@
+package com.phorest.model.importing;
+
+import com.phorest.util.UuidSet;
+import java.util.UUID;
+import java.util.function.Predicate;
+import lombok.NonNull;
+
+/**
+ * Holds the ids of the rows of an import, and tells whether the parents its rows reference exist,
+ * either from the ids of the existing parents loaded before the import starts, or from a scan of
+ * them kept in step with rows sorted by parent, so that duplicate ids and missing parents are found
+ * in memory before a batch is written. Only used by the import pipeline writer, so not thread-safe.
+ */
+public class ImportIdIndex {
+  private final UuidSet importedIds = new UuidSet();
+  private final Predicate<UUID> parentExists;
+
+  // for imports whose rows have no parents
+  public ImportIdIndex() {
+    this(parentId -> false);
+  }
+
+  public ImportIdIndex(@NonNull UuidSet parentIds) {
+    this(parentIds::contains);
+  }
+
+  public ImportIdIndex(@NonNull Predicate<UUID> parentExists) {
+    this.parentExists = parentExists;
+  }
+
+  /** Adds the id of a row, returning false if an earlier row of the import had it already. */
+  public boolean addImportedId(UUID id) {
+    return importedIds.add(id);
+  }
+
+  public boolean containsParentId(UUID id) {
+    return parentExists.test(id);
+  }
+}
@@ -0,0 +1,111 @@
+package com.phorest.model.importing;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Represents a csv import running in the background, along with its progress. A bundle job imports
+ * several csv files, each of which is a part with a job of its own.
+ */
+@Getter
+public class ImportJob {
+  private final UUID id = UUID.randomUUID();
+  private final Type type;
+  private final ImportContext context;
+  private final long totalBytes;
+  private final Instant createdAt;
+  private final List<ImportJob> parts;
+
+  private volatile Status status = Status.QUEUED;
+  private volatile Instant startedAt;
+  private volatile Instant finishedAt;
+  private volatile String errorMessage;
+
+  public ImportJob(
+      @NonNull Type type,
+      @NonNull ImportContext context,
+      long totalBytes,
+      @NonNull Instant createdAt) {
+    this(type, context, totalBytes, createdAt, List.of());
+  }
+
+  public ImportJob(
+      @NonNull Type type,
+      @NonNull ImportContext context,
+      long totalBytes,
+      @NonNull Instant createdAt,
+      @NonNull List<ImportJob> parts) {
+    this.type = type;
+    this.context = context;
+    this.totalBytes = totalBytes;
+    this.createdAt = createdAt;
+    this.parts = List.copyOf(parts);
+  }
+
+  /** Returns false if the job was cancelled while queued, in which case it must not run. */
+  public synchronized boolean start(Instant instant) {
+    if (status != Status.QUEUED) {
+      return false;
+    }
+
+    status = Status.RUNNING;
+    startedAt = instant;
+
+    return true;
+  }
+
+  public synchronized void complete(Instant instant) {
+    finish(Status.COMPLETED, instant, null);
+  }
+
+  public synchronized void fail(Instant instant, String errorMessage) {
+    finish(context.isCancelled() ? Status.CANCELLED : Status.FAILED, instant, errorMessage);
+  }
+
+  // a part of a bundle is skipped when a part it depends on did not complete
+  public synchronized void skip(Instant instant) {
+    if (status == Status.QUEUED) {
+      finish(Status.SKIPPED, instant, null);
+    }
+  }
+
+  public synchronized void cancel(Instant instant) {
+    context.cancel();
+    parts.forEach(part -> part.cancel(instant));
+
+    // a running job notices the cancellation at its next batch and rolls back its uncommitted rows
+    if (status == Status.QUEUED) {
+      finish(Status.CANCELLED, instant, null);
+    }
+  }
+
+  public boolean isFinished() {
+    return finishedAt != null;
+  }
+
+  private void finish(Status status, Instant instant, String errorMessage) {
+    this.status = status;
+    this.finishedAt = instant;
+    this.errorMessage = errorMessage;
+  }
+
+  public enum Type {
+    CLIENTS,
+    APPOINTMENTS,
+    PURCHASES,
+    SERVICES,
+    BUNDLE
+  }
+
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED,
+    SKIPPED
+  }
+}
@@ -0,0 +1,102 @@
+package com.phorest.model.importing;
+
+import com.phorest.exception.InternalException;
+import com.phorest.exception.InvalidCsvFileException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The rows an import continuing on error rejected, streamed to a temporary csv file of their line
+ * numbers and the reasons they were rejected for, in the order they are rejected. The file is only
+ * created once a row is rejected, and the import fails as soon as more rows than its max errors
+ * would be. Thread-safe.
+ */
+public class ImportRejectFile {
+  public static final String HEADER = "line_number,reason\n";
+
+  private static final String FILE_PREFIX = "csv-import-rejects-";
+  private static final String FILE_SUFFIX = ".csv";
+
+  private final int maxErrors;
+
+  private Path file;
+  private Writer writer;
+  private long rejectedRows;
+
+  // once the import is over, the workers of a failed import may still be rejecting rows, which
+  // are ignored
+  private boolean closed;
+
+  public ImportRejectFile(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  /** Writes the row out, unless it is one row too many, which fails the import. */
+  public synchronized void reject(long lineNumber, String reason) {
+    if (closed) {
+      return;
+    }
+
+    if (rejectedRows >= maxErrors) {
+      throw new InvalidCsvFileException(
+          InvalidCsvFileException.TOO_MANY_INVALID_ROWS_MESSAGE.formatted(maxErrors));
+    }
+
+    try {
+      if (writer == null) {
+        file = Files.createTempFile(FILE_PREFIX, FILE_SUFFIX);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+      }
+
+      writer.write(Long.toString(lineNumber));
+      writer.write(',');
+      writeQuoted(reason);
+      writer.write('\n');
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+
+    rejectedRows++;
+  }
+
+  public synchronized long getRejectedRows() {
+    return rejectedRows;
+  }
+
+  /** Writes out the rows rejected so far, returning the file, or null if none was rejected. */
+  public synchronized Path flush() throws IOException {
+    if (writer != null && !closed) {
+      writer.flush();
+    }
+
+    return file;
+  }
+
+  /** Closes the file once the import is over, leaving it to be read. */
+  public synchronized void close() throws IOException {
+    closed = true;
+
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  public synchronized void delete() throws IOException {
+    close();
+
+    if (file != null) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  // the reason is always quoted, as messages may hold commas, quotes and line breaks
+  private void writeQuoted(String value) throws IOException {
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
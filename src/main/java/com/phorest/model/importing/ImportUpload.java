@@ -0,0 +1,24 @@
+package com.phorest.model.importing;
+
+import com.phorest.model.response.ImportJobResponse;
+import java.util.UUID;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * The state of a resumable upload once one of its chunks is received, along with the import job
+ * submitted for it once it is complete.
+ */
+@Value
+public class ImportUpload {
+  @NonNull UUID id;
+  long receivedBytes;
+  long totalBytes;
+
+  // null while the upload is incomplete
+  ImportJobResponse importJob;
+
+  public boolean isComplete() {
+    return importJob != null;
+  }
+}
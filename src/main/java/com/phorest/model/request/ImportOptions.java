@@ -0,0 +1,110 @@
+package com.phorest.model.request;
+
+import com.phorest.util.CsvCompression;
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.With;
+
+/** Represents the query parameters controlling how a csv file is imported. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportOptions {
+  @NotNull
+  @Builder.Default
+  @Parameter(description = "How the rows of the file are written to the database")
+  private Mode mode = Mode.STANDARD;
+
+  @Parameter(description = "Whether the file is imported in the background as an import job")
+  private boolean async;
+
+  @Parameter(
+      description =
+          "Whether duplicate ids, and ids of missing parents, are looked for in memory before the"
+              + " rows are written, against the ids of the parent table loaded beforehand")
+  private boolean indexIds;
+
+  @Parameter(
+      description =
+          "Whether the rows of the file are sorted by the id of their parent before they are"
+              + " written, their parents being checked by a single ordered scan of the parent"
+              + " table, ignored for clients")
+  private boolean sortByParent;
+
+  @Positive
+  @Parameter(
+      description =
+          "Number of rows after which the rows imported so far are committed, at the end of a"
+              + " batch, the whole file being committed at once if not set")
+  private Integer commitInterval;
+
+  @Parameter(
+      description =
+          "Id of the resumable upload the file is a chunk of, chosen by the client, the chunk"
+              + " being placed by the Content-Range header and the upload imported in the"
+              + " background once complete, resuming from the last commit of a previous import,"
+              + " the last chunk having to be sent again to resume after a restart, ignored for"
+              + " bundles")
+  private UUID uploadId;
+
+  @PositiveOrZero
+  @Parameter(
+      description =
+          "Number of invalid rows, and rows whose parent does not exist, that are skipped before"
+              + " the import fails, the file being imported in the background and its skipped rows"
+              + " listed by the reject file of the import job, every row having to be valid if not"
+              + " set, not supported for bundles")
+  private Integer maxErrors;
+
+  @Parameter(
+      description =
+          "Whether the file is only checked, in a single pass without writing to the database,"
+              + " the number of its invalid rows being returned along with the first of them and"
+              + " the reasons they are invalid for, duplicate ids and ids of missing parents being"
+              + " looked for too with indexIds, not supported for bundles")
+  private boolean dryRun;
+
+  @Parameter(
+      description =
+          "Whether the rows of the table missing from the file are deleted once it is imported,"
+              + " along with the rows referencing them, unless a row of the file was rejected,"
+              + " only in the delta import mode, and not for resumable uploads")
+  private boolean deleteMissing;
+
+  // the compression of the uploaded file, resolved by the controller from the content type and
+  // the Content-Encoding of the file part, which has no setter so that no query parameter binds it
+  @With
+  @Builder.Default
+  @Setter(AccessLevel.NONE)
+  @Parameter(hidden = true)
+  private CsvCompression compression = CsvCompression.NONE;
+
+  public enum Mode {
+    // entities are mapped and saved through their JPA repository
+    STANDARD,
+    // rows are streamed into their table with PostgreSQL COPY, bypassing JPA
+    COPY,
+    // rows are inserted, or update the rows with the same ids, with INSERT ... ON CONFLICT,
+    // bypassing JPA
+    UPSERT,
+    // rows are inserted with batched JDBC INSERT statements, bypassing JPA
+    INSERT,
+    // rows are streamed into UNLOGGED staging tables with PostgreSQL COPY, checked there, and
+    // then merged into their table in a single short transaction, bypassing JPA
+    STAGED,
+    // only the rows that are new, or changed since the last delta import, are inserted or
+    // updated with INSERT ... ON CONFLICT along with their content hash, the unchanged rows being
+    // found by comparing content hashes in memory and never sent to the database, bypassing JPA
+    DELTA
+  }
+}
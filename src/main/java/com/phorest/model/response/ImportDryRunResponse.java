@@ -0,0 +1,27 @@
+package com.phorest.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportDryRunResponse {
+  @JsonProperty("rows_checked")
+  private long rowsChecked;
+
+  @JsonProperty("rows_valid")
+  private long rowsValid;
+
+  @JsonProperty("rows_invalid")
+  private long rowsInvalid;
+
+  // the first invalid rows found
+  @JsonProperty("errors")
+  private List<ImportRowErrorResponse> errors;
+}
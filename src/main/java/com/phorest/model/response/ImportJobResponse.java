@@ -0,0 +1,87 @@
+package com.phorest.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.phorest.model.importing.ImportJob;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJobResponse {
+  @JsonProperty("id")
+  private UUID id;
+
+  @JsonProperty("type")
+  private ImportJob.Type type;
+
+  @JsonProperty("status")
+  private ImportJob.Status status;
+
+  @JsonProperty("rows_parsed")
+  private long rowsParsed;
+
+  @JsonProperty("rows_validated")
+  private long rowsValidated;
+
+  @JsonProperty("rows_persisted")
+  private long rowsPersisted;
+
+  @JsonProperty("rows_committed")
+  private long rowsCommitted;
+
+  // the rows skipped by an import continuing on error, listed by the reject file of its job
+  @JsonProperty("rows_rejected")
+  private long rowsRejected;
+
+  // the persisted rows a delta import did not write, as they were unchanged
+  @JsonProperty("rows_unchanged")
+  private long rowsUnchanged;
+
+  // the rows a delta import deleted, as they were missing from the file
+  @JsonProperty("rows_deleted")
+  private long rowsDeleted;
+
+  @JsonProperty("bytes_read")
+  private long bytesRead;
+
+  @JsonProperty("total_bytes")
+  private long totalBytes;
+
+  // the resumable upload whose file is imported, if any
+  @JsonProperty("upload_id")
+  private UUID uploadId;
+
+  @JsonProperty("rows_per_second")
+  private double rowsPerSecond;
+
+  @JsonProperty("estimated_seconds_remaining")
+  private Long estimatedSecondsRemaining;
+
+  @JsonProperty("stages")
+  private List<ImportStageResponse> stages;
+
+  // the import of each file of a bundle, whose rows and bytes add up to those of the bundle
+  @JsonProperty("files")
+  private List<ImportJobResponse> files;
+
+  @JsonProperty("created_at")
+  private Instant createdAt;
+
+  @JsonProperty("started_at")
+  private Instant startedAt;
+
+  @JsonProperty("finished_at")
+  private Instant finishedAt;
+
+  @JsonProperty("error_message")
+  private String errorMessage;
+}
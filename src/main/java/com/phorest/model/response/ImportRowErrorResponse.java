@@ -0,0 +1,19 @@
+package com.phorest.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowErrorResponse {
+  @JsonProperty("line_number")
+  private long lineNumber;
+
+  @JsonProperty("reason")
+  private String reason;
+}
@@ -0,0 +1,27 @@
+package com.phorest.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportStageResponse {
+  @JsonProperty("name")
+  private String name;
+
+  @JsonProperty("rows")
+  private long rows;
+
+  @JsonProperty("rows_per_second")
+  private double rowsPerSecond;
+
+  @JsonProperty("queue_depth")
+  private Integer queueDepth;
+}
@@ -0,0 +1,159 @@
+package com.phorest.pipeline;
+
+import com.phorest.exception.AppointmentNotFoundException;
+import com.phorest.mapper.AppointmentMapper;
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.entity.Appointment;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.repository.AppointmentRepository;
+import com.phorest.repository.ClientRepository;
+import com.phorest.repository.CsvBeanCopyDAO;
+import com.phorest.repository.CsvBeanDeltaDAO;
+import com.phorest.repository.CsvBeanInsertDAO;
+import com.phorest.repository.CsvBeanStagingDAO;
+import com.phorest.repository.CsvBeanUpsertDAO;
+import com.phorest.repository.IdScanDAO;
+import com.phorest.repository.SortedIdScan;
+import com.phorest.util.UuidLongMap;
+import com.phorest.util.UuidSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/** Appointments have clients as parents, and are the parents of purchases and services. */
+@Component
+@RequiredArgsConstructor
+public class AppointmentCsvTable
+    implements CsvChildTable<AppointmentCsvBean, Appointment>, CsvParentTable {
+
+  // position of the client id in the csv lines, right after the appointment id
+  private static final int CLIENT_ID_FIELD = 1;
+
+  @Getter private final ClientCsvTable parentTable;
+
+  private final AppointmentRepository appointmentRepository;
+  private final ClientRepository clientRepository;
+  private final CsvBeanCopyDAO csvBeanCopyDAO;
+  private final CsvBeanDeltaDAO csvBeanDeltaDAO;
+  private final CsvBeanUpsertDAO csvBeanUpsertDAO;
+  private final CsvBeanInsertDAO csvBeanInsertDAO;
+  private final CsvBeanStagingDAO csvBeanStagingDAO;
+  private final IdScanDAO idScanDAO;
+
+  private final AppointmentMapper appointmentMapper;
+
+  @Override
+  public Class<AppointmentCsvBean> getCsvBeanType() {
+    return AppointmentCsvBean.class;
+  }
+
+  @Override
+  public UUID getId(AppointmentCsvBean csvBean) {
+    return csvBean.getId();
+  }
+
+  @Override
+  public Appointment toEntity(AppointmentCsvBean csvBean) {
+    return appointmentMapper.toAppointment(csvBean);
+  }
+
+  @Override
+  public void save(List<Appointment> entities) {
+    appointmentRepository.saveAllAndFlush(entities);
+  }
+
+  @Override
+  public void copy(List<AppointmentCsvBean> csvBeans) {
+    csvBeanCopyDAO.copyAppointments(csvBeans);
+  }
+
+  @Override
+  public void upsert(List<AppointmentCsvBean> csvBeans) {
+    csvBeanUpsertDAO.upsertAppointments(csvBeans);
+  }
+
+  @Override
+  public void insert(List<AppointmentCsvBean> csvBeans) {
+    csvBeanInsertDAO.insertAppointments(csvBeans);
+  }
+
+  @Override
+  public void stage(UUID importId, List<AppointmentCsvBean> csvBeans) {
+    csvBeanStagingDAO.stageAppointments(importId, csvBeans);
+  }
+
+  @Override
+  public Optional<UUID> findStagedDuplicateId(UUID importId) {
+    return csvBeanStagingDAO.findDuplicateAppointmentId(importId);
+  }
+
+  @Override
+  public void mergeStaged(UUID importId) {
+    csvBeanStagingDAO.mergeAppointments(importId);
+  }
+
+  @Override
+  public UuidLongMap scanContentHashes() {
+    return idScanDAO.scanAppointmentContentHashes();
+  }
+
+  @Override
+  public int writeChanged(List<AppointmentCsvBean> csvBeans, ImportDeltaIndex deltaIndex) {
+    return csvBeanDeltaDAO.writeChangedAppointments(csvBeans, deltaIndex);
+  }
+
+  @Override
+  public int delete(List<UUID> ids) {
+    return csvBeanDeltaDAO.deleteAppointments(ids);
+  }
+
+  @Override
+  public UUID getParentId(AppointmentCsvBean csvBean) {
+    return csvBean.getClientId();
+  }
+
+  @Override
+  public int getParentIdField() {
+    return CLIENT_ID_FIELD;
+  }
+
+  @Override
+  public void setParent(Appointment entity, UUID parentId) {
+    entity.setClient(clientRepository.getReferenceById(parentId));
+  }
+
+  @Override
+  public Optional<UUID> findStagedMissingParentId(UUID importId) {
+    return csvBeanStagingDAO.findMissingAppointmentClientId(importId);
+  }
+
+  @Override
+  public UuidSet scanIds() {
+    return idScanDAO.scanAppointmentIds();
+  }
+
+  @Override
+  public SortedIdScan openSortedIdScan() {
+    return idScanDAO.openSortedAppointmentIdScan();
+  }
+
+  @Override
+  public Set<UUID> findExistingIds(Collection<UUID> ids) {
+    return appointmentRepository.findIdsByIdIn(ids);
+  }
+
+  @Override
+  public RuntimeException notFound(UUID id) {
+    return new AppointmentNotFoundException(id);
+  }
+
+  @Override
+  public String getNotFoundMessage() {
+    return AppointmentNotFoundException.MESSAGE;
+  }
+}
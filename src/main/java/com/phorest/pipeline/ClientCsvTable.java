@@ -0,0 +1,129 @@
+package com.phorest.pipeline;
+
+import com.phorest.exception.ClientNotFoundException;
+import com.phorest.mapper.ClientMapper;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.entity.Client;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.repository.ClientRepository;
+import com.phorest.repository.CsvBeanCopyDAO;
+import com.phorest.repository.CsvBeanDeltaDAO;
+import com.phorest.repository.CsvBeanInsertDAO;
+import com.phorest.repository.CsvBeanStagingDAO;
+import com.phorest.repository.CsvBeanUpsertDAO;
+import com.phorest.repository.IdScanDAO;
+import com.phorest.repository.SortedIdScan;
+import com.phorest.util.UuidLongMap;
+import com.phorest.util.UuidSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/** Clients have no parents, and are the parents of appointments. */
+@Component
+@RequiredArgsConstructor
+public class ClientCsvTable implements CsvTable<ClientCsvBean, Client>, CsvParentTable {
+  private final ClientRepository clientRepository;
+  private final CsvBeanCopyDAO csvBeanCopyDAO;
+  private final CsvBeanDeltaDAO csvBeanDeltaDAO;
+  private final CsvBeanUpsertDAO csvBeanUpsertDAO;
+  private final CsvBeanInsertDAO csvBeanInsertDAO;
+  private final CsvBeanStagingDAO csvBeanStagingDAO;
+  private final IdScanDAO idScanDAO;
+
+  private final ClientMapper clientMapper;
+
+  @Override
+  public Class<ClientCsvBean> getCsvBeanType() {
+    return ClientCsvBean.class;
+  }
+
+  @Override
+  public UUID getId(ClientCsvBean csvBean) {
+    return csvBean.getId();
+  }
+
+  @Override
+  public Client toEntity(ClientCsvBean csvBean) {
+    return clientMapper.toClient(csvBean);
+  }
+
+  @Override
+  public void save(List<Client> entities) {
+    clientRepository.saveAllAndFlush(entities);
+  }
+
+  @Override
+  public void copy(List<ClientCsvBean> csvBeans) {
+    csvBeanCopyDAO.copyClients(csvBeans);
+  }
+
+  @Override
+  public void upsert(List<ClientCsvBean> csvBeans) {
+    csvBeanUpsertDAO.upsertClients(csvBeans);
+  }
+
+  @Override
+  public void insert(List<ClientCsvBean> csvBeans) {
+    csvBeanInsertDAO.insertClients(csvBeans);
+  }
+
+  @Override
+  public void stage(UUID importId, List<ClientCsvBean> csvBeans) {
+    csvBeanStagingDAO.stageClients(importId, csvBeans);
+  }
+
+  @Override
+  public Optional<UUID> findStagedDuplicateId(UUID importId) {
+    return csvBeanStagingDAO.findDuplicateClientId(importId);
+  }
+
+  @Override
+  public void mergeStaged(UUID importId) {
+    csvBeanStagingDAO.mergeClients(importId);
+  }
+
+  @Override
+  public UuidLongMap scanContentHashes() {
+    return idScanDAO.scanClientContentHashes();
+  }
+
+  @Override
+  public int writeChanged(List<ClientCsvBean> csvBeans, ImportDeltaIndex deltaIndex) {
+    return csvBeanDeltaDAO.writeChangedClients(csvBeans, deltaIndex);
+  }
+
+  @Override
+  public int delete(List<UUID> ids) {
+    return csvBeanDeltaDAO.deleteClients(ids);
+  }
+
+  @Override
+  public UuidSet scanIds() {
+    return idScanDAO.scanClientIds();
+  }
+
+  @Override
+  public SortedIdScan openSortedIdScan() {
+    return idScanDAO.openSortedClientIdScan();
+  }
+
+  @Override
+  public Set<UUID> findExistingIds(Collection<UUID> ids) {
+    return clientRepository.findIdsByIdIn(ids);
+  }
+
+  @Override
+  public RuntimeException notFound(UUID id) {
+    return new ClientNotFoundException(id);
+  }
+
+  @Override
+  public String getNotFoundMessage() {
+    return ClientNotFoundException.MESSAGE;
+  }
+}
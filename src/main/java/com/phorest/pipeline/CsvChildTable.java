@@ -0,0 +1,20 @@
+package com.phorest.pipeline;
+
+import com.phorest.model.csv.common.CsvBean;
+import java.util.Optional;
+import java.util.UUID;
+
+/** A table whose rows reference a parent, and how their parents are found and set. */
+public interface CsvChildTable<T extends CsvBean, E> extends CsvTable<T, E> {
+  CsvParentTable getParentTable();
+
+  UUID getParentId(T csvBean);
+
+  // position of the parent id in the csv lines
+  int getParentIdField();
+
+  // the parent is only referenced, and is known to exist
+  void setParent(E entity, UUID parentId);
+
+  Optional<UUID> findStagedMissingParentId(UUID importId);
+}
@@ -0,0 +1,335 @@
+package com.phorest.pipeline;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.factory.CsvFieldDecoders;
+import com.phorest.util.CsvLineBatch;
+import com.phorest.util.UuidUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sorts the csv lines of an import by a uuid field, such as the id of the parent of each line, with
+ * an external merge sort: the lines are collected into runs of a bounded number of lines, each run
+ * is sorted in memory and spilled to a temporary file, and the runs are then merged, a buffer of
+ * each being held in memory at a time. A file that fits in a single run is sorted in memory only.
+ *
+ * <p>The lines are sorted the way PostgreSQL orders uuids, lines with the same value keeping their
+ * file order, and lines whose field is not a uuid coming first, so that they still fail validation.
+ * Lines keep their line numbers, so errors still point to the line of the file.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CsvLineSorter {
+  private static final int RUN_FILE_BUFFER_SIZE = 16 * 1024;
+
+  private final ImportConfiguration importConfiguration;
+
+  /** Reads every line of the reader before handing them over, sorted, in batches of batchSize. */
+  public ImportPipeline.Reader<CsvLineBatch> sortByUuidField(
+      ImportPipeline.Reader<CsvLineBatch> reader, int field, int batchSize) {
+
+    return batchConsumer -> {
+      ExternalSort externalSort =
+          new ExternalSort(field, importConfiguration.getSortRunLines(), batchSize);
+
+      try {
+        reader.read(externalSort::add);
+        externalSort.handOver(batchConsumer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        externalSort.deleteRunFiles();
+      }
+    };
+  }
+
+  private static class ExternalSort {
+    private final int field;
+    private final int runLines;
+    private final int batchSize;
+
+    private final CsvLineBatch run;
+    private final List<RunFile> runFiles = new ArrayList<>();
+
+    private ExternalSort(int field, int runLines, int batchSize) {
+      this.field = field;
+      this.runLines = runLines;
+      this.batchSize = batchSize;
+      this.run = new CsvLineBatch(batchSize);
+    }
+
+    private void add(CsvLineBatch batch) {
+      run.addAll(batch);
+
+      if (run.size() >= runLines) {
+        try {
+          spillRun();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    private void handOver(Consumer<CsvLineBatch> batchConsumer) throws IOException {
+      if (runFiles.isEmpty()) {
+        BatchBuilder batchBuilder = new BatchBuilder(batchSize, batchConsumer);
+
+        for (int line : sortRun()) {
+          batchBuilder.add(run, line);
+        }
+
+        batchBuilder.flush();
+        return;
+      }
+
+      if (!run.isEmpty()) {
+        spillRun();
+      }
+
+      log.debug("[IMPORTS] Merging {} sorted runs", runFiles.size());
+
+      mergeRunFiles(batchConsumer);
+    }
+
+    private void spillRun() throws IOException {
+      Path path = Files.createTempFile("import-sort-", ".run");
+      runFiles.add(new RunFile(path, run.size()));
+
+      try (DataOutputStream output =
+          new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(path), RUN_FILE_BUFFER_SIZE))) {
+
+        for (int line : sortRun()) {
+          writeLine(output, line);
+        }
+      }
+
+      run.clear();
+    }
+
+    // stable, so that the lines with the same value keep their order
+    private Integer[] sortRun() {
+      long[] mostSignificantBits = new long[run.size()];
+      long[] leastSignificantBits = new long[run.size()];
+      Integer[] lines = new Integer[run.size()];
+
+      for (int line = 0; line < run.size(); line++) {
+        UUID key = parseKey(run, line);
+        mostSignificantBits[line] = key.getMostSignificantBits();
+        leastSignificantBits[line] = key.getLeastSignificantBits();
+        lines[line] = line;
+      }
+
+      Arrays.sort(
+          lines,
+          (first, second) ->
+              UuidUtils.compareUnsigned(
+                  mostSignificantBits[first],
+                  leastSignificantBits[first],
+                  mostSignificantBits[second],
+                  leastSignificantBits[second]));
+
+      return lines;
+    }
+
+    private UUID parseKey(CsvLineBatch lines, int line) {
+      if (field >= lines.getFieldCount(line)) {
+        return new UUID(0, 0);
+      }
+
+      try {
+        return CsvFieldDecoders.decodeUuid(
+            lines.getChars(), lines.getFieldStart(line, field), lines.getFieldEnd(line, field));
+      } catch (IllegalArgumentException e) {
+        return new UUID(0, 0);
+      }
+    }
+
+    // each line is written with its key, so that merging does not parse it again
+    private void writeLine(DataOutputStream output, int line) throws IOException {
+      UUID key = parseKey(run, line);
+      output.writeLong(key.getMostSignificantBits());
+      output.writeLong(key.getLeastSignificantBits());
+
+      output.writeLong(run.getLineNumber(line));
+      output.writeInt(run.getFieldCount(line));
+
+      for (int field = 0; field < run.getFieldCount(line); field++) {
+        int fieldStart = run.getFieldStart(line, field);
+        int fieldEnd = run.getFieldEnd(line, field);
+        output.writeInt(fieldEnd - fieldStart);
+
+        for (int i = fieldStart; i < fieldEnd; i++) {
+          output.writeChar(run.getChars()[i]);
+        }
+      }
+    }
+
+    // the runs are stable themselves, and runs read earlier win ties, so the merge is stable too
+    private void mergeRunFiles(Consumer<CsvLineBatch> batchConsumer) throws IOException {
+      List<RunReader> runReaders = new ArrayList<>(runFiles.size());
+      Comparator<RunReader> byKey = RunReader::compareKeyTo;
+      PriorityQueue<RunReader> nextLines =
+          new PriorityQueue<>(byKey.thenComparingInt(runReader -> runReader.index));
+
+      try {
+        for (RunFile runFile : runFiles) {
+          RunReader runReader = new RunReader(runFile, runReaders.size());
+          runReaders.add(runReader);
+
+          if (runReader.next()) {
+            nextLines.add(runReader);
+          }
+        }
+
+        BatchBuilder batchBuilder = new BatchBuilder(batchSize, batchConsumer);
+
+        while (!nextLines.isEmpty()) {
+          RunReader runReader = nextLines.poll();
+          batchBuilder.add(runReader.line, 0);
+
+          if (runReader.next()) {
+            nextLines.add(runReader);
+          }
+        }
+
+        batchBuilder.flush();
+      } finally {
+        for (RunReader runReader : runReaders) {
+          runReader.close();
+        }
+      }
+    }
+
+    private void deleteRunFiles() {
+      for (RunFile runFile : runFiles) {
+        try {
+          Files.deleteIfExists(runFile.path());
+        } catch (IOException e) {
+          log.warn("[IMPORTS] Could not delete sorted run {}: {}", runFile.path(), e.getMessage());
+        }
+      }
+    }
+  }
+
+  private record RunFile(Path path, int lineCount) {}
+
+  // holds the current line of a run file, as a batch of a single line
+  private static class RunReader implements Closeable {
+    private final DataInputStream input;
+    private final int index;
+    private int remainingLines;
+
+    private final CsvLineBatch line = new CsvLineBatch(1);
+    private long mostSignificantBits;
+    private long leastSignificantBits;
+
+    private char[] chars = new char[256];
+    private int[] fieldEnds = new int[8];
+
+    private RunReader(RunFile runFile, int index) throws IOException {
+      this.input =
+          new DataInputStream(
+              new BufferedInputStream(Files.newInputStream(runFile.path()), RUN_FILE_BUFFER_SIZE));
+      this.index = index;
+      this.remainingLines = runFile.lineCount();
+    }
+
+    private boolean next() throws IOException {
+      if (remainingLines == 0) {
+        return false;
+      }
+
+      remainingLines--;
+
+      mostSignificantBits = input.readLong();
+      leastSignificantBits = input.readLong();
+
+      long lineNumber = input.readLong();
+      int fieldCount = input.readInt();
+      int length = 0;
+
+      if (fieldCount > fieldEnds.length) {
+        fieldEnds = new int[Math.max(fieldEnds.length * 2, fieldCount)];
+      }
+
+      for (int field = 0; field < fieldCount; field++) {
+        int fieldLength = input.readInt();
+
+        if (length + fieldLength > chars.length) {
+          chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + fieldLength));
+        }
+
+        for (int i = 0; i < fieldLength; i++) {
+          chars[length++] = input.readChar();
+        }
+
+        fieldEnds[field] = length;
+      }
+
+      line.clear();
+      line.add(lineNumber, chars, fieldEnds, fieldCount);
+
+      return true;
+    }
+
+    private int compareKeyTo(RunReader other) {
+      return UuidUtils.compareUnsigned(
+          mostSignificantBits,
+          leastSignificantBits,
+          other.mostSignificantBits,
+          other.leastSignificantBits);
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+
+  // hands the sorted lines over in batches of batchSize, like the reader being sorted
+  private static class BatchBuilder {
+    private final int batchSize;
+    private final Consumer<CsvLineBatch> batchConsumer;
+    private CsvLineBatch batch;
+
+    private BatchBuilder(int batchSize, Consumer<CsvLineBatch> batchConsumer) {
+      this.batchSize = batchSize;
+      this.batchConsumer = batchConsumer;
+      this.batch = new CsvLineBatch(batchSize);
+    }
+
+    private void add(CsvLineBatch lines, int line) {
+      batch.add(lines, line);
+
+      if (batch.size() == batchSize) {
+        batchConsumer.accept(batch);
+        batch = new CsvLineBatch(batchSize);
+      }
+    }
+
+    private void flush() {
+      if (!batch.isEmpty()) {
+        batchConsumer.accept(batch);
+      }
+    }
+  }
+}
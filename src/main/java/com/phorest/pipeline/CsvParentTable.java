@@ -0,0 +1,20 @@
+package com.phorest.pipeline;
+
+import com.phorest.repository.SortedIdScan;
+import com.phorest.util.UuidSet;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/** A table referenced by the rows of a CsvChildTable, and how its ids are looked up. */
+public interface CsvParentTable {
+  UuidSet scanIds();
+
+  SortedIdScan openSortedIdScan();
+
+  Set<UUID> findExistingIds(Collection<UUID> ids);
+
+  RuntimeException notFound(UUID id);
+
+  String getNotFoundMessage();
+}
@@ -0,0 +1,43 @@
+package com.phorest.pipeline;
+
+import com.phorest.model.csv.common.CsvBean;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.util.UuidLongMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The table specific parts of a csv import, implemented once per table: how its rows are mapped and
+ * written in each import mode. A table whose rows reference a parent is a CsvChildTable.
+ */
+public interface CsvTable<T extends CsvBean, E> {
+  Class<T> getCsvBeanType();
+
+  UUID getId(T csvBean);
+
+  // the standard import mode
+  E toEntity(T csvBean);
+
+  void save(List<E> entities);
+
+  void copy(List<T> csvBeans);
+
+  void upsert(List<T> csvBeans);
+
+  void insert(List<T> csvBeans);
+
+  // the staged import mode, each taking the id of the import
+  void stage(UUID importId, List<T> csvBeans);
+
+  Optional<UUID> findStagedDuplicateId(UUID importId);
+
+  void mergeStaged(UUID importId);
+
+  // the delta import mode, the writes returning how many rows they wrote
+  UuidLongMap scanContentHashes();
+
+  int writeChanged(List<T> csvBeans, ImportDeltaIndex deltaIndex);
+
+  int delete(List<UUID> ids);
+}
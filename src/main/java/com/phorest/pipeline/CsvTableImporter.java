@@ -0,0 +1,383 @@
+package com.phorest.pipeline;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.model.csv.common.CsvBean;
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.model.importing.ImportIdIndex;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportDryRunResponse;
+import com.phorest.repository.SortedIdScan;
+import com.phorest.service.CsvService;
+import com.phorest.util.CountingInputStream;
+import com.phorest.util.CsvLineBatch;
+import com.phorest.validator.CsvBeanValidator;
+import jakarta.persistence.EntityManager;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Imports a csv file into a table, in any import mode and with any import option, the table
+ * specific parts of the import being given by its CsvTable.
+ *
+ * <p>The rows of a table with parents are checked against the existing parent ids, loaded before
+ * the import starts with the id index, read along with rows sorted by parent id with the sort by
+ * parent option, or queried for each batch otherwise.
+ */
+@Component
+@RequiredArgsConstructor
+public class CsvTableImporter {
+  private final CsvService csvService;
+  private final ImportConfiguration importConfiguration;
+  private final ImportTransactionRunner importTransactionRunner;
+  private final ImportDryRunner importDryRunner;
+  private final CsvLineSorter csvLineSorter;
+  private final CsvBeanValidator csvBeanValidator;
+  private final EntityManager entityManager;
+
+  public <T extends CsvBean, E> void importFromFile(
+      MultipartFile file, ImportOptions importOptions, CsvTable<T, E> table) {
+
+    ImportContext importContext = new ImportContext(importOptions);
+
+    importRows(
+        lineBatchConsumer ->
+            csvService.processLinesFromCsvFile(
+                file,
+                importOptions.getCompression(),
+                table.getCsvBeanType(),
+                importConfiguration.getBatchSize(importOptions.getMode()),
+                lineBatchConsumer),
+        importContext,
+        table);
+  }
+
+  public <T extends CsvBean, E> void importFromSpooledFile(
+      Path spooledFile, ImportContext importContext, CsvTable<T, E> table) {
+
+    importRows(
+        lineBatchConsumer ->
+            csvService.processLinesFromSpooledCsvFile(
+                spooledFile,
+                importContext.getCheckpoint(),
+                table.getCsvBeanType(),
+                importConfiguration.getBatchSize(importContext.getOptions().getMode()),
+                importContext::recordReadBytes,
+                lineBatchConsumer),
+        importContext,
+        table);
+  }
+
+  public <T extends CsvBean, E> void importFromStream(
+      InputStream inputStream, ImportContext importContext, CsvTable<T, E> table) {
+
+    importRows(
+        lineBatchConsumer ->
+            csvService.processLinesFromCsvStream(
+                new CountingInputStream(inputStream, importContext::recordReadBytes),
+                table.getCsvBeanType(),
+                importConfiguration.getBatchSize(importContext.getOptions().getMode()),
+                lineBatchConsumer),
+        importContext,
+        table);
+  }
+
+  public <T extends CsvBean, E> ImportDryRunResponse dryRunFromFile(
+      MultipartFile file, ImportOptions importOptions, CsvTable<T, E> table) {
+
+    if (!importOptions.isIndexIds()) {
+      return importDryRunner.run(file, table.getCsvBeanType(), importOptions, null);
+    }
+
+    // the parent ids are loaded once, as a snapshot taken in a read-only transaction
+    ImportIdIndex idIndex = buildIdIndex(table);
+
+    return importDryRunner.<T, E>run(
+        file,
+        table.getCsvBeanType(),
+        importOptions,
+        (batch, importContext) -> rejectRows(batch, importContext, idIndex, table));
+  }
+
+  private <T extends CsvBean, E> void importRows(
+      ImportPipeline.Reader<CsvLineBatch> csvLineReader,
+      ImportContext importContext,
+      CsvTable<T, E> table) {
+
+    if (table instanceof CsvChildTable<T, E> childTable
+        && importContext.getOptions().isSortByParent()) {
+      // the rows reach the writer in parent id order, and their parents are found by advancing a
+      // scan of the parent ids in the same order
+      try (SortedIdScan parentIdScan = childTable.getParentTable().openSortedIdScan()) {
+        runImport(
+            csvLineSorter.sortByUuidField(
+                csvLineReader,
+                childTable.getParentIdField(),
+                importConfiguration.getBatchSize(importContext.getOptions().getMode())),
+            importContext,
+            new ImportIdIndex(parentIdScan::contains),
+            table);
+      }
+
+      return;
+    }
+
+    // loaded before the pipeline starts, so that the writer can check every batch against it
+    ImportIdIndex idIndex = importContext.getOptions().isIndexIds() ? buildIdIndex(table) : null;
+
+    runImport(csvLineReader, importContext, idIndex, table);
+  }
+
+  // a table without parents only collects the ids of the file as its batches are checked
+  private ImportIdIndex buildIdIndex(CsvTable<?, ?> table) {
+    return table instanceof CsvChildTable<?, ?> childTable
+        ? new ImportIdIndex(childTable.getParentTable().scanIds())
+        : new ImportIdIndex();
+  }
+
+  private <T extends CsvBean, E> void runImport(
+      ImportPipeline.Reader<CsvLineBatch> csvLineReader,
+      ImportContext importContext,
+      ImportIdIndex idIndex,
+      CsvTable<T, E> table) {
+
+    // loaded before the pipeline starts, like the id index
+    ImportDeltaIndex deltaIndex =
+        importContext.getOptions().getMode() == ImportOptions.Mode.DELTA
+            ? new ImportDeltaIndex(table.scanContentHashes())
+            : null;
+
+    importTransactionRunner.run(
+        importContext,
+        csvLineReader,
+        csvLines -> processRows(csvLines, importContext, table),
+        batch -> persistRows(batch, importContext, idIndex, deltaIndex, table),
+        () -> mergeStagedRows(importContext.getId(), table),
+        () -> deleteMissingRows(importContext, deltaIndex, table));
+  }
+
+  // runs on the import pipeline workers, outside of the import transaction
+  private <T extends CsvBean, E> ImportBatch<T, E> processRows(
+      CsvLineBatch csvLines, ImportContext importContext, CsvTable<T, E> table) {
+
+    ImportBatch<T, E> batch =
+        csvService.buildImportBatchFromCsvLines(csvLines, table.getCsvBeanType(), importContext);
+    importContext.recordParsedRows(batch.size());
+
+    batch = csvBeanValidator.validateImportBatch(batch, importContext);
+    importContext.recordValidatedRows(batch.size());
+
+    List<E> entities =
+        switch (importContext.getOptions().getMode()) {
+          case STANDARD -> batch.getCsvBeans().stream().map(table::toEntity).toList();
+          case COPY, UPSERT, INSERT, STAGED, DELTA -> List.of();
+        };
+
+    return batch.withEntities(entities);
+  }
+
+  private <T extends CsvBean, E> void persistRows(
+      ImportBatch<T, E> batch,
+      ImportContext importContext,
+      ImportIdIndex idIndex,
+      ImportDeltaIndex deltaIndex,
+      CsvTable<T, E> table) {
+
+    importContext.throwIfCancelled();
+
+    if (importContext.isContinueOnError()) {
+      batch = rejectRows(batch, importContext, idIndex, table);
+    } else if (idIndex != null) {
+      checkIds(batch.getCsvBeans(), idIndex, table);
+    }
+
+    List<T> csvBeans = batch.getCsvBeans();
+
+    switch (importContext.getOptions().getMode()) {
+      case STANDARD -> saveRows(batch, idIndex != null || importContext.isContinueOnError(), table);
+      case COPY -> table.copy(csvBeans);
+      case UPSERT -> table.upsert(csvBeans);
+      case INSERT -> table.insert(csvBeans);
+      case STAGED -> table.stage(importContext.getId(), csvBeans);
+      case DELTA -> writeChangedRows(csvBeans, importContext, deltaIndex, table);
+    }
+
+    importContext.recordPersistedRows(batch.size());
+  }
+
+  // finds duplicate ids and missing parents before the batch is written, without a query
+  private <T extends CsvBean> void checkIds(
+      List<T> csvBeans, ImportIdIndex idIndex, CsvTable<T, ?> table) {
+
+    CsvChildTable<T, ?> childTable = table instanceof CsvChildTable<T, ?> c ? c : null;
+
+    for (T csvBean : csvBeans) {
+      UUID id = table.getId(csvBean);
+
+      if (!idIndex.addImportedId(id)) {
+        throw new InvalidCsvFileException(
+            InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(id));
+      }
+
+      if (childTable != null) {
+        UUID parentId = childTable.getParentId(csvBean);
+
+        if (!idIndex.containsParentId(parentId)) {
+          throw childTable.getParentTable().notFound(parentId);
+        }
+      }
+    }
+  }
+
+  // skips the rows whose parent does not exist, instead of failing the import, the parents being
+  // looked up in the id index, if any, which still fails the import on a duplicate id, unless it
+  // is a dry run
+  private <T extends CsvBean, E> ImportBatch<T, E> rejectRows(
+      ImportBatch<T, E> batch,
+      ImportContext importContext,
+      ImportIdIndex idIndex,
+      CsvTable<T, E> table) {
+
+    CsvChildTable<T, E> childTable = table instanceof CsvChildTable<T, E> c ? c : null;
+
+    if (childTable == null && idIndex == null) {
+      return batch;
+    }
+
+    List<T> csvBeans = batch.getCsvBeans();
+    Predicate<UUID> parentExists;
+
+    if (childTable == null) {
+      parentExists = null;
+    } else if (idIndex != null) {
+      parentExists = idIndex::containsParentId;
+    } else {
+      Set<UUID> parentIds =
+          csvBeans.stream().map(childTable::getParentId).collect(Collectors.toSet());
+      parentExists = childTable.getParentTable().findExistingIds(parentIds)::contains;
+    }
+
+    return batch.filter(
+        index -> {
+          T csvBean = csvBeans.get(index);
+          UUID id = table.getId(csvBean);
+
+          if (childTable != null) {
+            UUID parentId = childTable.getParentId(csvBean);
+
+            if (!parentExists.test(parentId)) {
+              importContext.rejectRow(
+                  batch.getLineNumber(index),
+                  childTable.getParentTable().getNotFoundMessage().formatted(parentId));
+
+              return false;
+            }
+          }
+
+          if (idIndex != null && !idIndex.addImportedId(id)) {
+            importContext.rejectDuplicateId(batch.getLineNumber(index), id);
+
+            return false;
+          }
+
+          return true;
+        });
+  }
+
+  private <T extends CsvBean, E> void saveRows(
+      ImportBatch<T, E> batch, boolean parentIdsChecked, CsvTable<T, E> table) {
+
+    if (table instanceof CsvChildTable<T, E> childTable) {
+      setParents(batch, parentIdsChecked, childTable);
+    }
+
+    table.save(batch.getEntities());
+
+    // drops the saved entities, which every later flush would dirty check
+    entityManager.clear();
+  }
+
+  private <T extends CsvBean, E> void setParents(
+      ImportBatch<T, E> batch, boolean parentIdsChecked, CsvChildTable<T, E> childTable) {
+
+    List<T> csvBeans = batch.getCsvBeans();
+    List<E> entities = batch.getEntities();
+
+    Set<UUID> parentIds =
+        csvBeans.stream().map(childTable::getParentId).collect(Collectors.toSet());
+
+    // ids checked against the id index, or by an import continuing on error, exist, and need no
+    // query
+    Collection<UUID> existingParentIds =
+        parentIdsChecked ? parentIds : childTable.getParentTable().findExistingIds(parentIds);
+
+    // the mapped entities are in the same order as the csv beans they were mapped from, and the
+    // existing parents are only referenced, neither they nor their children are loaded
+    for (int i = 0; i < entities.size(); i++) {
+      UUID parentId = childTable.getParentId(csvBeans.get(i));
+
+      if (!existingParentIds.contains(parentId)) {
+        throw childTable.getParentTable().notFound(parentId);
+      }
+
+      childTable.setParent(entities.get(i), parentId);
+    }
+  }
+
+  // the unchanged rows are counted as persisted, but are not written
+  private <T extends CsvBean> void writeChangedRows(
+      List<T> csvBeans,
+      ImportContext importContext,
+      ImportDeltaIndex deltaIndex,
+      CsvTable<T, ?> table) {
+
+    int writtenRows = table.writeChanged(csvBeans, deltaIndex);
+    importContext.recordUnchangedRows(csvBeans.size() - writtenRows);
+  }
+
+  // runs in the last transaction of a delta import, once every row of the file is written, and
+  // keeps every row if a row was rejected, as it may have been one of the missing ones
+  private void deleteMissingRows(
+      ImportContext importContext, ImportDeltaIndex deltaIndex, CsvTable<?, ?> table) {
+
+    if (deltaIndex == null
+        || !importContext.getOptions().isDeleteMissing()
+        || importContext.getRejectedRows() > 0) {
+      return;
+    }
+
+    importContext.recordDeletedRows(table.delete(deltaIndex.getMissingIds()));
+  }
+
+  // runs in the merge transaction, once every row of the file is staged
+  private void mergeStagedRows(UUID importId, CsvTable<?, ?> table) {
+    Optional<UUID> duplicateId = table.findStagedDuplicateId(importId);
+
+    if (duplicateId.isPresent()) {
+      throw new InvalidCsvFileException(
+          InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(duplicateId.get()));
+    }
+
+    if (table instanceof CsvChildTable<?, ?> childTable) {
+      Optional<UUID> missingParentId = childTable.findStagedMissingParentId(importId);
+
+      if (missingParentId.isPresent()) {
+        throw childTable.getParentTable().notFound(missingParentId.get());
+      }
+    }
+
+    table.mergeStaged(importId);
+  }
+}
@@ -0,0 +1,79 @@
+package com.phorest.pipeline;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.model.csv.common.CsvBean;
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportDryRunReport;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportDryRunResponse;
+import com.phorest.model.response.ImportRowErrorResponse;
+import com.phorest.service.CsvService;
+import com.phorest.validator.CsvBeanValidator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Checks a csv file without importing it, in a single pass on the calling thread: its header and
+ * the field count of its lines are validated, and its rows parsed and validated, as an import
+ * would, but without a transaction, a persistence context or the import pipeline. The ids of the
+ * valid rows are then checked by the id checker, if any, against ids loaded beforehand.
+ *
+ * <p>Invalid rows are rejected instead of failing the dry run, so that every one of them is
+ * counted, the first of them being returned along with the reasons they are invalid for. A file
+ * that is not a csv file of the expected type still fails the dry run, as it would the import.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportDryRunner {
+  private final CsvService csvService;
+  private final CsvBeanValidator csvBeanValidator;
+  private final ImportConfiguration importConfiguration;
+
+  public <T extends CsvBean, E> ImportDryRunResponse run(
+      MultipartFile file,
+      Class<T> elementType,
+      ImportOptions importOptions,
+      BiFunction<ImportBatch<T, E>, ImportContext, ImportBatch<T, E>> idChecker) {
+
+    ImportDryRunReport dryRunReport =
+        new ImportDryRunReport(importConfiguration.getDryRunReportedErrors());
+    ImportContext importContext = new ImportContext(importOptions, dryRunReport);
+    AtomicLong checkedRows = new AtomicLong();
+
+    csvService.processLinesFromCsvFile(
+        file,
+        importOptions.getCompression(),
+        elementType,
+        importConfiguration.getBatchSize(importOptions.getMode()),
+        csvLines -> {
+          checkedRows.addAndGet(csvLines.size());
+
+          ImportBatch<T, E> batch =
+              csvService.buildImportBatchFromCsvLines(csvLines, elementType, importContext);
+          batch = csvBeanValidator.validateImportBatch(batch, importContext);
+
+          if (idChecker != null) {
+            idChecker.apply(batch, importContext);
+          }
+        });
+
+    return ImportDryRunResponse.builder()
+        .rowsChecked(checkedRows.get())
+        .rowsValid(checkedRows.get() - dryRunReport.getRejectedRows())
+        .rowsInvalid(dryRunReport.getRejectedRows())
+        .errors(
+            dryRunReport.getErrors().stream()
+                .map(
+                    rowError ->
+                        ImportRowErrorResponse.builder()
+                            .lineNumber(rowError.lineNumber())
+                            .reason(rowError.reason())
+                            .build())
+                .toList())
+        .build();
+  }
+}
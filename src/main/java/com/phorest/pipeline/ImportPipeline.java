@@ -0,0 +1,180 @@
+package com.phorest.pipeline;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.ImportCancelledException;
+import com.phorest.model.importing.ImportContext;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a csv import as a pipeline of three stages connected by bounded queues:
+ *
+ * <ul>
+ *   <li>a reader, producing batches of csv lines on its own thread
+ *   <li>a pool of workers, parsing, validating and mapping the batches in parallel
+ *   <li>a single writer, persisting the processed batches in file order on the calling thread, so
+ *       that it takes part in the transactions the caller runs it in
+ * </ul>
+ *
+ * <p>The reader blocks while too many batches are waiting for the writer, which bounds the memory
+ * used by an import however fast the file can be read. The first failure of any stage stops the
+ * whole pipeline and is thrown to the caller.
+ */
+@Component
+public class ImportPipeline {
+  private static final Future<?> END_OF_BATCHES = CompletableFuture.completedFuture(null);
+
+  private final ExecutorService readerExecutor;
+  private final ExecutorService workerExecutor;
+
+  private final int queueCapacity;
+
+  public ImportPipeline(ImportConfiguration importConfiguration) {
+    int workers = importConfiguration.getPipelineWorkers();
+
+    this.readerExecutor =
+        Executors.newCachedThreadPool(new CustomizableThreadFactory("import-reader-"));
+    this.workerExecutor =
+        workers > 0
+            ? Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("import-worker-"))
+            : null;
+    this.queueCapacity = importConfiguration.getPipelineQueueCapacity();
+  }
+
+  @FunctionalInterface
+  public interface Reader<S> {
+    /** Reads the whole input, handing it to the batch consumer one batch at a time, in order. */
+    void read(Consumer<S> batchConsumer);
+  }
+
+  /**
+   * Runs the pipeline until the reader is exhausted and every batch has been written. The processor
+   * is called concurrently from the worker threads, so it must be thread-safe and must not rely on
+   * the caller's transaction.
+   */
+  public <S, R> void run(
+      ImportContext importContext, Reader<S> reader, Function<S, R> processor, Consumer<R> writer) {
+
+    // no workers configured, every stage runs one after the other on the calling thread
+    if (workerExecutor == null) {
+      reader.read(batch -> writer.accept(processor.apply(batch)));
+      return;
+    }
+
+    BlockingQueue<Future<R>> processedBatches = new ArrayBlockingQueue<>(queueCapacity);
+
+    Future<?> reading =
+        readerExecutor.submit(() -> read(importContext, reader, processor, processedBatches));
+
+    try {
+      Future<R> processedBatch;
+
+      while ((processedBatch = processedBatches.take()) != END_OF_BATCHES) {
+        R batch = getProcessedBatch(processedBatch);
+
+        importContext.recordBatchPersistingStarted();
+        writer.accept(batch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ImportCancelledException(e);
+    } finally {
+      // a no-op once the reader is done, otherwise stops it and the batches still in flight
+      reading.cancel(true);
+      processedBatches.forEach(batch -> batch.cancel(true));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    readerExecutor.shutdownNow();
+
+    if (workerExecutor != null) {
+      workerExecutor.shutdownNow();
+    }
+  }
+
+  private <S, R> void read(
+      ImportContext importContext,
+      Reader<S> reader,
+      Function<S, R> processor,
+      BlockingQueue<Future<R>> processedBatches) {
+
+    try {
+      reader.read(
+          batch -> {
+            importContext.throwIfCancelled();
+            importContext.recordBatchQueuedForProcessing();
+
+            enqueue(
+                processedBatches,
+                workerExecutor.submit(() -> process(importContext, processor, batch)));
+          });
+
+      enqueue(processedBatches, endOfBatches());
+    } catch (WriterStoppedException e) {
+      // the writer has already failed, no one is waiting for further batches
+    } catch (RuntimeException | Error e) {
+      enqueue(processedBatches, CompletableFuture.failedFuture(e));
+    }
+  }
+
+  private static <S, R> R process(ImportContext importContext, Function<S, R> processor, S batch) {
+
+    importContext.recordBatchProcessingStarted();
+    R processedBatch = processor.apply(batch);
+    importContext.recordBatchQueuedForPersisting();
+
+    return processedBatch;
+  }
+
+  // blocks while the queue is full, which is what slows the reader down to the writer's pace
+  private static <R> void enqueue(BlockingQueue<Future<R>> processedBatches, Future<R> batch) {
+    try {
+      processedBatches.put(batch);
+    } catch (InterruptedException e) {
+      batch.cancel(true);
+      Thread.currentThread().interrupt();
+
+      throw new WriterStoppedException();
+    }
+  }
+
+  // failures of the reader and of the workers are rethrown on the writer's thread as they are
+  private static <R> R getProcessedBatch(Future<R> processedBatch) throws InterruptedException {
+    try {
+      return processedBatch.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> Future<R> endOfBatches() {
+    return (Future<R>) END_OF_BATCHES;
+  }
+
+  private static class WriterStoppedException extends RuntimeException {
+    WriterStoppedException() {
+      super(null, null, false, false);
+    }
+  }
+}
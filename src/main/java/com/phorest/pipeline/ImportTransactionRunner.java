@@ -0,0 +1,214 @@
+package com.phorest.pipeline;
+
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportCheckpoint;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.repository.CsvBeanStagingDAO;
+import com.phorest.repository.ImportCheckpointDAO;
+import com.phorest.util.CsvLineBatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs an import pipeline with its writer in transactions.
+ *
+ * <p>By default the whole file is written in a single transaction, so that a failure leaves nothing
+ * behind. With a commit interval, the writer commits as soon as the rows written since the last
+ * commit reach it, at the end of a batch. This bounds the transaction and the persistence context
+ * however large the file is, and a failure only rolls back the rows written since the last commit.
+ * An import continuing on error commits every batch by default, as it keeps its valid rows anyway.
+ * Either way, the rows committed so far are recorded as the checkpoint of the import. The import of
+ * a resumable upload also saves the position in the file of its last committed row with every
+ * commit, in the committing transaction, which a resumed import reads the file from.
+ *
+ * <p>Once every batch is written, the finisher runs in the last transaction, before it commits, in
+ * a transaction of its own if the rows were all committed already.
+ *
+ * <p>In the staged import mode, the writer stages the rows without a transaction instead, and the
+ * merger then checks and merges them into the real tables in a single transaction, so the locks of
+ * the real tables are only held for as long as the merge. The staged rows are dropped either way,
+ * and the finisher does not run.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportTransactionRunner {
+  private final ImportPipeline importPipeline;
+  private final PlatformTransactionManager transactionManager;
+  private final CsvBeanStagingDAO csvBeanStagingDAO;
+  private final ImportCheckpointDAO importCheckpointDAO;
+
+  public <B extends ImportBatch<?, ?>> void run(
+      ImportContext importContext,
+      ImportPipeline.Reader<CsvLineBatch> reader,
+      Function<CsvLineBatch, B> processor,
+      Consumer<B> writer,
+      Runnable merger,
+      Runnable finisher) {
+
+    if (importContext.getOptions().getMode() == ImportOptions.Mode.STAGED) {
+      runStaged(importContext, reader, processor, writer, merger);
+      return;
+    }
+
+    Integer commitInterval = importContext.getOptions().getCommitInterval();
+
+    // the valid rows of an import continuing on error are kept whatever fails later, so they are
+    // committed batch by batch unless told otherwise
+    if (commitInterval == null && importContext.isContinueOnError()) {
+      commitInterval = 1;
+    }
+
+    if (commitInterval == null) {
+      new TransactionTemplate(transactionManager)
+          .executeWithoutResult(
+              transaction -> {
+                importPipeline.run(importContext, reader, processor, writer);
+
+                importContext.throwIfCancelled();
+                finisher.run();
+              });
+
+      importContext.recordCommittedRows(importContext.getPersistedRows());
+
+      return;
+    }
+
+    ChunkedWriter<B> chunkedWriter = new ChunkedWriter<>(importContext, commitInterval, writer);
+
+    try {
+      // each batch keeps the position of its last line, which the writer checkpoints
+      importPipeline.run(
+          importContext,
+          reader,
+          csvLines ->
+              new PositionedBatch<>(
+                  processor.apply(csvLines),
+                  csvLines.getEndByteOffset(),
+                  csvLines.getEndLineCount()),
+          chunkedWriter::write);
+      chunkedWriter.finish(finisher);
+    } finally {
+      chunkedWriter.rollbackIfActive();
+    }
+  }
+
+  private <B extends ImportBatch<?, ?>> void runStaged(
+      ImportContext importContext,
+      ImportPipeline.Reader<CsvLineBatch> reader,
+      Function<CsvLineBatch, B> processor,
+      Consumer<B> stager,
+      Runnable merger) {
+
+    try {
+      importPipeline.run(importContext, reader, processor, stager);
+
+      importContext.throwIfCancelled();
+      new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> merger.run());
+
+      importContext.recordCommittedRows(importContext.getPersistedRows());
+    } finally {
+      csvBeanStagingDAO.unstage(importContext.getId());
+    }
+  }
+
+  // begins a transaction with the first batch of every chunk, and commits it once the chunk is
+  // full, always called from the writer's thread
+  private class ChunkedWriter<B extends ImportBatch<?, ?>> {
+    private final ImportContext importContext;
+    private final int commitInterval;
+    private final Consumer<B> writer;
+
+    private TransactionStatus transaction;
+    private long uncommittedRows;
+
+    // the position of the last line written
+    private long endByteOffset;
+    private long endLineCount;
+
+    private ChunkedWriter(ImportContext importContext, int commitInterval, Consumer<B> writer) {
+      this.importContext = importContext;
+      this.commitInterval = commitInterval;
+      this.writer = writer;
+    }
+
+    private void write(PositionedBatch<B> positionedBatch) {
+      if (transaction == null) {
+        transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+      }
+
+      // the writer may skip rows of the batch, which are not counted
+      long persistedRows = importContext.getPersistedRows();
+      writer.accept(positionedBatch.batch());
+      uncommittedRows += importContext.getPersistedRows() - persistedRows;
+      endByteOffset = positionedBatch.endByteOffset();
+      endLineCount = positionedBatch.endLineCount();
+
+      if (uncommittedRows >= commitInterval) {
+        commit();
+      }
+    }
+
+    private void finish(Runnable finisher) {
+      importContext.throwIfCancelled();
+
+      if (transaction == null) {
+        transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+      }
+
+      finisher.run();
+      commit();
+    }
+
+    private void commit() {
+      if (transaction == null) {
+        return;
+      }
+
+      if (importContext.getUploadId() != null) {
+        saveCheckpoint();
+      }
+
+      // a transaction that fails to commit is rolled back by the transaction manager
+      TransactionStatus committedTransaction = transaction;
+      transaction = null;
+
+      transactionManager.commit(committedTransaction);
+
+      importContext.recordCommittedRows(uncommittedRows);
+      uncommittedRows = 0;
+
+      log.debug("[IMPORTS] Committed {} rows", importContext.getCommittedRows());
+    }
+
+    // the rows committed by the import this one resumes are counted too
+    private void saveCheckpoint() {
+      ImportCheckpoint resumedCheckpoint = importContext.getCheckpoint();
+      long resumedRows = resumedCheckpoint == null ? 0 : resumedCheckpoint.getRowCount();
+
+      importCheckpointDAO.saveCheckpoint(
+          importContext.getUploadId(),
+          new ImportCheckpoint(
+              endByteOffset,
+              endLineCount,
+              resumedRows + importContext.getCommittedRows() + uncommittedRows));
+    }
+
+    private void rollbackIfActive() {
+      if (transaction != null) {
+        transactionManager.rollback(transaction);
+        transaction = null;
+      }
+    }
+  }
+
+  private record PositionedBatch<B>(B batch, long endByteOffset, long endLineCount) {}
+}
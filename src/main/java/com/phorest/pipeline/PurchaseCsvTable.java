@@ -0,0 +1,127 @@
+package com.phorest.pipeline;
+
+import com.phorest.mapper.PurchaseMapper;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.entity.Purchase;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.repository.AppointmentRepository;
+import com.phorest.repository.CsvBeanCopyDAO;
+import com.phorest.repository.CsvBeanDeltaDAO;
+import com.phorest.repository.CsvBeanInsertDAO;
+import com.phorest.repository.CsvBeanStagingDAO;
+import com.phorest.repository.CsvBeanUpsertDAO;
+import com.phorest.repository.IdScanDAO;
+import com.phorest.repository.PurchaseRepository;
+import com.phorest.util.UuidLongMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/** Purchases have appointments as parents. */
+@Component
+@RequiredArgsConstructor
+public class PurchaseCsvTable implements CsvChildTable<PurchaseCsvBean, Purchase> {
+  // position of the appointment id in the csv lines, right after the purchase id
+  private static final int APPOINTMENT_ID_FIELD = 1;
+
+  @Getter private final AppointmentCsvTable parentTable;
+
+  private final PurchaseRepository purchaseRepository;
+  private final AppointmentRepository appointmentRepository;
+  private final CsvBeanCopyDAO csvBeanCopyDAO;
+  private final CsvBeanDeltaDAO csvBeanDeltaDAO;
+  private final CsvBeanUpsertDAO csvBeanUpsertDAO;
+  private final CsvBeanInsertDAO csvBeanInsertDAO;
+  private final CsvBeanStagingDAO csvBeanStagingDAO;
+  private final IdScanDAO idScanDAO;
+
+  private final PurchaseMapper purchaseMapper;
+
+  @Override
+  public Class<PurchaseCsvBean> getCsvBeanType() {
+    return PurchaseCsvBean.class;
+  }
+
+  @Override
+  public UUID getId(PurchaseCsvBean csvBean) {
+    return csvBean.getId();
+  }
+
+  @Override
+  public Purchase toEntity(PurchaseCsvBean csvBean) {
+    return purchaseMapper.toPurchase(csvBean);
+  }
+
+  @Override
+  public void save(List<Purchase> entities) {
+    purchaseRepository.saveAllAndFlush(entities);
+  }
+
+  @Override
+  public void copy(List<PurchaseCsvBean> csvBeans) {
+    csvBeanCopyDAO.copyPurchases(csvBeans);
+  }
+
+  @Override
+  public void upsert(List<PurchaseCsvBean> csvBeans) {
+    csvBeanUpsertDAO.upsertPurchases(csvBeans);
+  }
+
+  @Override
+  public void insert(List<PurchaseCsvBean> csvBeans) {
+    csvBeanInsertDAO.insertPurchases(csvBeans);
+  }
+
+  @Override
+  public void stage(UUID importId, List<PurchaseCsvBean> csvBeans) {
+    csvBeanStagingDAO.stagePurchases(importId, csvBeans);
+  }
+
+  @Override
+  public Optional<UUID> findStagedDuplicateId(UUID importId) {
+    return csvBeanStagingDAO.findDuplicatePurchaseId(importId);
+  }
+
+  @Override
+  public void mergeStaged(UUID importId) {
+    csvBeanStagingDAO.mergePurchases(importId);
+  }
+
+  @Override
+  public UuidLongMap scanContentHashes() {
+    return idScanDAO.scanPurchaseContentHashes();
+  }
+
+  @Override
+  public int writeChanged(List<PurchaseCsvBean> csvBeans, ImportDeltaIndex deltaIndex) {
+    return csvBeanDeltaDAO.writeChangedPurchases(csvBeans, deltaIndex);
+  }
+
+  @Override
+  public int delete(List<UUID> ids) {
+    return csvBeanDeltaDAO.deletePurchases(ids);
+  }
+
+  @Override
+  public UUID getParentId(PurchaseCsvBean csvBean) {
+    return csvBean.getAppointmentId();
+  }
+
+  @Override
+  public int getParentIdField() {
+    return APPOINTMENT_ID_FIELD;
+  }
+
+  @Override
+  public void setParent(Purchase entity, UUID parentId) {
+    entity.setAppointment(appointmentRepository.getReferenceById(parentId));
+  }
+
+  @Override
+  public Optional<UUID> findStagedMissingParentId(UUID importId) {
+    return csvBeanStagingDAO.findMissingPurchaseAppointmentId(importId);
+  }
+}
@@ -0,0 +1,127 @@
+package com.phorest.pipeline;
+
+import com.phorest.mapper.ServiceMapper;
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.entity.Service;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.repository.AppointmentRepository;
+import com.phorest.repository.CsvBeanCopyDAO;
+import com.phorest.repository.CsvBeanDeltaDAO;
+import com.phorest.repository.CsvBeanInsertDAO;
+import com.phorest.repository.CsvBeanStagingDAO;
+import com.phorest.repository.CsvBeanUpsertDAO;
+import com.phorest.repository.IdScanDAO;
+import com.phorest.repository.ServiceRepository;
+import com.phorest.util.UuidLongMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/** Services have appointments as parents. */
+@Component
+@RequiredArgsConstructor
+public class ServiceCsvTable implements CsvChildTable<ServiceCsvBean, Service> {
+  // position of the appointment id in the csv lines, right after the service id
+  private static final int APPOINTMENT_ID_FIELD = 1;
+
+  @Getter private final AppointmentCsvTable parentTable;
+
+  private final ServiceRepository serviceRepository;
+  private final AppointmentRepository appointmentRepository;
+  private final CsvBeanCopyDAO csvBeanCopyDAO;
+  private final CsvBeanDeltaDAO csvBeanDeltaDAO;
+  private final CsvBeanUpsertDAO csvBeanUpsertDAO;
+  private final CsvBeanInsertDAO csvBeanInsertDAO;
+  private final CsvBeanStagingDAO csvBeanStagingDAO;
+  private final IdScanDAO idScanDAO;
+
+  private final ServiceMapper serviceMapper;
+
+  @Override
+  public Class<ServiceCsvBean> getCsvBeanType() {
+    return ServiceCsvBean.class;
+  }
+
+  @Override
+  public UUID getId(ServiceCsvBean csvBean) {
+    return csvBean.getId();
+  }
+
+  @Override
+  public Service toEntity(ServiceCsvBean csvBean) {
+    return serviceMapper.toService(csvBean);
+  }
+
+  @Override
+  public void save(List<Service> entities) {
+    serviceRepository.saveAllAndFlush(entities);
+  }
+
+  @Override
+  public void copy(List<ServiceCsvBean> csvBeans) {
+    csvBeanCopyDAO.copyServices(csvBeans);
+  }
+
+  @Override
+  public void upsert(List<ServiceCsvBean> csvBeans) {
+    csvBeanUpsertDAO.upsertServices(csvBeans);
+  }
+
+  @Override
+  public void insert(List<ServiceCsvBean> csvBeans) {
+    csvBeanInsertDAO.insertServices(csvBeans);
+  }
+
+  @Override
+  public void stage(UUID importId, List<ServiceCsvBean> csvBeans) {
+    csvBeanStagingDAO.stageServices(importId, csvBeans);
+  }
+
+  @Override
+  public Optional<UUID> findStagedDuplicateId(UUID importId) {
+    return csvBeanStagingDAO.findDuplicateServiceId(importId);
+  }
+
+  @Override
+  public void mergeStaged(UUID importId) {
+    csvBeanStagingDAO.mergeServices(importId);
+  }
+
+  @Override
+  public UuidLongMap scanContentHashes() {
+    return idScanDAO.scanServiceContentHashes();
+  }
+
+  @Override
+  public int writeChanged(List<ServiceCsvBean> csvBeans, ImportDeltaIndex deltaIndex) {
+    return csvBeanDeltaDAO.writeChangedServices(csvBeans, deltaIndex);
+  }
+
+  @Override
+  public int delete(List<UUID> ids) {
+    return csvBeanDeltaDAO.deleteServices(ids);
+  }
+
+  @Override
+  public UUID getParentId(ServiceCsvBean csvBean) {
+    return csvBean.getAppointmentId();
+  }
+
+  @Override
+  public int getParentIdField() {
+    return APPOINTMENT_ID_FIELD;
+  }
+
+  @Override
+  public void setParent(Service entity, UUID parentId) {
+    entity.setAppointment(appointmentRepository.getReferenceById(parentId));
+  }
+
+  @Override
+  public Optional<UUID> findStagedMissingParentId(UUID importId) {
+    return csvBeanStagingDAO.findMissingServiceAppointmentId(importId);
+  }
+}
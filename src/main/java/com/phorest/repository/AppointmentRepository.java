@@ -2,10 +2,13 @@ package com.phorest.repository;
 
 import com.phorest.model.entity.Appointment;
 import java.util.Collection;
-import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, UUID> {
-  List<Appointment> findByIdIn(Collection<UUID> ids);
+  @Query("SELECT a.id FROM Appointment a WHERE a.id IN :ids")
+  Set<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
 }
@@ -1,10 +1,10 @@
 package com.phorest.repository;
 
-import com.phorest.model.jdbc.ClientRow;
+import com.phorest.mapper.ClientResponseRowMapper;
+import com.phorest.model.response.ClientResponse;
 import java.time.LocalDate;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -45,10 +45,9 @@ public class ClientDAO {
       LIMIT :number;"""; // secondarily order by first_name for matching loyalty points
 
   private final NamedParameterJdbcTemplate jdbcTemplate;
-  private final BeanPropertyRowMapper<ClientRow> rowMapper =
-      BeanPropertyRowMapper.newInstance(ClientRow.class);
+  private final ClientResponseRowMapper rowMapper = new ClientResponseRowMapper();
 
-  public List<ClientRow> findTopNonBannedClientsWithMostLoyaltyPointsSinceCutoffDate(
+  public List<ClientResponse> findTopNonBannedClientsWithMostLoyaltyPointsSinceCutoffDate(
       LocalDate cutoffDate, int numberOfClients) {
 
     MapSqlParameterSource parameters = new MapSqlParameterSource();
@@ -3,11 +3,15 @@ package com.phorest.repository;
 import com.phorest.model.entity.Client;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ClientRepository extends JpaRepository<Client, UUID> {
   List<Client> findByBannedFalse();
 
-  List<Client> findByIdIn(Collection<UUID> ids);
+  @Query("SELECT c.id FROM Client c WHERE c.id IN :ids")
+  Set<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
 }
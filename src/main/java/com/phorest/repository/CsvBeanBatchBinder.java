@@ -0,0 +1,93 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanCopyDAO.TIMESTAMP_FORMATTER;
+import static com.phorest.repository.CsvBeanCopyDAO.TIMESTAMP_ZONE;
+
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a batch of rows with the queries of the csv bean DAOs, whose first two parameters are
+ * always the created and updated audit columns, filled with the same instant for the whole batch.
+ * The columns of the rows are bound after them, either as arrays holding a column of every row, or
+ * row by row in a JDBC batch. An empty batch is not written at all.
+ */
+@Component
+@RequiredArgsConstructor
+class CsvBeanBatchBinder {
+  private static final int AUDIT_PARAMETERS = 2;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+
+  /**
+   * Runs the query once, binding every column as one array of the text values of the rows, which
+   * the query casts to the type of the column, so that the statement and its parameter count do not
+   * depend on the batch.
+   */
+  <T> void writeColumnArrays(String query, List<T> rows, List<Function<T, String>> columnValues) {
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    String auditAt = TIMESTAMP_FORMATTER.format(clock.instant());
+
+    jdbcTemplate.update(
+        query,
+        statement -> {
+          Connection connection = statement.getConnection();
+
+          statement.setString(1, auditAt);
+          statement.setString(2, auditAt);
+
+          for (int column = 0; column < columnValues.size(); column++) {
+            String[] values = new String[rows.size()];
+
+            for (int row = 0; row < values.length; row++) {
+              values[row] = columnValues.get(column).apply(rows.get(row));
+            }
+
+            statement.setArray(
+                AUDIT_PARAMETERS + column + 1, connection.createArrayOf("text", values));
+          }
+        });
+  }
+
+  /**
+   * Runs the query once per row in a single JDBC batch, the row setter binding the columns of each
+   * row from the parameter following the audit columns on.
+   */
+  <T> void writeRows(
+      String query, List<T> rows, ParameterizedPreparedStatementSetter<T> rowSetter) {
+
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    LocalDateTime auditAt = toTimestamp(clock.instant());
+
+    jdbcTemplate.batchUpdate(
+        query,
+        rows,
+        rows.size(),
+        (statement, row) -> {
+          statement.setObject(1, auditAt);
+          statement.setObject(2, auditAt);
+
+          rowSetter.setValues(statement, row);
+        });
+  }
+
+  // the value of a timestamp column at the instant, for the statements that bind date times
+  static LocalDateTime toTimestamp(Instant instant) {
+    return LocalDateTime.ofInstant(instant, TIMESTAMP_ZONE);
+  }
+}
@@ -0,0 +1,243 @@
+package com.phorest.repository;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.BiConsumer;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Bulk loads validated csv beans with PostgreSQL COPY, bypassing JPA. Runs in the surrounding
+ * transaction, and reports constraint violations as DataIntegrityViolationExceptions.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvBeanCopyDAO {
+  private static final String COPY_CLIENTS_QUERY =
+      """
+      COPY client (id, first_name, last_name, email, phone, gender, banned, created_at, updated_at)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String COPY_APPOINTMENTS_QUERY =
+      """
+      COPY appointment (id, start_time, end_time, client_id, created_at, updated_at)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String COPY_PURCHASES_QUERY =
+      """
+      COPY purchase (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String COPY_SERVICES_QUERY =
+      """
+      COPY service (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  // timestamp columns hold UTC date times whatever the default time zone, as written by the csv
+  // files and, through hibernate.jdbc.time_zone, by the JPA entities
+  static final ZoneOffset TIMESTAMP_ZONE = ZoneOffset.UTC;
+
+  static final DateTimeFormatter TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS").withZone(TIMESTAMP_ZONE);
+
+  private static final int ESTIMATED_ROW_LENGTH = 160;
+
+  // the rows are sent to COPY whenever this many bytes of them have been written
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  // write the columns of the csv beans, which the staging tables share with the real ones
+  static final BiConsumer<CopyRow, ClientCsvBean> CLIENT_ROW =
+      (row, csvBean) ->
+          row.value(csvBean.getId())
+              .text(csvBean.getFirstName())
+              .text(csvBean.getLastName())
+              .text(csvBean.getEmail())
+              .text(csvBean.getPhone())
+              .value(csvBean.getGender().name())
+              .value(csvBean.isBanned());
+
+  static final BiConsumer<CopyRow, AppointmentCsvBean> APPOINTMENT_ROW =
+      (row, csvBean) ->
+          row.value(csvBean.getId())
+              .timestamp(csvBean.getStartTime())
+              .timestamp(csvBean.getEndTime())
+              .value(csvBean.getClientId());
+
+  static final BiConsumer<CopyRow, PurchaseCsvBean> PURCHASE_ROW =
+      (row, csvBean) ->
+          row.value(csvBean.getId())
+              .text(csvBean.getName())
+              .value(csvBean.getPrice().toPlainString())
+              .value(csvBean.getLoyaltyPoints())
+              .value(csvBean.getAppointmentId());
+
+  static final BiConsumer<CopyRow, ServiceCsvBean> SERVICE_ROW =
+      (row, csvBean) ->
+          row.value(csvBean.getId())
+              .text(csvBean.getName())
+              .value(csvBean.getPrice().toPlainString())
+              .value(csvBean.getLoyaltyPoints())
+              .value(csvBean.getAppointmentId());
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+
+  public void copyClients(List<ClientCsvBean> clientCsvBeans) {
+    copyWithAuditAt(COPY_CLIENTS_QUERY, clientCsvBeans, CLIENT_ROW);
+  }
+
+  public void copyAppointments(List<AppointmentCsvBean> appointmentCsvBeans) {
+    copyWithAuditAt(COPY_APPOINTMENTS_QUERY, appointmentCsvBeans, APPOINTMENT_ROW);
+  }
+
+  public void copyPurchases(List<PurchaseCsvBean> purchaseCsvBeans) {
+    copyWithAuditAt(COPY_PURCHASES_QUERY, purchaseCsvBeans, PURCHASE_ROW);
+  }
+
+  public void copyServices(List<ServiceCsvBean> serviceCsvBeans) {
+    copyWithAuditAt(COPY_SERVICES_QUERY, serviceCsvBeans, SERVICE_ROW);
+  }
+
+  private <T> void copyWithAuditAt(
+      String copyQuery, List<T> csvBeans, BiConsumer<CopyRow, T> rowWriter) {
+
+    // audit columns are the last two columns of every query, and are filled once per batch
+    Instant auditAt = clock.instant();
+
+    copy(
+        copyQuery,
+        csvBeans,
+        rowWriter.andThen((row, csvBean) -> row.timestamp(auditAt).timestamp(auditAt)));
+  }
+
+  // writes one row per csv bean, with the values written by the row writer
+  <T> void copy(String copyQuery, List<T> csvBeans, BiConsumer<CopyRow, T> rowWriter) {
+    if (csvBeans.isEmpty()) {
+      return;
+    }
+
+    jdbcTemplate.execute(
+        (ConnectionCallback<Long>)
+            connection -> copyIn(connection, copyQuery, csvBeans, rowWriter));
+  }
+
+  // streams the rows into COPY as they are written, instead of building the whole batch first
+  private static <T> long copyIn(
+      Connection connection, String copyQuery, List<T> csvBeans, BiConsumer<CopyRow, T> rowWriter)
+      throws SQLException {
+
+    PGCopyOutputStream copyOut =
+        new PGCopyOutputStream(connection.unwrap(PGConnection.class), copyQuery, COPY_BUFFER_SIZE);
+
+    try {
+      CopyRow row = new CopyRow(new OutputStreamWriter(copyOut, StandardCharsets.UTF_8));
+
+      for (T csvBean : csvBeans) {
+        rowWriter.accept(row, csvBean);
+        row.end();
+      }
+
+      row.flush();
+
+      return copyOut.endCopy();
+    } catch (UncheckedIOException e) {
+      // a failed write carries the error of COPY, rethrown to be translated like the others
+      if (e.getCause().getCause() instanceof SQLException sqlException) {
+        throw sqlException;
+      }
+
+      throw e;
+    } finally {
+      if (copyOut.isActive()) {
+        copyOut.cancelCopy();
+      }
+    }
+  }
+
+  // Writes rows in the csv format of COPY, where text values are always quoted so that empty
+  // strings are not read as nulls. Each row is built in place and then written out whole.
+  static class CopyRow {
+    private final Writer out;
+    private final StringBuilder data = new StringBuilder(ESTIMATED_ROW_LENGTH);
+    private char[] chars = new char[ESTIMATED_ROW_LENGTH];
+    private boolean isFirstValue = true;
+
+    private CopyRow(Writer out) {
+      this.out = out;
+    }
+
+    CopyRow value(Object value) {
+      separate();
+      data.append(value);
+
+      return this;
+    }
+
+    CopyRow text(String value) {
+      separate();
+      data.append('"').append(value.replace("\"", "\"\"")).append('"');
+
+      return this;
+    }
+
+    CopyRow timestamp(Instant value) {
+      separate();
+      TIMESTAMP_FORMATTER.formatTo(value, data);
+
+      return this;
+    }
+
+    private void end() {
+      data.append('\n');
+
+      if (chars.length < data.length()) {
+        chars = new char[data.capacity()];
+      }
+
+      data.getChars(0, data.length(), chars, 0);
+
+      try {
+        out.write(chars, 0, data.length());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      data.setLength(0);
+      isFirstValue = true;
+    }
+
+    private void flush() {
+      try {
+        out.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void separate() {
+      if (!isFirstValue) {
+        data.append(',');
+      }
+
+      isFirstValue = false;
+    }
+  }
+}
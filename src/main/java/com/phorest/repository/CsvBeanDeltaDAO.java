@@ -0,0 +1,271 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanCopyDAO.TIMESTAMP_FORMATTER;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.importing.ImportDeltaIndex;
+import com.phorest.util.ContentHashUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Writes the validated csv beans that are new or changed since the last delta import, along with
+ * their content hashes, with a single INSERT ... ON CONFLICT statement per batch, bypassing JPA.
+ * The content hash of a bean is the hash of the text values of its columns, and the beans whose
+ * hash is the one stored with their id are not sent to the database at all. Also deletes the rows
+ * missing from a delta import, along with the rows referencing them, as deleting a client or an
+ * appointment through the API does. Runs in the surrounding transaction, and reports constraint
+ * violations as DataIntegrityViolationExceptions.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvBeanDeltaDAO {
+  private static final String WRITE_CLIENTS_QUERY =
+      """
+      INSERT INTO client
+        (id, first_name, last_name, email, phone, gender, banned, content_hash, created_at,
+          updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::boolean[],
+          ?::bigint[])
+        AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET first_name = excluded.first_name,
+        last_name = excluded.last_name,
+        email = excluded.email,
+        phone = excluded.phone,
+        gender = excluded.gender,
+        banned = excluded.banned,
+        content_hash = excluded.content_hash,
+        updated_at = excluded.updated_at""";
+
+  private static final String WRITE_APPOINTMENTS_QUERY =
+      """
+      INSERT INTO appointment
+        (id, start_time, end_time, client_id, content_hash, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::timestamp[], ?::timestamp[], ?::uuid[], ?::bigint[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET start_time = excluded.start_time,
+        end_time = excluded.end_time,
+        client_id = excluded.client_id,
+        content_hash = excluded.content_hash,
+        updated_at = excluded.updated_at""";
+
+  private static final String WRITE_PURCHASES_QUERY =
+      """
+      INSERT INTO purchase
+        (id, name, price, loyalty_points, appointment_id, content_hash, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::numeric[], ?::integer[], ?::uuid[], ?::bigint[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        content_hash = excluded.content_hash,
+        updated_at = excluded.updated_at""";
+
+  private static final String WRITE_SERVICES_QUERY =
+      """
+      INSERT INTO service
+        (id, name, price, loyalty_points, appointment_id, content_hash, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::numeric[], ?::integer[], ?::uuid[], ?::bigint[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        content_hash = excluded.content_hash,
+        updated_at = excluded.updated_at""";
+
+  // the rows referencing the deleted ones are deleted first, children before their parents
+  private static final List<String> DELETE_CLIENTS_QUERIES =
+      List.of(
+          """
+          DELETE FROM purchase WHERE appointment_id IN
+            (SELECT id FROM appointment WHERE client_id = ANY(?::uuid[]))""",
+          """
+          DELETE FROM service WHERE appointment_id IN
+            (SELECT id FROM appointment WHERE client_id = ANY(?::uuid[]))""",
+          "DELETE FROM appointment WHERE client_id = ANY(?::uuid[])",
+          "DELETE FROM client WHERE id = ANY(?::uuid[])");
+
+  private static final List<String> DELETE_APPOINTMENTS_QUERIES =
+      List.of(
+          "DELETE FROM purchase WHERE appointment_id = ANY(?::uuid[])",
+          "DELETE FROM service WHERE appointment_id = ANY(?::uuid[])",
+          "DELETE FROM appointment WHERE id = ANY(?::uuid[])");
+
+  private static final List<String> DELETE_PURCHASES_QUERIES =
+      List.of("DELETE FROM purchase WHERE id = ANY(?::uuid[])");
+
+  private static final List<String> DELETE_SERVICES_QUERIES =
+      List.of("DELETE FROM service WHERE id = ANY(?::uuid[])");
+
+  // number of ids bound to a single DELETE statement
+  private static final int DELETE_BATCH_SIZE = 10_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final CsvBeanBatchBinder csvBeanBatchBinder;
+
+  /** Writes the clients that are new or changed, returning how many were written. */
+  public int writeChangedClients(List<ClientCsvBean> clientCsvBeans, ImportDeltaIndex deltaIndex) {
+    return writeChanged(
+        WRITE_CLIENTS_QUERY,
+        clientCsvBeans,
+        ClientCsvBean::getId,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            ClientCsvBean::getFirstName,
+            ClientCsvBean::getLastName,
+            ClientCsvBean::getEmail,
+            ClientCsvBean::getPhone,
+            csvBean -> csvBean.getGender().name(),
+            csvBean -> String.valueOf(csvBean.isBanned())),
+        deltaIndex);
+  }
+
+  public int writeChangedAppointments(
+      List<AppointmentCsvBean> appointmentCsvBeans, ImportDeltaIndex deltaIndex) {
+
+    return writeChanged(
+        WRITE_APPOINTMENTS_QUERY,
+        appointmentCsvBeans,
+        AppointmentCsvBean::getId,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            csvBean -> TIMESTAMP_FORMATTER.format(csvBean.getStartTime()),
+            csvBean -> TIMESTAMP_FORMATTER.format(csvBean.getEndTime()),
+            csvBean -> csvBean.getClientId().toString()),
+        deltaIndex);
+  }
+
+  public int writeChangedPurchases(
+      List<PurchaseCsvBean> purchaseCsvBeans, ImportDeltaIndex deltaIndex) {
+
+    return writeChanged(
+        WRITE_PURCHASES_QUERY,
+        purchaseCsvBeans,
+        PurchaseCsvBean::getId,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            PurchaseCsvBean::getName,
+            csvBean -> csvBean.getPrice().toPlainString(),
+            csvBean -> String.valueOf(csvBean.getLoyaltyPoints()),
+            csvBean -> csvBean.getAppointmentId().toString()),
+        deltaIndex);
+  }
+
+  public int writeChangedServices(
+      List<ServiceCsvBean> serviceCsvBeans, ImportDeltaIndex deltaIndex) {
+
+    return writeChanged(
+        WRITE_SERVICES_QUERY,
+        serviceCsvBeans,
+        ServiceCsvBean::getId,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            ServiceCsvBean::getName,
+            csvBean -> csvBean.getPrice().toPlainString(),
+            csvBean -> String.valueOf(csvBean.getLoyaltyPoints()),
+            csvBean -> csvBean.getAppointmentId().toString()),
+        deltaIndex);
+  }
+
+  /** Deletes the clients, with their appointments, purchases and services. */
+  public int deleteClients(List<UUID> clientIds) {
+    return delete(DELETE_CLIENTS_QUERIES, clientIds);
+  }
+
+  /** Deletes the appointments, with their purchases and services. */
+  public int deleteAppointments(List<UUID> appointmentIds) {
+    return delete(DELETE_APPOINTMENTS_QUERIES, appointmentIds);
+  }
+
+  public int deletePurchases(List<UUID> purchaseIds) {
+    return delete(DELETE_PURCHASES_QUERIES, purchaseIds);
+  }
+
+  public int deleteServices(List<UUID> serviceIds) {
+    return delete(DELETE_SERVICES_QUERIES, serviceIds);
+  }
+
+  /**
+   * Binds every column, and the content hash, as one array of the text values of the new and
+   * changed rows of the batch, as CsvBeanUpsertDAO binds its rows. The content hash is computed
+   * from the same text values as the ones written, so that it always matches the stored row.
+   */
+  private <T> int writeChanged(
+      String writeQuery,
+      List<T> csvBeans,
+      Function<T, UUID> idGetter,
+      List<Function<T, String>> columnValues,
+      ImportDeltaIndex deltaIndex) {
+
+    List<String[]> changedRows = new ArrayList<>(csvBeans.size());
+
+    for (T csvBean : csvBeans) {
+      String[] row = new String[columnValues.size() + 1];
+
+      for (int column = 0; column < columnValues.size(); column++) {
+        row[column] = columnValues.get(column).apply(csvBean);
+      }
+
+      // the id is not hashed, as the hash is stored with it
+      long contentHash =
+          ContentHashUtils.hashValues(Arrays.copyOfRange(row, 1, columnValues.size()));
+
+      if (deltaIndex.addChangedRow(idGetter.apply(csvBean), contentHash)) {
+        row[columnValues.size()] = Long.toString(contentHash);
+        changedRows.add(row);
+      }
+    }
+
+    // the content hash is bound as one more column
+    csvBeanBatchBinder.writeColumnArrays(
+        writeQuery,
+        changedRows,
+        IntStream.rangeClosed(0, columnValues.size())
+            .<Function<String[], String>>mapToObj(column -> row -> row[column])
+            .toList());
+
+    return changedRows.size();
+  }
+
+  // returns the number of rows deleted by the last query, which deletes the rows of the ids
+  private int delete(List<String> deleteQueries, List<UUID> ids) {
+    int deletedRows = 0;
+
+    for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+      Object[] batchIds =
+          ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size())).toArray();
+
+      for (int query = 0; query < deleteQueries.size(); query++) {
+        int rows =
+            jdbcTemplate.update(
+                deleteQueries.get(query),
+                statement ->
+                    statement.setArray(
+                        1, statement.getConnection().createArrayOf("uuid", batchIds)));
+
+        if (query == deleteQueries.size() - 1) {
+          deletedRows += rows;
+        }
+      }
+    }
+
+    return deletedRows;
+  }
+}
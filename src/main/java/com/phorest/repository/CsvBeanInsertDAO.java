@@ -0,0 +1,98 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanBatchBinder.toTimestamp;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inserts validated csv beans with one batched INSERT statement per batch, bypassing JPA, so that
+ * no entity is mapped, snapshotted or cached, and no entity listener runs. Runs in the surrounding
+ * transaction, and reports constraint violations as DataIntegrityViolationExceptions.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvBeanInsertDAO {
+  private static final String INSERT_CLIENTS_QUERY =
+      """
+      INSERT INTO client
+        (created_at, updated_at, id, first_name, last_name, email, phone, gender, banned)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+  private static final String INSERT_APPOINTMENTS_QUERY =
+      """
+      INSERT INTO appointment (created_at, updated_at, id, start_time, end_time, client_id)
+      VALUES (?, ?, ?, ?, ?, ?)""";
+
+  private static final String INSERT_PURCHASES_QUERY =
+      """
+      INSERT INTO purchase
+        (created_at, updated_at, id, name, price, loyalty_points, appointment_id)
+      VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+  private static final String INSERT_SERVICES_QUERY =
+      """
+      INSERT INTO service
+        (created_at, updated_at, id, name, price, loyalty_points, appointment_id)
+      VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+  private final CsvBeanBatchBinder csvBeanBatchBinder;
+
+  public void insertClients(List<ClientCsvBean> clientCsvBeans) {
+    csvBeanBatchBinder.writeRows(
+        INSERT_CLIENTS_QUERY,
+        clientCsvBeans,
+        (statement, csvBean) -> {
+          statement.setObject(3, csvBean.getId());
+          statement.setString(4, csvBean.getFirstName());
+          statement.setString(5, csvBean.getLastName());
+          statement.setString(6, csvBean.getEmail());
+          statement.setString(7, csvBean.getPhone());
+          statement.setString(8, csvBean.getGender().name());
+          statement.setBoolean(9, csvBean.isBanned());
+        });
+  }
+
+  public void insertAppointments(List<AppointmentCsvBean> appointmentCsvBeans) {
+    csvBeanBatchBinder.writeRows(
+        INSERT_APPOINTMENTS_QUERY,
+        appointmentCsvBeans,
+        (statement, csvBean) -> {
+          statement.setObject(3, csvBean.getId());
+          statement.setObject(4, toTimestamp(csvBean.getStartTime()));
+          statement.setObject(5, toTimestamp(csvBean.getEndTime()));
+          statement.setObject(6, csvBean.getClientId());
+        });
+  }
+
+  public void insertPurchases(List<PurchaseCsvBean> purchaseCsvBeans) {
+    csvBeanBatchBinder.writeRows(
+        INSERT_PURCHASES_QUERY,
+        purchaseCsvBeans,
+        (statement, csvBean) -> {
+          statement.setObject(3, csvBean.getId());
+          statement.setString(4, csvBean.getName());
+          statement.setBigDecimal(5, csvBean.getPrice());
+          statement.setInt(6, csvBean.getLoyaltyPoints());
+          statement.setObject(7, csvBean.getAppointmentId());
+        });
+  }
+
+  public void insertServices(List<ServiceCsvBean> serviceCsvBeans) {
+    csvBeanBatchBinder.writeRows(
+        INSERT_SERVICES_QUERY,
+        serviceCsvBeans,
+        (statement, csvBean) -> {
+          statement.setObject(3, csvBean.getId());
+          statement.setString(4, csvBean.getName());
+          statement.setBigDecimal(5, csvBean.getPrice());
+          statement.setInt(6, csvBean.getLoyaltyPoints());
+          statement.setObject(7, csvBean.getAppointmentId());
+        });
+  }
+}
@@ -0,0 +1,238 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanBatchBinder.toTimestamp;
+import static com.phorest.repository.CsvBeanCopyDAO.APPOINTMENT_ROW;
+import static com.phorest.repository.CsvBeanCopyDAO.CLIENT_ROW;
+import static com.phorest.repository.CsvBeanCopyDAO.PURCHASE_ROW;
+import static com.phorest.repository.CsvBeanCopyDAO.SERVICE_ROW;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stages validated csv beans in the UNLOGGED staging tables mirroring the real ones, checks the
+ * staged rows of an import with set-based queries, and merges them into the real tables with a
+ * single INSERT ... ON CONFLICT statement, bypassing JPA.
+ *
+ * <p>The staged rows of an import are tagged with its id, so that imports staged at the same time
+ * are kept apart. Staging copies rows with PostgreSQL COPY, and does not need a transaction, while
+ * merging runs in the surrounding transaction and only takes the locks of the real tables then.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvBeanStagingDAO {
+  private static final String STAGE_CLIENTS_QUERY =
+      """
+      COPY client_staging (import_id, id, first_name, last_name, email, phone, gender, banned)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String STAGE_APPOINTMENTS_QUERY =
+      """
+      COPY appointment_staging (import_id, id, start_time, end_time, client_id)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String STAGE_PURCHASES_QUERY =
+      """
+      COPY purchase_staging (import_id, id, name, price, loyalty_points, appointment_id)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String STAGE_SERVICES_QUERY =
+      """
+      COPY service_staging (import_id, id, name, price, loyalty_points, appointment_id)
+      FROM STDIN WITH (FORMAT csv)""";
+
+  private static final String FIND_DUPLICATE_ID_QUERY =
+      """
+      SELECT id FROM %s_staging
+      WHERE import_id = ?
+      GROUP BY id
+      HAVING count(*) > 1
+      LIMIT 1""";
+
+  private static final String FIND_MISSING_PARENT_ID_QUERY =
+      """
+      SELECT staged.%2$s_id FROM %1$s_staging AS staged
+      WHERE staged.import_id = ?
+        AND NOT EXISTS (SELECT 1 FROM %2$s AS parent WHERE parent.id = staged.%2$s_id)
+      LIMIT 1""";
+
+  private static final String MERGE_CLIENTS_QUERY =
+      """
+      INSERT INTO client AS existing
+        (id, first_name, last_name, email, phone, gender, banned, created_at, updated_at)
+      SELECT id, first_name, last_name, email, phone, gender, banned, ?, ?
+      FROM client_staging
+      WHERE import_id = ?
+      ON CONFLICT (id) DO UPDATE
+      SET first_name = excluded.first_name,
+        last_name = excluded.last_name,
+        email = excluded.email,
+        phone = excluded.phone,
+        gender = excluded.gender,
+        banned = excluded.banned,
+        updated_at = excluded.updated_at
+      WHERE (existing.first_name, existing.last_name, existing.email, existing.phone,
+          existing.gender, existing.banned)
+        IS DISTINCT FROM (excluded.first_name, excluded.last_name, excluded.email, excluded.phone,
+          excluded.gender, excluded.banned)""";
+
+  private static final String MERGE_APPOINTMENTS_QUERY =
+      """
+      INSERT INTO appointment AS existing
+        (id, start_time, end_time, client_id, created_at, updated_at)
+      SELECT id, start_time, end_time, client_id, ?, ?
+      FROM appointment_staging
+      WHERE import_id = ?
+      ON CONFLICT (id) DO UPDATE
+      SET start_time = excluded.start_time,
+        end_time = excluded.end_time,
+        client_id = excluded.client_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.start_time, existing.end_time, existing.client_id)
+        IS DISTINCT FROM (excluded.start_time, excluded.end_time, excluded.client_id)""";
+
+  private static final String MERGE_PURCHASES_QUERY =
+      """
+      INSERT INTO purchase AS existing
+        (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      SELECT id, name, price, loyalty_points, appointment_id, ?, ?
+      FROM purchase_staging
+      WHERE import_id = ?
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.name, existing.price, existing.loyalty_points, existing.appointment_id)
+        IS DISTINCT FROM (excluded.name, excluded.price, excluded.loyalty_points,
+          excluded.appointment_id)""";
+
+  private static final String MERGE_SERVICES_QUERY =
+      """
+      INSERT INTO service AS existing
+        (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      SELECT id, name, price, loyalty_points, appointment_id, ?, ?
+      FROM service_staging
+      WHERE import_id = ?
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.name, existing.price, existing.loyalty_points, existing.appointment_id)
+        IS DISTINCT FROM (excluded.name, excluded.price, excluded.loyalty_points,
+          excluded.appointment_id)""";
+
+  private static final List<String> STAGING_TABLES =
+      List.of("service", "purchase", "appointment", "client");
+
+  private final CsvBeanCopyDAO csvBeanCopyDAO;
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+
+  public void stageClients(UUID importId, List<ClientCsvBean> clientCsvBeans) {
+    csvBeanCopyDAO.copy(
+        STAGE_CLIENTS_QUERY,
+        clientCsvBeans,
+        (row, csvBean) -> CLIENT_ROW.accept(row.value(importId), csvBean));
+  }
+
+  public void stageAppointments(UUID importId, List<AppointmentCsvBean> appointmentCsvBeans) {
+    csvBeanCopyDAO.copy(
+        STAGE_APPOINTMENTS_QUERY,
+        appointmentCsvBeans,
+        (row, csvBean) -> APPOINTMENT_ROW.accept(row.value(importId), csvBean));
+  }
+
+  public void stagePurchases(UUID importId, List<PurchaseCsvBean> purchaseCsvBeans) {
+    csvBeanCopyDAO.copy(
+        STAGE_PURCHASES_QUERY,
+        purchaseCsvBeans,
+        (row, csvBean) -> PURCHASE_ROW.accept(row.value(importId), csvBean));
+  }
+
+  public void stageServices(UUID importId, List<ServiceCsvBean> serviceCsvBeans) {
+    csvBeanCopyDAO.copy(
+        STAGE_SERVICES_QUERY,
+        serviceCsvBeans,
+        (row, csvBean) -> SERVICE_ROW.accept(row.value(importId), csvBean));
+  }
+
+  public Optional<UUID> findDuplicateClientId(UUID importId) {
+    return findFirstId(FIND_DUPLICATE_ID_QUERY.formatted("client"), importId);
+  }
+
+  public Optional<UUID> findDuplicateAppointmentId(UUID importId) {
+    return findFirstId(FIND_DUPLICATE_ID_QUERY.formatted("appointment"), importId);
+  }
+
+  public Optional<UUID> findDuplicatePurchaseId(UUID importId) {
+    return findFirstId(FIND_DUPLICATE_ID_QUERY.formatted("purchase"), importId);
+  }
+
+  public Optional<UUID> findDuplicateServiceId(UUID importId) {
+    return findFirstId(FIND_DUPLICATE_ID_QUERY.formatted("service"), importId);
+  }
+
+  // the id of a client referenced by a staged appointment, but not existing
+  public Optional<UUID> findMissingAppointmentClientId(UUID importId) {
+    return findFirstId(FIND_MISSING_PARENT_ID_QUERY.formatted("appointment", "client"), importId);
+  }
+
+  // the id of an appointment referenced by a staged purchase, but not existing
+  public Optional<UUID> findMissingPurchaseAppointmentId(UUID importId) {
+    return findFirstId(FIND_MISSING_PARENT_ID_QUERY.formatted("purchase", "appointment"), importId);
+  }
+
+  // the id of an appointment referenced by a staged service, but not existing
+  public Optional<UUID> findMissingServiceAppointmentId(UUID importId) {
+    return findFirstId(FIND_MISSING_PARENT_ID_QUERY.formatted("service", "appointment"), importId);
+  }
+
+  public void mergeClients(UUID importId) {
+    merge(MERGE_CLIENTS_QUERY, importId);
+  }
+
+  public void mergeAppointments(UUID importId) {
+    merge(MERGE_APPOINTMENTS_QUERY, importId);
+  }
+
+  public void mergePurchases(UUID importId) {
+    merge(MERGE_PURCHASES_QUERY, importId);
+  }
+
+  public void mergeServices(UUID importId) {
+    merge(MERGE_SERVICES_QUERY, importId);
+  }
+
+  // an import only stages rows in one table, but which one does not matter to an index lookup
+  public void unstage(UUID importId) {
+    for (String stagingTable : STAGING_TABLES) {
+      jdbcTemplate.update(
+          "DELETE FROM %s_staging WHERE import_id = ?".formatted(stagingTable), importId);
+    }
+  }
+
+  private Optional<UUID> findFirstId(String query, UUID importId) {
+    return jdbcTemplate.queryForList(query, UUID.class, importId).stream().findFirst();
+  }
+
+  private void merge(String mergeQuery, UUID importId) {
+    // the audit columns are filled once per merge
+    LocalDateTime auditAt = toTimestamp(clock.instant());
+
+    jdbcTemplate.update(mergeQuery, auditAt, auditAt, importId);
+  }
+}
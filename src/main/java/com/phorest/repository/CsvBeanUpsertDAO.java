@@ -0,0 +1,138 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanCopyDAO.TIMESTAMP_FORMATTER;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inserts validated csv beans, or updates the rows that already have their ids, with a single
+ * INSERT ... ON CONFLICT statement per batch, bypassing JPA. Rows whose columns are all unchanged
+ * are left untouched, keeping their update instant. Runs in the surrounding transaction, and
+ * reports constraint violations as DataIntegrityViolationExceptions.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CsvBeanUpsertDAO {
+  private static final String UPSERT_CLIENTS_QUERY =
+      """
+      INSERT INTO client AS existing
+        (id, first_name, last_name, email, phone, gender, banned, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::boolean[])
+        AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET first_name = excluded.first_name,
+        last_name = excluded.last_name,
+        email = excluded.email,
+        phone = excluded.phone,
+        gender = excluded.gender,
+        banned = excluded.banned,
+        updated_at = excluded.updated_at
+      WHERE (existing.first_name, existing.last_name, existing.email, existing.phone,
+          existing.gender, existing.banned)
+        IS DISTINCT FROM (excluded.first_name, excluded.last_name, excluded.email, excluded.phone,
+          excluded.gender, excluded.banned)""";
+
+  private static final String UPSERT_APPOINTMENTS_QUERY =
+      """
+      INSERT INTO appointment AS existing
+        (id, start_time, end_time, client_id, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::timestamp[], ?::timestamp[], ?::uuid[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET start_time = excluded.start_time,
+        end_time = excluded.end_time,
+        client_id = excluded.client_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.start_time, existing.end_time, existing.client_id)
+        IS DISTINCT FROM (excluded.start_time, excluded.end_time, excluded.client_id)""";
+
+  private static final String UPSERT_PURCHASES_QUERY =
+      """
+      INSERT INTO purchase AS existing
+        (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::numeric[], ?::integer[], ?::uuid[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.name, existing.price, existing.loyalty_points, existing.appointment_id)
+        IS DISTINCT FROM (excluded.name, excluded.price, excluded.loyalty_points,
+          excluded.appointment_id)""";
+
+  private static final String UPSERT_SERVICES_QUERY =
+      """
+      INSERT INTO service AS existing
+        (id, name, price, loyalty_points, appointment_id, created_at, updated_at)
+      SELECT csv.*, ?::timestamp, ?::timestamp
+      FROM unnest(?::uuid[], ?::text[], ?::numeric[], ?::integer[], ?::uuid[]) AS csv
+      ON CONFLICT (id) DO UPDATE
+      SET name = excluded.name,
+        price = excluded.price,
+        loyalty_points = excluded.loyalty_points,
+        appointment_id = excluded.appointment_id,
+        updated_at = excluded.updated_at
+      WHERE (existing.name, existing.price, existing.loyalty_points, existing.appointment_id)
+        IS DISTINCT FROM (excluded.name, excluded.price, excluded.loyalty_points,
+          excluded.appointment_id)""";
+
+  private final CsvBeanBatchBinder csvBeanBatchBinder;
+
+  public void upsertClients(List<ClientCsvBean> clientCsvBeans) {
+    csvBeanBatchBinder.writeColumnArrays(
+        UPSERT_CLIENTS_QUERY,
+        clientCsvBeans,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            ClientCsvBean::getFirstName,
+            ClientCsvBean::getLastName,
+            ClientCsvBean::getEmail,
+            ClientCsvBean::getPhone,
+            csvBean -> csvBean.getGender().name(),
+            csvBean -> String.valueOf(csvBean.isBanned())));
+  }
+
+  public void upsertAppointments(List<AppointmentCsvBean> appointmentCsvBeans) {
+    csvBeanBatchBinder.writeColumnArrays(
+        UPSERT_APPOINTMENTS_QUERY,
+        appointmentCsvBeans,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            csvBean -> TIMESTAMP_FORMATTER.format(csvBean.getStartTime()),
+            csvBean -> TIMESTAMP_FORMATTER.format(csvBean.getEndTime()),
+            csvBean -> csvBean.getClientId().toString()));
+  }
+
+  public void upsertPurchases(List<PurchaseCsvBean> purchaseCsvBeans) {
+    csvBeanBatchBinder.writeColumnArrays(
+        UPSERT_PURCHASES_QUERY,
+        purchaseCsvBeans,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            PurchaseCsvBean::getName,
+            csvBean -> csvBean.getPrice().toPlainString(),
+            csvBean -> String.valueOf(csvBean.getLoyaltyPoints()),
+            csvBean -> csvBean.getAppointmentId().toString()));
+  }
+
+  public void upsertServices(List<ServiceCsvBean> serviceCsvBeans) {
+    csvBeanBatchBinder.writeColumnArrays(
+        UPSERT_SERVICES_QUERY,
+        serviceCsvBeans,
+        List.of(
+            csvBean -> csvBean.getId().toString(),
+            ServiceCsvBean::getName,
+            csvBean -> csvBean.getPrice().toPlainString(),
+            csvBean -> String.valueOf(csvBean.getLoyaltyPoints()),
+            csvBean -> csvBean.getAppointmentId().toString()));
+  }
+}
@@ -0,0 +1,133 @@
+package com.phorest.repository;
+
+import com.phorest.util.UuidLongMap;
+import com.phorest.util.UuidSet;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Loads every id of a table into a UuidSet, or along with its content hash into a UuidLongMap, or
+ * opens a scan of them in ascending order, streaming them in pages of rows instead of holding the
+ * whole result set, and without loading any entity.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdScanDAO {
+  private static final String SCAN_CLIENT_IDS_QUERY = "SELECT id FROM client";
+  private static final String SCAN_APPOINTMENT_IDS_QUERY = "SELECT id FROM appointment";
+  private static final String SCAN_CLIENT_CONTENT_HASHES_QUERY =
+      "SELECT id, content_hash FROM client";
+  private static final String SCAN_APPOINTMENT_CONTENT_HASHES_QUERY =
+      "SELECT id, content_hash FROM appointment";
+  private static final String SCAN_PURCHASE_CONTENT_HASHES_QUERY =
+      "SELECT id, content_hash FROM purchase";
+  private static final String SCAN_SERVICE_CONTENT_HASHES_QUERY =
+      "SELECT id, content_hash FROM service";
+  private static final String SCAN_SORTED_CLIENT_IDS_QUERY = "SELECT id FROM client ORDER BY id";
+  private static final String SCAN_SORTED_APPOINTMENT_IDS_QUERY =
+      "SELECT id FROM appointment ORDER BY id";
+
+  private static final int FETCH_SIZE = 10_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+
+  // the PostgreSQL driver only honours the fetch size inside a transaction
+  @Transactional(readOnly = true)
+  public UuidSet scanClientIds() {
+    return scanIds(SCAN_CLIENT_IDS_QUERY);
+  }
+
+  @Transactional(readOnly = true)
+  public UuidSet scanAppointmentIds() {
+    return scanIds(SCAN_APPOINTMENT_IDS_QUERY);
+  }
+
+  @Transactional(readOnly = true)
+  public UuidLongMap scanClientContentHashes() {
+    return scanContentHashes(SCAN_CLIENT_CONTENT_HASHES_QUERY);
+  }
+
+  @Transactional(readOnly = true)
+  public UuidLongMap scanAppointmentContentHashes() {
+    return scanContentHashes(SCAN_APPOINTMENT_CONTENT_HASHES_QUERY);
+  }
+
+  @Transactional(readOnly = true)
+  public UuidLongMap scanPurchaseContentHashes() {
+    return scanContentHashes(SCAN_PURCHASE_CONTENT_HASHES_QUERY);
+  }
+
+  @Transactional(readOnly = true)
+  public UuidLongMap scanServiceContentHashes() {
+    return scanContentHashes(SCAN_SERVICE_CONTENT_HASHES_QUERY);
+  }
+
+  // runs outside the transaction of the import, and has to be closed once the import is over
+  public SortedIdScan openSortedClientIdScan() {
+    return openSortedIdScan(SCAN_SORTED_CLIENT_IDS_QUERY);
+  }
+
+  public SortedIdScan openSortedAppointmentIdScan() {
+    return openSortedIdScan(SCAN_SORTED_APPOINTMENT_IDS_QUERY);
+  }
+
+  private UuidSet scanIds(String scanQuery) {
+    UuidSet ids = new UuidSet();
+
+    jdbcTemplate.query(
+        connection -> {
+          PreparedStatement statement = connection.prepareStatement(scanQuery);
+          statement.setFetchSize(FETCH_SIZE);
+
+          return statement;
+        },
+        (RowCallbackHandler) resultSet -> ids.add(resultSet.getObject(1, UUID.class)));
+
+    return ids;
+  }
+
+  // a null content hash is read as 0, which is NO_CONTENT_HASH
+  private UuidLongMap scanContentHashes(String scanQuery) {
+    UuidLongMap contentHashes = new UuidLongMap();
+
+    jdbcTemplate.query(
+        connection -> {
+          PreparedStatement statement = connection.prepareStatement(scanQuery);
+          statement.setFetchSize(FETCH_SIZE);
+
+          return statement;
+        },
+        (RowCallbackHandler)
+            resultSet ->
+                contentHashes.put(resultSet.getObject(1, UUID.class), resultSet.getLong(2)));
+
+    return contentHashes;
+  }
+
+  // takes a connection of its own from the pool, even inside a transaction, since the scan stays
+  // open while the import writes
+  private SortedIdScan openSortedIdScan(String scanQuery) {
+    Connection connection = null;
+
+    try {
+      connection = dataSource.getConnection();
+
+      return new SortedIdScan(
+          connection, scanQuery, FETCH_SIZE, jdbcTemplate.getExceptionTranslator());
+    } catch (SQLException e) {
+      JdbcUtils.closeConnection(connection);
+
+      throw jdbcTemplate.getExceptionTranslator().translate("Opening sorted id scan", scanQuery, e);
+    }
+  }
+}
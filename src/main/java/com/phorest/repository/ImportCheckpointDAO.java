@@ -0,0 +1,69 @@
+package com.phorest.repository;
+
+import static com.phorest.repository.CsvBeanBatchBinder.toTimestamp;
+
+import com.phorest.model.importing.ImportCheckpoint;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Keeps the checkpoint of the import of each resumable upload, which is saved in the transaction
+ * committing the rows up to it, so that it never gets ahead of or behind the committed rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportCheckpointDAO {
+  private static final String FIND_CHECKPOINT_QUERY =
+      """
+      SELECT byte_offset, line_count, row_count FROM import_checkpoint
+      WHERE upload_id = ?""";
+
+  private static final String SAVE_CHECKPOINT_QUERY =
+      """
+      INSERT INTO import_checkpoint (upload_id, byte_offset, line_count, row_count, updated_at)
+      VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT (upload_id) DO UPDATE
+      SET byte_offset = excluded.byte_offset,
+        line_count = excluded.line_count,
+        row_count = excluded.row_count,
+        updated_at = excluded.updated_at""";
+
+  private static final String DELETE_CHECKPOINT_QUERY =
+      "DELETE FROM import_checkpoint WHERE upload_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+
+  public Optional<ImportCheckpoint> findCheckpoint(UUID uploadId) {
+    return jdbcTemplate
+        .query(
+            FIND_CHECKPOINT_QUERY,
+            (resultSet, rowNumber) ->
+                new ImportCheckpoint(
+                    resultSet.getLong("byte_offset"),
+                    resultSet.getLong("line_count"),
+                    resultSet.getLong("row_count")),
+            uploadId)
+        .stream()
+        .findFirst();
+  }
+
+  // runs in the surrounding transaction
+  public void saveCheckpoint(UUID uploadId, ImportCheckpoint checkpoint) {
+    jdbcTemplate.update(
+        SAVE_CHECKPOINT_QUERY,
+        uploadId,
+        checkpoint.getByteOffset(),
+        checkpoint.getLineCount(),
+        checkpoint.getRowCount(),
+        toTimestamp(clock.instant()));
+  }
+
+  public void deleteCheckpoint(UUID uploadId) {
+    jdbcTemplate.update(DELETE_CHECKPOINT_QUERY, uploadId);
+  }
+}
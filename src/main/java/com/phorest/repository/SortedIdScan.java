@@ -0,0 +1,79 @@
+package com.phorest.repository;
+
+import com.phorest.util.UuidUtils;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+/**
+ * Scans the ids of a table in ascending order on a connection of its own, so that the existence of
+ * ids asked for in ascending order too is checked by a merge join, advancing the scan, instead of
+ * looking up each id or holding every id in memory. The scan runs in a read-only transaction of its
+ * own, which only sees the rows committed when it started.
+ */
+public class SortedIdScan implements AutoCloseable {
+  private final Connection connection;
+  private final PreparedStatement statement;
+  private final ResultSet resultSet;
+  private final SQLExceptionTranslator exceptionTranslator;
+  private final String scanQuery;
+
+  // the last id read from the scan, or null before the first one and once the scan is exhausted
+  private UUID currentId;
+  private boolean exhausted;
+
+  SortedIdScan(
+      Connection connection,
+      String scanQuery,
+      int fetchSize,
+      SQLExceptionTranslator exceptionTranslator)
+      throws SQLException {
+
+    this.connection = connection;
+    this.scanQuery = scanQuery;
+    this.exceptionTranslator = exceptionTranslator;
+
+    // the PostgreSQL driver only honours the fetch size inside a transaction
+    connection.setAutoCommit(false);
+    connection.setReadOnly(true);
+
+    this.statement = connection.prepareStatement(scanQuery);
+    statement.setFetchSize(fetchSize);
+    this.resultSet = statement.executeQuery();
+  }
+
+  /**
+   * Tells whether the id exists, ids having to be asked for in the order PostgreSQL sorts them, the
+   * same id any number of times in a row.
+   */
+  public boolean contains(UUID id) {
+    try {
+      while (!exhausted && (currentId == null || UuidUtils.compareUnsigned(currentId, id) < 0)) {
+        if (resultSet.next()) {
+          currentId = resultSet.getObject(1, UUID.class);
+        } else {
+          currentId = null;
+          exhausted = true;
+        }
+      }
+
+      return id.equals(currentId);
+    } catch (SQLException e) {
+      throw exceptionTranslator.translate("Scanning sorted ids", scanQuery, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try (connection;
+        statement;
+        resultSet) {
+      connection.rollback();
+    } catch (SQLException e) {
+      throw exceptionTranslator.translate("Closing sorted id scan", scanQuery, e);
+    }
+  }
+}
@@ -1,12 +1,25 @@
 package com.phorest.service;
 
+import com.phorest.model.importing.ImportContext;
 import com.phorest.model.request.AppointmentRequest;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.response.AppointmentResponse;
+import com.phorest.model.response.ImportDryRunResponse;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface AppointmentService {
-  void createAppointmentsFromFile(MultipartFile file);
+  void createAppointmentsFromFile(MultipartFile file, ImportOptions importOptions);
+
+  void createAppointmentsFromSpooledFile(Path spooledFile, ImportContext importContext);
+
+  /** Imports the csv file read from the stream, which is closed once consumed. */
+  void createAppointmentsFromStream(InputStream inputStream, ImportContext importContext);
+
+  /** Checks the csv file as createAppointmentsFromFile would import it, without importing it. */
+  ImportDryRunResponse dryRunAppointmentsFromFile(MultipartFile file, ImportOptions importOptions);
 
   AppointmentResponse updateAppointment(UUID appointmentId, AppointmentRequest appointmentRequest);
 
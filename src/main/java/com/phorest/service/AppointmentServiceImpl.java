@@ -1,25 +1,21 @@
 package com.phorest.service;
 
 import com.phorest.exception.AppointmentNotFoundException;
-import com.phorest.exception.ClientNotFoundException;
-import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.mapper.AppointmentMapper;
 import com.phorest.model.entity.Appointment;
-import com.phorest.model.entity.Client;
+import com.phorest.model.importing.ImportContext;
 import com.phorest.model.request.AppointmentRequest;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.response.AppointmentResponse;
+import com.phorest.model.response.ImportDryRunResponse;
+import com.phorest.pipeline.AppointmentCsvTable;
+import com.phorest.pipeline.CsvTableImporter;
 import com.phorest.repository.AppointmentRepository;
-import com.phorest.repository.ClientRepository;
-import com.phorest.validator.CsvBeanValidator;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -27,72 +23,39 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 @RequiredArgsConstructor
 public class AppointmentServiceImpl implements AppointmentService {
-  private static final int APPOINTMENT_FILE_PAGE_SIZE = 200;
-
-  private final CsvService csvService;
+  private final CsvTableImporter csvTableImporter;
+  private final AppointmentCsvTable appointmentCsvTable;
 
   private final AppointmentRepository appointmentRepository;
-  private final ClientRepository clientRepository;
-
-  private final CsvBeanValidator csvBeanValidator;
 
-  private final ModelMapper modelMapper;
+  private final AppointmentMapper appointmentMapper;
 
   @Override
-  @Transactional
-  public void createAppointmentsFromFile(@NonNull MultipartFile file) {
-    int currentPageNumber = 0;
-    Page<AppointmentCsvBean> currentAppointmentPage;
-    boolean isCurrentPageLast;
-
-    do {
-      currentAppointmentPage =
-          csvService.getElementsFromCsvFile(
-              file, AppointmentCsvBean.class, currentPageNumber, APPOINTMENT_FILE_PAGE_SIZE);
+  public void createAppointmentsFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-      createAppointmentsInPage(currentAppointmentPage);
-
-      isCurrentPageLast = currentAppointmentPage.isLast();
-
-      currentPageNumber++;
-    } while (!isCurrentPageLast);
+    csvTableImporter.importFromFile(file, importOptions, appointmentCsvTable);
   }
 
-  private void createAppointmentsInPage(Page<AppointmentCsvBean> appointmentPage) {
-    List<AppointmentCsvBean> appointmentCsvBeans = appointmentPage.getContent();
-
-    Set<UUID> clientIds =
-        appointmentCsvBeans.stream()
-            .map(AppointmentCsvBean::getClientId)
-            .collect(Collectors.toSet());
-
-    Map<UUID, Client> clientsById =
-        clientRepository.findByIdIn(clientIds).stream()
-            .collect(Collectors.toMap(Client::getId, Function.identity()));
-
-    List<Appointment> appointments =
-        appointmentCsvBeans.stream()
-            .peek(csvBeanValidator::validateCsvBean)
-            .map(csvBean -> csvBeanToEntity(csvBean, clientsById))
-            .toList();
+  @Override
+  public void createAppointmentsFromSpooledFile(
+      @NonNull Path spooledFile, @NonNull ImportContext importContext) {
 
-    appointmentRepository.saveAllAndFlush(appointments);
+    csvTableImporter.importFromSpooledFile(spooledFile, importContext, appointmentCsvTable);
   }
 
-  private Appointment csvBeanToEntity(
-      @NonNull AppointmentCsvBean csvBean, @NonNull Map<UUID, Client> clientsById) {
-
-    Appointment appointment = modelMapper.map(csvBean, Appointment.class);
-
-    Client client = clientsById.get(csvBean.getClientId());
+  @Override
+  public void createAppointmentsFromStream(
+      @NonNull InputStream inputStream, @NonNull ImportContext importContext) {
 
-    if (client == null) {
-      throw new ClientNotFoundException(csvBean.getClientId());
-    }
+    csvTableImporter.importFromStream(inputStream, importContext, appointmentCsvTable);
+  }
 
-    client.addAppointment(appointment);
+  @Override
+  public ImportDryRunResponse dryRunAppointmentsFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-    return appointment;
+    return csvTableImporter.dryRunFromFile(file, importOptions, appointmentCsvTable);
   }
 
   @Override
@@ -101,9 +64,9 @@ public class AppointmentServiceImpl implements AppointmentService {
       @NonNull UUID appointmentId, @NonNull AppointmentRequest appointmentRequest) {
     Appointment appointment = getAppointment(appointmentId);
 
-    modelMapper.map(appointmentRequest, appointment);
+    appointmentMapper.updateAppointment(appointmentRequest, appointment);
 
-    return modelMapper.map(appointment, AppointmentResponse.class);
+    return appointmentMapper.toAppointmentResponse(appointment);
   }
 
   @Override
@@ -119,7 +82,7 @@ public class AppointmentServiceImpl implements AppointmentService {
   public AppointmentResponse getAppointmentResponse(@NonNull UUID appointmentId) {
     Appointment appointment = getAppointment(appointmentId);
 
-    return modelMapper.map(appointment, AppointmentResponse.class);
+    return appointmentMapper.toAppointmentResponse(appointment);
   }
 
   private Appointment getAppointment(@NonNull UUID appointmentId) {
@@ -1,14 +1,27 @@
 package com.phorest.service;
 
+import com.phorest.model.importing.ImportContext;
 import com.phorest.model.request.ClientRequest;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.response.ClientResponse;
+import com.phorest.model.response.ImportDryRunResponse;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface ClientService {
-  void createClientsFromFile(MultipartFile file);
+  void createClientsFromFile(MultipartFile file, ImportOptions importOptions);
+
+  void createClientsFromSpooledFile(Path spooledFile, ImportContext importContext);
+
+  /** Imports the csv file read from the stream, which is closed once consumed. */
+  void createClientsFromStream(InputStream inputStream, ImportContext importContext);
+
+  /** Checks the csv file as createClientsFromFile would import it, without importing it. */
+  ImportDryRunResponse dryRunClientsFromFile(MultipartFile file, ImportOptions importOptions);
 
   ClientResponse updateClient(UUID clientId, ClientRequest clientRequest);
 
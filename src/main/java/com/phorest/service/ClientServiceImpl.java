@@ -1,20 +1,24 @@
 package com.phorest.service;
 
 import com.phorest.exception.ClientNotFoundException;
-import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.mapper.ClientMapper;
 import com.phorest.model.entity.Client;
+import com.phorest.model.importing.ImportContext;
 import com.phorest.model.request.ClientRequest;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.response.ClientResponse;
+import com.phorest.model.response.ImportDryRunResponse;
+import com.phorest.pipeline.ClientCsvTable;
+import com.phorest.pipeline.CsvTableImporter;
 import com.phorest.repository.ClientDAO;
 import com.phorest.repository.ClientRepository;
-import com.phorest.validator.CsvBeanValidator;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,44 +26,40 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 @RequiredArgsConstructor
 public class ClientServiceImpl implements ClientService {
-  private static final int CLIENT_FILE_PAGE_SIZE = 200;
-
-  private final CsvService csvService;
+  private final CsvTableImporter csvTableImporter;
+  private final ClientCsvTable clientCsvTable;
 
   private final ClientRepository clientRepository;
   private final ClientDAO clientDAO;
-  private final CsvBeanValidator csvBeanValidator;
 
-  private final ModelMapper modelMapper;
+  private final ClientMapper clientMapper;
 
   @Override
-  @Transactional
-  public void createClientsFromFile(@NonNull MultipartFile file) {
-    int currentPageNumber = 0;
-    Page<ClientCsvBean> currentClientPage;
-    boolean isCurrentPageLast;
+  public void createClientsFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
+
+    csvTableImporter.importFromFile(file, importOptions, clientCsvTable);
+  }
 
-    do {
-      currentClientPage =
-          csvService.getElementsFromCsvFile(
-              file, ClientCsvBean.class, currentPageNumber, CLIENT_FILE_PAGE_SIZE);
+  @Override
+  public void createClientsFromSpooledFile(
+      @NonNull Path spooledFile, @NonNull ImportContext importContext) {
 
-      createClientsInPage(currentClientPage);
+    csvTableImporter.importFromSpooledFile(spooledFile, importContext, clientCsvTable);
+  }
 
-      isCurrentPageLast = currentClientPage.isLast();
+  @Override
+  public void createClientsFromStream(
+      @NonNull InputStream inputStream, @NonNull ImportContext importContext) {
 
-      currentPageNumber++;
-    } while (!isCurrentPageLast);
+    csvTableImporter.importFromStream(inputStream, importContext, clientCsvTable);
   }
 
-  private void createClientsInPage(Page<ClientCsvBean> clientPage) {
-    List<Client> clients =
-        clientPage.getContent().stream()
-            .peek(csvBeanValidator::validateCsvBean)
-            .map(csvBean -> modelMapper.map(csvBean, Client.class))
-            .toList();
+  @Override
+  public ImportDryRunResponse dryRunClientsFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-    clientRepository.saveAllAndFlush(clients);
+    return csvTableImporter.dryRunFromFile(file, importOptions, clientCsvTable);
   }
 
   @Override
@@ -67,9 +67,9 @@ public class ClientServiceImpl implements ClientService {
   public ClientResponse updateClient(@NonNull UUID clientId, @NonNull ClientRequest clientRequest) {
     Client client = getClient(clientId);
 
-    modelMapper.map(clientRequest, client);
+    clientMapper.updateClient(clientRequest, client);
 
-    return modelMapper.map(client, ClientResponse.class);
+    return clientMapper.toClientResponse(client);
   }
 
   @Override
@@ -85,11 +85,8 @@ public class ClientServiceImpl implements ClientService {
   public List<ClientResponse> getTopClientsByLoyaltyPoints(
       int numberOfClients, LocalDate cutoffDate) {
 
-    return clientDAO
-        .findTopNonBannedClientsWithMostLoyaltyPointsSinceCutoffDate(cutoffDate, numberOfClients)
-        .stream()
-        .map(client -> modelMapper.map(client, ClientResponse.class))
-        .toList();
+    return clientDAO.findTopNonBannedClientsWithMostLoyaltyPointsSinceCutoffDate(
+        cutoffDate, numberOfClients);
   }
 
   @Override
@@ -97,7 +94,7 @@ public class ClientServiceImpl implements ClientService {
   public ClientResponse getClientResponse(@NonNull UUID clientId) {
     Client client = getClient(clientId);
 
-    return modelMapper.map(client, ClientResponse.class);
+    return clientMapper.toClientResponse(client);
   }
 
   private Client getClient(@NonNull UUID clientId) {
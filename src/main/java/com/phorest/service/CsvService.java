@@ -1,10 +1,78 @@
 package com.phorest.service;
 
 import com.phorest.model.csv.common.CsvBean;
-import org.springframework.data.domain.Page;
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportCheckpoint;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.util.CsvCompression;
+import com.phorest.util.CsvLineBatch;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface CsvService {
-  <T extends CsvBean> Page<T> getElementsFromCsvFile(
-      MultipartFile file, Class<T> returnElementType, int page, int size);
+  /**
+   * Throws an InvalidCsvFileException if the file is empty, its content type being checked when its
+   * compression is resolved from the request.
+   */
+  void validateCsvFile(MultipartFile file);
+
+  /**
+   * Walks the csv file exactly once, validating its header and handing its remaining lines to the
+   * consumer in batches of at most batchSize lines, in file order. The lines are turned into
+   * elements by buildElementsFromCsvLines, which may run on another thread. The file is
+   * decompressed as it is read.
+   */
+  <T extends CsvBean> void processLinesFromCsvFile(
+      MultipartFile file,
+      CsvCompression compression,
+      Class<T> elementType,
+      int batchSize,
+      Consumer<CsvLineBatch> lineBatchConsumer);
+
+  /** Same as processLinesFromCsvFile, reading from a stream that is closed once consumed. */
+  <T extends CsvBean> void processLinesFromCsvStream(
+      InputStream inputStream,
+      Class<T> elementType,
+      int batchSize,
+      Consumer<CsvLineBatch> lineBatchConsumer);
+
+  /**
+   * Same as processLinesFromCsvFile, reading from a csv file on local disk and reporting the number
+   * of bytes read as it goes. Large files are memory-mapped and tokenized in chunks on several
+   * threads, their lines still being handed over in the same batches and order. Files named with
+   * the suffix of a compression are streamed through its decompressor instead.
+   */
+  <T extends CsvBean> void processLinesFromSpooledCsvFile(
+      Path spooledFile,
+      Class<T> elementType,
+      int batchSize,
+      LongConsumer readBytesConsumer,
+      Consumer<CsvLineBatch> lineBatchConsumer);
+
+  /**
+   * Same as processLinesFromSpooledCsvFile, only handing over the lines after the checkpoint, if
+   * any, once the header is validated. The lines read are numbered as in the whole file.
+   */
+  <T extends CsvBean> void processLinesFromSpooledCsvFile(
+      Path spooledFile,
+      ImportCheckpoint checkpoint,
+      Class<T> elementType,
+      int batchSize,
+      LongConsumer readBytesConsumer,
+      Consumer<CsvLineBatch> lineBatchConsumer);
+
+  /** Validates and builds an element from each of the csv lines, which are not header lines. */
+  <T extends CsvBean> List<T> buildElementsFromCsvLines(CsvLineBatch lines, Class<T> elementType);
+
+  /**
+   * Same as buildElementsFromCsvLines, returning the elements in a batch along with the numbers of
+   * their lines, for their entities to be added. An import continuing on error rejects the invalid
+   * lines instead of throwing, and the batch only holds the elements of the valid ones.
+   */
+  <T extends CsvBean, E> ImportBatch<T, E> buildImportBatchFromCsvLines(
+      CsvLineBatch lines, Class<T> elementType, ImportContext importContext);
 }
@@ -1,20 +1,41 @@
 package com.phorest.service;
 
-import com.opencsv.CSVReader;
+import com.phorest.config.ImportConfiguration;
 import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.exception.InvalidCsvRowException;
 import com.phorest.factory.CsvBeanFactory;
 import com.phorest.model.csv.common.CsvBean;
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportCheckpoint;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.util.ByteBufferInputStream;
+import com.phorest.util.CountingInputStream;
+import com.phorest.util.CsvChunk;
+import com.phorest.util.CsvChunkScanner;
+import com.phorest.util.CsvCompression;
+import com.phorest.util.CsvLineBatch;
+import com.phorest.util.CsvTokenizer;
 import com.phorest.util.CsvUtils;
 import com.phorest.validator.CsvLineValidator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -27,48 +48,364 @@ public class CsvServiceImpl implements CsvService {
   private final CsvBeanFactory csvBeanFactory;
   private final CsvLineValidator csvLineValidator;
 
+  private final ImportConfiguration importConfiguration;
+  private final ForkJoinPool importParsingPool;
+
+  @Override
+  public void validateCsvFile(MultipartFile file) {
+    if (file.isEmpty()) {
+      throw new InvalidCsvFileException();
+    }
+  }
+
+  @Override
+  public <T extends CsvBean> void processLinesFromCsvFile(
+      MultipartFile file,
+      CsvCompression compression,
+      Class<T> elementType,
+      int batchSize,
+      Consumer<CsvLineBatch> lineBatchConsumer) {
+
+    validateCsvFile(file);
+
+    // the multipart file is spooled to disk by the servlet container, so it is read through a
+    // bounded buffer instead of being copied onto the heap, and decompressed as it is read
+    try (InputStream inputStream = compression.decompress(file.getInputStream())) {
+      processLinesFromCsvStream(inputStream, elementType, batchSize, lineBatchConsumer);
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+  }
+
   @Override
-  public <T extends CsvBean> Page<T> getElementsFromCsvFile(
-      MultipartFile file, Class<T> returnElementType, int page, int size) {
+  public <T extends CsvBean> void processLinesFromCsvStream(
+      InputStream inputStream,
+      Class<T> elementType,
+      int batchSize,
+      Consumer<CsvLineBatch> lineBatchConsumer) {
 
-    if (size <= 0 || page < 0) {
+    if (batchSize <= 0) {
       throw new IllegalArgumentException();
     }
 
-    if (file.isEmpty() || !CSV_CONTENT_TYPE.equals(file.getContentType())) {
-      throw new InvalidCsvFileException();
+    try (CsvTokenizer csvTokenizer = CsvUtils.buildCsvTokenizer(inputStream)) {
+      validateFirstLine(csvTokenizer, elementType);
+      processLines(csvTokenizer, batchSize, lineBatchConsumer);
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+  }
+
+  @Override
+  public <T extends CsvBean> void processLinesFromSpooledCsvFile(
+      Path spooledFile,
+      Class<T> elementType,
+      int batchSize,
+      LongConsumer readBytesConsumer,
+      Consumer<CsvLineBatch> lineBatchConsumer) {
+
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    CsvCompression compression = CsvCompression.fromFileName(spooledFile);
+
+    try (FileChannel channel = FileChannel.open(spooledFile, StandardOpenOption.READ)) {
+      // compressed bytes can only be decompressed in order, so compressed files are streamed, the
+      // bytes read being counted before decompression to match the size of the spooled file
+      if (compression != CsvCompression.NONE) {
+        processLinesFromCsvStream(
+            compression.decompress(
+                new CountingInputStream(Channels.newInputStream(channel), readBytesConsumer)),
+            elementType,
+            batchSize,
+            lineBatchConsumer);
+      } else if (channel.size() < importConfiguration.getMappedParsingThreshold().toBytes()) {
+        processLinesFromCsvStream(
+            new CountingInputStream(Channels.newInputStream(channel), readBytesConsumer),
+            elementType,
+            batchSize,
+            lineBatchConsumer);
+      } else {
+        processLinesFromMappedCsvFile(
+            channel, elementType, batchSize, readBytesConsumer, lineBatchConsumer);
+      }
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+  }
+
+  @Override
+  public <T extends CsvBean> void processLinesFromSpooledCsvFile(
+      Path spooledFile,
+      ImportCheckpoint checkpoint,
+      Class<T> elementType,
+      int batchSize,
+      LongConsumer readBytesConsumer,
+      Consumer<CsvLineBatch> lineBatchConsumer) {
+
+    if (checkpoint == null) {
+      processLinesFromSpooledCsvFile(
+          spooledFile, elementType, batchSize, readBytesConsumer, lineBatchConsumer);
+      return;
+    }
+
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    CsvCompression compression = CsvCompression.fromFileName(spooledFile);
+
+    // the header is still validated, before the lines are read from the checkpoint on
+    try (CsvTokenizer csvTokenizer =
+        CsvUtils.buildCsvTokenizer(compression.decompress(Files.newInputStream(spooledFile)))) {
+      validateFirstLine(csvTokenizer, elementType);
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+
+    // an uncompressed file is skipped to the checkpoint without being read, while a compressed one
+    // is only decompressed up to it
+    try (InputStream inputStream =
+        compression.decompress(
+            new CountingInputStream(Files.newInputStream(spooledFile), readBytesConsumer))) {
+
+      skipToCheckpoint(inputStream, checkpoint);
+
+      try (CsvTokenizer csvTokenizer =
+          CsvUtils.buildCsvTokenizer(
+              inputStream, checkpoint.getLineCount(), checkpoint.getByteOffset())) {
+        processLines(csvTokenizer, batchSize, lineBatchConsumer);
+      }
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+  }
+
+  // the chunks are tokenized on the parsing pool, a bounded number of them ahead of the one whose
+  // lines are being handed over, and their batches are realigned so that they are the same as when
+  // tokenizing the whole file on a single thread. Each chunk is only scanned for once there is room
+  // for its task, so the file is split while the chunks before it are tokenized.
+  private <T extends CsvBean> void processLinesFromMappedCsvFile(
+      FileChannel channel,
+      Class<T> elementType,
+      int batchSize,
+      LongConsumer readBytesConsumer,
+      Consumer<CsvLineBatch> lineBatchConsumer)
+      throws IOException {
+
+    CsvChunkScanner chunkScanner =
+        new CsvChunkScanner(channel, importConfiguration.getMappedParsingChunkSize().toBytes());
+
+    Deque<CsvChunk> chunks = new ArrayDeque<>();
+    Deque<ForkJoinTask<List<CsvLineBatch>>> chunkTasks = new ArrayDeque<>();
+    int maxChunkTasks = importParsingPool.getParallelism() + 1;
+    CsvChunk nextChunk = chunkScanner.nextChunk();
+
+    // the last batch of the previous chunk, if it was not full
+    CsvLineBatch partialBatch = null;
+
+    try {
+      while (nextChunk != null || !chunkTasks.isEmpty()) {
+        while (nextChunk != null && chunkTasks.size() < maxChunkTasks) {
+          CsvChunk chunk = nextChunk;
+
+          chunks.add(chunk);
+          chunkTasks.add(
+              importParsingPool.submit(
+                  () -> tokenizeChunk(channel, chunk, elementType, batchSize)));
+
+          nextChunk = chunkScanner.nextChunk();
+        }
+
+        for (CsvLineBatch batch : chunkTasks.remove().join()) {
+          if (partialBatch != null) {
+            partialBatch.addAll(batch);
+            batch = partialBatch;
+            partialBatch = null;
+          }
+
+          if (batch.size() == batchSize) {
+            lineBatchConsumer.accept(batch);
+          } else {
+            partialBatch = batch;
+          }
+        }
+
+        readBytesConsumer.accept(chunks.remove().getLength());
+      }
+
+      if (partialBatch != null) {
+        lineBatchConsumer.accept(partialBatch);
+      }
+    } finally {
+      chunkTasks.forEach(chunkTask -> chunkTask.cancel(true));
     }
+  }
+
+  private <T extends CsvBean> List<CsvLineBatch> tokenizeChunk(
+      FileChannel channel, CsvChunk chunk, Class<T> elementType, int batchSize) {
+
+    MappedByteBuffer buffer;
+
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.getStart(), chunk.getLength());
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+
+    try (CsvTokenizer csvTokenizer =
+        CsvUtils.buildCsvTokenizer(
+            new ByteBufferInputStream(buffer), chunk.getPrecedingLines(), chunk.getStart())) {
+
+      boolean isFirstChunk = chunk.getStart() == 0;
 
-    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
-      Iterator<String[]> csvLineIterator = csvReader.iterator();
+      if (isFirstChunk) {
+        validateFirstLine(csvTokenizer, elementType);
+      }
 
-      String[] line = csvLineIterator.next();
-      csvLineValidator.validateFirstLine(line, returnElementType);
+      // the first batch of the chunk tops up the last batch of the previous chunk
+      long precedingElements = isFirstChunk ? 0 : chunk.getPrecedingRecords() - 1;
+      int batchCapacity = batchSize - (int) (precedingElements % batchSize);
 
-      List<T> content = new ArrayList<>();
-      long offset = (long) page * (long) size;
-      long totalElementsProcessed = 0L;
+      List<CsvLineBatch> batches = new ArrayList<>();
+      CsvLineBatch batch = new CsvLineBatch(batchCapacity);
 
-      while (csvLineIterator.hasNext()) {
-        line = csvLineIterator.next();
-        csvLineValidator.validateNonFirstLine(line, returnElementType);
+      while (csvTokenizer.nextRecord()) {
+        batch.add(csvTokenizer);
 
-        if (isCurrentElementInPage(size, offset, totalElementsProcessed)) {
-          content.add(csvBeanFactory.buildCsvBean(line, returnElementType));
+        if (batch.size() == batchCapacity) {
+          batches.add(batch);
+          batchCapacity = batchSize;
+          batch = new CsvLineBatch(batchCapacity);
         }
+      }
 
-        totalElementsProcessed++;
+      if (!batch.isEmpty()) {
+        batches.add(batch);
       }
 
-      Pageable pageable = PageRequest.of(page, size);
+      return batches;
+    } catch (IOException e) {
+      throw new InvalidCsvFileException(e);
+    }
+  }
+
+  @Override
+  public <T extends CsvBean> List<T> buildElementsFromCsvLines(
+      CsvLineBatch lines, Class<T> elementType) {
+
+    List<T> elements = new ArrayList<>(lines.size());
+
+    for (int line = 0; line < lines.size(); line++) {
+      elements.add(buildElement(lines, line, elementType));
+    }
+
+    return elements;
+  }
+
+  @Override
+  public <T extends CsvBean, E> ImportBatch<T, E> buildImportBatchFromCsvLines(
+      CsvLineBatch lines, Class<T> elementType, ImportContext importContext) {
+
+    long[] lineNumbers = new long[lines.size()];
+
+    if (!importContext.isContinueOnError()) {
+      for (int line = 0; line < lines.size(); line++) {
+        lineNumbers[line] = lines.getLineNumber(line);
+      }
+
+      return new ImportBatch<>(
+          buildElementsFromCsvLines(lines, elementType), List.of(), lineNumbers);
+    }
+
+    List<T> elements = new ArrayList<>(lines.size());
+
+    for (int line = 0; line < lines.size(); line++) {
+      T element;
+
+      // the line validator throws stackless exceptions, while the exceptions of the parsers the
+      // field decoders fall back to are only thrown for fields of an unexpected shape
+      try {
+        csvLineValidator.validateNonFirstLine(lines.getFieldCount(line), elementType);
+        element = csvBeanFactory.buildCsvBean(lines, line, elementType);
+      } catch (RuntimeException e) {
+        importContext.rejectRow(lines.getLineNumber(line), getRejectReason(e));
+        continue;
+      }
 
-      return new PageImpl<>(content, pageable, totalElementsProcessed);
+      lineNumbers[elements.size()] = lines.getLineNumber(line);
+      elements.add(element);
+    }
+
+    return new ImportBatch<>(elements, List.of(), Arrays.copyOf(lineNumbers, elements.size()));
+  }
+
+  private static String getRejectReason(Exception e) {
+    return e.getMessage() == null ? InvalidCsvRowException.MESSAGE : e.getMessage();
+  }
+
+  private static void processLines(
+      CsvTokenizer csvTokenizer, int batchSize, Consumer<CsvLineBatch> lineBatchConsumer)
+      throws IOException {
+
+    CsvLineBatch batch = new CsvLineBatch(batchSize);
+
+    while (csvTokenizer.nextRecord()) {
+      batch.add(csvTokenizer);
+
+      if (batch.size() == batchSize) {
+        lineBatchConsumer.accept(batch);
+        batch = new CsvLineBatch(batchSize);
+      }
+    }
+
+    if (!batch.isEmpty()) {
+      lineBatchConsumer.accept(batch);
+    }
+  }
+
+  // a checkpoint is at the end of a line, or of the file, which is checked so that the checkpoint
+  // of another file is not read from in the middle of a line
+  private static void skipToCheckpoint(InputStream inputStream, ImportCheckpoint checkpoint)
+      throws IOException {
+
+    if (checkpoint.getByteOffset() == 0) {
+      return;
+    }
+
+    inputStream.skipNBytes(checkpoint.getByteOffset() - 1);
+    int lastByte = inputStream.read();
+
+    // only the last line of the file may end without a line break
+    if (lastByte != '\n' && lastByte != '\r' && (lastByte == -1 || inputStream.read() != -1)) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.CHECKPOINT_MISMATCH_MESSAGE);
+    }
+  }
+
+  // only parsing and line validation failures are reported as an invalid csv file, exceptions
+  // thrown by the batch consumer are propagated as they are
+  private <T extends CsvBean> void validateFirstLine(
+      CsvTokenizer csvTokenizer, Class<T> elementType) throws IOException {
+
+    if (!csvTokenizer.nextRecord()) {
+      throw new InvalidCsvFileException();
+    }
+
+    try {
+      csvLineValidator.validateFirstLine(csvTokenizer.getFields(), elementType);
     } catch (Exception e) {
       throw new InvalidCsvFileException(e);
     }
   }
 
-  private boolean isCurrentElementInPage(int size, long offset, long totalElementsProcessed) {
-    return offset <= totalElementsProcessed && totalElementsProcessed < offset + size;
+  private <T extends CsvBean> T buildElement(CsvLineBatch lines, int line, Class<T> elementType) {
+    try {
+      csvLineValidator.validateNonFirstLine(lines.getFieldCount(line), elementType);
+
+      return csvBeanFactory.buildCsvBean(lines, line, elementType);
+    } catch (Exception e) {
+      throw new InvalidCsvFileException(e);
+    }
   }
 }
@@ -0,0 +1,62 @@
+package com.phorest.service;
+
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportJobResponse;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ImportJobService {
+  /**
+   * Spools the csv file to disk and queues its import, which is run in the background by the
+   * importer.
+   */
+  ImportJobResponse submitImportJob(
+      ImportJob.Type type,
+      MultipartFile file,
+      ImportOptions importOptions,
+      BiConsumer<Path, ImportContext> importer);
+
+  /**
+   * Queues the import of the file of a complete resumable upload, which is run in the background by
+   * the importer and leaves the file in place, unless the upload is still being imported, whose
+   * import job is returned instead.
+   */
+  ImportJobResponse submitUploadImportJob(
+      ImportJob.Type type,
+      Path uploadFile,
+      ImportContext importContext,
+      BiConsumer<Path, ImportContext> importer);
+
+  /** Returns the import job of the upload, as long as it is queued or running. */
+  Optional<ImportJobResponse> findUnfinishedUploadImportJob(UUID uploadId);
+
+  /**
+   * Spools the zip file to disk and queues the import of the csv files it bundles, which are
+   * imported in the background by the importer of their type, after the files they reference.
+   */
+  ImportJobResponse submitImportBundleJob(
+      MultipartFile file,
+      ImportOptions importOptions,
+      Map<ImportJob.Type, BiConsumer<InputStream, ImportContext>> importers);
+
+  ImportJobResponse getImportJobResponse(UUID importJobId);
+
+  SseEmitter getImportJobProgressEmitter(UUID importJobId);
+
+  /**
+   * Returns the csv file of the rows the import job rejected so far, with their line numbers and
+   * the reasons they were rejected for, which only has its header if none was.
+   */
+  Resource getImportJobRejectFile(UUID importJobId);
+
+  void cancelImportJob(UUID importJobId);
+}
@@ -0,0 +1,640 @@
+package com.phorest.service;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.ImportJobNotFoundException;
+import com.phorest.exception.ImportJobRejectedException;
+import com.phorest.exception.InternalException;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportRejectFile;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportJobResponse;
+import com.phorest.model.response.ImportStageResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BiConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportJobServiceImpl implements ImportJobService {
+  public static final String PROGRESS_EVENT_NAME = "progress";
+  public static final String ZIP_CONTENT_TYPE = "application/zip";
+
+  // as sent by some browsers on Windows
+  private static final Set<String> ZIP_CONTENT_TYPES =
+      Set.of(ZIP_CONTENT_TYPE, "application/x-zip-compressed");
+
+  private static final String PARSE_STAGE_NAME = "parse";
+  private static final String VALIDATE_STAGE_NAME = "validate";
+  private static final String PERSIST_STAGE_NAME = "persist";
+
+  private static final String SPOOLED_FILE_PREFIX = "csv-import-";
+  private static final String SPOOLED_BUNDLE_SUFFIX = ".zip";
+
+  private static final Map<ImportJob.Type, String> BUNDLE_ENTRY_NAMES =
+      Map.of(
+          ImportJob.Type.CLIENTS, "clients.csv",
+          ImportJob.Type.APPOINTMENTS, "appointments.csv",
+          ImportJob.Type.PURCHASES, "purchases.csv",
+          ImportJob.Type.SERVICES, "services.csv");
+
+  // the files of a bundle each file references rows of, which are imported before it
+  private static final Map<ImportJob.Type, List<ImportJob.Type>> BUNDLE_DEPENDENCIES =
+      Map.of(
+          ImportJob.Type.APPOINTMENTS, List.of(ImportJob.Type.CLIENTS),
+          ImportJob.Type.PURCHASES, List.of(ImportJob.Type.APPOINTMENTS),
+          ImportJob.Type.SERVICES, List.of(ImportJob.Type.APPOINTMENTS));
+
+  private static final String BUNDLE_INCOMPLETE_MESSAGE = "The import of %s did not complete.";
+
+  private final Map<UUID, ImportJob> importJobsById = new ConcurrentHashMap<>();
+
+  private final CsvService csvService;
+  private final ImportConfiguration importConfiguration;
+  private final ThreadPoolTaskExecutor importJobExecutor;
+  private final ThreadPoolTaskExecutor importBundleExecutor;
+  private final ThreadPoolTaskScheduler importJobProgressScheduler;
+
+  private final Clock clock;
+
+  @Override
+  public ImportJobResponse submitImportJob(
+      @NonNull ImportJob.Type type,
+      @NonNull MultipartFile file,
+      @NonNull ImportOptions importOptions,
+      @NonNull BiConsumer<Path, ImportContext> importer) {
+
+    csvService.validateCsvFile(file);
+
+    evictExpiredImportJobs();
+
+    // the multipart file is deleted once the request completes, so the job reads its own copy,
+    // kept compressed and named after its compression
+    Path spooledFile = spoolFile(file, importOptions.getCompression().getFileSuffix());
+
+    ImportJob importJob =
+        new ImportJob(type, new ImportContext(importOptions), file.getSize(), clock.instant());
+
+    return executeImportJob(
+        importJob,
+        spooledFile,
+        () -> {
+          try {
+            runImportJob(importJob, spooledFile, importer);
+          } finally {
+            deleteSpooledFile(spooledFile);
+          }
+        });
+  }
+
+  @Override
+  public ImportJobResponse submitUploadImportJob(
+      @NonNull ImportJob.Type type,
+      @NonNull Path uploadFile,
+      @NonNull ImportContext importContext,
+      @NonNull BiConsumer<Path, ImportContext> importer) {
+
+    evictExpiredImportJobs();
+
+    // the last chunk of an upload may be sent again while its import is still going
+    Optional<ImportJob> unfinishedImportJob = findUnfinishedImportJob(importContext.getUploadId());
+
+    if (unfinishedImportJob.isPresent()) {
+      return toImportJobResponse(unfinishedImportJob.get());
+    }
+
+    ImportJob importJob;
+
+    try {
+      importJob = new ImportJob(type, importContext, Files.size(uploadFile), clock.instant());
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+
+    // the upload file is left in place, for the import to be resumed from it if it fails
+    return executeImportJob(importJob, null, () -> runImportJob(importJob, uploadFile, importer));
+  }
+
+  @Override
+  public Optional<ImportJobResponse> findUnfinishedUploadImportJob(@NonNull UUID uploadId) {
+    return findUnfinishedImportJob(uploadId).map(this::toImportJobResponse);
+  }
+
+  private Optional<ImportJob> findUnfinishedImportJob(UUID uploadId) {
+    return importJobsById.values().stream()
+        .filter(importJob -> !importJob.isFinished())
+        .filter(importJob -> uploadId.equals(getUploadId(importJob)))
+        .findFirst();
+  }
+
+  @Override
+  public ImportJobResponse submitImportBundleJob(
+      @NonNull MultipartFile file,
+      @NonNull ImportOptions importOptions,
+      @NonNull Map<ImportJob.Type, BiConsumer<InputStream, ImportContext>> importers) {
+
+    // the files of a bundle reference each other, so they cannot be checked one at a time without
+    // importing the ones they reference
+    if (importOptions.isDryRun()) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.INVALID_BUNDLE_DRY_RUN_MESSAGE);
+    }
+
+    // a file of a bundle is imported all or nothing, as the files after it reference its rows
+    if (importOptions.getMaxErrors() != null) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.INVALID_BUNDLE_MAX_ERRORS_MESSAGE);
+    }
+
+    validateZipFile(file);
+
+    evictExpiredImportJobs();
+
+    // only the zip file is spooled, its entries are streamed out of it as they are imported
+    Path spooledFile = spoolFile(file, SPOOLED_BUNDLE_SUFFIX);
+    ImportJob importJob;
+
+    try {
+      importJob = buildImportBundleJob(spooledFile, importOptions);
+    } catch (RuntimeException e) {
+      deleteSpooledFile(spooledFile);
+
+      throw e;
+    }
+
+    return executeImportJob(
+        importJob, spooledFile, () -> runImportBundleJob(importJob, spooledFile, importers));
+  }
+
+  // the spooled file, if any, is deleted when the job is rejected
+  private ImportJobResponse executeImportJob(
+      ImportJob importJob, Path spooledFile, Runnable importJobTask) {
+
+    importJobsById.put(importJob.getId(), importJob);
+
+    try {
+      importJobExecutor.execute(importJobTask);
+    } catch (TaskRejectedException e) {
+      importJobsById.remove(importJob.getId());
+
+      if (spooledFile != null) {
+        deleteSpooledFile(spooledFile);
+      }
+
+      throw new ImportJobRejectedException(e);
+    }
+
+    return toImportJobResponse(importJob);
+  }
+
+  private void runImportJob(
+      ImportJob importJob, Path file, BiConsumer<Path, ImportContext> importer) {
+
+    try {
+      if (!importJob.start(clock.instant())) {
+        return;
+      }
+
+      importer.accept(file, importJob.getContext());
+
+      importJob.complete(clock.instant());
+
+      log.info("[IMPORTS] Import job {} completed", importJob.getId());
+    } catch (Exception e) {
+      importJob.fail(clock.instant(), e.getMessage());
+
+      log.warn("[IMPORTS] Import job {} failed: {}", importJob.getId(), e.getMessage());
+    } finally {
+      closeRejectFile(importJob);
+    }
+  }
+
+  private static UUID getUploadId(ImportJob importJob) {
+    return importJob.getContext().getUploadId();
+  }
+
+  // the files of the bundle are its parts, in dependency order, and share its options
+  private ImportJob buildImportBundleJob(Path spooledFile, ImportOptions importOptions) {
+    ImportContext bundleContext = new ImportContext(importOptions);
+    Instant createdAt = clock.instant();
+
+    try (ZipFile zipFile = new ZipFile(spooledFile.toFile())) {
+      List<ImportJob> parts = new ArrayList<>();
+      long totalBytes = 0;
+
+      for (Map.Entry<ImportJob.Type, ZipEntry> entry : readBundleEntries(zipFile).entrySet()) {
+        // the uncompressed size, as the bytes read are counted once the entries are inflated
+        long entryBytes = Math.max(entry.getValue().getSize(), 0);
+
+        parts.add(
+            new ImportJob(entry.getKey(), new ImportContext(bundleContext), entryBytes, createdAt));
+        totalBytes += entryBytes;
+      }
+
+      return new ImportJob(ImportJob.Type.BUNDLE, bundleContext, totalBytes, createdAt, parts);
+    } catch (ZipException e) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.INVALID_BUNDLE_MESSAGE, e);
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+  }
+
+  // sorted by type, which lists the files that are referenced before the files referencing them
+  private Map<ImportJob.Type, ZipEntry> readBundleEntries(ZipFile zipFile) {
+    Map<ImportJob.Type, ZipEntry> bundleEntries = new EnumMap<>(ImportJob.Type.class);
+
+    for (ZipEntry entry : Collections.list(zipFile.entries())) {
+      ImportJob.Type type =
+          BUNDLE_ENTRY_NAMES.entrySet().stream()
+              .filter(entryName -> entryName.getValue().equals(entry.getName()))
+              .map(Map.Entry::getKey)
+              .findFirst()
+              .orElse(null);
+
+      if (type == null || bundleEntries.putIfAbsent(type, entry) != null) {
+        throw new InvalidCsvFileException(
+            InvalidCsvFileException.INVALID_BUNDLE_ENTRY_MESSAGE.formatted(entry.getName()));
+      }
+    }
+
+    if (bundleEntries.isEmpty()) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.INVALID_BUNDLE_MESSAGE);
+    }
+
+    return bundleEntries;
+  }
+
+  private void runImportBundleJob(
+      ImportJob importJob,
+      Path spooledFile,
+      Map<ImportJob.Type, BiConsumer<InputStream, ImportContext>> importers) {
+
+    try {
+      if (!importJob.start(clock.instant())) {
+        return;
+      }
+
+      try (ZipFile zipFile = new ZipFile(spooledFile.toFile())) {
+        runImportBundleParts(importJob, zipFile, importers);
+      }
+
+      List<String> incompleteEntryNames =
+          importJob.getParts().stream()
+              .filter(part -> part.getStatus() != ImportJob.Status.COMPLETED)
+              .map(part -> BUNDLE_ENTRY_NAMES.get(part.getType()))
+              .toList();
+
+      if (incompleteEntryNames.isEmpty()) {
+        importJob.complete(clock.instant());
+
+        log.info("[IMPORTS] Import job {} completed", importJob.getId());
+      } else {
+        importJob.fail(
+            clock.instant(),
+            BUNDLE_INCOMPLETE_MESSAGE.formatted(String.join(", ", incompleteEntryNames)));
+
+        log.warn(
+            "[IMPORTS] Import job {} failed: {}", importJob.getId(), importJob.getErrorMessage());
+      }
+    } catch (Exception e) {
+      importJob.fail(clock.instant(), e.getMessage());
+
+      log.warn("[IMPORTS] Import job {} failed: {}", importJob.getId(), e.getMessage());
+    } finally {
+      deleteSpooledFile(spooledFile);
+    }
+  }
+
+  // each part is imported, in a transaction of its own, on the bundle executor as soon as the parts
+  // it depends on are done, so that the parts with the same dependencies are imported at the same
+  // time, and the job thread only waits for the last of them
+  private void runImportBundleParts(
+      ImportJob importJob,
+      ZipFile zipFile,
+      Map<ImportJob.Type, BiConsumer<InputStream, ImportContext>> importers) {
+
+    Map<ImportJob.Type, ImportJob> partsByType = new EnumMap<>(ImportJob.Type.class);
+    Map<ImportJob.Type, CompletableFuture<Void>> partImportsByType =
+        new EnumMap<>(ImportJob.Type.class);
+
+    // the parts are in dependency order, so the imports of the parts each depends on already exist
+    for (ImportJob part : importJob.getParts()) {
+      List<ImportJob.Type> dependencyTypes =
+          BUNDLE_DEPENDENCIES.getOrDefault(part.getType(), List.of()).stream()
+              .filter(partsByType::containsKey)
+              .toList();
+      List<ImportJob> dependencies = dependencyTypes.stream().map(partsByType::get).toList();
+
+      CompletableFuture<Void> partImport =
+          CompletableFuture.allOf(
+                  dependencyTypes.stream()
+                      .map(partImportsByType::get)
+                      .toArray(CompletableFuture[]::new))
+              .thenRunAsync(
+                  () ->
+                      runImportBundlePart(
+                          part, dependencies, zipFile, importers.get(part.getType())),
+                  importBundleExecutor);
+
+      partsByType.put(part.getType(), part);
+      partImportsByType.put(part.getType(), partImport);
+    }
+
+    CompletableFuture.allOf(partImportsByType.values().toArray(CompletableFuture[]::new)).join();
+  }
+
+  private void runImportBundlePart(
+      ImportJob part,
+      List<ImportJob> dependencies,
+      ZipFile zipFile,
+      BiConsumer<InputStream, ImportContext> importer) {
+
+    if (!dependencies.stream().allMatch(ImportJobServiceImpl::isCompleted)) {
+      part.skip(clock.instant());
+
+      return;
+    }
+
+    try {
+      if (!part.start(clock.instant())) {
+        return;
+      }
+
+      ZipEntry entry = zipFile.getEntry(BUNDLE_ENTRY_NAMES.get(part.getType()));
+      importer.accept(zipFile.getInputStream(entry), part.getContext());
+
+      part.complete(clock.instant());
+    } catch (Exception e) {
+      part.fail(clock.instant(), e.getMessage());
+    }
+  }
+
+  private static boolean isCompleted(ImportJob importJob) {
+    return importJob.getStatus() == ImportJob.Status.COMPLETED;
+  }
+
+  @Override
+  public ImportJobResponse getImportJobResponse(@NonNull UUID importJobId) {
+    return toImportJobResponse(getImportJob(importJobId));
+  }
+
+  @Override
+  public SseEmitter getImportJobProgressEmitter(@NonNull UUID importJobId) {
+    ImportJob importJob = getImportJob(importJobId);
+
+    SseEmitter emitter = new SseEmitter(importConfiguration.getJobProgressTimeout().toMillis());
+
+    ScheduledFuture<?> progressTask =
+        importJobProgressScheduler.scheduleAtFixedRate(
+            () -> sendProgressEvent(emitter, importJob),
+            importConfiguration.getJobProgressInterval());
+
+    emitter.onCompletion(() -> progressTask.cancel(false));
+    emitter.onError(error -> progressTask.cancel(false));
+
+    return emitter;
+  }
+
+  private void sendProgressEvent(SseEmitter emitter, ImportJob importJob) {
+    try {
+      emitter.send(
+          SseEmitter.event()
+              .name(PROGRESS_EVENT_NAME)
+              .data(toImportJobResponse(importJob), MediaType.APPLICATION_JSON));
+
+      if (importJob.isFinished()) {
+        emitter.complete();
+      }
+    } catch (IOException | IllegalStateException e) {
+      // the client disconnected, or the stream has already been completed
+      emitter.completeWithError(e);
+    }
+  }
+
+  @Override
+  public Resource getImportJobRejectFile(@NonNull UUID importJobId) {
+    ImportRejectFile rejectFile = getImportJob(importJobId).getContext().getRejectFile();
+
+    try {
+      Path file = rejectFile == null ? null : rejectFile.flush();
+
+      return file == null
+          ? new ByteArrayResource(ImportRejectFile.HEADER.getBytes(StandardCharsets.UTF_8))
+          : new FileSystemResource(file);
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+  }
+
+  @Override
+  public void cancelImportJob(@NonNull UUID importJobId) {
+    getImportJob(importJobId).cancel(clock.instant());
+  }
+
+  private ImportJob getImportJob(UUID importJobId) {
+    return Optional.ofNullable(importJobsById.get(importJobId))
+        .orElseThrow(() -> new ImportJobNotFoundException(importJobId));
+  }
+
+  private ImportJobResponse toImportJobResponse(ImportJob importJob) {
+    ImportContext importContext = importJob.getContext();
+
+    return ImportJobResponse.builder()
+        .id(importJob.getId())
+        .type(importJob.getType())
+        .status(importJob.getStatus())
+        .rowsParsed(importContext.getParsedRows())
+        .rowsValidated(importContext.getValidatedRows())
+        .rowsPersisted(importContext.getPersistedRows())
+        .rowsCommitted(importContext.getCommittedRows())
+        .rowsRejected(importContext.getRejectedRows())
+        .rowsUnchanged(importContext.getUnchangedRows())
+        .rowsDeleted(importContext.getDeletedRows())
+        .bytesRead(importContext.getReadBytes())
+        .totalBytes(importJob.getTotalBytes())
+        .uploadId(importContext.getUploadId())
+        .rowsPerSecond(getRowsPerSecond(importJob, importContext.getPersistedRows()))
+        .estimatedSecondsRemaining(getEstimatedSecondsRemaining(importJob))
+        .stages(toImportStageResponses(importJob))
+        .files(
+            importJob.getParts().isEmpty()
+                ? null
+                : importJob.getParts().stream().map(this::toImportJobResponse).toList())
+        .createdAt(importJob.getCreatedAt())
+        .startedAt(importJob.getStartedAt())
+        .finishedAt(importJob.getFinishedAt())
+        .errorMessage(importJob.getErrorMessage())
+        .build();
+  }
+
+  // the queue depth of a stage is the number of batches waiting to enter it, parsing, validating
+  // and mapping a batch happening in a single import pipeline worker task
+  private List<ImportStageResponse> toImportStageResponses(ImportJob importJob) {
+    ImportContext importContext = importJob.getContext();
+
+    return List.of(
+        toImportStageResponse(
+            importJob,
+            PARSE_STAGE_NAME,
+            importContext.getParsedRows(),
+            importContext.getBatchesAwaitingProcessing()),
+        toImportStageResponse(
+            importJob, VALIDATE_STAGE_NAME, importContext.getValidatedRows(), null),
+        toImportStageResponse(
+            importJob,
+            PERSIST_STAGE_NAME,
+            importContext.getPersistedRows(),
+            importContext.getBatchesAwaitingPersisting()));
+  }
+
+  private ImportStageResponse toImportStageResponse(
+      ImportJob importJob, String name, long rows, Integer queueDepth) {
+
+    return ImportStageResponse.builder()
+        .name(name)
+        .rows(rows)
+        .rowsPerSecond(getRowsPerSecond(importJob, rows))
+        .queueDepth(queueDepth)
+        .build();
+  }
+
+  private double getRowsPerSecond(ImportJob importJob, long rows) {
+    long elapsedMillis = getElapsedMillis(importJob);
+
+    if (elapsedMillis <= 0) {
+      return 0;
+    }
+
+    return rows * 1000.0 / elapsedMillis;
+  }
+
+  // extrapolated from the share of the file read so far, as the number of rows is not known upfront
+  private Long getEstimatedSecondsRemaining(ImportJob importJob) {
+    long readBytes = importJob.getContext().getReadBytes();
+    long elapsedMillis = getElapsedMillis(importJob);
+
+    if (importJob.isFinished() || readBytes <= 0 || elapsedMillis <= 0) {
+      return null;
+    }
+
+    long remainingBytes = Math.max(importJob.getTotalBytes() - readBytes, 0);
+
+    return Duration.ofMillis(elapsedMillis * remainingBytes / readBytes).toSeconds();
+  }
+
+  private long getElapsedMillis(ImportJob importJob) {
+    Instant startedAt = importJob.getStartedAt();
+
+    if (startedAt == null) {
+      return 0;
+    }
+
+    Instant endedAt = Optional.ofNullable(importJob.getFinishedAt()).orElseGet(clock::instant);
+
+    return Duration.between(startedAt, endedAt).toMillis();
+  }
+
+  // the reject files of the evicted jobs can no longer be downloaded, so they are deleted
+  private void evictExpiredImportJobs() {
+    Instant expiry = clock.instant().minus(importConfiguration.getJobRetention());
+
+    List<ImportJob> expiredImportJobs =
+        importJobsById.values().stream()
+            .filter(
+                importJob -> importJob.isFinished() && importJob.getFinishedAt().isBefore(expiry))
+            .toList();
+
+    for (ImportJob importJob : expiredImportJobs) {
+      importJobsById.remove(importJob.getId());
+      deleteRejectFile(importJob);
+    }
+  }
+
+  private void validateZipFile(MultipartFile file) {
+    if (file.isEmpty() || !ZIP_CONTENT_TYPES.contains(file.getContentType())) {
+      throw new InvalidCsvFileException(InvalidCsvFileException.INVALID_BUNDLE_MESSAGE);
+    }
+  }
+
+  private Path spoolFile(MultipartFile file, String spooledFileSuffix) {
+    try {
+      Path spooledFile = Files.createTempFile(SPOOLED_FILE_PREFIX, spooledFileSuffix);
+      file.transferTo(spooledFile);
+
+      return spooledFile;
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+  }
+
+  private void closeRejectFile(ImportJob importJob) {
+    ImportRejectFile rejectFile = importJob.getContext().getRejectFile();
+
+    try {
+      if (rejectFile != null) {
+        rejectFile.close();
+      }
+    } catch (IOException e) {
+      log.warn(
+          "[IMPORTS] Could not close reject file of import job {}: {}",
+          importJob.getId(),
+          e.getMessage());
+    }
+  }
+
+  private void deleteRejectFile(ImportJob importJob) {
+    ImportRejectFile rejectFile = importJob.getContext().getRejectFile();
+
+    try {
+      if (rejectFile != null) {
+        rejectFile.delete();
+      }
+    } catch (IOException e) {
+      log.warn(
+          "[IMPORTS] Could not delete reject file of import job {}: {}",
+          importJob.getId(),
+          e.getMessage());
+    }
+  }
+
+  private void deleteSpooledFile(Path spooledFile) {
+    try {
+      Files.deleteIfExists(spooledFile);
+    } catch (IOException e) {
+      log.warn("[IMPORTS] Could not delete spooled file {}: {}", spooledFile, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.phorest.service;
+
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportUpload;
+import com.phorest.model.request.ImportOptions;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface ImportUploadService {
+  /**
+   * Writes the chunk of the csv file at its place in the file of the upload on local disk, as given
+   * by the Content-Range header, a chunk without one holding the whole file. The bytes of the chunk
+   * already received are skipped, so that a chunk can be sent again. Once the upload is complete,
+   * its import is submitted as an import job, resuming from the checkpoint of its last import.
+   */
+  ImportUpload receiveChunk(
+      ImportJob.Type type,
+      MultipartFile chunk,
+      String contentRange,
+      ImportOptions importOptions,
+      BiConsumer<Path, ImportContext> importer);
+}
@@ -0,0 +1,285 @@
+package com.phorest.service;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.InternalException;
+import com.phorest.exception.InvalidUploadChunkException;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportUpload;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportJobResponse;
+import com.phorest.repository.ImportCheckpointDAO;
+import com.phorest.util.CsvCompression;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Receives resumable uploads chunk by chunk into files named after their upload id and compression,
+ * in the upload directory, whose size is the number of bytes received so far. A client that lost
+ * track of an upload resends a chunk, and is told where the upload continues from.
+ *
+ * <p>An upload is only deleted once it is imported, or once it expires without being imported.
+ * While it is imported, a chunk sent again is answered with its import job. Its import checkpoints
+ * every commit, so that importing it again, by resending its last chunk, resumes from the last
+ * commit instead of importing the whole file again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportUploadServiceImpl implements ImportUploadService {
+  public static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+
+  // as sent for a byte range of a file of known size
+  private static final Pattern CONTENT_RANGE_PATTERN =
+      Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+  private static final int UPLOAD_ID_LENGTH = 36;
+
+  // the uploads a chunk is being received for, or that are being evicted
+  private final Set<UUID> busyUploadIds = ConcurrentHashMap.newKeySet();
+
+  private final CsvService csvService;
+  private final ImportJobService importJobService;
+  private final ImportConfiguration importConfiguration;
+  private final ImportCheckpointDAO importCheckpointDAO;
+
+  private final Clock clock;
+
+  @Override
+  public ImportUpload receiveChunk(
+      @NonNull ImportJob.Type type,
+      @NonNull MultipartFile chunk,
+      String contentRange,
+      @NonNull ImportOptions importOptions,
+      @NonNull BiConsumer<Path, ImportContext> importer) {
+
+    // the import is resumed from a position in the file, which only file order has
+    if (importOptions.isSortByParent()) {
+      throw new InvalidUploadChunkException(InvalidUploadChunkException.SORTED_MESSAGE);
+    }
+
+    // a resumed import only reads the rows after its checkpoint, so every row before it would be
+    // missing from it
+    if (importOptions.isDeleteMissing()) {
+      throw new InvalidUploadChunkException(InvalidUploadChunkException.DELETE_MISSING_MESSAGE);
+    }
+
+    UUID uploadId = importOptions.getUploadId();
+    csvService.validateCsvFile(chunk);
+    CsvCompression compression = importOptions.getCompression();
+    ChunkRange chunkRange = parseContentRange(contentRange, chunk.getSize());
+
+    evictExpiredUploads();
+
+    if (!busyUploadIds.add(uploadId)) {
+      throw new InvalidUploadChunkException(InvalidUploadChunkException.BUSY_MESSAGE);
+    }
+
+    try {
+      // the file and checkpoint of an upload are used by its import until it finishes, so a chunk
+      // sent again meanwhile is not written, and is told about the import instead
+      Optional<ImportJobResponse> unfinishedImportJob =
+          importJobService.findUnfinishedUploadImportJob(uploadId);
+
+      if (unfinishedImportJob.isPresent()) {
+        return new ImportUpload(
+            uploadId, chunkRange.totalBytes(), chunkRange.totalBytes(), unfinishedImportJob.get());
+      }
+
+      Path uploadFile = getUploadFile(uploadId, compression);
+      long receivedBytes = writeChunk(uploadFile, chunk, chunkRange);
+
+      if (receivedBytes < chunkRange.totalBytes()) {
+        return new ImportUpload(uploadId, receivedBytes, chunkRange.totalBytes(), null);
+      }
+
+      ImportContext importContext =
+          new ImportContext(
+              importOptions, uploadId, importCheckpointDAO.findCheckpoint(uploadId).orElse(null));
+
+      ImportJobResponse importJob =
+          importJobService.submitUploadImportJob(
+              type,
+              uploadFile,
+              importContext,
+              (file, context) -> {
+                importer.accept(file, context);
+                deleteUpload(uploadId, file);
+              });
+
+      return new ImportUpload(uploadId, receivedBytes, chunkRange.totalBytes(), importJob);
+    } finally {
+      busyUploadIds.remove(uploadId);
+    }
+  }
+
+  // a request without a Content-Range header holds the whole file
+  private static ChunkRange parseContentRange(String contentRange, long chunkSize) {
+    if (contentRange == null) {
+      return new ChunkRange(0, chunkSize - 1, chunkSize);
+    }
+
+    Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange.trim());
+
+    if (!matcher.matches()) {
+      throw new InvalidUploadChunkException();
+    }
+
+    ChunkRange chunkRange;
+
+    try {
+      chunkRange =
+          new ChunkRange(
+              Long.parseLong(matcher.group(1)),
+              Long.parseLong(matcher.group(2)),
+              Long.parseLong(matcher.group(3)));
+    } catch (NumberFormatException e) {
+      throw new InvalidUploadChunkException(e);
+    }
+
+    if (chunkRange.lastByte() >= chunkRange.totalBytes()
+        || chunkRange.lastByte() - chunkRange.firstByte() + 1 != chunkSize) {
+      throw new InvalidUploadChunkException();
+    }
+
+    return chunkRange;
+  }
+
+  private Path getUploadFile(UUID uploadId, CsvCompression compression) {
+    try {
+      Path uploadDirectory = Files.createDirectories(importConfiguration.getUploadDirectory());
+
+      return uploadDirectory.resolve(uploadId + compression.getFileSuffix());
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+  }
+
+  // returns the number of bytes received once the chunk is written, the part of a chunk sent again
+  // that was already received being skipped
+  private static long writeChunk(Path uploadFile, MultipartFile chunk, ChunkRange chunkRange) {
+    try {
+      long receivedBytes = Files.exists(uploadFile) ? Files.size(uploadFile) : 0;
+
+      if (receivedBytes > chunkRange.totalBytes()) {
+        throw new InvalidUploadChunkException();
+      }
+
+      if (chunkRange.firstByte() > receivedBytes) {
+        throw new InvalidUploadChunkException(
+            InvalidUploadChunkException.OFFSET_MESSAGE.formatted(
+                chunkRange.firstByte(), receivedBytes));
+      }
+
+      if (chunkRange.lastByte() < receivedBytes) {
+        return receivedBytes;
+      }
+
+      try (InputStream inputStream = chunk.getInputStream();
+          OutputStream outputStream =
+              Files.newOutputStream(
+                  uploadFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+        inputStream.skipNBytes(receivedBytes - chunkRange.firstByte());
+        inputStream.transferTo(outputStream);
+      }
+
+      return chunkRange.lastByte() + 1;
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+  }
+
+  // an upload expires once it has not received a chunk for the upload retention
+  private void evictExpiredUploads() {
+    Path uploadDirectory = importConfiguration.getUploadDirectory();
+
+    if (!Files.isDirectory(uploadDirectory)) {
+      return;
+    }
+
+    Instant expiry = clock.instant().minus(importConfiguration.getUploadRetention());
+    List<Path> uploadFiles;
+
+    try (Stream<Path> files = Files.list(uploadDirectory)) {
+      uploadFiles = files.toList();
+    } catch (IOException e) {
+      log.warn("[IMPORTS] Could not list upload directory {}: {}", uploadDirectory, e.getMessage());
+      return;
+    }
+
+    for (Path uploadFile : uploadFiles) {
+      String fileName = uploadFile.getFileName().toString();
+
+      if (fileName.length() < UPLOAD_ID_LENGTH || !isModifiedBefore(uploadFile, expiry)) {
+        continue;
+      }
+
+      UUID uploadId;
+
+      try {
+        uploadId = UUID.fromString(fileName.substring(0, UPLOAD_ID_LENGTH));
+      } catch (IllegalArgumentException e) {
+        // not an upload file
+        continue;
+      }
+
+      evictUpload(uploadId, uploadFile);
+    }
+  }
+
+  // an upload is only evicted if no chunk is being received for it, and it is not being imported
+  private void evictUpload(UUID uploadId, Path uploadFile) {
+    if (!busyUploadIds.add(uploadId)) {
+      return;
+    }
+
+    try {
+      if (importJobService.findUnfinishedUploadImportJob(uploadId).isEmpty()) {
+        deleteUpload(uploadId, uploadFile);
+      }
+    } finally {
+      busyUploadIds.remove(uploadId);
+    }
+  }
+
+  private static boolean isModifiedBefore(Path file, Instant instant) {
+    try {
+      return Files.getLastModifiedTime(file).toInstant().isBefore(instant);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void deleteUpload(UUID uploadId, Path uploadFile) {
+    importCheckpointDAO.deleteCheckpoint(uploadId);
+
+    try {
+      Files.deleteIfExists(uploadFile);
+    } catch (IOException e) {
+      log.warn("[IMPORTS] Could not delete upload file {}: {}", uploadFile, e.getMessage());
+    }
+  }
+
+  private record ChunkRange(long firstByte, long lastByte, long totalBytes) {}
+}
@@ -1,12 +1,25 @@
 package com.phorest.service;
 
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.request.PurchaseRequest;
+import com.phorest.model.response.ImportDryRunResponse;
 import com.phorest.model.response.PurchaseResponse;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface PurchaseService {
-  void createPurchasesFromFile(MultipartFile file);
+  void createPurchasesFromFile(MultipartFile file, ImportOptions importOptions);
+
+  void createPurchasesFromSpooledFile(Path spooledFile, ImportContext importContext);
+
+  /** Imports the csv file read from the stream, which is closed once consumed. */
+  void createPurchasesFromStream(InputStream inputStream, ImportContext importContext);
+
+  /** Checks the csv file as createPurchasesFromFile would import it, without importing it. */
+  ImportDryRunResponse dryRunPurchasesFromFile(MultipartFile file, ImportOptions importOptions);
 
   PurchaseResponse updatePurchase(UUID purchaseId, PurchaseRequest purchaseRequest);
 
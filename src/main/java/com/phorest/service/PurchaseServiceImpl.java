@@ -1,25 +1,21 @@
 package com.phorest.service;
 
-import com.phorest.exception.AppointmentNotFoundException;
 import com.phorest.exception.PurchaseNotFoundException;
-import com.phorest.model.csv.PurchaseCsvBean;
-import com.phorest.model.entity.Appointment;
+import com.phorest.mapper.PurchaseMapper;
 import com.phorest.model.entity.Purchase;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.request.PurchaseRequest;
+import com.phorest.model.response.ImportDryRunResponse;
 import com.phorest.model.response.PurchaseResponse;
-import com.phorest.repository.AppointmentRepository;
+import com.phorest.pipeline.CsvTableImporter;
+import com.phorest.pipeline.PurchaseCsvTable;
 import com.phorest.repository.PurchaseRepository;
-import com.phorest.validator.CsvBeanValidator;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -27,71 +23,39 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 @RequiredArgsConstructor
 public class PurchaseServiceImpl implements PurchaseService {
-  private static final int PURCHASE_FILE_PAGE_SIZE = 200;
-
-  private final CsvService csvService;
+  private final CsvTableImporter csvTableImporter;
+  private final PurchaseCsvTable purchaseCsvTable;
 
   private final PurchaseRepository purchaseRepository;
-  private final AppointmentRepository appointmentRepository;
-  private final CsvBeanValidator csvBeanValidator;
 
-  private final ModelMapper modelMapper;
+  private final PurchaseMapper purchaseMapper;
 
   @Override
-  @Transactional
-  public void createPurchasesFromFile(@NonNull MultipartFile file) {
-    int currentPageNumber = 0;
-    Page<PurchaseCsvBean> currentPurchasePage;
-    boolean isCurrentPageLast;
-
-    do {
-      currentPurchasePage =
-          csvService.getElementsFromCsvFile(
-              file, PurchaseCsvBean.class, currentPageNumber, PURCHASE_FILE_PAGE_SIZE);
-
-      createPurchasesInPage(currentPurchasePage);
+  public void createPurchasesFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-      isCurrentPageLast = currentPurchasePage.isLast();
-
-      currentPageNumber++;
-    } while (!isCurrentPageLast);
+    csvTableImporter.importFromFile(file, importOptions, purchaseCsvTable);
   }
 
-  private void createPurchasesInPage(Page<PurchaseCsvBean> purchasePage) {
-    List<PurchaseCsvBean> purchaseCsvBeans = purchasePage.getContent();
-
-    Set<UUID> appointmentIds =
-        purchaseCsvBeans.stream()
-            .map(PurchaseCsvBean::getAppointmentId)
-            .collect(Collectors.toSet());
-
-    Map<UUID, Appointment> appointmentsById =
-        appointmentRepository.findByIdIn(appointmentIds).stream()
-            .collect(Collectors.toMap(Appointment::getId, Function.identity()));
-
-    List<Purchase> purchases =
-        purchaseCsvBeans.stream()
-            .peek(csvBeanValidator::validateCsvBean)
-            .map(csvBean -> csvBeanToEntity(csvBean, appointmentsById))
-            .toList();
+  @Override
+  public void createPurchasesFromSpooledFile(
+      @NonNull Path spooledFile, @NonNull ImportContext importContext) {
 
-    purchaseRepository.saveAllAndFlush(purchases);
+    csvTableImporter.importFromSpooledFile(spooledFile, importContext, purchaseCsvTable);
   }
 
-  private Purchase csvBeanToEntity(
-      @NonNull PurchaseCsvBean csvBean, @NonNull Map<UUID, Appointment> appointmentsById) {
-
-    Purchase purchase = modelMapper.map(csvBean, Purchase.class);
-
-    Appointment appointment = appointmentsById.get(csvBean.getAppointmentId());
+  @Override
+  public void createPurchasesFromStream(
+      @NonNull InputStream inputStream, @NonNull ImportContext importContext) {
 
-    if (appointment == null) {
-      throw new AppointmentNotFoundException(csvBean.getAppointmentId());
-    }
+    csvTableImporter.importFromStream(inputStream, importContext, purchaseCsvTable);
+  }
 
-    appointment.addPurchase(purchase);
+  @Override
+  public ImportDryRunResponse dryRunPurchasesFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-    return purchase;
+    return csvTableImporter.dryRunFromFile(file, importOptions, purchaseCsvTable);
   }
 
   @Override
@@ -100,9 +64,9 @@ public class PurchaseServiceImpl implements PurchaseService {
       @NonNull UUID purchaseId, @NonNull PurchaseRequest purchaseRequest) {
     Purchase purchase = getPurchase(purchaseId);
 
-    modelMapper.map(purchaseRequest, purchase);
+    purchaseMapper.updatePurchase(purchaseRequest, purchase);
 
-    return modelMapper.map(purchase, PurchaseResponse.class);
+    return purchaseMapper.toPurchaseResponse(purchase);
   }
 
   @Override
@@ -118,7 +82,7 @@ public class PurchaseServiceImpl implements PurchaseService {
   public PurchaseResponse getPurchaseResponse(@NonNull UUID purchaseId) {
     Purchase purchase = getPurchase(purchaseId);
 
-    return modelMapper.map(purchase, PurchaseResponse.class);
+    return purchaseMapper.toPurchaseResponse(purchase);
   }
 
   private Purchase getPurchase(@NonNull UUID purchaseId) {
@@ -1,12 +1,25 @@
 package com.phorest.service;
 
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.request.ServiceRequest;
+import com.phorest.model.response.ImportDryRunResponse;
 import com.phorest.model.response.ServiceResponse;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface ServiceService {
-  void createServicesFromFile(MultipartFile file);
+  void createServicesFromFile(MultipartFile file, ImportOptions importOptions);
+
+  void createServicesFromSpooledFile(Path spooledFile, ImportContext importContext);
+
+  /** Imports the csv file read from the stream, which is closed once consumed. */
+  void createServicesFromStream(InputStream inputStream, ImportContext importContext);
+
+  /** Checks the csv file as createServicesFromFile would import it, without importing it. */
+  ImportDryRunResponse dryRunServicesFromFile(MultipartFile file, ImportOptions importOptions);
 
   ServiceResponse updateService(UUID serviceId, ServiceRequest serviceRequest);
 
@@ -1,94 +1,60 @@
 package com.phorest.service;
 
-import com.phorest.exception.AppointmentNotFoundException;
 import com.phorest.exception.ServiceNotFoundException;
-import com.phorest.model.csv.ServiceCsvBean;
-import com.phorest.model.entity.Appointment;
+import com.phorest.mapper.ServiceMapper;
 import com.phorest.model.entity.Service;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
 import com.phorest.model.request.ServiceRequest;
+import com.phorest.model.response.ImportDryRunResponse;
 import com.phorest.model.response.ServiceResponse;
-import com.phorest.repository.AppointmentRepository;
+import com.phorest.pipeline.CsvTableImporter;
+import com.phorest.pipeline.ServiceCsvTable;
 import com.phorest.repository.ServiceRepository;
-import com.phorest.validator.CsvBeanValidator;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 @RequiredArgsConstructor
 @org.springframework.stereotype.Service
 public class ServiceServiceImpl implements ServiceService {
-  private static final int SERVICE_FILE_PAGE_SIZE = 200;
-
-  private final CsvService csvService;
+  private final CsvTableImporter csvTableImporter;
+  private final ServiceCsvTable serviceCsvTable;
 
   private final ServiceRepository serviceRepository;
-  private final AppointmentRepository appointmentRepository;
-  private final CsvBeanValidator csvBeanValidator;
 
-  private final ModelMapper modelMapper;
+  private final ServiceMapper serviceMapper;
 
   @Override
-  @Transactional
-  public void createServicesFromFile(@NonNull MultipartFile file) {
-    int currentPageNumber = 0;
-    Page<ServiceCsvBean> currentServicePage;
-    boolean isCurrentPageLast;
-
-    do {
-      currentServicePage =
-          csvService.getElementsFromCsvFile(
-              file, ServiceCsvBean.class, currentPageNumber, SERVICE_FILE_PAGE_SIZE);
-
-      createServicesInPage(currentServicePage);
+  public void createServicesFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-      isCurrentPageLast = currentServicePage.isLast();
-
-      currentPageNumber++;
-    } while (!isCurrentPageLast);
+    csvTableImporter.importFromFile(file, importOptions, serviceCsvTable);
   }
 
-  private void createServicesInPage(Page<ServiceCsvBean> servicePage) {
-    List<ServiceCsvBean> serviceCsvBeans = servicePage.getContent();
-
-    Set<UUID> appointmentIds =
-        serviceCsvBeans.stream().map(ServiceCsvBean::getAppointmentId).collect(Collectors.toSet());
-
-    Map<UUID, Appointment> appointmentsById =
-        appointmentRepository.findByIdIn(appointmentIds).stream()
-            .collect(Collectors.toMap(Appointment::getId, Function.identity()));
-
-    List<Service> services =
-        serviceCsvBeans.stream()
-            .peek(csvBeanValidator::validateCsvBean)
-            .map(csvBean -> csvBeanToEntity(csvBean, appointmentsById))
-            .toList();
+  @Override
+  public void createServicesFromSpooledFile(
+      @NonNull Path spooledFile, @NonNull ImportContext importContext) {
 
-    serviceRepository.saveAllAndFlush(services);
+    csvTableImporter.importFromSpooledFile(spooledFile, importContext, serviceCsvTable);
   }
 
-  private Service csvBeanToEntity(
-      @NonNull ServiceCsvBean csvBean, @NonNull Map<UUID, Appointment> appointmentsById) {
-
-    Service service = modelMapper.map(csvBean, Service.class);
-
-    Appointment appointment = appointmentsById.get(csvBean.getAppointmentId());
+  @Override
+  public void createServicesFromStream(
+      @NonNull InputStream inputStream, @NonNull ImportContext importContext) {
 
-    if (appointment == null) {
-      throw new AppointmentNotFoundException(csvBean.getAppointmentId());
-    }
+    csvTableImporter.importFromStream(inputStream, importContext, serviceCsvTable);
+  }
 
-    appointment.addService(service);
+  @Override
+  public ImportDryRunResponse dryRunServicesFromFile(
+      @NonNull MultipartFile file, @NonNull ImportOptions importOptions) {
 
-    return service;
+    return csvTableImporter.dryRunFromFile(file, importOptions, serviceCsvTable);
   }
 
   @Override
@@ -97,9 +63,9 @@ public class ServiceServiceImpl implements ServiceService {
       @NonNull UUID serviceId, @NonNull ServiceRequest serviceRequest) {
     Service service = getService(serviceId);
 
-    modelMapper.map(serviceRequest, service);
+    serviceMapper.updateService(serviceRequest, service);
 
-    return modelMapper.map(service, ServiceResponse.class);
+    return serviceMapper.toServiceResponse(service);
   }
 
   @Override
@@ -115,7 +81,7 @@ public class ServiceServiceImpl implements ServiceService {
   public ServiceResponse getServiceResponse(@NonNull UUID serviceId) {
     Service service = getService(serviceId);
 
-    return modelMapper.map(service, ServiceResponse.class);
+    return serviceMapper.toServiceResponse(service);
   }
 
   private Service getService(@NonNull UUID serviceId) {
@@ -0,0 +1,39 @@
+package com.phorest.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/** Reads the remaining bytes of a buffer, e.g. of a memory-mapped region of a file. */
+public class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer buffer;
+
+  public ByteBufferInputStream(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public int read() {
+    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+
+    if (!buffer.hasRemaining()) {
+      return -1;
+    }
+
+    int read = Math.min(length, buffer.remaining());
+    buffer.get(bytes, offset, read);
+
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+}
@@ -0,0 +1,41 @@
+package com.phorest.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ContentHashUtils {
+  // the content hash of a row that has none, which no row hashes to
+  public static final long NO_CONTENT_HASH = 0;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  // follows every value, so that moving characters from one value to the next changes the hash
+  private static final char VALUE_SEPARATOR = '\u001f';
+
+  /**
+   * Hashes the text values of the columns of a row into 64 bits, with FNV-1a spread by the
+   * finalizer of MurmurHash3, so that two rows with the same id only get the same hash if their
+   * values are equal, barring a one in 2^64 collision.
+   */
+  public static long hashValues(String... values) {
+    long hash = FNV_OFFSET_BASIS;
+
+    for (String value : values) {
+      for (int i = 0; i < value.length(); i++) {
+        hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+      }
+
+      hash = (hash ^ VALUE_SEPARATOR) * FNV_PRIME;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return hash == NO_CONTENT_HASH ? 1 : hash;
+  }
+}
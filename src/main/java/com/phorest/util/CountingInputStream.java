@@ -0,0 +1,47 @@
+package com.phorest.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/** Reports the number of bytes read through it, e.g. to track the progress of an import. */
+public class CountingInputStream extends FilterInputStream {
+  private final LongConsumer bytesReadConsumer;
+
+  public CountingInputStream(InputStream inputStream, LongConsumer bytesReadConsumer) {
+    super(inputStream);
+
+    this.bytesReadConsumer = bytesReadConsumer;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int value = super.read();
+
+    if (value != -1) {
+      bytesReadConsumer.accept(1);
+    }
+
+    return value;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int bytesRead = super.read(buffer, offset, length);
+
+    if (bytesRead > 0) {
+      bytesReadConsumer.accept(bytesRead);
+    }
+
+    return bytesRead;
+  }
+
+  @Override
+  public long skip(long length) throws IOException {
+    long bytesSkipped = super.skip(length);
+    bytesReadConsumer.accept(bytesSkipped);
+
+    return bytesSkipped;
+  }
+}
@@ -0,0 +1,19 @@
+package com.phorest.util;
+
+import lombok.Value;
+
+/**
+ * A byte range of a csv file starting at the beginning of a record, along with the number of
+ * physical lines and of records, header included, preceding it in the file.
+ */
+@Value
+public class CsvChunk {
+  long start;
+  long end;
+  long precedingLines;
+  long precedingRecords;
+
+  public long getLength() {
+    return end - start;
+  }
+}
@@ -0,0 +1,124 @@
+package com.phorest.util;
+
+import static com.phorest.util.CsvQuoteState.EOF;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits a csv file into chunks that can be tokenized independently, one chunk at a time, by
+ * applying the quoting rules of CsvTokenizer to the raw bytes without building any field. Only
+ * ascii characters matter to those rules, and utf-8 never uses ascii bytes within multi-byte
+ * characters, so the bytes do not need to be decoded. Each chunk is only scanned once it is asked
+ * for, so that the file can be split as its first chunks are tokenized. Not thread-safe.
+ */
+public class CsvChunkScanner {
+  // the file is mapped one window at a time, each overlapping the next by one byte of lookahead
+  private static final long SCAN_WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long chunkSize;
+
+  private final CsvQuoteState quoteState = new CsvQuoteState();
+
+  // where the next chunk starts, and the physical lines and records preceding it
+  private long chunkStart;
+  private long lines;
+  private long records;
+
+  private boolean exhausted;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  public CsvChunkScanner(FileChannel channel, long chunkSize) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Returns the next chunk of the file, ending at the first record boundary after chunkSize bytes,
+   * or null once the whole file has been split. There is always at least one chunk, starting at the
+   * beginning of the file.
+   */
+  public CsvChunk nextChunk() throws IOException {
+    if (exhausted) {
+      return null;
+    }
+
+    long start = chunkStart;
+    long precedingLines = lines;
+    long precedingRecords = records;
+
+    long end = scanChunk();
+    exhausted = end == size;
+
+    return new CsvChunk(start, end, precedingLines, precedingRecords);
+  }
+
+  // returns the end of the chunk starting at the chunk start, which then moves to it
+  private long scanChunk() throws IOException {
+    for (long position = chunkStart; position < size; position++) {
+      int b = getByte(position);
+      int next = position + 1 < size ? getByte(position + 1) : EOF;
+
+      if (b == '\n' || b == '\r') {
+        if (b == '\r' && next == '\n') {
+          position++;
+        }
+
+        lines++;
+
+        // a line break within quotes continues the current record
+        if (quoteState.isInQuotes()) {
+          continue;
+        }
+
+        quoteState.startRecord();
+        records++;
+
+        long recordEnd = position + 1;
+
+        if (recordEnd - chunkStart >= chunkSize && recordEnd < size) {
+          chunkStart = recordEnd;
+
+          return recordEnd;
+        }
+
+        continue;
+      }
+
+      if (next == '\n' || next == '\r') {
+        next = EOF;
+      }
+
+      CsvQuoteState.Token token = quoteState.next(b, next);
+
+      // the byte after an escape or a doubled quote is part of the same token
+      if (token == CsvQuoteState.Token.ESCAPED_CHARACTER
+          || token == CsvQuoteState.Token.DOUBLED_QUOTE) {
+        position++;
+      }
+    }
+
+    chunkStart = size;
+
+    return size;
+  }
+
+  private int getByte(long position) throws IOException {
+    if (window == null || position >= windowStart + window.limit()) {
+      windowStart = position;
+      window =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              windowStart,
+              Math.min(SCAN_WINDOW_SIZE + 1, size - windowStart));
+    }
+
+    return window.get((int) (position - windowStart)) & 0xff;
+  }
+}
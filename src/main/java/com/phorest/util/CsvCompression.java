@@ -0,0 +1,89 @@
+package com.phorest.util;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The compressions a csv file can be uploaded with, given by its content type, or by the
+ * Content-Encoding of a text/csv file. Compressed files are decompressed as they are read, through
+ * a bounded buffer, and are never held decompressed in memory or on disk.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CsvCompression {
+  NONE(List.of("text/csv"), List.of("identity"), ".csv") {
+    @Override
+    public InputStream decompress(InputStream inputStream) {
+      return inputStream;
+    }
+  },
+  GZIP(List.of("application/gzip", "application/x-gzip"), List.of("gzip", "x-gzip"), ".csv.gz") {
+    @Override
+    public InputStream decompress(InputStream inputStream) throws IOException {
+      return new GZIPInputStream(inputStream, CsvUtils.CSV_READER_BUFFER_SIZE);
+    }
+  },
+  // decompressed in pure Java, without a native library
+  ZSTD(List.of("application/zstd"), List.of("zstd"), ".csv.zst") {
+    @Override
+    public InputStream decompress(InputStream inputStream) {
+      return new ZstdInputStream(inputStream);
+    }
+  };
+
+  private final List<String> contentTypes;
+  private final List<String> contentEncodings;
+
+  // the suffix of the files spooled with the compression, which keep it
+  private final String fileSuffix;
+
+  /** Wraps the stream of compressed bytes in a stream of the decompressed ones. */
+  public abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+  /**
+   * The compression of an uploaded file, given by its content type, or by its Content-Encoding for
+   * a text/csv file, empty if it is not a csv file.
+   */
+  public static Optional<CsvCompression> fromUpload(String contentType, String contentEncoding) {
+    return NONE.contentTypes.contains(contentType)
+        ? fromContentEncoding(contentEncoding)
+        : fromContentType(contentType);
+  }
+
+  public static Optional<CsvCompression> fromContentType(String contentType) {
+    return Arrays.stream(values())
+        .filter(compression -> compression.contentTypes.contains(contentType))
+        .findFirst();
+  }
+
+  // a missing Content-Encoding means the file is not compressed
+  public static Optional<CsvCompression> fromContentEncoding(String contentEncoding) {
+    if (contentEncoding == null) {
+      return Optional.of(NONE);
+    }
+
+    String normalizedContentEncoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+
+    return Arrays.stream(values())
+        .filter(compression -> compression.contentEncodings.contains(normalizedContentEncoding))
+        .findFirst();
+  }
+
+  public static CsvCompression fromFileName(Path file) {
+    String fileName = file.getFileName().toString();
+
+    return Arrays.stream(values())
+        .filter(compression -> compression != NONE && fileName.endsWith(compression.fileSuffix))
+        .findFirst()
+        .orElse(NONE);
+  }
+}
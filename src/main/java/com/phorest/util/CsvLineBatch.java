@@ -0,0 +1,196 @@
+package com.phorest.util;
+
+import java.util.Arrays;
+
+/**
+ * A batch of csv lines copied out of a CsvTokenizer into flat arrays, so that it can be handed to
+ * another thread without keeping one object per line or per field. Fields are materialized as
+ * strings only when asked for.
+ */
+public class CsvLineBatch {
+  private static final int INITIAL_CHARS_PER_LINE = 128;
+  private static final int INITIAL_FIELDS_PER_LINE = 8;
+
+  // unquoted content of every field of every line, back to back
+  private char[] chars;
+  private int charCount;
+
+  private int[] fieldEnds;
+  private int fieldCount;
+
+  // index of the first field of each line, in fieldEnds
+  private int[] firstFields;
+  private long[] lineNumbers;
+  private int lineCount;
+
+  // where the file can be read again from right after the last line, only kept track of for the
+  // lines read from a tokenizer in file order
+  private long endByteOffset;
+  private long endLineCount;
+
+  public CsvLineBatch(int lineCapacity) {
+    this.chars = new char[lineCapacity * INITIAL_CHARS_PER_LINE];
+    this.fieldEnds = new int[lineCapacity * INITIAL_FIELDS_PER_LINE];
+    this.firstFields = new int[lineCapacity + 1];
+    this.lineNumbers = new long[lineCapacity];
+  }
+
+  /** Appends a copy of the current record of the tokenizer. */
+  public void add(CsvTokenizer tokenizer) {
+    int recordFieldCount = tokenizer.getFieldCount();
+    int recordLength = tokenizer.getFieldEnd(recordFieldCount - 1);
+
+    ensureCapacity(recordLength, recordFieldCount, 1);
+
+    System.arraycopy(tokenizer.getRecordChars(), 0, chars, charCount, recordLength);
+
+    for (int field = 0; field < recordFieldCount; field++) {
+      fieldEnds[fieldCount + field] = charCount + tokenizer.getFieldEnd(field);
+    }
+
+    appendLine(tokenizer.getLineNumber(), recordLength, recordFieldCount);
+
+    endByteOffset = tokenizer.getByteOffset();
+    endLineCount = tokenizer.getLineCount();
+  }
+
+  /** Appends a copy of all the lines of the other batch. */
+  public void addAll(CsvLineBatch other) {
+    ensureCapacity(other.charCount, other.fieldCount, other.lineCount);
+
+    System.arraycopy(other.chars, 0, chars, charCount, other.charCount);
+
+    for (int field = 0; field < other.fieldCount; field++) {
+      fieldEnds[fieldCount + field] = charCount + other.fieldEnds[field];
+    }
+
+    for (int line = 0; line < other.lineCount; line++) {
+      lineNumbers[lineCount + line] = other.lineNumbers[line];
+      firstFields[lineCount + line] = fieldCount + other.firstFields[line];
+    }
+
+    charCount += other.charCount;
+    fieldCount += other.fieldCount;
+    lineCount += other.lineCount;
+    firstFields[lineCount] = fieldCount;
+
+    endByteOffset = other.endByteOffset;
+    endLineCount = other.endLineCount;
+  }
+
+  /** Appends a copy of a single line of the other batch. */
+  public void add(CsvLineBatch other, int line) {
+    int firstField = other.firstFields[line];
+    int lineFieldCount = other.firstFields[line + 1] - firstField;
+    int lineStart = firstField == 0 ? 0 : other.fieldEnds[firstField - 1];
+    int lineEnd =
+        lineFieldCount == 0 ? lineStart : other.fieldEnds[firstField + lineFieldCount - 1];
+
+    ensureCapacity(lineEnd - lineStart, lineFieldCount, 1);
+
+    System.arraycopy(other.chars, lineStart, chars, charCount, lineEnd - lineStart);
+
+    for (int field = 0; field < lineFieldCount; field++) {
+      fieldEnds[fieldCount + field] = charCount + other.fieldEnds[firstField + field] - lineStart;
+    }
+
+    appendLine(other.lineNumbers[line], lineEnd - lineStart, lineFieldCount);
+  }
+
+  /** Appends a line whose fields are the slices of the chars ending at the given field ends. */
+  public void add(long lineNumber, char[] lineChars, int[] lineFieldEnds, int lineFieldCount) {
+    int lineLength = lineFieldCount == 0 ? 0 : lineFieldEnds[lineFieldCount - 1];
+
+    ensureCapacity(lineLength, lineFieldCount, 1);
+
+    System.arraycopy(lineChars, 0, chars, charCount, lineLength);
+
+    for (int field = 0; field < lineFieldCount; field++) {
+      fieldEnds[fieldCount + field] = charCount + lineFieldEnds[field];
+    }
+
+    appendLine(lineNumber, lineLength, lineFieldCount);
+  }
+
+  /** Removes every line, keeping the arrays for the lines added next. */
+  public void clear() {
+    charCount = 0;
+    fieldCount = 0;
+    lineCount = 0;
+  }
+
+  public int size() {
+    return lineCount;
+  }
+
+  public boolean isEmpty() {
+    return lineCount == 0;
+  }
+
+  /** Returns the byte offset in the file of the end of the last line read from a tokenizer. */
+  public long getEndByteOffset() {
+    return endByteOffset;
+  }
+
+  /** Returns the number of physical lines of the file up to the last line read from a tokenizer. */
+  public long getEndLineCount() {
+    return endLineCount;
+  }
+
+  /** Returns the number of the physical line the given line starts on in the csv file. */
+  public long getLineNumber(int line) {
+    return lineNumbers[line];
+  }
+
+  public int getFieldCount(int line) {
+    return firstFields[line + 1] - firstFields[line];
+  }
+
+  /** Returns the array holding the fields of the batch, as slices given by the field bounds. */
+  public char[] getChars() {
+    return chars;
+  }
+
+  public int getFieldStart(int line, int field) {
+    int index = firstFields[line] + field;
+
+    return index == 0 ? 0 : fieldEnds[index - 1];
+  }
+
+  public int getFieldEnd(int line, int field) {
+    return fieldEnds[firstFields[line] + field];
+  }
+
+  public String getField(int line, int field) {
+    int fieldStart = getFieldStart(line, field);
+
+    return new String(chars, fieldStart, getFieldEnd(line, field) - fieldStart);
+  }
+
+  private void appendLine(long lineNumber, int lineLength, int lineFieldCount) {
+    lineNumbers[lineCount] = lineNumber;
+    firstFields[lineCount] = fieldCount;
+
+    charCount += lineLength;
+    fieldCount += lineFieldCount;
+    lineCount++;
+    firstFields[lineCount] = fieldCount;
+  }
+
+  private void ensureCapacity(int addedChars, int addedFields, int addedLines) {
+    if (charCount + addedChars > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + addedChars));
+    }
+
+    if (fieldCount + addedFields > fieldEnds.length) {
+      fieldEnds =
+          Arrays.copyOf(fieldEnds, Math.max(fieldEnds.length * 2, fieldCount + addedFields));
+    }
+
+    if (lineCount + addedLines > lineNumbers.length) {
+      lineNumbers =
+          Arrays.copyOf(lineNumbers, Math.max(lineNumbers.length * 2, lineCount + addedLines));
+      firstFields = Arrays.copyOf(firstFields, lineNumbers.length + 1);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.phorest.util;
+
+/**
+ * The quoting rules records are split by, shared by CsvTokenizer, which unquotes the fields, and
+ * CsvChunkScanner, which only looks for the record boundaries, so that both always agree on where a
+ * record ends. Tracks whether the current position is within quotes, and within a field.
+ */
+class CsvQuoteState {
+  static final int EOF = -1;
+
+  static final char SEPARATOR = ',';
+  static final char QUOTE = '"';
+  static final char ESCAPE = '\\';
+
+  /** What a character of a record is, once the quoting rules are applied to it. */
+  enum Token {
+    // a character of the current field
+    CHARACTER,
+    // a backslash escaping the next character, which is a character of the current field
+    ESCAPED_CHARACTER,
+    // a backslash followed by a character it does not escape, which is dropped
+    DROPPED_ESCAPE,
+    // a quote followed by another, which stands for a quote of the current field
+    DOUBLED_QUOTE,
+    // a quote opening or closing a quoted part of the current field
+    QUOTE,
+    // the separator ending the current field
+    SEPARATOR
+  }
+
+  private boolean inQuotes;
+  private boolean inField;
+
+  /** Starts a new record, outside of any quotes. */
+  void startRecord() {
+    inQuotes = false;
+    inField = false;
+  }
+
+  boolean isInQuotes() {
+    return inQuotes;
+  }
+
+  /**
+   * Applies the quoting rules to a character of a record which is not a line break, given the
+   * character following it on the same physical line, or EOF. The next character is part of the
+   * token, and has to be skipped, if the token is an escaped character or a doubled quote.
+   */
+  Token next(int c, int next) {
+    if (c == ESCAPE) {
+      inField = true;
+
+      return next == QUOTE || next == ESCAPE || next == SEPARATOR
+          ? Token.ESCAPED_CHARACTER
+          : Token.DROPPED_ESCAPE;
+    }
+
+    if (c == QUOTE) {
+      boolean doubled = (inQuotes || inField) && next == QUOTE;
+
+      if (!doubled) {
+        inQuotes = !inQuotes;
+      }
+
+      inField = !inField;
+
+      return doubled ? Token.DOUBLED_QUOTE : Token.QUOTE;
+    }
+
+    if (c == SEPARATOR && !inQuotes) {
+      inField = false;
+
+      return Token.SEPARATOR;
+    }
+
+    inField = true;
+
+    return Token.CHARACTER;
+  }
+}
@@ -0,0 +1,298 @@
+package com.phorest.util;
+
+import static com.phorest.util.CsvQuoteState.EOF;
+import static com.phorest.util.CsvQuoteState.QUOTE;
+import static com.phorest.util.CsvQuoteState.SEPARATOR;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits csv text into records and fields over reusable buffers, so that reading a record allocates
+ * nothing once the buffers have grown to the size of the largest record.
+ *
+ * <p>Fields are unquoted exactly like OpenCSV's default parser, which the imports used before:
+ * quoted fields may contain separators, doubled quotes and line breaks (normalized to \n), and a
+ * backslash escapes a following quote, backslash or separator, as the rules of CsvQuoteState tell.
+ * The fields of the current record are exposed as slices of a shared char array, which are only
+ * valid until the next record is read.
+ */
+public class CsvTokenizer implements Closeable {
+  private static final int INITIAL_RECORD_CAPACITY = 256;
+  private static final int INITIAL_FIELD_CAPACITY = 16;
+
+  private final Reader reader;
+  private final CsvQuoteState quoteState = new CsvQuoteState();
+
+  private final char[] buffer;
+  private int bufferPosition;
+  private int bufferLimit;
+
+  // unquoted content of the fields of the current record, back to back
+  private char[] recordChars = new char[INITIAL_RECORD_CAPACITY];
+  private int recordLength;
+
+  private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+  private int fieldCount;
+
+  private long physicalLines;
+  private long lineNumber;
+
+  // utf-8 length of the characters read before the counted position of the buffer, which is only
+  // brought up to date when the byte offset is asked for or the buffer is refilled
+  private long bytes;
+  private int countedPosition;
+
+  public CsvTokenizer(Reader reader, int bufferSize) {
+    this(reader, bufferSize, 0);
+  }
+
+  /** Reads a part of a csv file, which starts after the given number of physical lines. */
+  public CsvTokenizer(Reader reader, int bufferSize, long precedingLines) {
+    this(reader, bufferSize, precedingLines, 0);
+  }
+
+  /**
+   * Reads a part of a csv file, which starts after the given number of physical lines, at the given
+   * byte offset.
+   */
+  public CsvTokenizer(Reader reader, int bufferSize, long precedingLines, long precedingBytes) {
+    this.reader = reader;
+    this.buffer = new char[bufferSize];
+    this.physicalLines = precedingLines;
+    this.bytes = precedingBytes;
+  }
+
+  /**
+   * Reads the next record, returning false once the input is exhausted. Throws an EOFException if
+   * the input ends inside a quoted field.
+   */
+  public boolean nextRecord() throws IOException {
+    int c = read();
+
+    if (c == EOF) {
+      return false;
+    }
+
+    recordLength = 0;
+    fieldCount = 0;
+    lineNumber = ++physicalLines;
+
+    quoteState.startRecord();
+
+    // position of c in its physical line, and the character preceding it on that line
+    int column = 0;
+    int previous = EOF;
+
+    while (true) {
+      if (c == EOF || c == '\n' || c == '\r') {
+        if (c == '\r' && peek() == '\n') {
+          read();
+        }
+
+        if (!quoteState.isInQuotes()) {
+          endField();
+          return true;
+        }
+
+        if (c == EOF) {
+          throw new EOFException("Unterminated quoted field in the record on line " + lineNumber);
+        }
+
+        // a quoted field spanning several physical lines
+        append('\n');
+        physicalLines++;
+
+        column = 0;
+        previous = EOF;
+        c = read();
+
+        continue;
+      }
+
+      int next = peekInLine();
+      int consumed = c;
+
+      switch (quoteState.next(c, next)) {
+        case CHARACTER -> append((char) c);
+        case ESCAPED_CHARACTER -> {
+          consumed = read();
+          column++;
+          append((char) consumed);
+        }
+        case DROPPED_ESCAPE -> {
+          // the backslash is not part of the field
+        }
+        case DOUBLED_QUOTE -> {
+          consumed = read();
+          column++;
+          append(QUOTE);
+        }
+        case QUOTE -> {
+          // a quote in the middle of a field is kept as it is, unless only whitespace precedes it
+          if (column >= 3 && previous != SEPARATOR && next != EOF && next != SEPARATOR) {
+            if (isCurrentFieldBlank()) {
+              recordLength = getFieldStart(fieldCount);
+            } else {
+              append(QUOTE);
+            }
+          }
+        }
+        case SEPARATOR -> endField();
+      }
+
+      previous = consumed;
+      column++;
+      c = read();
+    }
+  }
+
+  /** Returns the number of the physical line the current record starts on, counting from 1. */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Returns the number of physical lines read so far, those preceding the part of the file being
+   * read included, which is where a tokenizer reading the rest of the file starts from.
+   */
+  public long getLineCount() {
+    return physicalLines;
+  }
+
+  /**
+   * Returns the offset in the file of the end of the current record, its line break included. The
+   * offset is only exact if the reader reports malformed utf-8, as the readers CsvUtils builds do.
+   */
+  public long getByteOffset() {
+    countBytes(bufferPosition);
+
+    return bytes;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /** Returns the array holding the current record, only valid until the next record is read. */
+  public char[] getRecordChars() {
+    return recordChars;
+  }
+
+  public int getFieldStart(int field) {
+    return field == 0 ? 0 : fieldEnds[field - 1];
+  }
+
+  public int getFieldEnd(int field) {
+    return fieldEnds[field];
+  }
+
+  public String getField(int field) {
+    int fieldStart = getFieldStart(field);
+
+    return new String(recordChars, fieldStart, fieldEnds[field] - fieldStart);
+  }
+
+  public String[] getFields() {
+    String[] fields = new String[fieldCount];
+
+    for (int field = 0; field < fieldCount; field++) {
+      fields[field] = getField(field);
+    }
+
+    return fields;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private void append(char c) {
+    if (recordLength == recordChars.length) {
+      recordChars = Arrays.copyOf(recordChars, recordChars.length * 2);
+    }
+
+    recordChars[recordLength++] = c;
+  }
+
+  private void endField() {
+    if (fieldCount == fieldEnds.length) {
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+    }
+
+    fieldEnds[fieldCount++] = recordLength;
+  }
+
+  private boolean isCurrentFieldBlank() {
+    int fieldStart = getFieldStart(fieldCount);
+
+    if (fieldStart == recordLength) {
+      return false;
+    }
+
+    for (int i = fieldStart; i < recordLength; i++) {
+      if (!Character.isWhitespace(recordChars[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private int read() throws IOException {
+    if (bufferPosition == bufferLimit && !fill()) {
+      return EOF;
+    }
+
+    return buffer[bufferPosition++];
+  }
+
+  private int peek() throws IOException {
+    if (bufferPosition == bufferLimit && !fill()) {
+      return EOF;
+    }
+
+    return buffer[bufferPosition];
+  }
+
+  // the next character if it is on the same physical line, EOF otherwise
+  private int peekInLine() throws IOException {
+    int next = peek();
+
+    return next == '\n' || next == '\r' ? EOF : next;
+  }
+
+  // a surrogate pair is 4 bytes long in utf-8, 2 for each of its characters
+  private void countBytes(int position) {
+    for (int i = countedPosition; i < position; i++) {
+      char c = buffer[i];
+      bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    countedPosition = position;
+  }
+
+  private boolean fill() throws IOException {
+    countBytes(bufferLimit);
+
+    int read;
+
+    do {
+      read = reader.read(buffer, 0, buffer.length);
+    } while (read == 0);
+
+    if (read == EOF) {
+      return false;
+    }
+
+    bufferPosition = 0;
+    bufferLimit = read;
+    countedPosition = 0;
+
+    return true;
+  }
+}
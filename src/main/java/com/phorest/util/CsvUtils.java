@@ -1,14 +1,49 @@
 package com.phorest.util;
 
 import com.opencsv.CSVReader;
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class CsvUtils {
+  // bounds the heap used per csv reader or tokenizer, whatever the size of the file being read
+  public static final int CSV_READER_BUFFER_SIZE = 64 * 1024;
+
   public static CSVReader buildCsvReader(byte[] array) {
-    return new CSVReader(new InputStreamReader(new ByteArrayInputStream(array)));
+    return buildCsvReader(new ByteArrayInputStream(array));
+  }
+
+  public static CSVReader buildCsvReader(InputStream inputStream) {
+    return buildCsvReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+  }
+
+  public static CsvTokenizer buildCsvTokenizer(InputStream inputStream) {
+    return buildCsvTokenizer(inputStream, 0);
+  }
+
+  public static CsvTokenizer buildCsvTokenizer(InputStream inputStream, long precedingLines) {
+    return buildCsvTokenizer(inputStream, precedingLines, 0);
+  }
+
+  public static CsvTokenizer buildCsvTokenizer(
+      InputStream inputStream, long precedingLines, long precedingBytes) {
+
+    // the byte offsets of the tokenizer are counted from the decoded characters, so malformed utf-8
+    // is reported rather than replaced, which would count a replacement character for any bytes
+    return new CsvTokenizer(
+        new InputStreamReader(inputStream, StandardCharsets.UTF_8.newDecoder()),
+        CSV_READER_BUFFER_SIZE,
+        precedingLines,
+        precedingBytes);
+  }
+
+  private static CSVReader buildCsvReader(Reader reader) {
+    return new CSVReader(new BufferedReader(reader, CSV_READER_BUFFER_SIZE));
   }
 }
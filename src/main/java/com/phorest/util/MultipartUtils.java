@@ -0,0 +1,26 @@
+package com.phorest.util;
+
+import java.util.Optional;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class MultipartUtils {
+  /**
+   * The compression of the uploaded file, given by its content type, or by the Content-Encoding of
+   * its part for a text/csv file, which the multipart file does not expose and which is read once
+   * from the headers of the part. Empty if the file is not a csv file.
+   */
+  public static Optional<CsvCompression> getCsvCompression(
+      MultipartHttpServletRequest request, MultipartFile file) {
+
+    HttpHeaders headers = request.getMultipartHeaders(file.getName());
+    String contentEncoding =
+        headers == null ? null : headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+
+    return CsvCompression.fromUpload(file.getContentType(), contentEncoding);
+  }
+}
@@ -0,0 +1,83 @@
+package com.phorest.util;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A map of UUIDs to longs stored as triples of longs in a single open-addressed array, laid out
+ * like a UuidSet, so that it allocates nothing per entry and takes 24 bytes per slot, around 32
+ * bytes per entry at its load factor, instead of the 100 or so bytes of a HashMap entry with its
+ * UUID and Long. Not thread-safe.
+ */
+public class UuidLongMap extends UuidSlots {
+  // most and least significant bits of the id, followed by its value
+  private static final int SLOT_LENGTH = 3;
+
+  private long nilValue;
+
+  public UuidLongMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  public UuidLongMap(int expectedSize) {
+    super(SLOT_LENGTH, expectedSize);
+  }
+
+  /** Maps the id to the value, replacing the value it was mapped to, if any. */
+  public void put(UUID id, long value) {
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+
+    if (isNil(mostSignificantBits, leastSignificantBits)) {
+      addNil();
+      nilValue = value;
+
+      return;
+    }
+
+    int slot = findSlot(mostSignificantBits, leastSignificantBits);
+    slots[slot + 2] = value;
+
+    if (!isOccupied(slot)) {
+      occupy(slot, mostSignificantBits, leastSignificantBits);
+    }
+  }
+
+  public boolean containsKey(UUID id) {
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+
+    if (isNil(mostSignificantBits, leastSignificantBits)) {
+      return containsNil();
+    }
+
+    return isOccupied(findSlot(mostSignificantBits, leastSignificantBits));
+  }
+
+  /** Returns the value the id is mapped to, or the default value if it is not in the map. */
+  public long get(UUID id, long defaultValue) {
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+
+    if (isNil(mostSignificantBits, leastSignificantBits)) {
+      return containsNil() ? nilValue : defaultValue;
+    }
+
+    int slot = findSlot(mostSignificantBits, leastSignificantBits);
+
+    return isOccupied(slot) ? slots[slot + 2] : defaultValue;
+  }
+
+  /** Hands every id of the map to the action, in no particular order. */
+  public void forEachKey(Consumer<UUID> action) {
+    if (containsNil()) {
+      action.accept(new UUID(0, 0));
+    }
+
+    for (int slot = 0; slot < slots.length; slot += SLOT_LENGTH) {
+      if (isOccupied(slot)) {
+        action.accept(new UUID(slots[slot], slots[slot + 1]));
+      }
+    }
+  }
+}
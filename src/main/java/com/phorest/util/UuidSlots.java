@@ -0,0 +1,133 @@
+package com.phorest.util;
+
+/**
+ * The open-addressed array of slots UuidSet and UuidLongMap store their ids in, so that they
+ * allocate nothing per id. Each slot is a run of longs holding the most and least significant bits
+ * of an id, followed by the values it is mapped to, if any. Not thread-safe.
+ *
+ * <p>Collisions are resolved by linear probing, which keeps the probes of a lookup on neighbouring
+ * cache lines. The nil UUID marks the empty slots, and is tracked on its own.
+ */
+abstract class UuidSlots {
+  static final int MINIMUM_CAPACITY = 16;
+  // the largest capacity whose slots still fit in an array
+  private static final int MAXIMUM_CAPACITY = 1 << 29;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  private final int slotLength;
+
+  long[] slots;
+  private int mask;
+  private int resizeThreshold;
+
+  private int size;
+  private boolean containsNil;
+
+  UuidSlots(int slotLength, int expectedSize) {
+    this.slotLength = slotLength;
+    allocate(capacityFor(expectedSize));
+  }
+
+  public int size() {
+    return containsNil ? size + 1 : size;
+  }
+
+  static boolean isNil(long mostSignificantBits, long leastSignificantBits) {
+    return mostSignificantBits == 0 && leastSignificantBits == 0;
+  }
+
+  boolean containsNil() {
+    return containsNil;
+  }
+
+  /** Adds the nil id, returning false if it was already added. */
+  boolean addNil() {
+    boolean added = !containsNil;
+    containsNil = true;
+
+    return added;
+  }
+
+  /** Returns the slot holding the id, which must not be nil, or the empty slot it would fill. */
+  int findSlot(long mostSignificantBits, long leastSignificantBits) {
+    int slot = (hash(mostSignificantBits, leastSignificantBits) & mask) * slotLength;
+
+    while (isOccupied(slot)) {
+      if (slots[slot] == mostSignificantBits && slots[slot + 1] == leastSignificantBits) {
+        return slot;
+      }
+
+      slot += slotLength;
+
+      if (slot == slots.length) {
+        slot = 0;
+      }
+    }
+
+    return slot;
+  }
+
+  boolean isOccupied(int slot) {
+    return slots[slot] != 0 || slots[slot + 1] != 0;
+  }
+
+  /**
+   * Fills the empty slot found for the id, whose values must have been set beforehand, as the slots
+   * are moved to a larger array once too many of them are filled.
+   */
+  void occupy(int slot, long mostSignificantBits, long leastSignificantBits) {
+    slots[slot] = mostSignificantBits;
+    slots[slot + 1] = leastSignificantBits;
+
+    if (++size > resizeThreshold) {
+      grow();
+    }
+  }
+
+  private void grow() {
+    long[] oldSlots = slots;
+    int oldCapacity = oldSlots.length / slotLength;
+
+    if (oldCapacity >= MAXIMUM_CAPACITY) {
+      throw new IllegalStateException(
+          "A %s cannot hold more than %d ids".formatted(getClass().getSimpleName(), size));
+    }
+
+    allocate(oldCapacity * 2);
+
+    for (int slot = 0; slot < oldSlots.length; slot += slotLength) {
+      if (oldSlots[slot] != 0 || oldSlots[slot + 1] != 0) {
+        int newSlot = findSlot(oldSlots[slot], oldSlots[slot + 1]);
+        System.arraycopy(oldSlots, slot, slots, newSlot, slotLength);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    slots = new long[capacity * slotLength];
+    mask = capacity - 1;
+    resizeThreshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private int capacityFor(int expectedSize) {
+    long capacity = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+
+    if (capacity > MAXIMUM_CAPACITY) {
+      throw new IllegalArgumentException(
+          "A %s cannot hold %d ids".formatted(getClass().getSimpleName(), expectedSize));
+    }
+
+    return Math.max(Integer.highestOneBit((int) capacity - 1) << 1, MINIMUM_CAPACITY);
+  }
+
+  // random UUIDs are already well spread, but ids of other versions keep their entropy in a few
+  // bits, which the finalizer of MurmurHash3 spreads over the whole hash
+  private static int hash(long mostSignificantBits, long leastSignificantBits) {
+    long hash = mostSignificantBits * 31 + leastSignificantBits;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+
+    return (int) hash;
+  }
+}
@@ -0,0 +1,33 @@
+package com.phorest.util;
+
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class UuidUtils {
+  /**
+   * Compares UUIDs the way PostgreSQL orders them, byte by byte as unsigned values, unlike
+   * UUID.compareTo, which compares their halves as signed longs.
+   */
+  public static int compareUnsigned(UUID first, UUID second) {
+    return compareUnsigned(
+        first.getMostSignificantBits(),
+        first.getLeastSignificantBits(),
+        second.getMostSignificantBits(),
+        second.getLeastSignificantBits());
+  }
+
+  public static int compareUnsigned(
+      long firstMostSignificantBits,
+      long firstLeastSignificantBits,
+      long secondMostSignificantBits,
+      long secondLeastSignificantBits) {
+
+    int comparison = Long.compareUnsigned(firstMostSignificantBits, secondMostSignificantBits);
+
+    return comparison != 0
+        ? comparison
+        : Long.compareUnsigned(firstLeastSignificantBits, secondLeastSignificantBits);
+  }
+}
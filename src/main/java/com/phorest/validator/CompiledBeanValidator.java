@@ -0,0 +1,428 @@
+package com.phorest.validator;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.request.AppointmentRequest;
+import com.phorest.model.request.ClientRequest;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.request.PurchaseRequest;
+import com.phorest.model.request.ServiceRequest;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import jakarta.validation.groups.Default;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Validates beans with checks compiled once per bean class from its constraint metadata, so that
+ * validating a valid bean involves no reflection and no allocation. The csv beans and the requests
+ * are compiled at startup, any other class on first use.
+ *
+ * <p>The constraints used by the csv beans and the requests are compiled: @NotNull, @NotBlank,
+ * {@literal @}Size of strings, @Email, and @Positive and @PositiveOrZero of integral numbers and
+ * decimals, in the default group. Classes with any other constraint are left to the reflective
+ * validator. The compiled checks only tell whether a bean is valid, the violations of an invalid
+ * bean are always collected by the reflective validator, so they are the same as they have always
+ * been.
+ */
+@Slf4j
+@Component
+public class CompiledBeanValidator {
+  // validated for every row imported and every request received
+  private static final List<Class<?>> STARTUP_TYPES =
+      List.of(
+          ClientCsvBean.class,
+          AppointmentCsvBean.class,
+          PurchaseCsvBean.class,
+          ServiceCsvBean.class,
+          ClientRequest.class,
+          AppointmentRequest.class,
+          PurchaseRequest.class,
+          ServiceRequest.class,
+          ImportOptions.class);
+
+  // the longest local part and domain of an email address the validator of @Email accepts
+  private static final int MAX_EMAIL_LOCAL_PART_LENGTH = 64;
+  private static final int MAX_EMAIL_DOMAIN_LENGTH = 255;
+  private static final int MAX_EMAIL_DOMAIN_LABEL_LENGTH = 63;
+  private static final String EMAIL_ATOM_SYMBOLS = "!#$%&'*+/=?^_`{|}~-";
+
+  private final Validator validator;
+  private final ConstraintValidatorFactory constraintValidatorFactory;
+
+  // the compiled checks of every class validated so far, empty if it could not be compiled
+  private final Map<Class<?>, Optional<PropertyCheck[]>> checksByType = new ConcurrentHashMap<>();
+
+  public CompiledBeanValidator(ValidatorFactory validatorFactory) {
+    this.validator = validatorFactory.getValidator();
+    this.constraintValidatorFactory = validatorFactory.getConstraintValidatorFactory();
+
+    STARTUP_TYPES.forEach(type -> checksByType.put(type, compile(type)));
+  }
+
+  @FunctionalInterface
+  private interface PropertyCheck {
+    boolean isValid(Object bean);
+  }
+
+  public <T> Set<ConstraintViolation<T>> validate(T bean) {
+    if (isKnownValid(bean)) {
+      return Collections.emptySet();
+    }
+
+    return validator.validate(bean);
+  }
+
+  // whether the class of the bean has been compiled and the bean passes all of its checks
+  boolean isKnownValid(Object bean) {
+    Optional<PropertyCheck[]> checks = checksByType.get(bean.getClass());
+
+    // looked up first, as the method reference to compile would be allocated on every call
+    if (checks == null) {
+      checks = checksByType.computeIfAbsent(bean.getClass(), this::compile);
+    }
+
+    if (checks.isEmpty()) {
+      return false;
+    }
+
+    for (PropertyCheck check : checks.get()) {
+      if (!check.isValid(bean)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  // whether the class has been compiled, without compiling it
+  boolean isCompiled(Class<?> type) {
+    return checksByType.getOrDefault(type, Optional.empty()).isPresent();
+  }
+
+  private Optional<PropertyCheck[]> compile(Class<?> type) {
+    BeanDescriptor beanDescriptor = validator.getConstraintsForClass(type);
+
+    if (!beanDescriptor.getConstraintDescriptors().isEmpty()) {
+      return notCompiled(type, "it has class level constraints");
+    }
+
+    List<PropertyCheck> checks = new ArrayList<>();
+
+    for (PropertyDescriptor property : beanDescriptor.getConstrainedProperties()) {
+      if (property.isCascaded() || !property.getConstrainedContainerElementTypes().isEmpty()) {
+        return notCompiled(type, property.getPropertyName() + " is validated in depth");
+      }
+
+      Method getter = findGetter(type, property.getPropertyName());
+
+      if (getter == null
+          || !Modifier.isPublic(getter.getModifiers())
+          || !Modifier.isPublic(getter.getDeclaringClass().getModifiers())) {
+        return notCompiled(type, property.getPropertyName() + " has no public getter");
+      }
+
+      for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+        PropertyCheck check = null;
+
+        if (constraint.getGroups().equals(Set.of(Default.class))
+            && constraint.getComposingConstraints().isEmpty()) {
+          check = compileCheck(getter, constraint);
+        }
+
+        if (check == null) {
+          return notCompiled(type, property.getPropertyName() + " has " + constraint);
+        }
+
+        checks.add(check);
+      }
+    }
+
+    return Optional.of(checks.toArray(PropertyCheck[]::new));
+  }
+
+  private static Optional<PropertyCheck[]> notCompiled(Class<?> type, String reason) {
+    log.info("{} is validated reflectively, since {}", type.getName(), reason);
+
+    return Optional.empty();
+  }
+
+  // null if the constraint is not compiled for the type of the property
+  private PropertyCheck compileCheck(Method getter, ConstraintDescriptor<?> descriptor) {
+    Annotation constraint = descriptor.getAnnotation();
+    Class<?> propertyType = getter.getReturnType();
+
+    if (isIntegralPrimitive(propertyType)) {
+      ToLongFunction<Object> value = compileGetter(getter, ToLongFunction.class, long.class);
+
+      if (constraint instanceof NotNull) {
+        return bean -> true;
+      } else if (constraint instanceof Positive) {
+        return bean -> value.applyAsLong(bean) > 0;
+      } else if (constraint instanceof PositiveOrZero) {
+        return bean -> value.applyAsLong(bean) >= 0;
+      }
+
+      return null;
+    }
+
+    if (propertyType.isPrimitive()) {
+      return null;
+    }
+
+    Function<Object, Object> value = compileGetter(getter, Function.class, Object.class);
+
+    if (constraint instanceof NotNull) {
+      return bean -> value.apply(bean) != null;
+    } else if (constraint instanceof Positive) {
+      return compileSignumCheck(propertyType, value, 1);
+    } else if (constraint instanceof PositiveOrZero) {
+      return compileSignumCheck(propertyType, value, 0);
+    } else if (!CharSequence.class.isAssignableFrom(propertyType)) {
+      return null;
+    } else if (constraint instanceof NotBlank) {
+      return bean -> isNotBlank((CharSequence) value.apply(bean));
+    } else if (constraint instanceof Size size && size.min() >= 0 && size.max() >= size.min()) {
+      // read once, the attributes of an annotation are read reflectively
+      int min = size.min();
+      int max = size.max();
+
+      return bean -> hasLengthBetween((CharSequence) value.apply(bean), min, max);
+    } else if (constraint instanceof Email email) {
+      ConstraintValidator<Email, CharSequence> emailValidator =
+          createConstraintValidator(descriptor, email, propertyType);
+
+      if (emailValidator == null) {
+        return null;
+      }
+
+      // a plain address is checked in place, any other by the validator of @Email itself, whose
+      // rules are too involved to copy and allocate as they are applied
+      boolean plainAddressValid = ".*".equals(email.regexp()) && email.flags().length == 0;
+
+      return bean -> {
+        CharSequence address = (CharSequence) value.apply(bean);
+
+        return address == null
+            || plainAddressValid && isPlainEmailAddress(address)
+            || emailValidator.isValid(address, null);
+      };
+    }
+
+    return null;
+  }
+
+  /**
+   * Creates the validator the reflective validator checks the constraint with for the type of the
+   * property, through the public factory of the constraint validators, and initializes it once with
+   * the constraint. Null if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  private <A extends Annotation, T> ConstraintValidator<A, T> createConstraintValidator(
+      ConstraintDescriptor<?> descriptor, A constraint, Class<?> propertyType) {
+
+    for (Class<?> validatorType : descriptor.getConstraintValidatorClasses()) {
+      Class<?>[] typeArguments =
+          GenericTypeResolver.resolveTypeArguments(validatorType, ConstraintValidator.class);
+
+      if (typeArguments != null && typeArguments[1].isAssignableFrom(propertyType)) {
+        ConstraintValidator<A, T> constraintValidator =
+            (ConstraintValidator<A, T>)
+                constraintValidatorFactory.getInstance(
+                    (Class<? extends ConstraintValidator<?, ?>>) validatorType);
+        constraintValidator.initialize(constraint);
+
+        return constraintValidator;
+      }
+    }
+
+    return null;
+  }
+
+  // checks that a number is null or has at least the given signum
+  private static PropertyCheck compileSignumCheck(
+      Class<?> propertyType, Function<Object, Object> value, int minSignum) {
+
+    if (BigDecimal.class.equals(propertyType)) {
+      return bean -> {
+        BigDecimal number = (BigDecimal) value.apply(bean);
+        return number == null || number.signum() >= minSignum;
+      };
+    } else if (BigInteger.class.equals(propertyType)) {
+      return bean -> {
+        BigInteger number = (BigInteger) value.apply(bean);
+        return number == null || number.signum() >= minSignum;
+      };
+    } else if (Set.of(Long.class, Integer.class, Short.class, Byte.class).contains(propertyType)) {
+      return bean -> {
+        Number number = (Number) value.apply(bean);
+        return number == null || Long.signum(number.longValue()) >= minSignum;
+      };
+    }
+
+    return null;
+  }
+
+  // same as the reflective @NotBlank, which trims the value
+  private static boolean isNotBlank(CharSequence value) {
+    if (value == null) {
+      return false;
+    }
+
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > ' ') {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Whether the address is a dot-atom local part and a host name, which the validator of @Email
+   * always accepts. Any other address is left to that validator, so that this never tells apart an
+   * address the validator would not.
+   */
+  private static boolean isPlainEmailAddress(CharSequence address) {
+    int at = 0;
+
+    while (at < address.length() && address.charAt(at) != '@') {
+      at++;
+    }
+
+    return at > 0
+        && at <= MAX_EMAIL_LOCAL_PART_LENGTH
+        && at < address.length()
+        && isDotAtom(address, 0, at)
+        && isHostName(address, at + 1, address.length());
+  }
+
+  private static boolean isDotAtom(CharSequence value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+
+      if (c == '.') {
+        if (i == start || i == end - 1 || value.charAt(i - 1) == '.') {
+          return false;
+        }
+      } else if (!isLetterOrDigit(c) && EMAIL_ATOM_SYMBOLS.indexOf(c) < 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  // dot-separated labels of ASCII letters, digits and inner hyphens, without a trailing dot
+  private static boolean isHostName(CharSequence value, int start, int end) {
+    if (end == start || end - start > MAX_EMAIL_DOMAIN_LENGTH) {
+      return false;
+    }
+
+    int labelStart = start;
+
+    for (int i = start; i <= end; i++) {
+      if (i < end && value.charAt(i) != '.') {
+        char c = value.charAt(i);
+
+        if (!isLetterOrDigit(c) && (c != '-' || i == labelStart)) {
+          return false;
+        }
+      } else {
+        int labelLength = i - labelStart;
+
+        if (labelLength == 0
+            || labelLength > MAX_EMAIL_DOMAIN_LABEL_LENGTH
+            || value.charAt(i - 1) == '-') {
+          return false;
+        }
+
+        labelStart = i + 1;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isLetterOrDigit(char c) {
+    return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9';
+  }
+
+  private static boolean hasLengthBetween(CharSequence value, int min, int max) {
+    return value == null || value.length() >= min && value.length() <= max;
+  }
+
+  private static boolean isIntegralPrimitive(Class<?> type) {
+    return type == long.class || type == int.class || type == short.class || type == byte.class;
+  }
+
+  // the constraints are declared on fields, which are read through their generated getters
+  private static Method findGetter(Class<?> type, String property) {
+    String capitalizedProperty = StringUtils.capitalize(property);
+    Method getter = ReflectionUtils.findMethod(type, "get" + capitalizedProperty);
+
+    return getter != null ? getter : ReflectionUtils.findMethod(type, "is" + capitalizedProperty);
+  }
+
+  /**
+   * Spins a class implementing the given functional interface by calling the getter, so that
+   * reading the property costs a plain method call instead of a reflective one.
+   */
+  @SuppressWarnings("unchecked")
+  private static <F> F compileGetter(Method getter, Class<?> functionType, Class<?> valueType) {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      MethodHandle getterHandle = lookup.unreflect(getter);
+      String functionMethod = functionType.equals(Function.class) ? "apply" : "applyAsLong";
+
+      CallSite callSite =
+          LambdaMetafactory.metafactory(
+              lookup,
+              functionMethod,
+              MethodType.methodType(functionType),
+              MethodType.methodType(valueType, Object.class),
+              getterHandle,
+              getterHandle.type().changeReturnType(valueType));
+
+      return (F) callSite.getTarget().invoke();
+    } catch (Throwable e) {
+      throw new IllegalStateException("Could not compile " + getter, e);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.phorest.validator;
+
+import jakarta.validation.Validator;
+import org.springframework.validation.Errors;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+/**
+ * Validates the requests bound by Spring MVC with the compiled checks of their class, reporting
+ * violations exactly like the reflective validator it falls back to.
+ */
+public class CompiledSpringValidator extends SpringValidatorAdapter {
+  private final CompiledBeanValidator compiledBeanValidator;
+
+  public CompiledSpringValidator(
+      CompiledBeanValidator compiledBeanValidator, Validator reflectiveValidator) {
+
+    super(reflectiveValidator);
+    this.compiledBeanValidator = compiledBeanValidator;
+  }
+
+  @Override
+  public void validate(Object target, Errors errors) {
+    processConstraintViolations(compiledBeanValidator.validate(target), errors);
+  }
+
+  @Override
+  public void validate(Object target, Errors errors, Object... validationHints) {
+    // the compiled checks only cover the default group
+    if (validationHints.length > 0) {
+      super.validate(target, errors, validationHints);
+    } else {
+      validate(target, errors);
+    }
+  }
+}
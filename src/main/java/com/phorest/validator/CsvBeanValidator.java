@@ -1,23 +1,61 @@
 package com.phorest.validator;
 
 import com.phorest.model.csv.common.CsvBean;
+import com.phorest.model.importing.ImportBatch;
+import com.phorest.model.importing.ImportContext;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.Validator;
 import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
 public class CsvBeanValidator {
-  private final Validator validator;
+  private final CompiledBeanValidator compiledBeanValidator;
 
   public void validateCsvBean(CsvBean csvBean) {
-    Set<ConstraintViolation<CsvBean>> violations = validator.validate(csvBean);
+    Set<ConstraintViolation<CsvBean>> violations = compiledBeanValidator.validate(csvBean);
 
     if (!violations.isEmpty()) {
       throw new ConstraintViolationException(violations);
     }
   }
+
+  /**
+   * Validates every csv bean of the batch, returning the batch of the valid ones. An import
+   * continuing on error rejects the invalid ones, without an exception, instead of throwing.
+   */
+  public <T extends CsvBean, E> ImportBatch<T, E> validateImportBatch(
+      ImportBatch<T, E> batch, ImportContext importContext) {
+
+    if (!importContext.isContinueOnError()) {
+      batch.getCsvBeans().forEach(this::validateCsvBean);
+
+      return batch;
+    }
+
+    return batch.filter(
+        index -> {
+          CsvBean csvBean = batch.getCsvBeans().get(index);
+          Set<ConstraintViolation<CsvBean>> violations = compiledBeanValidator.validate(csvBean);
+
+          if (violations.isEmpty()) {
+            return true;
+          }
+
+          importContext.rejectRow(batch.getLineNumber(index), describeViolations(violations));
+
+          return false;
+        });
+  }
+
+  // sorted, so that the reason a row is rejected for does not depend on the validator
+  private static String describeViolations(Set<ConstraintViolation<CsvBean>> violations) {
+    return violations.stream()
+        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+        .sorted()
+        .collect(Collectors.joining(", "));
+  }
 }
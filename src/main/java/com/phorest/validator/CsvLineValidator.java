@@ -1,6 +1,7 @@
 package com.phorest.validator;
 
 import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.exception.InvalidCsvRowException;
 import com.phorest.model.csv.AppointmentCsvBean;
 import com.phorest.model.csv.ClientCsvBean;
 import com.phorest.model.csv.PurchaseCsvBean;
@@ -68,11 +69,13 @@ public class CsvLineValidator {
         line[4].equals("loyalty_points"));
   }
 
-  public <T extends CsvBean> void validateNonFirstLine(String[] line, Class<T> returnElementType) {
+  // the exception is stackless, as an import continuing on error may reject many lines for it
+  public <T extends CsvBean> void validateNonFirstLine(int lineLength, Class<T> returnElementType) {
     int validLineLength = getValidLineLength(returnElementType);
 
-    if (line.length != validLineLength) {
-      throw new InvalidCsvFileException();
+    if (lineLength != validLineLength) {
+      throw new InvalidCsvRowException(
+          InvalidCsvRowException.FIELD_COUNT_MESSAGE.formatted(lineLength, validLineLength));
     }
   }
 
@@ -0,0 +1,48 @@
+CREATE UNLOGGED TABLE client_staging
+(
+    import_id                    UUID NOT NULL,
+    id                           UUID NOT NULL,
+    first_name                   TEXT NOT NULL,
+    last_name                    TEXT NOT NULL,
+    email                        TEXT NOT NULL,
+    phone                        TEXT NOT NULL,
+    gender                       TEXT NOT NULL,
+    banned                       BOOLEAN NOT NULL
+);
+
+CREATE INDEX client_staging_import_id_id_idx ON client_staging (import_id, id);
+
+CREATE UNLOGGED TABLE appointment_staging
+(
+    import_id                    UUID NOT NULL,
+    id                           UUID NOT NULL,
+    start_time                   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_time                     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    client_id                    UUID NOT NULL
+);
+
+CREATE INDEX appointment_staging_import_id_id_idx ON appointment_staging (import_id, id);
+
+CREATE UNLOGGED TABLE purchase_staging
+(
+    import_id                    UUID NOT NULL,
+    id                           UUID NOT NULL,
+    name                         TEXT NOT NULL,
+    price                        DECIMAL(19, 2) NOT NULL,
+    loyalty_points               INTEGER NOT NULL,
+    appointment_id               UUID NOT NULL
+);
+
+CREATE INDEX purchase_staging_import_id_id_idx ON purchase_staging (import_id, id);
+
+CREATE UNLOGGED TABLE service_staging
+(
+    import_id                    UUID NOT NULL,
+    id                           UUID NOT NULL,
+    name                         TEXT NOT NULL,
+    price                        DECIMAL(19, 2) NOT NULL,
+    loyalty_points               INTEGER NOT NULL,
+    appointment_id               UUID NOT NULL
+);
+
+CREATE INDEX service_staging_import_id_id_idx ON service_staging (import_id, id);
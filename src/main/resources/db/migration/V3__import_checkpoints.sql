@@ -0,0 +1,8 @@
+CREATE TABLE import_checkpoint
+(
+    upload_id                    UUID PRIMARY KEY,
+    byte_offset                  BIGINT NOT NULL,
+    line_count                   BIGINT NOT NULL,
+    row_count                    BIGINT NOT NULL,
+    updated_at                   TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
@@ -0,0 +1,29 @@
+ALTER TABLE client ADD COLUMN content_hash BIGINT;
+ALTER TABLE appointment ADD COLUMN content_hash BIGINT;
+ALTER TABLE purchase ADD COLUMN content_hash BIGINT;
+ALTER TABLE service ADD COLUMN content_hash BIGINT;
+
+-- only the delta import mode sets the content hash of a row, so any other update of the row
+-- clears it, and the next delta import writes the row again
+CREATE FUNCTION clear_content_hash() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF NEW.content_hash IS NOT DISTINCT FROM OLD.content_hash THEN
+        NEW.content_hash := NULL;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER client_clear_content_hash BEFORE UPDATE ON client
+    FOR EACH ROW EXECUTE FUNCTION clear_content_hash();
+
+CREATE TRIGGER appointment_clear_content_hash BEFORE UPDATE ON appointment
+    FOR EACH ROW EXECUTE FUNCTION clear_content_hash();
+
+CREATE TRIGGER purchase_clear_content_hash BEFORE UPDATE ON purchase
+    FOR EACH ROW EXECUTE FUNCTION clear_content_hash();
+
+CREATE TRIGGER service_clear_content_hash BEFORE UPDATE ON service
+    FOR EACH ROW EXECUTE FUNCTION clear_content_hash();
@@ -3,9 +3,12 @@ package com.phorest.controller;
 import static com.phorest.controller.advice.ApiControllerAdvice.METHOD_ARGUMENT_NOT_VALID_MESSAGE;
 import static com.phorest.exception.error.ApiError.APPOINTMENT_NOT_FOUND;
 import static com.phorest.exception.error.ApiError.BAD_REQUEST;
+import static com.phorest.exception.error.ApiError.CLIENT_NOT_FOUND;
 import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
 import static com.phorest.factory.CsvBeanFactory.APPOINTMENT_FORMATTER;
 import static com.phorest.helper.JsonTestHelper.toJson;
+import static com.phorest.helper.StatisticsTestHelper.clearStatistics;
+import static com.phorest.helper.StatisticsTestHelper.getUnexpectedStatementCount;
 import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
 import static org.hamcrest.Matchers.aMapWithSize;
 import static org.hamcrest.Matchers.hasSize;
@@ -25,16 +28,22 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.opencsv.CSVReader;
 import com.phorest.exception.AppointmentNotFoundException;
+import com.phorest.exception.ClientNotFoundException;
 import com.phorest.exception.InvalidCsvFileException;
 import com.phorest.model.entity.Appointment;
 import com.phorest.model.request.AppointmentRequest;
 import com.phorest.repository.AppointmentRepository;
 import com.phorest.util.CsvUtils;
+import jakarta.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -56,6 +65,7 @@ public class AppointmentControllerTest {
 
   @Autowired private AppointmentRepository appointmentRepository;
   @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManagerFactory entityManagerFactory;
   @Autowired private ObjectMapper mapper;
 
   @Value("classpath:files/appointments.csv")
@@ -379,4 +389,161 @@ public class AppointmentControllerTest {
       }
     }
   }
+
+  @Test
+  public void createAppointmentsFromFile_AsAnonymousUserWithValidFile_InsertedWithoutSelects()
+      throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            appointmentsCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/appointments/files").file(file)).andExpect(status().isCreated());
+
+    long insertCount = statistics.getEntityInsertCount();
+    long unexpectedStatementCount = getUnexpectedStatementCount(statistics);
+    long loadCount = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+    assertEquals(appointmentRepository.count(), insertCount);
+    assertEquals(0, unexpectedStatementCount);
+    assertEquals(0, loadCount);
+  }
+
+  @Test
+  public void createAppointmentsFromFile_AsAnonymousUserWithValidFileAndIdIndex_NoQueries()
+      throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            appointmentsCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc
+        .perform(multipart("/appointments/files").file(file).param("indexIds", "true"))
+        .andExpect(status().isCreated());
+
+    // the client ids are scanned once with JDBC, instead of being queried for every batch
+    long queryCount = statistics.getQueryExecutionCount();
+    long loadCount = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+    assertEquals(appointmentRepository.count(), statistics.getEntityInsertCount());
+    assertEquals(0, queryCount);
+    assertEquals(0, loadCount);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"copy", "upsert", "insert", "staged"})
+  public void createAppointmentsFromFile_AsAnonymousUserWithValidFileInMode_AppointmentsCreated(
+      String mode) throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            appointmentsCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/appointments/files").file(file).param("mode", mode))
+        .andExpect(status().isCreated());
+
+    List<Appointment> appointments = appointmentRepository.findAll();
+    assertFalse(appointments.isEmpty());
+
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
+      String[] line = csvReader.readNext();
+      assertEquals(4, line.length);
+      assertEquals("id", line[0]);
+      assertEquals("client_id", line[1]);
+      assertEquals("start_time", line[2]);
+      assertEquals("end_time", line[3]);
+
+      for (Appointment appointment : appointments) {
+        line = csvReader.readNext();
+        assertEquals(4, line.length);
+        assertEquals(line[0], appointment.getId().toString());
+        assertEquals(line[1], appointment.getClient().getId().toString());
+        assertEquals(
+            Instant.from(APPOINTMENT_FORMATTER.parse(line[2])), appointment.getStartTime());
+        assertEquals(Instant.from(APPOINTMENT_FORMATTER.parse(line[3])), appointment.getEndTime());
+      }
+    }
+  }
+
+  @Test
+  public void
+      createAppointmentsFromFile_AsAnonymousUserWithMissingClientInStagedMode_ExceptionNotFound()
+          throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    UUID missingClientId = UUID.randomUUID();
+    String csvContent =
+        "id,client_id,start_time,end_time\n"
+            + "%s,%s,2016-02-07 17:15:00 +0000,2016-02-07 20:15:00 +0000\n"
+                .formatted(UUID.randomUUID(), missingClientId);
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            csvContent.getBytes(StandardCharsets.UTF_8));
+
+    mockMvc
+        .perform(multipart("/appointments/files").file(file).param("mode", "staged"))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error_code").value(CLIENT_NOT_FOUND.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(ClientNotFoundException.MESSAGE.formatted(missingClientId)));
+
+    assertTrue(appointmentRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void
+      createAppointmentsFromFile_AsAnonymousUserWithMissingClientAndIdIndex_ExceptionNotFound()
+          throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    UUID missingClientId = UUID.randomUUID();
+    String csvContent =
+        "id,client_id,start_time,end_time\n"
+            + "%s,%s,2016-02-07 17:15:00 +0000,2016-02-07 20:15:00 +0000\n"
+                .formatted(UUID.randomUUID(), missingClientId);
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            csvContent.getBytes(StandardCharsets.UTF_8));
+
+    mockMvc
+        .perform(multipart("/appointments/files").file(file).param("indexIds", "true"))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error_code").value(CLIENT_NOT_FOUND.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(ClientNotFoundException.MESSAGE.formatted(missingClientId)));
+
+    assertTrue(appointmentRepository.findAll().isEmpty());
+  }
 }
@@ -0,0 +1,114 @@
+package com.phorest.controller;
+
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.phorest.model.entity.Appointment;
+import com.phorest.repository.AppointmentRepository;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Checks that every import mode stores the same UTC timestamps when the default time zone of the
+ * JVM, and so of the database sessions, is not UTC.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = AppointmentTimeZoneTest.DefaultTimeZoneInitializer.class)
+@DirtiesContext
+@Sql({"classpath:dataset/truncate.sql", "classpath:dataset/controller/appointment.sql"})
+public class AppointmentTimeZoneTest {
+  private static final TimeZone ORIGINAL_TIME_ZONE = TimeZone.getDefault();
+  private static final ZoneId DEFAULT_ZONE = ZoneId.of("America/New_York");
+
+  private static final UUID APPOINTMENT_ID =
+      UUID.fromString("7416ebc3-12ce-4000-87fb-82973722ebf4");
+
+  // the fixed clock of the test profile, and the times of the appointment in the csv file
+  private static final String AUDIT_TIMESTAMP = "2023-08-21 00:05:00";
+  private static final String START_TIMESTAMP = "2016-02-07 17:15:00";
+  private static final String END_TIMESTAMP = "2016-02-07 20:15:00";
+
+  @Autowired private AppointmentRepository appointmentRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Value("classpath:files/appointments.csv")
+  private Resource appointmentsCsvFile;
+
+  @AfterAll
+  public static void restoreDefaultTimeZone() {
+    TimeZone.setDefault(ORIGINAL_TIME_ZONE);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"standard", "copy", "upsert", "insert", "staged", "delta"})
+  public void createAppointmentsFromFile_InModeWithNonUtcDefaultZone_TimestampsStoredInUtc(
+      String mode) throws Exception {
+    assertNotEquals(ZoneOffset.UTC, DEFAULT_ZONE.getRules().getOffset(Instant.now()));
+    assertEquals(DEFAULT_ZONE, ZoneId.systemDefault());
+    appointmentRepository.deleteAll();
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            appointmentsCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/appointments/files").file(file).param("mode", mode))
+        .andExpect(status().isCreated());
+
+    Map<String, Object> row =
+        jdbcTemplate.queryForMap(
+            "SELECT start_time::text AS start_time, end_time::text AS end_time,"
+                + " created_at::text AS created_at, updated_at::text AS updated_at"
+                + " FROM appointment WHERE id = ?",
+            APPOINTMENT_ID);
+
+    assertEquals(START_TIMESTAMP, row.get("start_time"));
+    assertEquals(END_TIMESTAMP, row.get("end_time"));
+    assertEquals(AUDIT_TIMESTAMP, row.get("created_at"));
+    assertEquals(AUDIT_TIMESTAMP, row.get("updated_at"));
+
+    Appointment appointment = appointmentRepository.findById(APPOINTMENT_ID).orElseThrow();
+    assertEquals(Instant.parse("2016-02-07T17:15:00Z"), appointment.getStartTime());
+    assertEquals(Instant.parse("2016-02-07T20:15:00Z"), appointment.getEndTime());
+  }
+
+  /**
+   * Sets the default time zone before the context, and so its database connections, are created.
+   */
+  static class DefaultTimeZoneInitializer
+      implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    @Override
+    public void initialize(ConfigurableApplicationContext applicationContext) {
+      TimeZone.setDefault(TimeZone.getTimeZone(DEFAULT_ZONE));
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.phorest.controller;
+
+import static com.phorest.helper.StatisticsTestHelper.clearStatistics;
+import static com.phorest.helper.StatisticsTestHelper.getInsertStatementCount;
+import static com.phorest.helper.StatisticsTestHelper.getUnexpectedStatementCount;
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.repository.AppointmentRepository;
+import com.phorest.repository.ClientRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+/** Checks that standard mode imports send one insert statement per batch with bulk writes. */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "bulk-write"})
+@Sql({"classpath:dataset/truncate.sql", "classpath:dataset/controller/appointment.sql"})
+public class BulkWriteImportTest {
+  @Autowired private ClientRepository clientRepository;
+  @Autowired private AppointmentRepository appointmentRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+  @Autowired private ImportConfiguration importConfiguration;
+
+  @Value("classpath:files/clients.csv")
+  private Resource clientsCsvFile;
+
+  @Value("classpath:files/appointments.csv")
+  private Resource appointmentsCsvFile;
+
+  @Test
+  @Sql("classpath:dataset/truncate.sql")
+  public void createClientsFromFile_AsAnonymousUserWithValidFile_OneStatementPerBatch()
+      throws Exception {
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, clientsCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/clients/files").file(file)).andExpect(status().isCreated());
+
+    long statementCount = statistics.getPrepareStatementCount();
+    long insertCount = statistics.getEntityInsertCount();
+    long insertStatementCount =
+        getInsertStatementCount(statistics, importConfiguration.getBatchSize());
+
+    assertEquals(clientRepository.count(), insertCount);
+    assertTrue(insertStatementCount > 1);
+    assertEquals(insertStatementCount, statementCount);
+  }
+
+  @Test
+  public void createAppointmentsFromFile_AsAnonymousUserWithValidFile_InsertedInBatches()
+      throws Exception {
+    appointmentRepository.deleteAll();
+    assertTrue(appointmentRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "appointments.csv",
+            CSV_CONTENT_TYPE,
+            appointmentsCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/appointments/files").file(file)).andExpect(status().isCreated());
+
+    long insertCount = statistics.getEntityInsertCount();
+    long unexpectedStatementCount =
+        getUnexpectedStatementCount(statistics, importConfiguration.getBatchSize());
+    long loadCount = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+    assertEquals(appointmentRepository.count(), insertCount);
+    assertEquals(0, unexpectedStatementCount);
+    assertEquals(0, loadCount);
+  }
+}
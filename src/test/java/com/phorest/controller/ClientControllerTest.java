@@ -6,6 +6,7 @@ import static com.phorest.exception.error.ApiError.CLIENT_NOT_FOUND;
 import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
 import static com.phorest.helper.JsonTestHelper.fromJson;
 import static com.phorest.helper.JsonTestHelper.toJson;
+import static com.phorest.helper.StatisticsTestHelper.clearStatistics;
 import static com.phorest.model.entity.Client.CLIENT_NAME_LENGTH_LIMIT;
 import static com.phorest.model.entity.Client.EMAIL_LENGTH_LIMIT;
 import static com.phorest.model.entity.Client.PHONE_LENGTH_LIMIT;
@@ -37,10 +38,16 @@ import com.phorest.model.request.ClientRequest;
 import com.phorest.model.response.ClientResponse;
 import com.phorest.repository.ClientRepository;
 import com.phorest.util.CsvUtils;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -50,6 +57,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
@@ -59,13 +67,17 @@ import org.springframework.transaction.annotation.Transactional;
 @AutoConfigureMockMvc
 @Sql({"classpath:dataset/truncate.sql", "classpath:dataset/controller/client.sql"})
 public class ClientControllerTest {
+  private static final String GZIP_CONTENT_TYPE = "application/gzip";
   private static final UUID CLIENT_ID = UUID.fromString("e0b8ebfc-6e57-4661-9546-328c644a3764");
   private static final UUID NON_EXISTENT_CLIENT_ID =
       UUID.fromString("aca44e8b-e581-45b3-849f-956a26dbeef8");
 
   @Autowired private ClientRepository clientRepository;
   @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManagerFactory entityManagerFactory;
   @Autowired private ObjectMapper mapper;
+  @Autowired private Clock clock;
+  @Autowired private JdbcTemplate jdbcTemplate;
 
   @Value("classpath:files/clients.csv")
   private Resource clientsCsvFile;
@@ -586,6 +598,215 @@ public class ClientControllerTest {
     }
   }
 
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithValidFile_OneStatementPerClient()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, clientsCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/clients/files").file(file)).andExpect(status().isCreated());
+
+    long statementCount = statistics.getPrepareStatementCount();
+    long insertCount = statistics.getEntityInsertCount();
+
+    assertEquals(clientRepository.count(), insertCount);
+    assertEquals(insertCount, statementCount);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"copy", "upsert", "insert", "staged"})
+  public void createClientsFromFile_AsAnonymousUserWithValidFileInMode_ClientsCreated(String mode)
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, clientsCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/clients/files").file(file).param("mode", mode))
+        .andExpect(status().isCreated());
+
+    List<Client> clients = clientRepository.findAll();
+    assertFalse(clients.isEmpty());
+
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
+      String[] line = csvReader.readNext();
+      assertEquals(7, line.length);
+      assertEquals("id", line[0]);
+      assertEquals("first_name", line[1]);
+      assertEquals("last_name", line[2]);
+      assertEquals("email", line[3]);
+      assertEquals("phone", line[4]);
+      assertEquals("gender", line[5]);
+      assertEquals("banned", line[6]);
+
+      for (Client client : clients) {
+        line = csvReader.readNext();
+        assertEquals(7, line.length);
+        assertEquals(line[0], client.getId().toString());
+        assertEquals(line[1], client.getFirstName());
+        assertEquals(line[2], client.getLastName());
+        assertEquals(line[3], client.getEmail());
+        assertEquals(line[4], client.getPhone());
+        assertEquals(line[5].toUpperCase(), client.getGender().name());
+        assertEquals(Boolean.parseBoolean(line[6]), client.isBanned());
+        assertEquals(clock.instant(), client.getCreatedAt());
+        assertEquals(clock.instant(), client.getUpdatedAt());
+      }
+    }
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithDuplicateIdInStagedMode_ExceptionConflict()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    String csvContent = clientsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    String duplicateLine = csvContent.lines().skip(1).findFirst().orElseThrow();
+    String duplicateId = duplicateLine.split(",")[0];
+    byte[] duplicateCsvContent =
+        (csvContent + duplicateLine + "\n").getBytes(StandardCharsets.UTF_8);
+
+    MockMultipartFile file =
+        new MockMultipartFile("file", "clients.csv", CSV_CONTENT_TYPE, duplicateCsvContent);
+
+    mockMvc
+        .perform(multipart("/clients/files").file(file).param("mode", "staged"))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_CSV_FILE.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(duplicateId)));
+
+    assertEquals(0, clientRepository.count());
+    assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM client_staging", Long.class));
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithDuplicateIdAndIdIndex_ExceptionConflict()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    String csvContent = clientsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    String duplicateLine = csvContent.lines().skip(1).findFirst().orElseThrow();
+    String duplicateId = duplicateLine.split(",")[0];
+    byte[] duplicateCsvContent =
+        (csvContent + duplicateLine + "\n").getBytes(StandardCharsets.UTF_8);
+
+    MockMultipartFile file =
+        new MockMultipartFile("file", "clients.csv", CSV_CONTENT_TYPE, duplicateCsvContent);
+
+    mockMvc
+        .perform(multipart("/clients/files").file(file).param("indexIds", "true"))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_CSV_FILE.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(InvalidCsvFileException.DUPLICATE_ID_MESSAGE.formatted(duplicateId)));
+
+    assertEquals(0, clientRepository.count());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithCorrectedFileInUpsertMode_ClientsUpdated()
+      throws Exception {
+    Client existingClient = clientRepository.findById(CLIENT_ID).orElseThrow();
+
+    byte[] csvContent = clientsCsvFile.getContentAsByteArray();
+    byte[] correctedCsvContent =
+        new String(csvContent, StandardCharsets.UTF_8)
+            .replace(",Dori,Dietrich,", ",Doris,Dietrich,")
+            .getBytes(StandardCharsets.UTF_8);
+
+    MockMultipartFile file =
+        new MockMultipartFile("file", "clients.csv", CSV_CONTENT_TYPE, csvContent);
+    MockMultipartFile correctedFile =
+        new MockMultipartFile("file", "clients.csv", CSV_CONTENT_TYPE, correctedCsvContent);
+
+    mockMvc
+        .perform(multipart("/clients/files").file(file).param("mode", "upsert"))
+        .andExpect(status().isCreated());
+
+    long clientCount = clientRepository.count();
+    assertTrue(clientCount > 1);
+
+    Client unchangedClient = clientRepository.findById(CLIENT_ID).orElseThrow();
+    assertEquals(existingClient, unchangedClient);
+    assertEquals(existingClient.getUpdatedAt(), unchangedClient.getUpdatedAt());
+
+    mockMvc
+        .perform(multipart("/clients/files").file(correctedFile).param("mode", "upsert"))
+        .andExpect(status().isCreated());
+
+    assertEquals(clientCount, clientRepository.count());
+
+    Client correctedClient = clientRepository.findById(CLIENT_ID).orElseThrow();
+    assertEquals("Doris", correctedClient.getFirstName());
+    assertEquals(existingClient.getLastName(), correctedClient.getLastName());
+    assertEquals(existingClient.getCreatedAt(), correctedClient.getCreatedAt());
+    assertNotEquals(existingClient.getUpdatedAt(), correctedClient.getUpdatedAt());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithInvalidLastRowAndCommitInterval_ChunksKept()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, buildClientsCsvWithInvalidLastRow());
+
+    mockMvc
+        .perform(multipart("/clients/files").file(file).param("commitInterval", "50"))
+        .andExpect(status().is4xxClientError());
+
+    // the two batches of 50 valid rows were committed before the invalid row was reached
+    assertEquals(100, clientRepository.count());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithInvalidLastRow_NothingKept()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, buildClientsCsvWithInvalidLastRow());
+
+    mockMvc.perform(multipart("/clients/files").file(file)).andExpect(status().is4xxClientError());
+
+    assertEquals(0, clientRepository.count());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithGzipFile_ClientsCreated() throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "clients.csv.gz",
+            GZIP_CONTENT_TYPE,
+            gzip(clientsCsvFile.getContentAsByteArray()));
+
+    mockMvc.perform(multipart("/clients/files").file(file)).andExpect(status().isCreated());
+
+    assertEquals(countCsvRows(clientsCsvFile.getContentAsByteArray()), clientRepository.count());
+  }
+
   @Transactional
   @ParameterizedTest
   @ValueSource(strings = {"2016-06-01", "2016-12-31", "2017-09-01", "2018-03-01", "2018-08-01"})
@@ -634,4 +855,27 @@ public class ClientControllerTest {
       assertEquals(clientFromMemory.isBanned(), clientResponse.isBanned());
     }
   }
+
+  private static byte[] gzip(byte[] content) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(content);
+    }
+
+    return outputStream.toByteArray();
+  }
+
+  private static long countCsvRows(byte[] content) throws Exception {
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(content)) {
+      return csvReader.readAll().size() - 1;
+    }
+  }
+
+  private byte[] buildClientsCsvWithInvalidLastRow() throws Exception {
+    return (new String(clientsCsvFile.getContentAsByteArray(), StandardCharsets.UTF_8)
+            + UUID.randomUUID()
+            + ",Dori,Dietrich,invalid-email,(272) 301-6356,Male,false\n")
+        .getBytes(StandardCharsets.UTF_8);
+  }
 }
@@ -0,0 +1,123 @@
+package com.phorest.controller;
+
+import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.opencsv.CSVReader;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.repository.ClientRepository;
+import com.phorest.util.CsvUtils;
+import io.airlift.compress.zstd.ZstdCompressor;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Checks that the Content-Encoding header of the file part selects the decompression. Runs against
+ * a real server, since the mock multipart request only exposes the Content-Type of a file part.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql({"classpath:dataset/truncate.sql", "classpath:dataset/controller/client.sql"})
+public class ContentEncodingUploadTest {
+  @Autowired private ClientRepository clientRepository;
+  @Autowired private TestRestTemplate restTemplate;
+
+  @Value("classpath:files/clients.csv")
+  private Resource clientsCsvFile;
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithGzipContentEncoding_ClientsCreated()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    ResponseEntity<JsonNode> response =
+        postClientsFile(gzip(clientsCsvFile.getContentAsByteArray()), "gzip");
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(countCsvRows(clientsCsvFile.getContentAsByteArray()), clientRepository.count());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithZstdContentEncoding_ClientsCreated()
+      throws Exception {
+    clientRepository.deleteAll();
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    ResponseEntity<JsonNode> response =
+        postClientsFile(zstd(clientsCsvFile.getContentAsByteArray()), "zstd");
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(countCsvRows(clientsCsvFile.getContentAsByteArray()), clientRepository.count());
+  }
+
+  @Test
+  public void createClientsFromFile_AsAnonymousUserWithUnknownContentEncoding_ExceptionInvalidFile()
+      throws Exception {
+    ResponseEntity<JsonNode> response =
+        postClientsFile(clientsCsvFile.getContentAsByteArray(), "br");
+
+    assertEquals(INVALID_CSV_FILE.getHttpStatus(), response.getStatusCode());
+    assertEquals(INVALID_CSV_FILE.getErrorCode(), response.getBody().get("error_code").asText());
+    assertEquals(InvalidCsvFileException.MESSAGE, response.getBody().get("message").asText());
+  }
+
+  private ResponseEntity<JsonNode> postClientsFile(byte[] content, String contentEncoding) {
+    HttpHeaders partHeaders = new HttpHeaders();
+    partHeaders.setContentType(MediaType.parseMediaType(CSV_CONTENT_TYPE));
+    partHeaders.setContentDispositionFormData("file", "clients.csv");
+    partHeaders.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+
+    MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+    body.add("file", new HttpEntity<>(content, partHeaders));
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+    return restTemplate.postForEntity(
+        "/clients/files", new HttpEntity<>(body, headers), JsonNode.class);
+  }
+
+  private static byte[] gzip(byte[] content) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(content);
+    }
+
+    return outputStream.toByteArray();
+  }
+
+  private static byte[] zstd(byte[] content) {
+    ZstdCompressor compressor = new ZstdCompressor();
+    byte[] compressed = new byte[compressor.maxCompressedLength(content.length)];
+
+    int compressedLength =
+        compressor.compress(content, 0, content.length, compressed, 0, compressed.length);
+
+    return Arrays.copyOf(compressed, compressedLength);
+  }
+
+  private static long countCsvRows(byte[] content) throws Exception {
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(content)) {
+      return csvReader.readAll().size() - 1;
+    }
+  }
+}
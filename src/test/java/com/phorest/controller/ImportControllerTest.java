@@ -0,0 +1,829 @@
+package com.phorest.controller;
+
+import static com.phorest.exception.error.ApiError.IMPORT_JOB_NOT_FOUND;
+import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
+import static com.phorest.exception.error.ApiError.INVALID_UPLOAD_CHUNK;
+import static com.phorest.helper.JsonTestHelper.fromJson;
+import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
+import static com.phorest.service.ImportJobServiceImpl.ZIP_CONTENT_TYPE;
+import static com.phorest.service.ImportUploadServiceImpl.UPLOAD_OFFSET_HEADER;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phorest.exception.ClientNotFoundException;
+import com.phorest.exception.ImportJobNotFoundException;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.exception.InvalidCsvRowException;
+import com.phorest.exception.InvalidUploadChunkException;
+import com.phorest.model.importing.ImportJob;
+import com.phorest.model.importing.ImportRejectFile;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.response.ImportDryRunResponse;
+import com.phorest.model.response.ImportJobResponse;
+import com.phorest.model.response.ImportRowErrorResponse;
+import com.phorest.model.response.ImportStageResponse;
+import com.phorest.repository.AppointmentRepository;
+import com.phorest.repository.ClientRepository;
+import com.phorest.repository.PurchaseRepository;
+import com.phorest.repository.ServiceRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql({"classpath:dataset/truncate.sql"})
+public class ImportControllerTest {
+  private static final UUID NON_EXISTENT_IMPORT_JOB_ID =
+      UUID.fromString("3b0c4a3e-1f2d-4c5b-9a8e-7d6f5e4c3b2a");
+
+  private static final Duration IMPORT_JOB_TIMEOUT = Duration.ofSeconds(30);
+  private static final Set<ImportJob.Status> UNFINISHED_STATUSES =
+      Set.of(ImportJob.Status.QUEUED, ImportJob.Status.RUNNING);
+
+  @Autowired private ClientRepository clientRepository;
+  @Autowired private AppointmentRepository appointmentRepository;
+  @Autowired private PurchaseRepository purchaseRepository;
+  @Autowired private ServiceRepository serviceRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private DataSource dataSource;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper mapper;
+
+  @Value("classpath:files/clients.csv")
+  private Resource clientsCsvFile;
+
+  @Value("classpath:files/appointments.csv")
+  private Resource appointmentsCsvFile;
+
+  @Value("classpath:files/purchases.csv")
+  private Resource purchasesCsvFile;
+
+  @Value("classpath:files/services.csv")
+  private Resource servicesCsvFile;
+
+  @Test
+  public void getImportJob_AsAnonymousUserWithInvalidId_ExceptionNotFound() throws Exception {
+    mockMvc
+        .perform(
+            get("/imports/{importJobId}", NON_EXISTENT_IMPORT_JOB_ID)
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(jsonPath("$").isMap())
+        .andExpect(jsonPath("$", aMapWithSize(4)))
+        .andExpect(jsonPath("$.status").value(IMPORT_JOB_NOT_FOUND.getHttpStatus().value()))
+        .andExpect(jsonPath("$.error_code").value(IMPORT_JOB_NOT_FOUND.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(ImportJobNotFoundException.MESSAGE.formatted(NON_EXISTENT_IMPORT_JOB_ID)));
+  }
+
+  @Test
+  public void cancelImportJob_AsAnonymousUserWithInvalidId_ExceptionNotFound() throws Exception {
+    mockMvc
+        .perform(
+            delete("/imports/{importJobId}", NON_EXISTENT_IMPORT_JOB_ID)
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(jsonPath("$.status").value(IMPORT_JOB_NOT_FOUND.getHttpStatus().value()))
+        .andExpect(jsonPath("$.error_code").value(IMPORT_JOB_NOT_FOUND.getErrorCode()));
+  }
+
+  @Test
+  public void getImportJob_AsAnonymousUserAfterAsyncClientImport_ImportJobCompleted()
+      throws Exception {
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "clients.csv", CSV_CONTENT_TYPE, clientsCsvFile.getContentAsByteArray());
+
+    String responseString =
+        mockMvc
+            .perform(multipart("/clients/files").file(file).param("async", "true"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.id").exists())
+            .andExpect(jsonPath("$.type").value(ImportJob.Type.CLIENTS.name()))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    ImportJobResponse importJobResponse =
+        fromJson(mapper, responseString, new TypeReference<>() {});
+
+    importJobResponse = awaitImportJob(importJobResponse.getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(file.getSize(), importJobResponse.getTotalBytes());
+    assertEquals(importJobResponse.getRowsParsed(), importJobResponse.getRowsPersisted());
+    assertEquals(clientRepository.count(), importJobResponse.getRowsPersisted());
+    assertTrue(importJobResponse.getRowsPersisted() > 0);
+
+    assertEquals(3, importJobResponse.getStages().size());
+
+    for (ImportStageResponse stage : importJobResponse.getStages()) {
+      assertEquals(importJobResponse.getRowsPersisted(), stage.getRows());
+      assertTrue(stage.getQueueDepth() == null || stage.getQueueDepth() == 0);
+    }
+  }
+
+  @Test
+  public void createImportBundle_AsAnonymousUserWithValidBundle_ImportJobCompleted()
+      throws Exception {
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "bundle.zip",
+            ZIP_CONTENT_TYPE,
+            buildZip(
+                Map.of(
+                    "clients.csv", clientsCsvFile.getContentAsByteArray(),
+                    "appointments.csv", appointmentsCsvFile.getContentAsByteArray(),
+                    "purchases.csv", purchasesCsvFile.getContentAsByteArray(),
+                    "services.csv", servicesCsvFile.getContentAsByteArray())));
+
+    ImportJobResponse importJobResponse = awaitImportJob(submitImportBundle(file).getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(ImportJob.Type.BUNDLE, importJobResponse.getType());
+
+    // the files are listed in the order they are imported in
+    List<ImportJobResponse> files = importJobResponse.getFiles();
+    assertEquals(
+        List.of(
+            ImportJob.Type.CLIENTS,
+            ImportJob.Type.APPOINTMENTS,
+            ImportJob.Type.PURCHASES,
+            ImportJob.Type.SERVICES),
+        files.stream().map(ImportJobResponse::getType).toList());
+
+    for (ImportJobResponse fileResponse : files) {
+      assertEquals(ImportJob.Status.COMPLETED, fileResponse.getStatus());
+      assertEquals(fileResponse.getTotalBytes(), fileResponse.getBytesRead());
+      assertTrue(fileResponse.getRowsPersisted() > 0);
+    }
+
+    assertEquals(clientRepository.count(), files.get(0).getRowsPersisted());
+    assertEquals(appointmentRepository.count(), files.get(1).getRowsPersisted());
+    assertEquals(purchaseRepository.count(), files.get(2).getRowsPersisted());
+    assertEquals(serviceRepository.count(), files.get(3).getRowsPersisted());
+
+    assertEquals(
+        files.stream().mapToLong(ImportJobResponse::getRowsPersisted).sum(),
+        importJobResponse.getRowsPersisted());
+    assertEquals(
+        files.stream().mapToLong(ImportJobResponse::getTotalBytes).sum(),
+        importJobResponse.getTotalBytes());
+  }
+
+  @Test
+  public void createImportBundle_AsAnonymousUserWithInvalidAppointments_DependentFilesSkipped()
+      throws Exception {
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "bundle.zip",
+            ZIP_CONTENT_TYPE,
+            buildZip(
+                Map.of(
+                    "clients.csv", clientsCsvFile.getContentAsByteArray(),
+                    "appointments.csv", clientsCsvFile.getContentAsByteArray(),
+                    "purchases.csv", purchasesCsvFile.getContentAsByteArray(),
+                    "services.csv", servicesCsvFile.getContentAsByteArray())));
+
+    ImportJobResponse importJobResponse = awaitImportJob(submitImportBundle(file).getId());
+
+    assertEquals(ImportJob.Status.FAILED, importJobResponse.getStatus());
+    assertEquals(
+        List.of(
+            ImportJob.Status.COMPLETED,
+            ImportJob.Status.FAILED,
+            ImportJob.Status.SKIPPED,
+            ImportJob.Status.SKIPPED),
+        importJobResponse.getFiles().stream().map(ImportJobResponse::getStatus).toList());
+
+    assertTrue(clientRepository.count() > 0);
+    assertEquals(0, appointmentRepository.count());
+    assertEquals(0, purchaseRepository.count());
+    assertEquals(0, serviceRepository.count());
+  }
+
+  @Test
+  public void createImportBundle_AsAnonymousUserWithUnexpectedEntry_ExceptionConflict()
+      throws Exception {
+    String unexpectedEntryName = "customers.csv";
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "bundle.zip",
+            ZIP_CONTENT_TYPE,
+            buildZip(Map.of(unexpectedEntryName, clientsCsvFile.getContentAsByteArray())));
+
+    mockMvc
+        .perform(multipart("/imports/bundle").file(file))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_CSV_FILE.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(
+                    InvalidCsvFileException.INVALID_BUNDLE_ENTRY_MESSAGE.formatted(
+                        unexpectedEntryName)));
+
+    assertTrue(clientRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithUploadChunks_ImportJobCompleted() throws Exception {
+    UUID uploadId = UUID.randomUUID();
+    byte[] content = clientsCsvFile.getContentAsByteArray();
+    int chunkSize = content.length / 3 + 1;
+
+    for (int firstByte = 0; firstByte + chunkSize < content.length; firstByte += chunkSize) {
+      mockMvc
+          .perform(uploadChunk("/clients/files", uploadId, content, firstByte, chunkSize))
+          .andExpect(status().isNoContent())
+          .andExpect(header().longValue(UPLOAD_OFFSET_HEADER, (long) firstByte + chunkSize));
+    }
+
+    assertTrue(clientRepository.findAll().isEmpty());
+
+    int lastFirstByte = content.length - content.length % chunkSize;
+    ImportJobResponse importJobResponse =
+        awaitImportJob(
+            submitUploadChunk(
+                    "/clients/files",
+                    uploadId,
+                    content,
+                    lastFirstByte,
+                    content.length - lastFirstByte)
+                .getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(uploadId, importJobResponse.getUploadId());
+    assertEquals(content.length, importJobResponse.getTotalBytes());
+    assertEquals(countCsvRows(content), clientRepository.count());
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserResendingChunkWhileImporting_ImportJobReturned()
+      throws Exception {
+    UUID uploadId = UUID.randomUUID();
+    byte[] content = clientsCsvFile.getContentAsByteArray();
+    int chunkSize = content.length / 2;
+
+    mockMvc
+        .perform(uploadChunk("/clients/files", uploadId, content, 0, chunkSize))
+        .andExpect(status().isNoContent());
+
+    ImportJobResponse importJobResponse;
+
+    // the import cannot write to the locked table, so it keeps running until the lock is released
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      connection.createStatement().execute("LOCK TABLE client IN EXCLUSIVE MODE");
+
+      importJobResponse =
+          submitUploadChunk(
+              "/clients/files", uploadId, content, chunkSize, content.length - chunkSize);
+
+      assertEquals(
+          importJobResponse.getId(),
+          submitUploadChunk("/clients/files", uploadId, content, 0, chunkSize).getId());
+
+      connection.rollback();
+    }
+
+    importJobResponse = awaitImportJob(importJobResponse.getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(countCsvRows(content), clientRepository.count());
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithUploadChunkGap_ExceptionConflict() throws Exception {
+    UUID uploadId = UUID.randomUUID();
+    byte[] content = clientsCsvFile.getContentAsByteArray();
+    int chunkSize = content.length / 3;
+
+    mockMvc
+        .perform(uploadChunk("/clients/files", uploadId, content, chunkSize, chunkSize))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_UPLOAD_CHUNK.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(InvalidUploadChunkException.OFFSET_MESSAGE.formatted(chunkSize, 0)));
+  }
+
+  @Test
+  public void createAppointments_AsAnonymousUserResendingLastChunk_ImportResumedFromCheckpoint()
+      throws Exception {
+    mockMvc
+        .perform(
+            multipart("/clients/files")
+                .file(
+                    new MockMultipartFile(
+                        "file",
+                        "clients.csv",
+                        CSV_CONTENT_TYPE,
+                        clientsCsvFile.getContentAsByteArray())))
+        .andExpect(status().isCreated());
+
+    // the last row references a client that only exists once the first import has failed
+    UUID missingClientId = UUID.randomUUID();
+    byte[] content =
+        (appointmentsCsvFile.getContentAsString(StandardCharsets.UTF_8)
+                + UUID.randomUUID()
+                + ","
+                + missingClientId
+                + ",2023-08-21 10:00:00 +0000,2023-08-21 11:00:00 +0000\n")
+            .getBytes(StandardCharsets.UTF_8);
+    int appointmentCount = countCsvRows(content);
+
+    UUID uploadId = UUID.randomUUID();
+    int chunkSize = content.length / 2;
+
+    mockMvc
+        .perform(uploadChunk("/appointments/files", uploadId, content, 0, chunkSize))
+        .andExpect(status().isNoContent());
+
+    ImportJobResponse importJobResponse =
+        awaitImportJob(
+            submitUploadChunk(
+                    "/appointments/files", uploadId, content, chunkSize, content.length - chunkSize)
+                .getId());
+
+    assertEquals(ImportJob.Status.FAILED, importJobResponse.getStatus());
+
+    long committedAppointments = appointmentRepository.count();
+    assertTrue(committedAppointments > 0);
+    assertTrue(committedAppointments < appointmentCount);
+
+    jdbcTemplate.update(
+        "INSERT INTO client (id, first_name, last_name, email, phone, gender, created_at,"
+            + " updated_at) VALUES (?, 'Ada', 'Byrne', 'ada@byrne.ie', '(01) 555-0100', 'Female',"
+            + " now(), now())",
+        missingClientId);
+
+    // the committed appointments would be inserted again, and fail, if the import started over
+    importJobResponse =
+        awaitImportJob(
+            submitUploadChunk(
+                    "/appointments/files", uploadId, content, chunkSize, content.length - chunkSize)
+                .getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(appointmentCount, appointmentRepository.count());
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithInvalidRowsWithinMaxErrors_InvalidRowsRejected()
+      throws Exception {
+    String clientsCsv = clientsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    long firstInvalidLine = clientsCsv.lines().count() + 1;
+
+    byte[] content =
+        (clientsCsv
+                + "not-a-uuid,Ada,Byrne,ada@byrne.ie,(01) 555-0100,Female,false\n"
+                + UUID.randomUUID()
+                + ",Ada,Byrne,not-an-email,(01) 555-0100,Female,false\n"
+                + "1,2,3\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    ImportJobResponse importJobResponse =
+        awaitImportJob(
+            submitTolerantImportJob("/clients/files", "clients.csv", content, 3).getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(3, importJobResponse.getRowsRejected());
+    assertEquals(countCsvRows(content) - 3, clientRepository.count());
+    assertEquals(clientRepository.count(), importJobResponse.getRowsCommitted());
+
+    List<String> rejectedRows = getRejectedRows(importJobResponse.getId());
+
+    assertEquals(
+        Set.of(firstInvalidLine, firstInvalidLine + 1, firstInvalidLine + 2),
+        rejectedRows.stream()
+            .map(row -> Long.parseLong(row.substring(0, row.indexOf(','))))
+            .collect(Collectors.toSet()));
+    assertTrue(
+        rejectedRows.contains(
+            (firstInvalidLine + 2)
+                + ",\""
+                + InvalidCsvRowException.FIELD_COUNT_MESSAGE.formatted(3, 7)
+                + "\""));
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithInvalidRowsBeyondMaxErrors_ImportJobFailed()
+      throws Exception {
+    byte[] content =
+        (clientsCsvFile.getContentAsString(StandardCharsets.UTF_8) + "1,2,3\n4,5,6\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    ImportJobResponse importJobResponse =
+        awaitImportJob(
+            submitTolerantImportJob("/clients/files", "clients.csv", content, 1).getId());
+
+    assertEquals(ImportJob.Status.FAILED, importJobResponse.getStatus());
+    assertEquals(
+        InvalidCsvFileException.TOO_MANY_INVALID_ROWS_MESSAGE.formatted(1),
+        importJobResponse.getErrorMessage());
+    assertEquals(1, importJobResponse.getRowsRejected());
+    assertEquals(1, getRejectedRows(importJobResponse.getId()).size());
+  }
+
+  @Test
+  public void createAppointments_AsAnonymousUserWithMissingClientWithinMaxErrors_RowRejected()
+      throws Exception {
+    mockMvc
+        .perform(
+            multipart("/clients/files")
+                .file(
+                    new MockMultipartFile(
+                        "file",
+                        "clients.csv",
+                        CSV_CONTENT_TYPE,
+                        clientsCsvFile.getContentAsByteArray())))
+        .andExpect(status().isCreated());
+
+    String appointmentsCsv = appointmentsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    UUID missingClientId = UUID.randomUUID();
+    byte[] content =
+        (appointmentsCsv
+                + UUID.randomUUID()
+                + ","
+                + missingClientId
+                + ",2023-08-21 10:00:00 +0000,2023-08-21 11:00:00 +0000\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    ImportJobResponse importJobResponse =
+        awaitImportJob(
+            submitTolerantImportJob("/appointments/files", "appointments.csv", content, 1).getId());
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(1, importJobResponse.getRowsRejected());
+    assertEquals(countCsvRows(content) - 1, appointmentRepository.count());
+    assertEquals(
+        List.of(
+            (appointmentsCsv.lines().count() + 1)
+                + ",\""
+                + ClientNotFoundException.MESSAGE.formatted(missingClientId)
+                + "\""),
+        getRejectedRows(importJobResponse.getId()));
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithDryRun_InvalidRowsReportedAndNothingWritten()
+      throws Exception {
+    String clientsCsv = clientsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    long firstInvalidLine = clientsCsv.lines().count() + 1;
+
+    byte[] content =
+        (clientsCsv
+                + UUID.randomUUID()
+                + ",Ada,Byrne,not-an-email,(01) 555-0100,Female,false\n"
+                + "1,2,3\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    ImportDryRunResponse dryRunResponse =
+        submitDryRun("/clients/files", "clients.csv", content, false);
+
+    assertEquals(countCsvRows(content), dryRunResponse.getRowsChecked());
+    assertEquals(countCsvRows(content) - 2, dryRunResponse.getRowsValid());
+    assertEquals(2, dryRunResponse.getRowsInvalid());
+    assertEquals(
+        Set.of(firstInvalidLine, firstInvalidLine + 1),
+        dryRunResponse.getErrors().stream()
+            .map(ImportRowErrorResponse::getLineNumber)
+            .collect(Collectors.toSet()));
+    assertTrue(
+        dryRunResponse
+            .getErrors()
+            .contains(
+                new ImportRowErrorResponse(
+                    firstInvalidLine + 1,
+                    InvalidCsvRowException.FIELD_COUNT_MESSAGE.formatted(3, 7))));
+    assertTrue(clientRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void createAppointments_AsAnonymousUserWithDryRunAndIndexIds_MissingClientReported()
+      throws Exception {
+    mockMvc
+        .perform(
+            multipart("/clients/files")
+                .file(
+                    new MockMultipartFile(
+                        "file",
+                        "clients.csv",
+                        CSV_CONTENT_TYPE,
+                        clientsCsvFile.getContentAsByteArray())))
+        .andExpect(status().isCreated());
+
+    String appointmentsCsv = appointmentsCsvFile.getContentAsString(StandardCharsets.UTF_8);
+    UUID missingClientId = UUID.randomUUID();
+    byte[] content =
+        (appointmentsCsv
+                + UUID.randomUUID()
+                + ","
+                + missingClientId
+                + ",2023-08-21 10:00:00 +0000,2023-08-21 11:00:00 +0000\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    ImportDryRunResponse dryRunResponse =
+        submitDryRun("/appointments/files", "appointments.csv", content, true);
+
+    assertEquals(countCsvRows(content), dryRunResponse.getRowsChecked());
+    assertEquals(1, dryRunResponse.getRowsInvalid());
+    assertEquals(
+        List.of(
+            new ImportRowErrorResponse(
+                appointmentsCsv.lines().count() + 1,
+                ClientNotFoundException.MESSAGE.formatted(missingClientId))),
+        dryRunResponse.getErrors());
+    assertTrue(appointmentRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void createImportBundle_AsAnonymousUserWithDryRun_ExceptionConflict() throws Exception {
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "bundle.zip",
+            ZIP_CONTENT_TYPE,
+            buildZip(Map.of("clients.csv", clientsCsvFile.getContentAsByteArray())));
+
+    mockMvc
+        .perform(multipart("/imports/bundle").file(file).param("dryRun", "true"))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_CSV_FILE.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message").value(InvalidCsvFileException.INVALID_BUNDLE_DRY_RUN_MESSAGE));
+
+    assertTrue(clientRepository.findAll().isEmpty());
+  }
+
+  @Test
+  public void createClients_AsAnonymousUserWithDeltaImport_OnlyChangedRowsWritten()
+      throws Exception {
+    byte[] content = clientsCsvFile.getContentAsByteArray();
+
+    ImportJobResponse importJobResponse =
+        awaitImportJob(submitDeltaImportJob("/clients/files", "clients.csv", content, false));
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(0, importJobResponse.getRowsUnchanged());
+    assertEquals(countCsvRows(content), clientRepository.count());
+
+    importJobResponse =
+        awaitImportJob(submitDeltaImportJob("/clients/files", "clients.csv", content, false));
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(countCsvRows(content), importJobResponse.getRowsUnchanged());
+    assertEquals(countCsvRows(content), clientRepository.count());
+
+    // the last client is dropped from the file and a new one added
+    List<String> lines = new String(content, StandardCharsets.UTF_8).lines().toList();
+    UUID newClientId = UUID.randomUUID();
+    byte[] changedContent =
+        (String.join("\n", lines.subList(0, lines.size() - 1))
+                + "\n"
+                + newClientId
+                + ",Ada,Byrne,ada@byrne.ie,(01) 555-0100,Female,false\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    importJobResponse =
+        awaitImportJob(submitDeltaImportJob("/clients/files", "clients.csv", changedContent, true));
+
+    assertEquals(ImportJob.Status.COMPLETED, importJobResponse.getStatus());
+    assertEquals(countCsvRows(changedContent) - 1, importJobResponse.getRowsUnchanged());
+    assertEquals(1, importJobResponse.getRowsDeleted());
+    assertEquals(countCsvRows(changedContent), clientRepository.count());
+    assertTrue(clientRepository.existsById(newClientId));
+  }
+
+  @Test
+  public void createImportBundle_AsAnonymousUserWithMaxErrors_ExceptionConflict() throws Exception {
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file",
+            "bundle.zip",
+            ZIP_CONTENT_TYPE,
+            buildZip(Map.of("clients.csv", clientsCsvFile.getContentAsByteArray())));
+
+    mockMvc
+        .perform(multipart("/imports/bundle").file(file).param("maxErrors", "1"))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error_code").value(INVALID_CSV_FILE.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message").value(InvalidCsvFileException.INVALID_BUNDLE_MAX_ERRORS_MESSAGE));
+
+    assertTrue(clientRepository.findAll().isEmpty());
+  }
+
+  private ImportJobResponse submitImportBundle(MockMultipartFile file) throws Exception {
+    String responseString =
+        mockMvc
+            .perform(multipart("/imports/bundle").file(file))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.id").exists())
+            .andExpect(jsonPath("$.type").value(ImportJob.Type.BUNDLE.name()))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    return fromJson(mapper, responseString, new TypeReference<>() {});
+  }
+
+  private ImportJobResponse submitTolerantImportJob(
+      String path, String fileName, byte[] content, int maxErrors) throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", fileName, CSV_CONTENT_TYPE, content);
+
+    // an import continuing on error runs in the background without being asked to
+    String responseString =
+        mockMvc
+            .perform(multipart(path).file(file).param("maxErrors", String.valueOf(maxErrors)))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.id").exists())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    return fromJson(mapper, responseString, new TypeReference<>() {});
+  }
+
+  private UUID submitDeltaImportJob(
+      String path, String fileName, byte[] content, boolean deleteMissing) throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", fileName, CSV_CONTENT_TYPE, content);
+
+    String responseString =
+        mockMvc
+            .perform(
+                multipart(path)
+                    .file(file)
+                    .param("mode", ImportOptions.Mode.DELTA.name())
+                    .param("async", "true")
+                    .param("deleteMissing", String.valueOf(deleteMissing)))
+            .andExpect(status().isAccepted())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    ImportJobResponse importJobResponse =
+        fromJson(mapper, responseString, new TypeReference<>() {});
+
+    return importJobResponse.getId();
+  }
+
+  private ImportDryRunResponse submitDryRun(
+      String path, String fileName, byte[] content, boolean indexIds) throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", fileName, CSV_CONTENT_TYPE, content);
+
+    String responseString =
+        mockMvc
+            .perform(
+                multipart(path)
+                    .file(file)
+                    .param("dryRun", "true")
+                    .param("indexIds", String.valueOf(indexIds)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    return fromJson(mapper, responseString, new TypeReference<>() {});
+  }
+
+  // the rows of the reject file, without its header
+  private List<String> getRejectedRows(UUID importJobId) throws Exception {
+    String rejectFile =
+        mockMvc
+            .perform(get("/imports/{importJobId}/rejects", importJobId))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(CSV_CONTENT_TYPE))
+            .andReturn()
+            .getResponse()
+            .getContentAsString(StandardCharsets.UTF_8);
+
+    List<String> rows = rejectFile.lines().toList();
+    assertEquals(ImportRejectFile.HEADER.strip(), rows.get(0));
+
+    return rows.subList(1, rows.size());
+  }
+
+  private MockHttpServletRequestBuilder uploadChunk(
+      String path, UUID uploadId, byte[] content, int firstByte, int chunkSize) {
+    MockMultipartFile chunk =
+        new MockMultipartFile(
+            "file",
+            "chunk.csv",
+            CSV_CONTENT_TYPE,
+            Arrays.copyOfRange(content, firstByte, firstByte + chunkSize));
+
+    return multipart(path)
+        .file(chunk)
+        .param("uploadId", uploadId.toString())
+        .param("mode", ImportOptions.Mode.STANDARD.name())
+        .param("commitInterval", "50")
+        .header(
+            HttpHeaders.CONTENT_RANGE,
+            "bytes %d-%d/%d".formatted(firstByte, firstByte + chunkSize - 1, content.length));
+  }
+
+  private ImportJobResponse submitUploadChunk(
+      String path, UUID uploadId, byte[] content, int firstByte, int chunkSize) throws Exception {
+    String responseString =
+        mockMvc
+            .perform(uploadChunk(path, uploadId, content, firstByte, chunkSize))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.upload_id").value(uploadId.toString()))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    return fromJson(mapper, responseString, new TypeReference<>() {});
+  }
+
+  private static int countCsvRows(byte[] content) {
+    return (int) new String(content, StandardCharsets.UTF_8).lines().count() - 1;
+  }
+
+  private static byte[] buildZip(Map<String, byte[]> entries) throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(zip)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+        zipOutputStream.write(entry.getValue());
+        zipOutputStream.closeEntry();
+      }
+    }
+
+    return zip.toByteArray();
+  }
+
+  private ImportJobResponse awaitImportJob(UUID importJobId) throws Exception {
+    Instant deadline = Instant.now().plus(IMPORT_JOB_TIMEOUT);
+    ImportJobResponse importJobResponse;
+
+    do {
+      Thread.sleep(100);
+
+      String responseString =
+          mockMvc
+              .perform(get("/imports/{importJobId}", importJobId).accept(APPLICATION_JSON))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+
+      importJobResponse = fromJson(mapper, responseString, new TypeReference<>() {});
+    } while (UNFINISHED_STATUSES.contains(importJobResponse.getStatus())
+        && Instant.now().isBefore(deadline));
+
+    return importJobResponse;
+  }
+}
@@ -1,10 +1,13 @@
 package com.phorest.controller;
 
 import static com.phorest.controller.advice.ApiControllerAdvice.METHOD_ARGUMENT_NOT_VALID_MESSAGE;
+import static com.phorest.exception.error.ApiError.APPOINTMENT_NOT_FOUND;
 import static com.phorest.exception.error.ApiError.BAD_REQUEST;
 import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
 import static com.phorest.exception.error.ApiError.PURCHASE_NOT_FOUND;
 import static com.phorest.helper.JsonTestHelper.toJson;
+import static com.phorest.helper.StatisticsTestHelper.clearStatistics;
+import static com.phorest.helper.StatisticsTestHelper.getUnexpectedStatementCount;
 import static com.phorest.model.entity.Purchase.PURCHASE_NAME_LENGTH_LIMIT;
 import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
 import static org.hamcrest.Matchers.aMapWithSize;
@@ -12,6 +15,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -24,17 +28,26 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.opencsv.CSVReader;
+import com.phorest.exception.AppointmentNotFoundException;
 import com.phorest.exception.InvalidCsvFileException;
 import com.phorest.exception.PurchaseNotFoundException;
 import com.phorest.model.entity.Purchase;
 import com.phorest.model.request.PurchaseRequest;
 import com.phorest.repository.PurchaseRepository;
 import com.phorest.util.CsvUtils;
+import jakarta.persistence.EntityManagerFactory;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -52,9 +65,12 @@ public class PurchaseControllerTest {
   private static final UUID PURCHASE_ID = UUID.fromString("d2d3b92d-f9b5-48c5-bf31-88c28e3b73ac");
   private static final UUID NON_EXISTENT_PURCHASE_ID =
       UUID.fromString("aca44e8b-e581-45b3-849f-956a26dbeef8");
+  private static final UUID APPOINTMENT_ID =
+      UUID.fromString("7416ebc3-12ce-4000-87fb-82973722ebf4");
 
   @Autowired private PurchaseRepository purchaseRepository;
   @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManagerFactory entityManagerFactory;
   @Autowired private ObjectMapper mapper;
 
   @Value("classpath:files/purchases.csv")
@@ -545,4 +561,135 @@ public class PurchaseControllerTest {
       }
     }
   }
+
+  @Test
+  public void createPurchasesFromFile_AsAnonymousUserWithValidFile_InsertedWithoutSelects()
+      throws Exception {
+    purchaseRepository.deleteAll();
+    assertTrue(purchaseRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "purchases.csv", CSV_CONTENT_TYPE, purchasesCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/purchases/files").file(file)).andExpect(status().isCreated());
+
+    long insertCount = statistics.getEntityInsertCount();
+    long unexpectedStatementCount = getUnexpectedStatementCount(statistics);
+    long loadCount = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+    assertEquals(purchaseRepository.count(), insertCount);
+    assertEquals(0, unexpectedStatementCount);
+    assertEquals(0, loadCount);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"copy", "upsert", "insert", "staged"})
+  public void createPurchasesFromFile_AsAnonymousUserWithValidFileInMode_PurchasesCreated(
+      String mode) throws Exception {
+    purchaseRepository.deleteAll();
+    assertTrue(purchaseRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "purchases.csv", CSV_CONTENT_TYPE, purchasesCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/purchases/files").file(file).param("mode", mode))
+        .andExpect(status().isCreated());
+
+    List<Purchase> purchases = purchaseRepository.findAll();
+    assertFalse(purchases.isEmpty());
+
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
+      String[] line = csvReader.readNext();
+      assertEquals(5, line.length);
+      assertEquals("id", line[0]);
+      assertEquals("appointment_id", line[1]);
+      assertEquals("name", line[2]);
+      assertEquals("price", line[3]);
+      assertEquals("loyalty_points", line[4]);
+
+      for (Purchase purchase : purchases) {
+        line = csvReader.readNext();
+        assertEquals(5, line.length);
+        assertEquals(line[0], purchase.getId().toString());
+        assertEquals(line[1], purchase.getAppointment().getId().toString());
+        assertEquals(line[2], purchase.getName());
+        assertEquals(Double.parseDouble(line[3]), purchase.getPrice().doubleValue());
+        assertEquals(Integer.parseInt(line[4]), purchase.getLoyaltyPoints());
+      }
+    }
+  }
+
+  @Test
+  public void createPurchasesFromFile_AsAnonymousUserWithValidFileSortedByParent_PurchasesCreated()
+      throws Exception {
+    purchaseRepository.deleteAll();
+    assertTrue(purchaseRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "purchases.csv", CSV_CONTENT_TYPE, purchasesCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/purchases/files").file(file).param("sortByParent", "true"))
+        .andExpect(status().isCreated());
+
+    // the purchases are written in appointment id order, rather than in file order
+    Map<UUID, Purchase> purchasesById =
+        purchaseRepository.findAll().stream()
+            .collect(Collectors.toMap(Purchase::getId, Function.identity()));
+
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
+      String[] line = csvReader.readNext();
+      assertEquals(5, line.length);
+      assertEquals("id", line[0]);
+      assertEquals("appointment_id", line[1]);
+
+      int lineCount = 0;
+
+      while ((line = csvReader.readNext()) != null) {
+        Purchase purchase = purchasesById.get(UUID.fromString(line[0]));
+        assertNotNull(purchase);
+        assertEquals(line[1], purchase.getAppointment().getId().toString());
+        assertEquals(line[2], purchase.getName());
+        assertEquals(Double.parseDouble(line[3]), purchase.getPrice().doubleValue());
+        assertEquals(Integer.parseInt(line[4]), purchase.getLoyaltyPoints());
+        lineCount++;
+      }
+
+      assertEquals(lineCount, purchasesById.size());
+    }
+  }
+
+  @Test
+  public void
+      createPurchasesFromFile_AsAnonymousUserWithMissingAppointmentSortedByParent_ExceptionNotFound()
+          throws Exception {
+    purchaseRepository.deleteAll();
+    assertTrue(purchaseRepository.findAll().isEmpty());
+
+    UUID missingAppointmentId = UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff");
+    String csvContent =
+        "id,appointment_id,name,price,loyalty_points\n"
+            + "%s,%s,Shampoo,19.5,20\n".formatted(UUID.randomUUID(), missingAppointmentId)
+            + "%s,%s,Shampoo,19.5,20\n".formatted(UUID.randomUUID(), APPOINTMENT_ID);
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "purchases.csv", CSV_CONTENT_TYPE, csvContent.getBytes(StandardCharsets.UTF_8));
+
+    mockMvc
+        .perform(multipart("/purchases/files").file(file).param("sortByParent", "true"))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error_code").value(APPOINTMENT_NOT_FOUND.getErrorCode()))
+        .andExpect(
+            jsonPath("$.message")
+                .value(AppointmentNotFoundException.MESSAGE.formatted(missingAppointmentId)));
+
+    assertTrue(purchaseRepository.findAll().isEmpty());
+  }
 }
@@ -5,6 +5,8 @@ import static com.phorest.exception.error.ApiError.BAD_REQUEST;
 import static com.phorest.exception.error.ApiError.INVALID_CSV_FILE;
 import static com.phorest.exception.error.ApiError.SERVICE_NOT_FOUND;
 import static com.phorest.helper.JsonTestHelper.toJson;
+import static com.phorest.helper.StatisticsTestHelper.clearStatistics;
+import static com.phorest.helper.StatisticsTestHelper.getUnexpectedStatementCount;
 import static com.phorest.model.entity.Service.SERVICE_NAME_LENGTH_LIMIT;
 import static com.phorest.service.CsvServiceImpl.CSV_CONTENT_TYPE;
 import static org.hamcrest.Matchers.aMapWithSize;
@@ -30,11 +32,15 @@ import com.phorest.model.entity.Service;
 import com.phorest.model.request.ServiceRequest;
 import com.phorest.repository.ServiceRepository;
 import com.phorest.util.CsvUtils;
+import jakarta.persistence.EntityManagerFactory;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -55,6 +61,7 @@ public class ServiceControllerTest {
 
   @Autowired private ServiceRepository serviceRepository;
   @Autowired private MockMvc mockMvc;
+  @Autowired private EntityManagerFactory entityManagerFactory;
   @Autowired private ObjectMapper mapper;
 
   @Value("classpath:files/services.csv")
@@ -545,4 +552,66 @@ public class ServiceControllerTest {
       }
     }
   }
+
+  @Test
+  public void createServicesFromFile_AsAnonymousUserWithValidFile_InsertedWithoutSelects()
+      throws Exception {
+    serviceRepository.deleteAll();
+    assertTrue(serviceRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "services.csv", CSV_CONTENT_TYPE, servicesCsvFile.getContentAsByteArray());
+
+    Statistics statistics = clearStatistics(entityManagerFactory);
+
+    mockMvc.perform(multipart("/services/files").file(file)).andExpect(status().isCreated());
+
+    long insertCount = statistics.getEntityInsertCount();
+    long unexpectedStatementCount = getUnexpectedStatementCount(statistics);
+    long loadCount = statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+
+    assertEquals(serviceRepository.count(), insertCount);
+    assertEquals(0, unexpectedStatementCount);
+    assertEquals(0, loadCount);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"copy", "upsert", "insert", "staged"})
+  public void createServicesFromFile_AsAnonymousUserWithValidFileInMode_ServicesCreated(String mode)
+      throws Exception {
+    serviceRepository.deleteAll();
+    assertTrue(serviceRepository.findAll().isEmpty());
+
+    MockMultipartFile file =
+        new MockMultipartFile(
+            "file", "services.csv", CSV_CONTENT_TYPE, servicesCsvFile.getContentAsByteArray());
+
+    mockMvc
+        .perform(multipart("/services/files").file(file).param("mode", mode))
+        .andExpect(status().isCreated());
+
+    List<Service> services = serviceRepository.findAll();
+    assertFalse(services.isEmpty());
+
+    try (CSVReader csvReader = CsvUtils.buildCsvReader(file.getBytes())) {
+      String[] line = csvReader.readNext();
+      assertEquals(5, line.length);
+      assertEquals("id", line[0]);
+      assertEquals("appointment_id", line[1]);
+      assertEquals("name", line[2]);
+      assertEquals("price", line[3]);
+      assertEquals("loyalty_points", line[4]);
+
+      for (Service service : services) {
+        line = csvReader.readNext();
+        assertEquals(5, line.length);
+        assertEquals(line[0], service.getId().toString());
+        assertEquals(line[1], service.getAppointment().getId().toString());
+        assertEquals(line[2], service.getName());
+        assertEquals(Double.parseDouble(line[3]), service.getPrice().doubleValue());
+        assertEquals(Integer.parseInt(line[4]), service.getLoyaltyPoints());
+      }
+    }
+  }
 }
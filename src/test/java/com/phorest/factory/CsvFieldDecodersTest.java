@@ -0,0 +1,168 @@
+package com.phorest.factory;
+
+import static com.phorest.factory.CsvBeanFactory.APPOINTMENT_FORMATTER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.phorest.model.entity.Client.Gender;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/** Checks that the char range decoders give the same results and failures as parsing Strings. */
+public class CsvFieldDecodersTest {
+  private static final String PADDING = "x,";
+
+  @FunctionalInterface
+  private interface Decoder<T> {
+    T decode(char[] chars, int start, int end);
+  }
+
+  @Test
+  public void decodeUuid_WithValidAndInvalidFields_SameAsUuidFromString() {
+    assertSameAsParser(
+        List.of(
+            "e0b8ebfc-6e57-4661-9546-328c644a3764",
+            "E0B8EBFC-6E57-4661-9546-328C644A3764",
+            "00000000-0000-0000-0000-000000000000",
+            "ffffffff-ffff-ffff-ffff-ffffffffffff",
+            "e0b8ebfc-6e57-4661-9546-328c644a376",
+            "e0b8ebfc-6e57-4661-9546-328c644a37640",
+            "e0b8ebfc6e57-4661-9546-328c644a37640",
+            "e0b8ebfc-6e57-4661-9546+328c644a3764",
+            "g0b8ebfc-6e57-4661-9546-328c644a3764",
+            "Ａ0b8ebfc-6e57-4661-9546-328c644a3764",
+            "٣0b8ebfc-6e57-4661-9546-328c644a3764",
+            "1-2-3-4-5",
+            ""),
+        CsvFieldDecoders::decodeUuid,
+        UUID::fromString);
+  }
+
+  @Test
+  public void decodeAppointmentDateTime_WithValidAndInvalidFields_SameAsAppointmentFormatter() {
+    assertSameAsParser(
+        List.of(
+            "2016-02-07 17:15:00 +0000",
+            "2016-02-29 23:59:59 -1800",
+            "2015-02-29 10:00:00 +0000",
+            "2016-02-30 10:00:00 +0000",
+            "2016-13-07 10:00:00 +0000",
+            "2016-02-07 24:00:00 +0000",
+            "2016-02-07 10:60:00 +0000",
+            "2016-02-07 10:00:60 +0000",
+            "0000-01-01 00:00:00 +0000",
+            "9999-12-31 23:59:59 +1801",
+            "2016-02-07 17:15:00 -0000",
+            "2016-02-07 17:15:00 +1860",
+            "12016-02-07 17:15:00 +0000",
+            "2016-2-07 17:15:00 +0000",
+            "2016-02-07T17:15:00 +0000",
+            "2016-02-07 17:15:00 +00:00",
+            "2016-02-07 17:15:00+0000",
+            "2016-02-07 17:15:00 +0000 ",
+            "２016-02-07 17:15:00 +0000",
+            "2016-02-07 17:15:00 +٣000",
+            ""),
+        CsvFieldDecoders::decodeAppointmentDateTime,
+        field -> Instant.from(APPOINTMENT_FORMATTER.parse(field)));
+  }
+
+  @Test
+  public void decodePrice_WithValidAndInvalidFields_SameAsBigDecimal() {
+    assertSameAsParser(
+        List.of(
+            "0",
+            "0.00",
+            "007.50",
+            "12.5",
+            "12.",
+            ".5",
+            "-.5",
+            "-1.00",
+            "+1.00",
+            "99999999999999999999.99",
+            "1e3",
+            "1.2.3",
+            "1,5",
+            "1.5a",
+            " 1",
+            "1 ",
+            "٣",
+            "",
+            "."),
+        CsvFieldDecoders::decodePrice,
+        BigDecimal::new);
+  }
+
+  @Test
+  public void decodeInt_WithValidAndInvalidFields_SameAsIntegerParseInt() {
+    assertSameAsParser(
+        List.of(
+            "0",
+            "-0",
+            "+7",
+            "00012",
+            "2147483647",
+            "-2147483648",
+            "2147483648",
+            "-2147483649",
+            "99999999999",
+            "-",
+            "+",
+            "1a",
+            " 1",
+            "1 ",
+            "٣",
+            "１",
+            ""),
+        CsvFieldDecoders::decodeInt,
+        Integer::parseInt);
+  }
+
+  @Test
+  public void decodeGender_WithValidAndInvalidFields_SameAsGenderValueOf() {
+    assertSameAsParser(
+        List.of("Male", "female", "MALE", "fEmAlE", "", "males", "femal", "Male ", "ＭＡＬＥ"),
+        CsvFieldDecoders::decodeGender,
+        field -> Gender.valueOf(field.toUpperCase()));
+  }
+
+  @Test
+  public void decodeBoolean_WithValidAndInvalidFields_SameAsBooleanParseBoolean() {
+    assertSameAsParser(
+        List.of("true", "TRUE", "True", "tRuE", "false", "", "yes", "1", "truee", " true", "ｔrue"),
+        CsvFieldDecoders::decodeBoolean,
+        Boolean::parseBoolean);
+  }
+
+  private <T> void assertSameAsParser(
+      List<String> fields, Decoder<T> decoder, Function<String, T> parser) {
+
+    for (String field : fields) {
+      // the field is decoded in the middle of a larger array, like the fields of a line batch
+      char[] chars = (PADDING + field + PADDING).toCharArray();
+      int start = PADDING.length();
+
+      assertEquals(
+          describe(() -> parser.apply(field)),
+          describe(() -> decoder.decode(chars, start, start + field.length())),
+          field);
+    }
+  }
+
+  // the result and its string form, which tells apart equal decimals of different scales, or the
+  // type and message of the failure
+  private String describe(Supplier<?> decoding) {
+    try {
+      Object result = decoding.get();
+
+      return result + " " + result.getClass();
+    } catch (RuntimeException e) {
+      return e.getClass() + ": " + e.getMessage();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.phorest.helper;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class StatisticsTestHelper {
+  public static Statistics clearStatistics(EntityManagerFactory entityManagerFactory) {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    return statistics;
+  }
+
+  /** Counts the insert statements of an import, one per batch with the bulk write profile. */
+  public static long getInsertStatementCount(Statistics statistics, int batchSize) {
+    return (statistics.getEntityInsertCount() + batchSize - 1) / batchSize;
+  }
+
+  /**
+   * Counts the statements that were neither inserts, nor queries or collection loads run by the
+   * code itself, such as the select issued to merge an entity.
+   */
+  public static long getUnexpectedStatementCount(Statistics statistics) {
+    return getUnexpectedStatementCount(statistics, 1);
+  }
+
+  /** Same as getUnexpectedStatementCount, the inserts being sent in batches with bulk writes. */
+  public static long getUnexpectedStatementCount(Statistics statistics, int batchSize) {
+    return statistics.getPrepareStatementCount()
+        - getInsertStatementCount(statistics, batchSize)
+        - statistics.getQueryExecutionCount()
+        - statistics.getCollectionFetchCount();
+  }
+}
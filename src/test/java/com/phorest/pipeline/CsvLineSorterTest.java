@@ -0,0 +1,154 @@
+package com.phorest.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.util.CsvLineBatch;
+import com.phorest.util.UuidUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/** Checks that CsvLineSorter sorts lines like a stable sort in memory, whatever its run size. */
+public class CsvLineSorterTest {
+  private static final int KEY_FIELD = 1;
+  private static final int BATCH_SIZE = 10;
+
+  private static final int LINE_COUNT = 100;
+
+  // few keys, so that many lines share one, some with their high bits set, which sort last
+  private static final List<UUID> KEYS =
+      List.of(
+          UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff"),
+          UUID.fromString("80000000-0000-0000-0000-000000000000"),
+          UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff"),
+          UUID.fromString("00000000-0000-0000-8000-000000000000"),
+          UUID.fromString("00000000-0000-0000-0000-000000000001"),
+          UUID.fromString("e0b8ebfc-6e57-4661-9546-328c644a3764"));
+
+  @Test
+  public void sortByUuidField_WithLinesInSingleRun_LinesSorted() {
+    assertSortedLikeStableSort(buildLines(), LINE_COUNT);
+  }
+
+  @Test
+  public void sortByUuidField_WithLinesInSeveralRuns_LinesSorted() {
+    assertSortedLikeStableSort(buildLines(), 7);
+    assertSortedLikeStableSort(buildLines(), BATCH_SIZE);
+  }
+
+  @Test
+  public void sortByUuidField_WithInvalidKeys_InvalidKeysFirst() {
+    List<String[]> lines =
+        List.of(
+            new String[] {"1", "ffffffff-ffff-ffff-ffff-ffffffffffff"},
+            new String[] {"2", "not-a-uuid"},
+            new String[] {"3", "00000000-0000-0000-0000-000000000001"},
+            new String[] {"4"});
+
+    List<String[]> sortedLines = sort(lines, BATCH_SIZE, 2);
+
+    assertEquals(List.of("2", "4", "3", "1"), sortedLines.stream().map(line -> line[0]).toList());
+  }
+
+  @Test
+  public void sortByUuidField_WithNoLines_NoBatches() {
+    List<CsvLineBatch> batches = new ArrayList<>();
+
+    buildSorter(2).sortByUuidField(batchConsumer -> {}, KEY_FIELD, BATCH_SIZE).read(batches::add);
+
+    assertTrue(batches.isEmpty());
+  }
+
+  private static void assertSortedLikeStableSort(List<String[]> lines, int sortRunLines) {
+    List<String[]> expectedLines = new ArrayList<>(lines);
+    expectedLines.sort(
+        Comparator.comparing(line -> UUID.fromString(line[KEY_FIELD]), UuidUtils::compareUnsigned));
+
+    List<String[]> sortedLines = sort(lines, BATCH_SIZE, sortRunLines);
+
+    assertEquals(expectedLines.size(), sortedLines.size());
+
+    for (int i = 0; i < expectedLines.size(); i++) {
+      assertArrayEquals(expectedLines.get(i), sortedLines.get(i));
+    }
+  }
+
+  // the line number of each line is read back as its first field, to check that it was kept
+  private static List<String[]> sort(List<String[]> lines, int batchSize, int sortRunLines) {
+    ImportPipeline.Reader<CsvLineBatch> reader =
+        batchConsumer -> {
+          CsvLineBatch batch = new CsvLineBatch(batchSize);
+
+          for (String[] line : lines) {
+            addLine(batch, Long.parseLong(line[0]), line);
+
+            if (batch.size() == batchSize) {
+              batchConsumer.accept(batch);
+              batch = new CsvLineBatch(batchSize);
+            }
+          }
+
+          if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+          }
+        };
+
+    List<String[]> sortedLines = new ArrayList<>();
+
+    buildSorter(sortRunLines)
+        .sortByUuidField(reader, KEY_FIELD, batchSize)
+        .read(
+            batch -> {
+              assertTrue(batch.size() <= batchSize);
+
+              for (int line = 0; line < batch.size(); line++) {
+                String[] fields = new String[batch.getFieldCount(line)];
+
+                for (int field = 0; field < fields.length; field++) {
+                  fields[field] = batch.getField(line, field);
+                }
+
+                assertEquals(Long.parseLong(fields[0]), batch.getLineNumber(line));
+                sortedLines.add(fields);
+              }
+            });
+
+    return sortedLines;
+  }
+
+  private static void addLine(CsvLineBatch batch, long lineNumber, String[] fields) {
+    StringBuilder chars = new StringBuilder();
+    int[] fieldEnds = new int[fields.length];
+
+    for (int field = 0; field < fields.length; field++) {
+      chars.append(fields[field]);
+      fieldEnds[field] = chars.length();
+    }
+
+    batch.add(lineNumber, chars.toString().toCharArray(), fieldEnds, fields.length);
+  }
+
+  // the keys are spread over the lines out of order, every key being shared by many lines
+  private static List<String[]> buildLines() {
+    List<String[]> lines = new ArrayList<>();
+
+    for (int lineNumber = 1; lineNumber <= LINE_COUNT; lineNumber++) {
+      UUID key = KEYS.get(lineNumber * 5 % KEYS.size());
+      lines.add(new String[] {String.valueOf(lineNumber), key.toString(), "é,\"" + lineNumber});
+    }
+
+    return lines;
+  }
+
+  private static CsvLineSorter buildSorter(int sortRunLines) {
+    ImportConfiguration importConfiguration = new ImportConfiguration();
+    importConfiguration.setSortRunLines(sortRunLines);
+
+    return new CsvLineSorter(importConfiguration);
+  }
+}
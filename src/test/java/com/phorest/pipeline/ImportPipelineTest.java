@@ -0,0 +1,323 @@
+package com.phorest.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.ImportCancelledException;
+import com.phorest.model.importing.ImportContext;
+import com.phorest.model.request.ImportOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/** Checks the ordering, backpressure, failure and cancellation of the import pipeline stages. */
+@Timeout(30)
+public class ImportPipelineTest {
+  private static final int WORKERS = 4;
+  private static final int QUEUE_CAPACITY = 3;
+  private static final int BATCH_COUNT = 50;
+  private static final long AWAIT_SECONDS = 10;
+
+  private final ImportContext importContext = new ImportContext(new ImportOptions());
+
+  private ImportPipeline importPipeline;
+
+  @AfterEach
+  public void shutdownImportPipeline() {
+    importPipeline.shutdown();
+  }
+
+  @Test
+  public void run_WithSlowAndFastWorkers_BatchesWrittenInReadOrder() {
+    importPipeline = buildPipeline(WORKERS);
+    List<Integer> writtenBatches = new ArrayList<>();
+
+    // the first batches of every group of workers are the slowest, so they finish last
+    importPipeline.run(
+        importContext,
+        readBatches(BATCH_COUNT),
+        batch -> {
+          sleep(WORKERS - batch % WORKERS);
+          return batch;
+        },
+        writtenBatches::add);
+
+    assertEquals(IntStream.range(0, BATCH_COUNT).boxed().toList(), writtenBatches);
+    assertEquals(0, importContext.getBatchesAwaitingProcessing());
+    assertEquals(0, importContext.getBatchesAwaitingPersisting());
+  }
+
+  @Test
+  public void run_WithBlockedWriter_ReaderBlockedOnceQueueIsFull() throws InterruptedException {
+    importPipeline = buildPipeline(1);
+    AtomicInteger readBatches = new AtomicInteger();
+    CountDownLatch writerBlocked = new CountDownLatch(1);
+    CountDownLatch writerReleased = new CountDownLatch(1);
+    List<Integer> writtenBatches = new ArrayList<>();
+
+    Thread writerThread =
+        new Thread(
+            () ->
+                importPipeline.<Integer, Integer>run(
+                    importContext,
+                    batchConsumer -> {
+                      for (int batch = 0; batch < BATCH_COUNT; batch++) {
+                        readBatches.incrementAndGet();
+                        batchConsumer.accept(batch);
+                      }
+                    },
+                    Function.identity(),
+                    batch -> {
+                      writerBlocked.countDown();
+                      await(writerReleased);
+                      writtenBatches.add(batch);
+                    }));
+    writerThread.start();
+
+    assertTrue(writerBlocked.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+
+    // the batch being written, the batches filling the queue, and the one the reader waits to add
+    int expectedReadBatches = QUEUE_CAPACITY + 2;
+
+    while (readBatches.get() < expectedReadBatches) {
+      sleep(1);
+    }
+
+    sleep(100);
+    assertEquals(expectedReadBatches, readBatches.get());
+
+    writerReleased.countDown();
+    writerThread.join();
+
+    assertEquals(BATCH_COUNT, readBatches.get());
+    assertEquals(BATCH_COUNT, writtenBatches.size());
+  }
+
+  @Test
+  public void run_WithFailingReader_ExceptionRethrown() {
+    importPipeline = buildPipeline(WORKERS);
+    IllegalStateException readerException = new IllegalStateException("reader");
+    List<Integer> writtenBatches = new ArrayList<>();
+
+    IllegalStateException exception =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                importPipeline.<Integer, Integer>run(
+                    importContext,
+                    batchConsumer -> {
+                      batchConsumer.accept(0);
+                      batchConsumer.accept(1);
+                      throw readerException;
+                    },
+                    Function.identity(),
+                    writtenBatches::add));
+
+    assertSame(readerException, exception);
+    assertEquals(List.of(0, 1), writtenBatches);
+  }
+
+  @Test
+  public void run_WithFailingWorker_ExceptionRethrownAndReaderAndBatchesInFlightCancelled()
+      throws InterruptedException {
+    importPipeline = buildPipeline(2);
+    IllegalStateException workerException = new IllegalStateException("worker");
+    CountDownLatch readerStopped = new CountDownLatch(1);
+    CountDownLatch nextBatchStarted = new CountDownLatch(1);
+    CountDownLatch nextBatchInterrupted = new CountDownLatch(1);
+    List<Integer> writtenBatches = new ArrayList<>();
+
+    IllegalStateException exception =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                importPipeline.run(
+                    importContext,
+                    readEndlessly(readerStopped),
+                    batch -> {
+                      // the batch after the failing one is still being processed when it fails
+                      if (batch == 3) {
+                        await(nextBatchStarted);
+                        throw workerException;
+                      }
+
+                      if (batch == 4) {
+                        nextBatchStarted.countDown();
+                        sleepUntilInterrupted(nextBatchInterrupted);
+                      }
+
+                      return batch;
+                    },
+                    writtenBatches::add));
+
+    assertSame(workerException, exception);
+    assertEquals(List.of(0, 1, 2), writtenBatches);
+    assertTrue(readerStopped.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+    assertTrue(nextBatchInterrupted.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void run_WithFailingWriter_ExceptionRethrownAndReaderCancelled()
+      throws InterruptedException {
+    importPipeline = buildPipeline(WORKERS);
+    IllegalStateException writerException = new IllegalStateException("writer");
+    CountDownLatch readerStopped = new CountDownLatch(1);
+
+    IllegalStateException exception =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                importPipeline.run(
+                    importContext,
+                    readEndlessly(readerStopped),
+                    Function.identity(),
+                    batch -> {
+                      if (batch == 2) {
+                        throw writerException;
+                      }
+                    }));
+
+    assertSame(writerException, exception);
+    assertTrue(readerStopped.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void run_WithImportCancelled_ExceptionCancelledAndReaderStopped()
+      throws InterruptedException {
+    importPipeline = buildPipeline(WORKERS);
+    CountDownLatch readerStopped = new CountDownLatch(1);
+
+    assertThrows(
+        ImportCancelledException.class,
+        () ->
+            importPipeline.run(
+                importContext,
+                readEndlessly(readerStopped),
+                Function.identity(),
+                batch -> {
+                  if (batch == 5) {
+                    importContext.cancel();
+                  }
+                }));
+
+    assertTrue(readerStopped.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void run_WithoutWorkers_StagesRunInOrderOnCallingThread() {
+    importPipeline = buildPipeline(0);
+    Thread callingThread = Thread.currentThread();
+    List<String> stages = new ArrayList<>();
+
+    importPipeline.<Integer, Integer>run(
+        importContext,
+        batchConsumer -> {
+          for (int batch = 0; batch < 2; batch++) {
+            assertSame(callingThread, Thread.currentThread());
+            stages.add("read " + batch);
+            batchConsumer.accept(batch);
+          }
+        },
+        batch -> {
+          assertSame(callingThread, Thread.currentThread());
+          stages.add("process " + batch);
+          return batch;
+        },
+        batch -> {
+          assertSame(callingThread, Thread.currentThread());
+          stages.add("write " + batch);
+        });
+
+    assertEquals(
+        List.of("read 0", "process 0", "write 0", "read 1", "process 1", "write 1"), stages);
+  }
+
+  @Test
+  public void run_WithoutWorkersWithFailingWorker_ExceptionRethrown() {
+    importPipeline = buildPipeline(0);
+    IllegalStateException workerException = new IllegalStateException("worker");
+    List<Integer> writtenBatches = new ArrayList<>();
+
+    IllegalStateException exception =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                importPipeline.run(
+                    importContext,
+                    readBatches(BATCH_COUNT),
+                    batch -> {
+                      if (batch == 1) {
+                        throw workerException;
+                      }
+
+                      return batch;
+                    },
+                    writtenBatches::add));
+
+    assertSame(workerException, exception);
+    assertEquals(List.of(0), writtenBatches);
+  }
+
+  private static ImportPipeline buildPipeline(int workers) {
+    ImportConfiguration importConfiguration = new ImportConfiguration();
+    importConfiguration.setPipelineWorkers(workers);
+    importConfiguration.setPipelineQueueCapacity(QUEUE_CAPACITY);
+
+    return new ImportPipeline(importConfiguration);
+  }
+
+  private static ImportPipeline.Reader<Integer> readBatches(int batchCount) {
+    return batchConsumer -> {
+      for (int batch = 0; batch < batchCount; batch++) {
+        batchConsumer.accept(batch);
+      }
+    };
+  }
+
+  // only stops once the pipeline stops it, which the latch is counted down for
+  private static ImportPipeline.Reader<Integer> readEndlessly(CountDownLatch readerStopped) {
+    return batchConsumer -> {
+      try {
+        for (int batch = 0; ; batch++) {
+          batchConsumer.accept(batch);
+        }
+      } finally {
+        readerStopped.countDown();
+      }
+    };
+  }
+
+  private static void sleepUntilInterrupted(CountDownLatch interrupted) {
+    try {
+      Thread.sleep(TimeUnit.SECONDS.toMillis(AWAIT_SECONDS * 2));
+    } catch (InterruptedException e) {
+      interrupted.countDown();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(AWAIT_SECONDS, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
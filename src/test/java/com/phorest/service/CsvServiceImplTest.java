@@ -0,0 +1,194 @@
+package com.phorest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.phorest.config.ImportConfiguration;
+import com.phorest.exception.InvalidCsvFileException;
+import com.phorest.factory.CsvBeanFactory;
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.csv.common.CsvBean;
+import com.phorest.util.CsvLineBatch;
+import com.phorest.validator.CsvLineValidator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.util.unit.DataSize;
+
+/** Checks that memory-mapped files tokenized in chunks give the same batches as a single pass. */
+public class CsvServiceImplTest {
+  private static final int BATCH_SIZE = 7;
+  private static final int PARSING_THREADS = 4;
+  private static final long[] CHUNK_SIZES = {1, 100, 1000, 100_000};
+
+  private static final Map<String, Class<? extends CsvBean>> CSV_FILES =
+      Map.of(
+          "/files/clients.csv", ClientCsvBean.class,
+          "/files/appointments.csv", AppointmentCsvBean.class,
+          "/files/purchases.csv", PurchaseCsvBean.class,
+          "/files/services.csv", ServiceCsvBean.class);
+
+  private static final String CLIENTS_HEADER =
+      "id,first_name,last_name,email,phone,gender,banned\n";
+
+  private final ForkJoinPool importParsingPool = new ForkJoinPool(PARSING_THREADS);
+
+  @TempDir private Path tempDir;
+
+  @AfterEach
+  public void shutdownImportParsingPool() {
+    importParsingPool.shutdownNow();
+  }
+
+  @Test
+  public void processLinesFromSpooledCsvFile_WithMappedValidFiles_SameBatchesAsSinglePass()
+      throws URISyntaxException {
+
+    for (Map.Entry<String, Class<? extends CsvBean>> csvFile : CSV_FILES.entrySet()) {
+      Path path = Path.of(getClass().getResource(csvFile.getKey()).toURI());
+
+      assertSameBatchesAsSinglePass(path, csvFile.getValue());
+    }
+  }
+
+  @Test
+  public void processLinesFromSpooledCsvFile_WithMappedQuotedLineBreaks_SameBatchesAsSinglePass()
+      throws IOException {
+
+    StringBuilder csv = new StringBuilder(CLIENTS_HEADER);
+
+    for (int i = 0; i < 100; i++) {
+      csv.append(i)
+          .append(",\"first\nname, ")
+          .append(i)
+          .append("\",\"last \"\"name\"\"\",\"e\\\"mail\",phone\r\n,")
+          .append(i % 3 == 0 ? "\"\r\nfemale\r\n\"" : "male")
+          .append(",false")
+          .append(i % 2 == 0 ? "\r\n" : "\n");
+    }
+
+    Path path = Files.writeString(tempDir.resolve("clients.csv"), csv);
+
+    assertSameBatchesAsSinglePass(path, ClientCsvBean.class);
+  }
+
+  @Test
+  public void processLinesFromSpooledCsvFile_WithMappedUnterminatedQuote_ExceptionInvalidCsvFile()
+      throws IOException {
+
+    Path path =
+        Files.writeString(
+            tempDir.resolve("clients.csv"), CLIENTS_HEADER + "1,2,3,4,5,6,7\n1,\"2,3,4,5,6,7\n");
+
+    assertThrows(
+        InvalidCsvFileException.class,
+        () -> readBatches(path, ClientCsvBean.class, DataSize.ofBytes(0), DataSize.ofBytes(1)));
+  }
+
+  @Test
+  public void processLinesFromSpooledCsvFile_WithMappedInvalidHeader_ExceptionInvalidCsvFile()
+      throws IOException {
+
+    Path path = Files.writeString(tempDir.resolve("clients.csv"), "id,name\n1,2\n3,4\n");
+
+    assertThrows(
+        InvalidCsvFileException.class,
+        () -> readBatches(path, ClientCsvBean.class, DataSize.ofBytes(0), DataSize.ofBytes(1)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {0, Long.MAX_VALUE})
+  public void processLinesFromSpooledCsvFile_WithMalformedUtf8_ExceptionInvalidCsvFile(
+      long mappedParsingThreshold) throws IOException {
+
+    ByteArrayOutputStream csv = new ByteArrayOutputStream();
+    csv.writeBytes((CLIENTS_HEADER + "1,D").getBytes(StandardCharsets.UTF_8));
+    csv.write(0xC3);
+    csv.writeBytes("ri,Dietrich,dori@example.ie,1,Female,false\n".getBytes(StandardCharsets.UTF_8));
+
+    Path path = Files.write(tempDir.resolve("clients.csv"), csv.toByteArray());
+
+    assertThrows(
+        InvalidCsvFileException.class,
+        () ->
+            readBatches(
+                path,
+                ClientCsvBean.class,
+                DataSize.ofBytes(mappedParsingThreshold),
+                DataSize.ofBytes(1)));
+  }
+
+  private void assertSameBatchesAsSinglePass(Path path, Class<? extends CsvBean> elementType) {
+    List<List<String>> expectedBatches =
+        readBatches(path, elementType, DataSize.ofBytes(Long.MAX_VALUE), DataSize.ofBytes(1));
+
+    for (long chunkSize : CHUNK_SIZES) {
+      List<List<String>> batches =
+          readBatches(path, elementType, DataSize.ofBytes(0), DataSize.ofBytes(chunkSize));
+
+      assertEquals(expectedBatches, batches, path + " in chunks of " + chunkSize + " bytes");
+    }
+  }
+
+  // describes every line of every batch by its line number and fields
+  private List<List<String>> readBatches(
+      Path path,
+      Class<? extends CsvBean> elementType,
+      DataSize mappedParsingThreshold,
+      DataSize mappedParsingChunkSize) {
+
+    ImportConfiguration importConfiguration = new ImportConfiguration();
+    importConfiguration.setMappedParsingThreshold(mappedParsingThreshold);
+    importConfiguration.setMappedParsingChunkSize(mappedParsingChunkSize);
+
+    CsvService csvService =
+        new CsvServiceImpl(
+            new CsvBeanFactory(), new CsvLineValidator(), importConfiguration, importParsingPool);
+
+    List<List<String>> batches = new ArrayList<>();
+    AtomicLong readBytes = new AtomicLong();
+
+    csvService.processLinesFromSpooledCsvFile(
+        path,
+        elementType,
+        BATCH_SIZE,
+        readBytes::addAndGet,
+        lineBatch -> batches.add(describeLines(lineBatch)));
+
+    assertEquals(path.toFile().length(), readBytes.get());
+
+    return batches;
+  }
+
+  private List<String> describeLines(CsvLineBatch lineBatch) {
+    List<String> lines = new ArrayList<>();
+
+    for (int line = 0; line < lineBatch.size(); line++) {
+      List<String> fields = new ArrayList<>();
+
+      for (int field = 0; field < lineBatch.getFieldCount(line); field++) {
+        fields.add(lineBatch.getField(line, field));
+      }
+
+      lines.add(lineBatch.getLineNumber(line) + ":" + fields);
+    }
+
+    return lines;
+  }
+}
@@ -0,0 +1,120 @@
+package com.phorest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.opencsv.CSVReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Checks that CsvTokenizer splits csv text exactly like OpenCSV's CSVReader, which it replaces. */
+public class CsvTokenizerTest {
+  private static final String MALFORMED = "<malformed>";
+
+  @Test
+  public void nextRecord_WithValidCsv_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv(
+        """
+        id,first_name,last_name,email,phone,gender,banned
+        e0b8ebfc-6e57-4661-9546-328c644a3764,Dori,Dietrich,dori@example.com,272-301-6356,Male,false
+        104fdf33-c8a2-4f1c-b371-3e9c2facdfa0,Ike,Kling,"ike,kling@example.com",,Female,true
+        """);
+  }
+
+  @Test
+  public void nextRecord_WithQuotedFields_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv("\"a\",\"b,c\",\"d\"\"e\",\"\"\n");
+    assertSameRecordsAsOpenCsv("\"multi\nline\",\"multi\r\nline\",x\n");
+    assertSameRecordsAsOpenCsv("a \"b\" c,  \"d\",\"e\"f\n");
+    assertSameRecordsAsOpenCsv("\"\"\"\",\"\"\"a\"\"\",a\"\"b\n");
+  }
+
+  @Test
+  public void nextRecord_WithEscapedCharacters_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv("a\\,b,\"c\\\"d\",e\\\\f,g\\h,\\\n");
+  }
+
+  @Test
+  public void nextRecord_WithLineBreaks_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv("a,b\r\nc,d\re,f\n\ng,h");
+    assertSameRecordsAsOpenCsv("\n\n");
+    assertSameRecordsAsOpenCsv("");
+  }
+
+  @Test
+  public void nextRecord_WithUnterminatedQuote_MalformedLikeOpenCsv() {
+    assertSameRecordsAsOpenCsv("a,b\n\"c,d\n");
+    assertSameRecordsAsOpenCsv("a,\"b");
+  }
+
+  @Test
+  public void nextRecord_WithWhitespaceAndNonAsciiCharacters_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv(" a ,\tb\t, ,é,\"é \"\n");
+    assertSameRecordsAsOpenCsv(",,\n,\n");
+  }
+
+  @Test
+  public void nextRecord_WithEscapesAroundQuotesAndLineBreaks_SameFieldsAsOpenCsv() {
+    assertSameRecordsAsOpenCsv("\"a\\\"\",b\n");
+    assertSameRecordsAsOpenCsv("\"a\\\nb\",c\n");
+    assertSameRecordsAsOpenCsv("a\\\r\nb\n");
+    assertSameRecordsAsOpenCsv("\\\"a,b\n");
+    assertSameRecordsAsOpenCsv("a\"\\\"b\",c\n");
+  }
+
+  @Test
+  public void nextRecord_WithSmallBuffers_SameFieldsAsOpenCsv() {
+    // records and their quoted parts, escapes and line breaks straddle buffer refills
+    List<String> csvs =
+        List.of(
+            "id,name\r\n1,\"a\"\"b\"\r\n2,\"c\r\nd\"\r\n",
+            "a\\,b,\"c\\\"d\",é\r\n\r\n",
+            "\"\"\"\",\"\",\"\n\"");
+
+    for (String csv : csvs) {
+      for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+        assertSameRecordsAsOpenCsv(csv, bufferSize);
+      }
+    }
+  }
+
+  private void assertSameRecordsAsOpenCsv(String csv) {
+    assertSameRecordsAsOpenCsv(csv, CsvUtils.CSV_READER_BUFFER_SIZE);
+  }
+
+  private void assertSameRecordsAsOpenCsv(String csv, int bufferSize) {
+    assertEquals(readWithOpenCsv(csv), readWithCsvTokenizer(csv, bufferSize), csv);
+  }
+
+  private List<List<String>> readWithOpenCsv(String csv) {
+    List<List<String>> records = new ArrayList<>();
+
+    try (CSVReader csvReader = new CSVReader(new StringReader(csv))) {
+      String[] line;
+
+      while ((line = csvReader.readNext()) != null) {
+        records.add(List.of(line));
+      }
+    } catch (Exception e) {
+      records.add(List.of(MALFORMED));
+    }
+
+    return records;
+  }
+
+  private List<List<String>> readWithCsvTokenizer(String csv, int bufferSize) {
+    List<List<String>> records = new ArrayList<>();
+
+    try (CsvTokenizer csvTokenizer = new CsvTokenizer(new StringReader(csv), bufferSize)) {
+      while (csvTokenizer.nextRecord()) {
+        records.add(List.of(csvTokenizer.getFields()));
+      }
+    } catch (IOException e) {
+      records.add(List.of(MALFORMED));
+    }
+
+    return records;
+  }
+}
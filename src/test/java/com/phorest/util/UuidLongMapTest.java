@@ -0,0 +1,85 @@
+package com.phorest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/** Checks the values of UuidLongMap, whose ids are stored and probed for as in a UuidSet. */
+public class UuidLongMapTest {
+  @Test
+  public void put_WithNewId_ValueMapped() {
+    UuidLongMap values = new UuidLongMap();
+    UUID id = UUID.randomUUID();
+
+    assertFalse(values.containsKey(id));
+    assertEquals(-1, values.get(id, -1));
+
+    values.put(id, 42);
+
+    assertTrue(values.containsKey(id));
+    assertEquals(42, values.get(id, -1));
+    assertEquals(1, values.size());
+  }
+
+  @Test
+  public void put_WithMappedId_ValueReplaced() {
+    UuidLongMap values = new UuidLongMap();
+    UUID id = UUID.randomUUID();
+
+    values.put(id, 42);
+    values.put(UUID.fromString(id.toString()), 7);
+
+    assertEquals(7, values.get(id, -1));
+    assertEquals(1, values.size());
+  }
+
+  @Test
+  public void put_WithNilId_ValueMapped() {
+    UuidLongMap values = new UuidLongMap();
+    UUID nilId = new UUID(0, 0);
+
+    assertFalse(values.containsKey(nilId));
+
+    values.put(nilId, 42);
+    values.put(nilId, 7);
+
+    assertTrue(values.containsKey(nilId));
+    assertEquals(7, values.get(nilId, -1));
+    assertEquals(1, values.size());
+  }
+
+  @Test
+  public void put_WithMoreIdsThanExpected_ValuesKeptWhenGrown() {
+    UuidLongMap values = new UuidLongMap(1);
+
+    for (int i = 1; i <= 100; i++) {
+      values.put(new UUID(0, i), -i);
+    }
+
+    assertEquals(100, values.size());
+
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(-i, values.get(new UUID(0, i), 0));
+    }
+  }
+
+  @Test
+  public void forEachKey_WithNilAndOtherIds_EveryIdHanded() {
+    UuidLongMap values = new UuidLongMap();
+    UUID nilId = new UUID(0, 0);
+    UUID id = UUID.randomUUID();
+
+    values.put(nilId, 1);
+    values.put(id, 2);
+
+    Set<UUID> ids = new HashSet<>();
+    values.forEachKey(ids::add);
+
+    assertEquals(Set.of(nilId, id), ids);
+  }
+}
@@ -0,0 +1,97 @@
+package com.phorest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/** Checks that UuidSet finds every id it holds, however few bits tell its ids apart. */
+public class UuidSetTest {
+  @Test
+  public void add_WithNewId_IdContained() {
+    UuidSet ids = new UuidSet();
+    UUID id = UUID.randomUUID();
+
+    assertFalse(ids.contains(id));
+    assertTrue(ids.add(id));
+    assertTrue(ids.contains(id));
+    assertEquals(1, ids.size());
+  }
+
+  @Test
+  public void add_WithDuplicateId_FalseReturned() {
+    UuidSet ids = new UuidSet();
+    UUID id = UUID.randomUUID();
+
+    assertTrue(ids.add(id));
+    assertFalse(ids.add(UUID.fromString(id.toString())));
+    assertEquals(1, ids.size());
+  }
+
+  @Test
+  public void add_WithNilId_IdContained() {
+    UuidSet ids = new UuidSet();
+    UUID nilId = new UUID(0, 0);
+
+    assertFalse(ids.contains(nilId));
+    assertTrue(ids.add(nilId));
+    assertFalse(ids.add(nilId));
+    assertTrue(ids.contains(nilId));
+    assertEquals(1, ids.size());
+  }
+
+  @Test
+  public void add_WithMostAndLeastSignificantBits_IdContained() {
+    UuidSet ids = new UuidSet();
+    UUID id = UUID.randomUUID();
+
+    assertTrue(ids.add(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+    assertTrue(ids.contains(id));
+    assertFalse(ids.add(id));
+  }
+
+  @Test
+  public void add_WithIdsDifferingInFewBits_AllIdsContained() {
+    UuidSet ids = new UuidSet();
+
+    // sequential ids, and ids differing only in their high bits, which the hash has to spread
+    for (int i = 1; i <= 1_000; i++) {
+      assertTrue(ids.add(new UUID(0, i)));
+      assertTrue(ids.add(new UUID((long) i << 48, 0)));
+    }
+
+    assertEquals(2_000, ids.size());
+
+    for (int i = 1; i <= 1_000; i++) {
+      assertTrue(ids.contains(new UUID(0, i)));
+      assertTrue(ids.contains(new UUID((long) i << 48, 0)));
+    }
+
+    assertFalse(ids.contains(new UUID(0, 1_001)));
+    assertFalse(ids.contains(new UUID(1, 1)));
+    assertFalse(ids.contains(new UUID(1_001L << 48, 0)));
+  }
+
+  @Test
+  public void add_WithMoreIdsThanExpected_IdsKeptWhenGrown() {
+    UuidSet ids = new UuidSet(1);
+
+    for (int i = 1; i <= 100; i++) {
+      assertTrue(ids.add(new UUID(i, i)));
+    }
+
+    for (int i = 1; i <= 100; i++) {
+      assertFalse(ids.add(new UUID(i, i)));
+    }
+
+    assertEquals(100, ids.size());
+  }
+
+  @Test
+  public void constructor_WithTooManyExpectedIds_ExceptionIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> new UuidSet(Integer.MAX_VALUE));
+  }
+}
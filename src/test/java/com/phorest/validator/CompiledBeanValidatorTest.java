@@ -0,0 +1,273 @@
+package com.phorest.validator;
+
+import static com.phorest.model.entity.Client.CLIENT_NAME_LENGTH_LIMIT;
+import static com.phorest.model.entity.Client.PHONE_LENGTH_LIMIT;
+import static com.phorest.model.entity.Purchase.PURCHASE_NAME_LENGTH_LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.phorest.model.csv.AppointmentCsvBean;
+import com.phorest.model.csv.ClientCsvBean;
+import com.phorest.model.csv.PurchaseCsvBean;
+import com.phorest.model.csv.ServiceCsvBean;
+import com.phorest.model.entity.Client.Gender;
+import com.phorest.model.request.AppointmentRequest;
+import com.phorest.model.request.ClientRequest;
+import com.phorest.model.request.ImportOptions;
+import com.phorest.model.request.PurchaseRequest;
+import com.phorest.model.request.ServiceRequest;
+import com.phorest.util.CsvCompression;
+import com.sun.management.ThreadMXBean;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+/** Checks that the compiled checks find the same violations as the reflective validator. */
+public class CompiledBeanValidatorTest {
+  private static final List<Class<?>> VALIDATED_TYPES =
+      List.of(
+          ClientCsvBean.class,
+          AppointmentCsvBean.class,
+          PurchaseCsvBean.class,
+          ServiceCsvBean.class,
+          ClientRequest.class,
+          AppointmentRequest.class,
+          PurchaseRequest.class,
+          ServiceRequest.class,
+          ImportOptions.class);
+
+  // a value of each property type that is valid for any of the validated properties of that type
+  private static final Map<Class<?>, Object> VALID_VALUES =
+      Map.of(
+          String.class,
+          "dori@example.ie",
+          UUID.class,
+          UUID.fromString("e0b8ebfc-6e57-4661-9546-328c644a3764"),
+          Instant.class,
+          Instant.parse("2016-02-07T17:15:00Z"),
+          BigDecimal.class,
+          new BigDecimal("19.5"),
+          Integer.class,
+          1,
+          Boolean.class,
+          true,
+          Gender.class,
+          Gender.MALE,
+          ImportOptions.Mode.class,
+          ImportOptions.Mode.STANDARD,
+          CsvCompression.class,
+          CsvCompression.NONE);
+
+  // the values at and around the bounds of the constraints of each property type
+  private static final Map<Class<?>, List<Object>> EDGE_VALUES =
+      Map.of(
+          String.class,
+          Arrays.asList(
+              null,
+              "",
+              " ",
+              "\t",
+              "   ",
+              "\u0000",
+              "a",
+              " a ",
+              "é",
+              "dori.dietrich@example.co.uk",
+              "dori@example",
+              "@example.com",
+              "dori@",
+              "dori@@example.com",
+              "dori dietrich@example.com",
+              "\"dori dietrich\"@example.com",
+              "dóri@exämple.com",
+              "dori@[127.0.0.1]",
+              "d".repeat(64) + "@example.com",
+              "d".repeat(65) + "@example.com",
+              ".dori@example.com",
+              "dori.@example.com",
+              "dori..dietrich@example.com",
+              "dori+salon@example.com",
+              "o'brien@example.com",
+              "dori@example.com.",
+              "dori@.example.com",
+              "dori@example..com",
+              "dori@-example.com",
+              "dori@example-.com",
+              "dori@ex--ample.com",
+              "dori@xn--exmple-cua.com",
+              "dori@123.example",
+              "dori@" + "e".repeat(63) + ".com",
+              "dori@" + "e".repeat(64) + ".com",
+              "dori@" + "example.".repeat(31) + "ie",
+              "dori@" + "example.".repeat(32) + "ie",
+              "a".repeat(CLIENT_NAME_LENGTH_LIMIT),
+              "a".repeat(CLIENT_NAME_LENGTH_LIMIT + 1),
+              "a".repeat(PURCHASE_NAME_LENGTH_LIMIT + 1),
+              "1".repeat(PHONE_LENGTH_LIMIT),
+              "1".repeat(PHONE_LENGTH_LIMIT + 1)),
+          UUID.class,
+          Arrays.asList(null, new UUID(0, 0)),
+          Instant.class,
+          Arrays.asList(null, Instant.EPOCH, Instant.ofEpochSecond(-1)),
+          BigDecimal.class,
+          Arrays.asList(
+              null,
+              new BigDecimal("-1"),
+              new BigDecimal("-0.01"),
+              BigDecimal.ZERO,
+              new BigDecimal("0.00"),
+              new BigDecimal("0.01"),
+              new BigDecimal("1E-30")),
+          Integer.class,
+          Arrays.asList(null, Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE),
+          Boolean.class,
+          Arrays.asList(null, false),
+          Gender.class,
+          Arrays.asList(null, Gender.FEMALE),
+          ImportOptions.Mode.class,
+          Arrays.asList(null, ImportOptions.Mode.COPY),
+          CsvCompression.class,
+          Arrays.asList(null, CsvCompression.GZIP));
+
+  private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+  private final Validator validator = validatorFactory.getValidator();
+  private final CompiledBeanValidator compiledBeanValidator =
+      new CompiledBeanValidator(validatorFactory);
+
+  @AfterEach
+  public void closeValidatorFactory() {
+    validatorFactory.close();
+  }
+
+  @Test
+  public void constructor_WithValidatedTypes_CompiledAtStartup() {
+    VALIDATED_TYPES.forEach(type -> assertTrue(compiledBeanValidator.isCompiled(type), type + ""));
+  }
+
+  @Test
+  public void validate_WithValidBeans_NoViolations() throws Exception {
+    for (Class<?> type : VALIDATED_TYPES) {
+      Object bean = buildValidBean(type);
+
+      assertTrue(compiledBeanValidator.isKnownValid(bean), bean.toString());
+      assertSameViolationsAsReflectiveValidator(bean);
+    }
+  }
+
+  @Test
+  public void isKnownValid_WithValidClientCsvBean_NothingAllocated() throws Exception {
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Object bean = buildValidBean(ClientCsvBean.class);
+
+    // the first calls load and link the classes the checks use
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(compiledBeanValidator.isKnownValid(bean));
+    }
+
+    long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    boolean valid = true;
+
+    for (int i = 0; i < 100_000; i++) {
+      valid &= compiledBeanValidator.isKnownValid(bean);
+    }
+
+    assertEquals(0, threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytes);
+    assertTrue(valid);
+  }
+
+  @Test
+  public void validate_WithEmptyBeans_SameViolationsAsReflectiveValidator() throws Exception {
+    for (Class<?> type : VALIDATED_TYPES) {
+      assertSameViolationsAsReflectiveValidator(type.getConstructor().newInstance());
+    }
+  }
+
+  @Test
+  public void validate_WithEachPropertyAtEdgeValues_SameViolationsAsReflectiveValidator()
+      throws Exception {
+
+    for (Class<?> type : VALIDATED_TYPES) {
+      for (Field field : getPropertyFields(type)) {
+        for (Object value : EDGE_VALUES.get(getValueType(field))) {
+          if (value == null && field.getType().isPrimitive()) {
+            continue;
+          }
+
+          Object bean = buildValidBean(type);
+          field.set(bean, value);
+
+          assertSameViolationsAsReflectiveValidator(bean);
+        }
+      }
+    }
+  }
+
+  private void assertSameViolationsAsReflectiveValidator(Object bean) {
+    Set<ConstraintViolation<Object>> violations = validator.validate(bean);
+
+    assertEquals(violations.isEmpty(), compiledBeanValidator.isKnownValid(bean), bean.toString());
+    assertEquals(
+        describe(violations), describe(compiledBeanValidator.validate(bean)), bean.toString());
+  }
+
+  private <T> Set<String> describe(Set<ConstraintViolation<T>> violations) {
+    Set<String> descriptions = new TreeSet<>();
+
+    violations.forEach(
+        violation -> descriptions.add(violation.getPropertyPath() + " " + violation.getMessage()));
+
+    return descriptions;
+  }
+
+  private Object buildValidBean(Class<?> type) throws ReflectiveOperationException {
+    Object bean = type.getConstructor().newInstance();
+
+    for (Field field : getPropertyFields(type)) {
+      field.set(bean, VALID_VALUES.get(getValueType(field)));
+    }
+
+    return bean;
+  }
+
+  private static List<Field> getPropertyFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+
+    ReflectionUtils.doWithFields(
+        type,
+        field -> {
+          field.setAccessible(true);
+          fields.add(field);
+        },
+        field -> !Modifier.isStatic(field.getModifiers()));
+
+    return fields;
+  }
+
+  private static Class<?> getValueType(Field field) {
+    if (field.getType() == int.class) {
+      return Integer.class;
+    }
+
+    if (field.getType() == boolean.class) {
+      return Boolean.class;
+    }
+
+    return field.getType();
+  }
+}
@@ -2,3 +2,4 @@ TRUNCATE TABLE public.service CASCADE;
 TRUNCATE TABLE public.purchase CASCADE;
 TRUNCATE TABLE public.appointment CASCADE;
 TRUNCATE TABLE public.client CASCADE;
+TRUNCATE TABLE public.import_checkpoint;